@@ -19,10 +19,25 @@
  */
 package de.fdamken.yalp.parsing;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.instrumentation.CompilationListener;
+import de.fdamken.yalp.parsing.instrumentation.StepMeasurement;
+import de.fdamken.yalp.parsing.instrumentation.ThreadResources;
 
 /**
  * Represents a simple compilation pipeline to pass the code thru all steps of
@@ -37,6 +52,12 @@ import de.fdamken.yalp.parsing.exception.CompilationException;
  * that can happen if your pipeline is not well defined. </b>
  * </p>
  *
+ * <p>
+ * A pipeline is thread-safe if all of its steps are, so it can be shared
+ * between multiple threads (e.g. using
+ * {@link #parseAll(List, Executor, int, boolean)}).
+ * </p>
+ *
  * @param <I>
  *            The input type.
  * @param <O>
@@ -49,6 +70,12 @@ public class CompilationPipeline<I extends IntermediateRepresentation, O extends
      *
      */
     private final List<AbstractCompilationStep<?, ?>> compilationSteps;
+    /**
+     * The listeners that are notified about every executed step. If there are
+     * no listeners, the steps are not measured at all.
+     *
+     */
+    private final List<CompilationListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
      * Constructor of CompilationPipeline.
@@ -68,10 +95,337 @@ public class CompilationPipeline<I extends IntermediateRepresentation, O extends
     @SuppressWarnings({ "deprecation", "unchecked" })
     @Override
     public O parse(final I input) throws CompilationException {
+        if (!this.listeners.isEmpty()) {
+            return (O) this.parseMeasured(input);
+        }
+
         Object current = input;
         for (final AbstractCompilationStep<?, ?> compilationStep : this.compilationSteps) {
             current = compilationStep.parseDanger(current);
         }
         return (O) current;
     }
+
+    /**
+     * Compiles all inputs on the given executor, keeping the order of the
+     * inputs.
+     *
+     * @param inputs
+     *            The inputs to compile.
+     * @param executor
+     *            The executor to compile the inputs on.
+     * @param maxParallelism
+     *            The maximum number of inputs that are compiled concurrently.
+     * @return The results in the order of the inputs.
+     * @throws InterruptedException
+     *             If the current thread was interrupted while waiting for the
+     *             compilations.
+     * @see #parseAll(List, Executor, int, boolean)
+     */
+    public List<CompilationResult<I, O>> parseAll(final List<? extends I> inputs, final Executor executor,
+            final int maxParallelism) throws InterruptedException {
+        return this.parseAll(inputs, executor, maxParallelism, true);
+    }
+
+    /**
+     * Compiles all inputs on the given executor. Up to
+     * <code>maxParallelism - 1</code> workers are submitted to the executor,
+     * and the calling thread works as well. Every worker compiles inputs until
+     * all inputs are taken. A failing input does not abort the batch; its
+     * failure is reported in its result instead.
+     *
+     * <p>
+     * As the calling thread takes inputs, too, the batch is completed even if
+     * the executor rejects the workers or accepts them but never runs them.
+     * Once all inputs are taken, the workers that did not start yet are
+     * cancelled, so the calling thread only waits for the workers that are
+     * still compiling an input.
+     * </p>
+     *
+     * @param inputs
+     *            The inputs to compile.
+     * @param executor
+     *            The executor to compile the inputs on.
+     * @param maxParallelism
+     *            The maximum number of inputs that are compiled concurrently,
+     *            including the calling thread.
+     * @param ordered
+     *            Whether the results should be in the order of the inputs. If
+     *            not, the results are in the order of completion.
+     * @return The results of all inputs.
+     * @throws InterruptedException
+     *             If the current thread was interrupted while waiting for the
+     *             workers that are still running. The running workers are not
+     *             interrupted.
+     * @throws IllegalArgumentException
+     *             If <code>maxParallelism</code> is not positive.
+     */
+    public List<CompilationResult<I, O>> parseAll(final List<? extends I> inputs, final Executor executor,
+            final int maxParallelism, final boolean ordered) throws InterruptedException, IllegalArgumentException {
+        if (maxParallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism must be positive!");
+        }
+        if (inputs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final int workerCount = Math.min(maxParallelism, inputs.size()) - 1;
+        final Batch batch = new Batch(inputs, workerCount);
+        final List<Worker> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            final Worker worker = new Worker(batch);
+            workers.add(worker);
+            try {
+                executor.execute(worker);
+            } catch (final RejectedExecutionException ex) {
+                worker.cancel();
+            }
+        }
+        batch.work();
+        // All inputs are taken, so the workers that did not start yet are not
+        // needed anymore.
+        for (final Worker worker : workers) {
+            worker.cancel();
+        }
+        batch.finished.await();
+
+        final Error fatal = batch.fatal.get();
+        if (fatal != null) {
+            throw fatal;
+        }
+        if (!ordered) {
+            return new ArrayList<>(batch.completed);
+        }
+        final List<CompilationResult<I, O>> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            results.add(batch.results.get(i));
+        }
+        return results;
+    }
+
+    /**
+     * Adds a listener that is notified before and after every step.
+     *
+     * @param listener
+     *            The listener to add.
+     */
+    public void addListener(final CompilationListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener that was added using
+     * {@link #addListener(CompilationListener)}.
+     *
+     * @param listener
+     *            The listener to remove.
+     */
+    public void removeListener(final CompilationListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Passes the input thru all steps and notifies the listeners about every
+     * step. Computing the size of a representation may walk the whole
+     * representation, so the sizes are only computed if a listener is
+     * {@link CompilationListener#isMeasuringSizes() measuring} them, and
+     * always outside of the measured sections.
+     *
+     * @param input
+     *            The input.
+     * @return The output.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    @SuppressWarnings("deprecation")
+    private Object parseMeasured(final I input) throws CompilationException {
+        final List<CompilationListener> listeners = this.listeners;
+        boolean measureSizes = false;
+        for (final CompilationListener listener : listeners) {
+            measureSizes |= listener.isMeasuringSizes();
+        }
+
+        IntermediateRepresentation current = input;
+        for (int i = 0; i < this.compilationSteps.size(); i++) {
+            final AbstractCompilationStep<?, ?> compilationStep = this.compilationSteps.get(i);
+            for (final CompilationListener listener : listeners) {
+                listener.stepStarted(compilationStep, current);
+            }
+            final long inputSize = measureSizes ? current.getSize() : IntermediateRepresentation.UNKNOWN_SIZE;
+
+            final long startAllocatedBytes = ThreadResources.getAllocatedBytes();
+            final long startCpuTime = ThreadResources.getCpuTime();
+            final long startWallTime = System.nanoTime();
+            IntermediateRepresentation output = null;
+            Throwable failure = null;
+            try {
+                output = (IntermediateRepresentation) compilationStep.parseDanger(current);
+            } catch (final Throwable ex) {
+                failure = ex;
+                throw ex;
+            } finally {
+                final long wallTime = System.nanoTime() - startWallTime;
+                final long cpuTime = CompilationPipeline.difference(startCpuTime, ThreadResources.getCpuTime());
+                final long allocatedBytes = CompilationPipeline.difference(startAllocatedBytes,
+                        ThreadResources.getAllocatedBytes());
+                final long outputSize = measureSizes && output != null ? output.getSize()
+                        : IntermediateRepresentation.UNKNOWN_SIZE;
+                final StepMeasurement measurement = new StepMeasurement(compilationStep, i, wallTime, cpuTime, allocatedBytes,
+                        inputSize, outputSize, failure);
+                for (final CompilationListener listener : listeners) {
+                    listener.stepFinished(measurement);
+                }
+            }
+            current = output;
+        }
+        return current;
+    }
+
+    /**
+     * Computes the difference of two measured values.
+     *
+     * @param start
+     *            The value at the start.
+     * @param end
+     *            The value at the end.
+     * @return The difference or {@link StepMeasurement#UNSUPPORTED} if one of
+     *         the values is not supported.
+     */
+    private static long difference(final long start, final long end) {
+        if (start == StepMeasurement.UNSUPPORTED || end == StepMeasurement.UNSUPPORTED) {
+            return StepMeasurement.UNSUPPORTED;
+        }
+        return end - start;
+    }
+
+    /**
+     * A batch of inputs that is compiled by multiple workers, which take
+     * inputs until all inputs are taken.
+     *
+     */
+    private class Batch {
+        /**
+         * The inputs to compile.
+         *
+         */
+        private final List<? extends I> inputs;
+        /**
+         * The index of the next input to take.
+         *
+         */
+        private final AtomicInteger next = new AtomicInteger();
+        /**
+         * The results, indexed by the index of their inputs.
+         *
+         */
+        private final AtomicReferenceArray<CompilationResult<I, O>> results;
+        /**
+         * The results in the order of their completion.
+         *
+         */
+        private final Queue<CompilationResult<I, O>> completed = new ConcurrentLinkedQueue<>();
+        /**
+         * The first error that was thrown by a compilation. Errors are not
+         * reported as failures of an input, but abort the batch.
+         *
+         */
+        private final AtomicReference<Error> fatal = new AtomicReference<>();
+        /**
+         * Counted down by every {@link Worker worker} that finished or was
+         * cancelled.
+         *
+         */
+        private final CountDownLatch finished;
+
+        /**
+         * Constructor of Batch.
+         *
+         * @param inputs
+         *            The inputs to compile.
+         * @param workers
+         *            The number of {@link Worker workers} on the executor.
+         */
+        Batch(final List<? extends I> inputs, final int workers) {
+            this.inputs = inputs;
+            this.results = new AtomicReferenceArray<>(inputs.size());
+            this.finished = new CountDownLatch(workers);
+        }
+
+        /**
+         * Compiles inputs until all inputs are taken.
+         *
+         */
+        void work() {
+            try {
+                int index;
+                while (this.fatal.get() == null && (index = this.next.getAndIncrement()) < this.inputs.size()) {
+                    final I input = this.inputs.get(index);
+                    CompilationResult<I, O> result;
+                    try {
+                        result = new CompilationResult<>(index, input, CompilationPipeline.this.parse(input), null);
+                    } catch (final CompilationException | RuntimeException ex) {
+                        result = new CompilationResult<>(index, input, null, ex);
+                    }
+                    this.results.set(index, result);
+                    this.completed.add(result);
+                }
+            } catch (final Error err) {
+                this.fatal.compareAndSet(null, err);
+            }
+        }
+    }
+
+    /**
+     * A task that works on a {@link Batch} on the executor. A worker can be
+     * {@link #cancel() cancelled} until it starts.
+     *
+     */
+    private class Worker implements Runnable {
+        /**
+         * The batch to work on.
+         *
+         */
+        private final Batch batch;
+        /**
+         * Whether the worker was started or cancelled.
+         *
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * Constructor of Worker.
+         *
+         * @param batch
+         *            The batch to work on.
+         */
+        Worker(final Batch batch) {
+            this.batch = batch;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            if (this.claimed.compareAndSet(false, true)) {
+                try {
+                    this.batch.work();
+                } finally {
+                    this.batch.finished.countDown();
+                }
+            }
+        }
+
+        /**
+         * Cancels this worker if it did not start yet.
+         *
+         */
+        void cancel() {
+            if (this.claimed.compareAndSet(false, true)) {
+                this.batch.finished.countDown();
+            }
+        }
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing;
+
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import lombok.Value;
+
+/**
+ * The result of compiling a single input of a batch (see
+ * {@link CompilationPipeline#parseAll(java.util.List, java.util.concurrent.Executor, int, boolean)}).
+ * Either the output or the failure is set.
+ *
+ * @param <I>
+ *            The input type.
+ * @param <O>
+ *            The output type.
+ */
+@Value
+public class CompilationResult<I extends IntermediateRepresentation, O extends IntermediateRepresentation> {
+    /**
+     * The index of the input within the batch.
+     *
+     */
+    int index;
+    /**
+     * The input.
+     *
+     */
+    I input;
+    /**
+     * The output or <code>null</code> if the compilation failed.
+     *
+     */
+    O output;
+    /**
+     * The exception that was thrown during the compilation or
+     * <code>null</code> if the compilation succeeded. This is either a
+     * {@link CompilationException} or a {@link RuntimeException}.
+     *
+     */
+    Exception failure;
+
+    /**
+     *
+     * @return Whether the compilation succeeded.
+     */
+    public boolean isSuccessful() {
+        return this.failure == null;
+    }
+
+    /**
+     * Retrieves the output or rethrows the failure.
+     *
+     * @return The output.
+     * @throws CompilationException
+     *             If the compilation failed with a compilation error.
+     * @throws RuntimeException
+     *             If the compilation failed with any other error.
+     */
+    public O getOutputOrThrow() throws CompilationException, RuntimeException {
+        if (this.failure instanceof CompilationException) {
+            throw (CompilationException) this.failure;
+        } else if (this.failure != null) {
+            throw (RuntimeException) this.failure;
+        }
+        return this.output;
+    }
+}
@@ -24,6 +24,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 import lombok.Getter;
 
@@ -38,6 +39,28 @@ public class Input implements IntermediateRepresentation {
      */
     @Getter
     private final Reader reader;
+    /**
+     * The input stream that contains the encoded code or <code>null</code> if
+     * this input was not created from an input stream. If this is set, the
+     * {@link #reader} decodes this stream, so only one of them can be used.
+     *
+     */
+    @Getter
+    private final InputStream inputStream;
+    /**
+     * The character set of the {@link #inputStream} or <code>null</code> if
+     * this input was not created from an input stream.
+     *
+     */
+    @Getter
+    private final Charset charset;
+    /**
+     * The number of characters (or bytes if only the encoded code is known)
+     * of the code or {@link IntermediateRepresentation#UNKNOWN_SIZE} if it is
+     * not known.
+     *
+     */
+    private final long size;
 
     /**
      * Constructor of Input.
@@ -46,7 +69,22 @@ public class Input implements IntermediateRepresentation {
      *            The reader that contains the code.
      */
     public Input(final Reader reader) {
+        this(reader, IntermediateRepresentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Constructor of Input.
+     *
+     * @param reader
+     *            The reader that contains the code.
+     * @param size
+     *            The number of characters of the code.
+     */
+    private Input(final Reader reader, final long size) {
         this.reader = reader;
+        this.inputStream = null;
+        this.charset = null;
+        this.size = size;
     }
 
     /**
@@ -56,7 +94,7 @@ public class Input implements IntermediateRepresentation {
      *            The code.
      */
     public Input(final String code) {
-        this(new StringReader(code));
+        this(new StringReader(code), code.length());
     }
 
     /**
@@ -68,6 +106,46 @@ public class Input implements IntermediateRepresentation {
      *            The character set of the input stream.
      */
     public Input(final InputStream in, final Charset cs) {
-        this(new InputStreamReader(in, cs));
+        this(in, cs, IntermediateRepresentation.UNKNOWN_SIZE);
+    }
+
+    /**
+     * Constructor of Input.
+     *
+     * @param in
+     *            The input stream that contains the code.
+     * @param cs
+     *            The character set of the input stream.
+     * @param size
+     *            The number of bytes of the input stream or
+     *            {@link IntermediateRepresentation#UNKNOWN_SIZE} if it is not
+     *            known.
+     */
+    protected Input(final InputStream in, final Charset cs, final long size) {
+        this.reader = new InputStreamReader(in, cs);
+        this.inputStream = in;
+        this.charset = cs;
+        this.size = size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     *
+     * @return Whether the code is available as a stream of UTF-8 encoded bytes
+     *         (ASCII is a subset of UTF-8) that can be lexed without decoding
+     *         it.
+     */
+    public boolean isUtf8() {
+        return this.inputStream != null
+                && (StandardCharsets.UTF_8.equals(this.charset) || StandardCharsets.US_ASCII.equals(this.charset));
     }
 }
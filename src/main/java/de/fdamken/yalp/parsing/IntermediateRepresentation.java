@@ -25,5 +25,22 @@ package de.fdamken.yalp.parsing;
  *
  */
 public interface IntermediateRepresentation {
-    // Nothing to do.
+    /**
+     * The value that is returned by {@link #getSize()} if the size of a
+     * representation is not known.
+     *
+     */
+    long UNKNOWN_SIZE = -1;
+
+    /**
+     * Retrieves the size of this representation in the unit that fits the
+     * representation best (e.g. characters of the code or nodes of a tree).
+     * The size is only used for statistics, so computing it may be expensive.
+     *
+     * @return The size of this representation or {@link #UNKNOWN_SIZE} if it
+     *         is not known.
+     */
+    default long getSize() {
+        return IntermediateRepresentation.UNKNOWN_SIZE;
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing;
+
+/**
+ * The kind of a literal (an element that is not a container). The kind is
+ * determined by the lexer while it has the characters of the element in hand,
+ * so later compilation steps do not have to scan the element again.
+ *
+ * <p>
+ * The kinds are determined as follows:
+ * <ul>
+ * <li>{@link #STRING}: Starts with a quote (<code>"</code>).</li>
+ * <li>{@link #CHAR}: A hash sign directly followed by a backslash and a
+ * character or the name of a character (e.g. <code>#\a</code> or
+ * <code>#\space</code>). The lexer keeps the escape character of character
+ * literals (while it drops all other escape characters).</li>
+ * <li>{@link #BOOLEAN}: <code>#t</code>, <code>#f</code>, <code>#true</code>
+ * or <code>#false</code>.</li>
+ * <li>{@link #INTEGER}: An optional sign followed by digits.</li>
+ * <li>{@link #FRACTION}: An optional sign followed by digits, a slash and
+ * digits.</li>
+ * <li>{@link #FLOATING_POINT}: An optional sign followed by digits with a
+ * decimal point and/or an exponent (e.g. <code>1.5</code>, <code>.5</code>,
+ * <code>1e10</code>).</li>
+ * <li>{@link #SYMBOL}: Everything else.</li>
+ * </ul>
+ * The kind only depends on the content, so equal contents always have equal
+ * kinds no matter whether they were lexed or built by hand.
+ * </p>
+ *
+ */
+public enum LiteralKind {
+    /**
+     * An integer, e.g. <code>42</code>.
+     *
+     */
+    INTEGER,
+    /**
+     * A fraction, e.g. <code>1/2</code>.
+     *
+     */
+    FRACTION,
+    /**
+     * A floating point number, e.g. <code>0.5</code>.
+     *
+     */
+    FLOATING_POINT,
+    /**
+     * A boolean, e.g. <code>#t</code>.
+     *
+     */
+    BOOLEAN,
+    /**
+     * A string, e.g. <code>"Hello, World!"</code>. The content includes the
+     * quotes.
+     *
+     */
+    STRING,
+    /**
+     * A character, e.g. <code>#\a</code>. The content includes the escape
+     * character.
+     *
+     */
+    CHAR,
+    /**
+     * A symbol, e.g. <code>define</code>.
+     *
+     */
+    SYMBOL;
+
+    /**
+     * Cache of {@link #values()}.
+     *
+     */
+    private static final LiteralKind[] VALUES = LiteralKind.values();
+
+    /**
+     * Retrieves the kind with the given ordinal.
+     *
+     * @param ordinal
+     *            The ordinal.
+     * @return The kind.
+     * @throws IllegalArgumentException
+     *             If there is no kind with the given ordinal.
+     */
+    public static LiteralKind fromOrdinal(final int ordinal) throws IllegalArgumentException {
+        if (ordinal < 0 || ordinal >= LiteralKind.VALUES.length) {
+            throw new IllegalArgumentException("Unknown literal kind " + ordinal + "!");
+        }
+        return LiteralKind.VALUES[ordinal];
+    }
+
+    /**
+     * Determines the kind of the given content. Only the characters that are
+     * needed for deciding the kind are looked at; most symbols are recognized
+     * by their first character.
+     *
+     * @param content
+     *            The content of the literal.
+     * @return The kind of the literal.
+     */
+    public static LiteralKind classify(final CharSequence content) {
+        final int length = content.length();
+        if (length == 0) {
+            return LiteralKind.SYMBOL;
+        }
+
+        final char first = content.charAt(0);
+        if (first == '"') {
+            return LiteralKind.STRING;
+        } else if (first == '#') {
+            if (length > 2 && content.charAt(1) == '\\') {
+                return LiteralKind.CHAR;
+            }
+            return LiteralKind.isBoolean(content) ? LiteralKind.BOOLEAN : LiteralKind.SYMBOL;
+        } else if (first == '+' || first == '-' || first == '.' || first >= '0' && first <= '9') {
+            return LiteralKind.classifyNumber(content);
+        }
+        return LiteralKind.SYMBOL;
+    }
+
+    /**
+     * Checks whether the given content is a boolean.
+     *
+     * @param content
+     *            The content of the literal, starting with a hash sign.
+     * @return Whether the content is a boolean.
+     */
+    private static boolean isBoolean(final CharSequence content) {
+        switch (content.length()) {
+            case 2:
+                return content.charAt(1) == 't' || content.charAt(1) == 'f';
+            case 5:
+                return "#true".contentEquals(content);
+            case 6:
+                return "#false".contentEquals(content);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Determines the kind of the given content that starts like a number.
+     *
+     * @param content
+     *            The content of the literal.
+     * @return The kind of the number or {@link #SYMBOL} if the content is not
+     *         a number (e.g. <code>+</code> or <code>-></code>).
+     */
+    private static LiteralKind classifyNumber(final CharSequence content) {
+        final int length = content.length();
+        int i = 0;
+        if (content.charAt(0) == '+' || content.charAt(0) == '-') {
+            i++;
+        }
+
+        final int integerStart = i;
+        i = LiteralKind.skipDigits(content, i);
+        final boolean integerDigits = i > integerStart;
+        if (i == length) {
+            return integerDigits ? LiteralKind.INTEGER : LiteralKind.SYMBOL;
+        }
+
+        final char separator = content.charAt(i);
+        if (separator == '/') {
+            final int denominatorStart = i + 1;
+            return integerDigits && denominatorStart < length && LiteralKind.skipDigits(content, denominatorStart) == length
+                    ? LiteralKind.FRACTION : LiteralKind.SYMBOL;
+        }
+
+        boolean fractionDigits = false;
+        if (separator == '.') {
+            final int fractionStart = i + 1;
+            i = LiteralKind.skipDigits(content, fractionStart);
+            fractionDigits = i > fractionStart;
+        }
+        if (!integerDigits && !fractionDigits) {
+            return LiteralKind.SYMBOL;
+        }
+        if (i < length && (content.charAt(i) == 'e' || content.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (content.charAt(i) == '+' || content.charAt(i) == '-')) {
+                i++;
+            }
+            final int exponentStart = i;
+            i = LiteralKind.skipDigits(content, exponentStart);
+            if (i == exponentStart) {
+                return LiteralKind.SYMBOL;
+            }
+        } else if (separator != '.') {
+            return LiteralKind.SYMBOL;
+        }
+        return i == length ? LiteralKind.FLOATING_POINT : LiteralKind.SYMBOL;
+    }
+
+    /**
+     * Skips all digits starting at the given index.
+     *
+     * @param content
+     *            The content to scan.
+     * @param start
+     *            The index to start at.
+     * @return The index of the first character that is not a digit.
+     */
+    private static int skipDigits(final CharSequence content, final int start) {
+        int i = start;
+        while (i < content.length() && content.charAt(i) >= '0' && content.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+}
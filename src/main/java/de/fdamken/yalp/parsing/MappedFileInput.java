@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import lombok.Getter;
+
+/**
+ * An input whose code is contained in a (usually memory mapped) byte buffer.
+ * If the code is encoded in UTF-8 (or ASCII), the bytes are lexed directly
+ * without decoding or copying them first, otherwise the decoding
+ * {@link #getReader() reader} is used.
+ *
+ */
+public class MappedFileInput extends Input {
+    /**
+     * The buffer that contains the encoded code. This must not be modified
+     * directly, use {@link ByteBuffer#duplicate()} instead.
+     *
+     */
+    @Getter
+    private final ByteBuffer buffer;
+
+    /**
+     * Constructor of MappedFileInput.
+     *
+     * @param buffer
+     *            The buffer that contains the encoded code. The code starts at
+     *            the current position and ends at the limit.
+     * @param charset
+     *            The character set of the code.
+     */
+    public MappedFileInput(final ByteBuffer buffer, final Charset charset) {
+        super(new ByteBufferInputStream(buffer.duplicate()), charset, buffer.remaining());
+
+        this.buffer = buffer.duplicate();
+    }
+
+    /**
+     * Maps the given file into memory.
+     *
+     * <p>
+     * <b> NOTE: The file must not be larger than {@link Integer#MAX_VALUE}
+     * bytes. </b>
+     * </p>
+     *
+     * @param file
+     *            The file to map.
+     * @param charset
+     *            The character set of the file.
+     * @return The input containing the mapped file.
+     * @throws IOException
+     *             If an I/O error occurs whilst mapping the file.
+     */
+    public static MappedFileInput map(final Path file, final Charset charset) throws IOException {
+        try (final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            return new MappedFileInput(buffer, charset);
+        }
+    }
+
+    /**
+     * An input stream reading from a byte buffer. This is used for providing
+     * the {@link Input#getReader() reader} and the
+     * {@link Input#getInputStream() input stream}.
+     *
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        /**
+         * The buffer to read from.
+         *
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructor of ByteBufferInputStream.
+         *
+         * @param buffer
+         *            The buffer to read from.
+         */
+        ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            final int read = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, read);
+            return read;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.io.InputStream#available()
+         */
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing;
+
+import java.util.Arrays;
+
+import de.fdamken.yalp.parsing.ast.representation.Keyword;
+import de.fdamken.yalp.util.CharSequences;
+
+/**
+ * A symbol table that interns symbols (the contents of the elements) and maps
+ * them to dense integer IDs. Every symbol is only stored once, so equal
+ * symbols share the same string, and later compilation steps can compare IDs
+ * instead of strings.
+ *
+ * <p>
+ * All {@link Keyword keywords} are interned when the table is created, so the
+ * ID of a keyword is always its {@link Keyword#ordinal() ordinal} (see
+ * {@link Keyword#fromSymbolId(int)}).
+ * </p>
+ *
+ * <p>
+ * Usually every compilation uses its own table, but a table can also be
+ * shared between multiple compilations (even concurrent ones) as all methods
+ * are thread-safe. Looking up symbols that are already interned does not
+ * lock, so concurrent lexers do not contend for the table.
+ * </p>
+ *
+ */
+public class SymbolTable {
+    /**
+     * The ID that is used for elements that are not interned.
+     *
+     */
+    public static final int NO_SYMBOL = -1;
+
+    /**
+     * The initial number of hash slots. Must be a power of two.
+     *
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * The open-addressing hash slots containing <code>ID + 1</code> or
+     * <code>0</code> for empty slots.
+     *
+     */
+    private volatile int[] slots = new int[SymbolTable.INITIAL_CAPACITY];
+    /**
+     * The interned symbols, indexed by their ID.
+     *
+     */
+    private volatile String[] symbols = new String[SymbolTable.INITIAL_CAPACITY / 2];
+    /**
+     * The hash codes of the interned symbols, indexed by their ID.
+     *
+     */
+    private volatile int[] hashes = new int[SymbolTable.INITIAL_CAPACITY / 2];
+    /**
+     * The number of interned symbols.
+     *
+     */
+    private int size;
+
+    /**
+     * Constructor of SymbolTable.
+     *
+     */
+    public SymbolTable() {
+        for (final Keyword keyword : Keyword.values()) {
+            this.intern(keyword.getKeyword());
+        }
+    }
+
+    /**
+     * Interns the given symbol. If the symbol is not yet contained in this
+     * table, it is converted into a string and a new ID is assigned.
+     *
+     * @param symbol
+     *            The symbol to intern.
+     * @return The ID of the symbol.
+     */
+    public int intern(final CharSequence symbol) {
+        final int hash = CharSequences.hashCode(symbol);
+        final int id = this.find(symbol, hash);
+        if (id != SymbolTable.NO_SYMBOL) {
+            return id;
+        }
+        return this.internLocked(symbol, hash);
+    }
+
+    /**
+     * Looks up the ID of the given symbol without interning it.
+     *
+     * @param symbol
+     *            The symbol to look up.
+     * @return The ID of the symbol or {@link #NO_SYMBOL} if the symbol is not
+     *         contained in this table.
+     */
+    public int getId(final CharSequence symbol) {
+        final int hash = CharSequences.hashCode(symbol);
+        final int id = this.find(symbol, hash);
+        if (id != SymbolTable.NO_SYMBOL) {
+            return id;
+        }
+        synchronized (this) {
+            return this.find(symbol, hash);
+        }
+    }
+
+    /**
+     * Returns the symbol with the given ID.
+     *
+     * @param id
+     *            The ID of the symbol.
+     * @return The symbol.
+     * @throws IndexOutOfBoundsException
+     *             If no symbol with the given ID exists.
+     */
+    public String getSymbol(final int id) throws IndexOutOfBoundsException {
+        final String[] symbols = this.symbols;
+        if (id >= 0 && id < symbols.length) {
+            final String symbol = symbols[id];
+            if (symbol != null) {
+                return symbol;
+            }
+        }
+        synchronized (this) {
+            if (id < 0 || id >= this.size) {
+                throw new IndexOutOfBoundsException("Unknown symbol ID " + id + "!");
+            }
+            return this.symbols[id];
+        }
+    }
+
+    /**
+     *
+     * @return The number of interned symbols.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Interns the given symbol while holding the lock.
+     *
+     * @param symbol
+     *            The symbol to intern.
+     * @param hash
+     *            The hash code of the symbol.
+     * @return The ID of the symbol.
+     */
+    private synchronized int internLocked(final CharSequence symbol, final int hash) {
+        final int mask = this.slots.length - 1;
+        int slot = SymbolTable.mix(hash) & mask;
+        while (this.slots[slot] != 0) {
+            final int id = this.slots[slot] - 1;
+            if (this.hashes[id] == hash && CharSequences.contentEquals(this.symbols[id], symbol)) {
+                return id;
+            }
+            slot = slot + 1 & mask;
+        }
+
+        final int id = this.size++;
+        if (id == this.symbols.length) {
+            this.hashes = Arrays.copyOf(this.hashes, id * 2);
+            this.symbols = Arrays.copyOf(this.symbols, id * 2);
+        }
+        this.hashes[id] = hash;
+        this.symbols[id] = symbol.toString();
+        this.slots[slot] = id + 1;
+        if (this.size * 2 > this.slots.length) {
+            this.rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the ID of the given symbol without locking.
+     *
+     * <p>
+     * This may race with {@link #internLocked(CharSequence, int)}, so it may
+     * see a stale or partially filled table. As IDs are never reassigned and
+     * an ID is only returned if its symbol is visible and equal to the given
+     * symbol, the result is always either correct or {@link #NO_SYMBOL}. In
+     * the latter case, the caller has to repeat the lookup while holding the
+     * lock.
+     * </p>
+     *
+     * @param symbol
+     *            The symbol to look up.
+     * @param hash
+     *            The hash code of the symbol.
+     * @return The ID of the symbol or {@link #NO_SYMBOL} if the symbol was not
+     *         found.
+     */
+    private int find(final CharSequence symbol, final int hash) {
+        final int[] slots = this.slots;
+        final int[] hashes = this.hashes;
+        final String[] symbols = this.symbols;
+        final int mask = slots.length - 1;
+        int slot = SymbolTable.mix(hash) & mask;
+        int id;
+        while ((id = slots[slot] - 1) >= 0) {
+            if (id >= hashes.length || id >= symbols.length) {
+                return SymbolTable.NO_SYMBOL;
+            }
+            if (hashes[id] == hash) {
+                final String candidate = symbols[id];
+                if (candidate != null && CharSequences.contentEquals(candidate, symbol)) {
+                    return id;
+                }
+            }
+            slot = slot + 1 & mask;
+        }
+        return SymbolTable.NO_SYMBOL;
+    }
+
+    /**
+     * Doubles the number of hash slots and redistributes the IDs.
+     *
+     */
+    private void rehash() {
+        final int[] newSlots = new int[this.slots.length * 2];
+        final int mask = newSlots.length - 1;
+        for (int id = 0; id < this.size; id++) {
+            int slot = SymbolTable.mix(this.hashes[id]) & mask;
+            while (newSlots[slot] != 0) {
+                slot = slot + 1 & mask;
+            }
+            newSlots[slot] = id + 1;
+        }
+        this.slots = newSlots;
+    }
+
+    /**
+     * Spreads the bits of the given hash code as the hash codes of short
+     * strings differ mostly in the lower bits.
+     *
+     * @param hash
+     *            The hash code.
+     * @return The mixed hash code.
+     */
+    private static int mix(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+}
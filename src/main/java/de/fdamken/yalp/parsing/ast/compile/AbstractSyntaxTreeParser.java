@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.compile;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.representation.AbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+
+/**
+ * The syntax analysis for converting the syntax tree into an abstract syntax
+ * tree.
+ *
+ * <p>
+ * The function of every function call is dispatched to the AST node it
+ * creates using a table indexed by the symbol ID (see {@link KeywordTable}),
+ * and the number of parameters is checked against the
+ * {@link de.fdamken.yalp.parsing.ast.representation.expression.Function#getMinParameterCount()
+ * minimum} and
+ * {@link de.fdamken.yalp.parsing.ast.representation.expression.Function#getMaxParameterCount()
+ * maximum} parameter count of the node. Literals are converted using the
+ * {@link de.fdamken.yalp.parsing.LiteralKind kind} the lexer determined, so
+ * they are not scanned again.
+ * </p>
+ *
+ * <p>
+ * The parser is stateless, so a single instance can be used by multiple
+ * threads concurrently.
+ * </p>
+ *
+ */
+public class AbstractSyntaxTreeParser extends AbstractCompilationStep<SyntaxTree, AbstractSyntaxTree> {
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * As the lexer merges all top-level forms into the root element, the
+     * syntax tree is converted as a single form. Use
+     * {@link #parseForms(SyntaxTreeElement[], SymbolTable)} for programs that
+     * consist of multiple forms.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public AbstractSyntaxTree parse(final SyntaxTree syntaxTree) throws CompilationException {
+        return this.parseForms(new SyntaxTreeElement[] { syntaxTree.getRootElement() }, syntaxTree.getSymbolTable());
+    }
+
+    /**
+     * Converts the given top-level forms (e.g. parsed one by one or read by
+     * {@link de.fdamken.yalp.parsing.st.binary.BinarySyntaxTreeReader#readElements()})
+     * into an abstract syntax tree.
+     *
+     * @param forms
+     *            The top-level forms.
+     * @param symbolTable
+     *            The symbol table containing the symbols of the forms.
+     * @return The abstract syntax tree.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    public AbstractSyntaxTree parseForms(final SyntaxTreeElement[] forms, final SymbolTable symbolTable)
+            throws CompilationException {
+        return new AbstractSyntaxTree(new SyntaxAnalysis().parseForms(forms), symbolTable);
+    }
+}
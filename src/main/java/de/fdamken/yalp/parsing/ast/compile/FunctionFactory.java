@@ -0,0 +1,239 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.compile;
+
+import java.util.function.Supplier;
+
+import de.fdamken.yalp.parsing.ast.exception.AbstractSyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.expression.Function;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.AbstractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Creates the AST node of a function call whose function is a name with a
+ * fixed meaning (a keyword or a function of a structure).
+ *
+ */
+@RequiredArgsConstructor
+final class FunctionFactory {
+    /**
+     * The value of {@link #getValueArity()} if the function cannot be used as
+     * a value (e.g. <code>define</code>).
+     *
+     */
+    static final int NO_VALUE = -1;
+    /**
+     * The value of {@link #getValueArity()} if the function takes arbitrarily
+     * many parameters (e.g. <code>+</code>). Such functions are used as
+     * values through a {@link BuiltinReference}.
+     *
+     */
+    static final int VARIADIC = -2;
+
+    /**
+     * The name of the function.
+     *
+     */
+    @Getter
+    private final String name;
+    /**
+     * The number of parameters of the function when it is used as a value
+     * (e.g. <code>(foldl + 0 l)</code>), {@link #NO_VALUE} or
+     * {@link #VARIADIC}.
+     *
+     */
+    @Getter
+    private final int valueArity;
+    /**
+     * Creates the AST node.
+     *
+     */
+    private final Creator creator;
+
+    /**
+     * Creates a factory that constructs a new function, checks the number of
+     * parameters against {@link Function#getMinParameterCount()} and
+     * {@link Function#getMaxParameterCount()} and then initializes the
+     * function. The function can be used as a value with its maximum number
+     * of parameters or, if it takes arbitrarily many, with any number of
+     * parameters.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param name
+     *            The name of the function.
+     * @param constructor
+     *            Constructs a new function.
+     * @param initializer
+     *            Initializes the function from its parameters.
+     * @return The factory.
+     */
+    static <F extends AbstractFunction> FunctionFactory of(final String name, final Supplier<F> constructor,
+            final Initializer<F> initializer) {
+        final F function = constructor.get();
+        final int max = function.getMaxParameterCount();
+        return FunctionFactory.of(name, max < 0 ? FunctionFactory.VARIADIC : max, constructor, initializer);
+    }
+
+    /**
+     * Creates a factory that constructs a new function, checks the number of
+     * parameters against {@link Function#getMinParameterCount()} and
+     * {@link Function#getMaxParameterCount()} and then initializes the
+     * function.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param name
+     *            The name of the function.
+     * @param valueArity
+     *            The number of parameters of the function when it is used as
+     *            a value, {@link #NO_VALUE} or {@link #VARIADIC}.
+     * @param constructor
+     *            Constructs a new function.
+     * @param initializer
+     *            Initializes the function from its parameters.
+     * @return The factory.
+     */
+    static <F extends AbstractFunction> FunctionFactory of(final String name, final int valueArity,
+            final Supplier<F> constructor, final Initializer<F> initializer) {
+        return new FunctionFactory(name, valueArity, (analysis, parameters) -> {
+            final F function = constructor.get();
+            FunctionFactory.checkArity(name, function, parameters.length);
+            initializer.initialize(analysis, function, parameters);
+            return function;
+        });
+    }
+
+    /**
+     * Checks whether the given number of parameters is allowed for the given
+     * function.
+     *
+     * @param name
+     *            The name of the function (used for the error message).
+     * @param function
+     *            The function.
+     * @param count
+     *            The number of parameters.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the number of parameters is not allowed.
+     */
+    static void checkArity(final String name, final Function function, final int count)
+            throws AbstractSyntaxTreeParsingException {
+        FunctionFactory.checkArity(name, function.getMinParameterCount(), function.getMaxParameterCount(), count);
+    }
+
+    /**
+     * Checks whether the given number of parameters is within the given
+     * bounds.
+     *
+     * @param name
+     *            The name of the function (used for the error message).
+     * @param min
+     *            The minimum number of parameters.
+     * @param max
+     *            The maximum number of parameters or <code>-1</code> for
+     *            infinity.
+     * @param count
+     *            The number of parameters.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the number of parameters is not allowed.
+     */
+    static void checkArity(final String name, final int min, final int max, final int count)
+            throws AbstractSyntaxTreeParsingException {
+        if (count >= min && (max < 0 || count <= max)) {
+            return;
+        }
+
+        final String expected;
+        if (min == max) {
+            expected = Integer.toString(min);
+        } else if (max < 0) {
+            expected = "at least " + min;
+        } else {
+            expected = "between " + min + " and " + max;
+        }
+        throw new AbstractSyntaxTreeParsingException(
+                name + " expects " + expected + " parameter(s), but got " + count + "!");
+    }
+
+    /**
+     * Creates the AST node of a call of this function.
+     *
+     * @param analysis
+     *            The analysis the call is part of.
+     * @param parameters
+     *            The parameters of the call.
+     * @return The AST node.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    Expression create(final SyntaxAnalysis analysis, final SyntaxTreeElement[] parameters) throws CompilationException {
+        return this.creator.create(analysis, parameters);
+    }
+
+    /**
+     * Creates the AST node of a function call.
+     *
+     */
+    @FunctionalInterface
+    interface Creator {
+        /**
+         * Creates the AST node of a function call.
+         *
+         * @param analysis
+         *            The analysis the call is part of.
+         * @param parameters
+         *            The parameters of the call.
+         * @return The AST node.
+         * @throws CompilationException
+         *             If an error occurs during the compilation.
+         */
+        Expression create(final SyntaxAnalysis analysis, final SyntaxTreeElement[] parameters) throws CompilationException;
+    }
+
+    /**
+     * Initializes a function whose number of parameters is already checked.
+     *
+     * @param <F>
+     *            The type of the function.
+     */
+    @FunctionalInterface
+    interface Initializer<F> {
+        /**
+         * Initializes the given function.
+         *
+         * @param analysis
+         *            The analysis the call is part of.
+         * @param function
+         *            The function to initialize.
+         * @param parameters
+         *            The parameters of the call.
+         * @throws CompilationException
+         *             If an error occurs during the compilation.
+         */
+        void initialize(final SyntaxAnalysis analysis, final F function, final SyntaxTreeElement[] parameters)
+                throws CompilationException;
+    }
+}
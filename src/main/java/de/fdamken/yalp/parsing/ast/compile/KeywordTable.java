@@ -0,0 +1,343 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.compile;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.Keyword;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.AbstractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FilterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFormatFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.AppendFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.EighthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FifthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FirstFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FourthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.LengthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.RestFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SecondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SeventhFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SixthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ThirdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.AndFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.NotFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.OrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AbsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.DivideFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.ExptFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.FloorFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GcdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MaxFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MinFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.NumberEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.RemainderFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrtFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SubtractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.BooleanPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EmptyPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EqPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EvenPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ListPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.NumberPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.OddPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.SymbolPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ZeroPredicate;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+
+/**
+ * The table of the {@link FunctionFactory function factories} of the
+ * keywords, indexed by the {@link Keyword#ordinal() ordinal} of the keyword.
+ * As the ID of a keyword in every symbol table is its ordinal (see
+ * {@link Keyword#fromSymbolId(int)}), the factory of a function call is found
+ * with two array accesses and without comparing any strings.
+ *
+ * <p>
+ * Keywords that are not functions (e.g. <code>else</code> or
+ * <code>empty</code>) have no factory.
+ * </p>
+ *
+ */
+final class KeywordTable {
+    /**
+     * The factories indexed by the ordinal of the keyword.
+     *
+     */
+    private static final FunctionFactory[] FACTORIES = new FunctionFactory[Keyword.values().length];
+
+    static {
+        // Special forms: Their parameters are not simply evaluated, so they
+        // cannot be used as values.
+        final FunctionFactory defineFunction = FunctionFactory.of(Keyword.DEFINE.getKeyword(), FunctionFactory.NO_VALUE,
+                DefineFunction::new, (analysis, function, parameters) -> {
+                    function.setHeader(analysis.parseNames(SyntaxAnalysis.getElements(parameters[0])));
+                    function.setExpression(analysis.parseExpression(parameters[1]));
+                });
+        final FunctionFactory defineConstant = FunctionFactory.of(Keyword.DEFINE.getKeyword(), FunctionFactory.NO_VALUE,
+                DefineConstantFunction::new, (analysis, function, parameters) -> {
+                    function.setName(analysis.parseName(parameters[0]));
+                    function.setExpression(analysis.parseExpression(parameters[1]));
+                });
+        // (define (f x) ...) defines a function, (define x ...) a constant.
+        KeywordTable.register(Keyword.DEFINE, new FunctionFactory(Keyword.DEFINE.getKeyword(), FunctionFactory.NO_VALUE,
+                (analysis, parameters) -> (parameters.length > 0 && parameters[0] instanceof FunctionCall ? defineFunction
+                        : defineConstant).create(analysis, parameters)));
+        KeywordTable.registerSpecial(Keyword.STRUCT_DEFINE, DefineStructFunction::new, (analysis, function, parameters) -> {
+            function.setName(analysis.parseName(parameters[0]));
+            function.setAttributes(analysis.parseNames(SyntaxAnalysis.getElements(parameters[1])));
+            analysis.defineStruct(function);
+        });
+        KeywordTable.registerSpecial(Keyword.LAMBDA, LambdaFunction::new, (analysis, function, parameters) -> {
+            function.setParameters(analysis.parseNames(SyntaxAnalysis.getElements(parameters[0])));
+            function.setExpression(analysis.parseExpression(parameters[1]));
+        });
+        KeywordTable.registerSpecial(Keyword.LOCAL, LocalFunction::new,
+                (analysis, function, parameters) -> analysis.parseLocal(function, parameters[0], parameters[1]));
+        KeywordTable.registerSpecial(Keyword.COND, CondFunction::new,
+                (analysis, function, parameters) -> analysis.parseCond(function, parameters));
+        KeywordTable.registerSpecial(Keyword.IF, IfFunction::new, (analysis, function, parameters) -> {
+            function.setTest(analysis.parseExpression(parameters[0]));
+            function.setThen(analysis.parseExpression(parameters[1]));
+            function.setElse0(analysis.parseExpression(parameters[2]));
+        });
+        KeywordTable.registerSpecial(Keyword.AND, AndFunction::new,
+                (analysis, function, parameters) -> function.setExpressions(analysis.parseExpressions(parameters, 0)));
+        KeywordTable.registerSpecial(Keyword.OR, OrFunction::new,
+                (analysis, function, parameters) -> function.setExpressions(analysis.parseExpressions(parameters, 0)));
+
+        // The format has to be a string literal, so printf cannot be used as a
+        // value either.
+        KeywordTable.registerSpecial(Keyword.PRINT_F, PrintFormatFunction::new, (analysis, function, parameters) -> {
+            function.setFormat(analysis.parseString(parameters[0]));
+            function.setArguments(analysis.parseExpressions(parameters, 1));
+        });
+        KeywordTable.registerUnary(Keyword.PRINT, PrintFunction::new, PrintFunction::setValue);
+
+        KeywordTable.registerBinary(Keyword.CONS, ConsFunction::new, ConsFunction::setElement, ConsFunction::setList);
+        KeywordTable.registerBinary(Keyword.APPEND, AppendFunction::new, AppendFunction::setListA, AppendFunction::setListB);
+        KeywordTable.registerVariadic(Keyword.LIST, ListFunction::new, ListFunction::setValues);
+        KeywordTable.registerUnary(Keyword.LIST_PRED, ListPredicate::new, ListPredicate::setAny);
+        KeywordTable.registerUnary(Keyword.EMPTY_PRED, EmptyPredicate::new, EmptyPredicate::setList);
+        KeywordTable.registerUnary(Keyword.REST, RestFunction::new, RestFunction::setList);
+        KeywordTable.registerUnary(Keyword.FIRST, FirstFunction::new, FirstFunction::setList);
+        KeywordTable.registerUnary(Keyword.SECOND, SecondFunction::new, SecondFunction::setList);
+        KeywordTable.registerUnary(Keyword.THRID, ThirdFunction::new, ThirdFunction::setList);
+        KeywordTable.registerUnary(Keyword.FOURTH, FourthFunction::new, FourthFunction::setList);
+        KeywordTable.registerUnary(Keyword.FIFTH, FifthFunction::new, FifthFunction::setList);
+        KeywordTable.registerUnary(Keyword.SIXTH, SixthFunction::new, SixthFunction::setList);
+        KeywordTable.registerUnary(Keyword.SEVENTH, SeventhFunction::new, SeventhFunction::setList);
+        KeywordTable.registerUnary(Keyword.EIGHTH, EighthFunction::new, EighthFunction::setList);
+        KeywordTable.registerUnary(Keyword.LENGTH, LengthFunction::new, LengthFunction::setList);
+
+        KeywordTable.registerVariadic(Keyword.PLUS, AddFunction::new, AddFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.MINUS, SubtractFunction::new, SubtractFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.MULTIPLY, MultiplyFunction::new, MultiplyFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.DIVIDE, DivideFunction::new, DivideFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.LESS, LessFunction::new, LessFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.LESS_EQUAL, LessOrEqualFunction::new, LessOrEqualFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.GREATER, GreaterFunction::new, GreaterFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.GREATER_EQUAL, GreaterOrEqualFunction::new, GreaterOrEqualFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.NUMBER_EQUAL, NumberEqualFunction::new, NumberEqualFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.MAX, MaxFunction::new, MaxFunction::setValues);
+        KeywordTable.registerVariadic(Keyword.MIN, MinFunction::new, MinFunction::setValues);
+        KeywordTable.registerUnary(Keyword.SQR, SqrFunction::new, SqrFunction::setValue);
+        KeywordTable.registerUnary(Keyword.SQRT, SqrtFunction::new, SqrtFunction::setValue);
+        KeywordTable.registerUnary(Keyword.FLOOR, FloorFunction::new, FloorFunction::setValue);
+        KeywordTable.registerUnary(Keyword.ABS, AbsFunction::new, AbsFunction::setValue);
+        KeywordTable.registerBinary(Keyword.GCD, GcdFunction::new, GcdFunction::setValueA, GcdFunction::setValueB);
+        KeywordTable.registerBinary(Keyword.EXPT, ExptFunction::new, ExptFunction::setValueA, ExptFunction::setValueB);
+        KeywordTable.registerBinary(Keyword.REMAINDER, RemainderFunction::new, RemainderFunction::setValueA,
+                RemainderFunction::setValueB);
+
+        KeywordTable.registerUnary(Keyword.NUMBER_PRED, NumberPredicate::new, NumberPredicate::setValue);
+        KeywordTable.registerUnary(Keyword.ZERO_PRED, ZeroPredicate::new, ZeroPredicate::setValue);
+        KeywordTable.registerUnary(Keyword.EVEN_PRED, EvenPredicate::new, EvenPredicate::setValue);
+        KeywordTable.registerUnary(Keyword.ODD_PRED, OddPredicate::new, OddPredicate::setValue);
+        KeywordTable.registerBinary(Keyword.EQ_PRED, EqPredicate::new, EqPredicate::setValueA, EqPredicate::setValueB);
+        KeywordTable.registerUnary(Keyword.SYMBOL_PRED, SymbolPredicate::new, SymbolPredicate::setValue);
+        KeywordTable.registerUnary(Keyword.BOOLEAN_PRED, BooleanPredicate::new, BooleanPredicate::setValue);
+        KeywordTable.registerUnary(Keyword.NOT, NotFunction::new, NotFunction::setExpression);
+
+        KeywordTable.register(Keyword.MAP, MapFunction::new, (analysis, function, parameters) -> {
+            function.setFunction(analysis.parseExpression(parameters[0]));
+            function.setLists(analysis.parseExpressions(parameters, 1));
+        });
+        KeywordTable.register(Keyword.FOLD_L, FoldlFunction::new, (analysis, function, parameters) -> {
+            function.setFolder(analysis.parseExpression(parameters[0]));
+            function.setStartValue(analysis.parseExpression(parameters[1]));
+            function.setLists(analysis.parseExpressions(parameters, 2));
+        });
+        KeywordTable.register(Keyword.FOLD_R, FoldrFunction::new, (analysis, function, parameters) -> {
+            function.setFolder(analysis.parseExpression(parameters[0]));
+            function.setStartValue(analysis.parseExpression(parameters[1]));
+            function.setLists(analysis.parseExpressions(parameters, 2));
+        });
+        KeywordTable.registerBinary(Keyword.FILTER, FilterFunction::new, FilterFunction::setFunction, FilterFunction::setList);
+    }
+
+    /**
+     * Constructor of KeywordTable.
+     *
+     */
+    private KeywordTable() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Retrieves the factory of the given keyword.
+     *
+     * @param keyword
+     *            The keyword.
+     * @return The factory or <code>null</code> if the keyword is not a
+     *         function.
+     */
+    static FunctionFactory get(final Keyword keyword) {
+        return KeywordTable.FACTORIES[keyword.ordinal()];
+    }
+
+    /**
+     * Registers a keyword that is a function with a single parameter.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param keyword
+     *            The keyword.
+     * @param constructor
+     *            Constructs a new function.
+     * @param setter
+     *            Sets the parameter of the function.
+     */
+    private static <F extends AbstractFunction> void registerUnary(final Keyword keyword, final Supplier<F> constructor,
+            final BiConsumer<F, Expression> setter) {
+        KeywordTable.register(keyword, constructor,
+                (analysis, function, parameters) -> setter.accept(function, analysis.parseExpression(parameters[0])));
+    }
+
+    /**
+     * Registers a keyword that is a function with two parameters.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param keyword
+     *            The keyword.
+     * @param constructor
+     *            Constructs a new function.
+     * @param firstSetter
+     *            Sets the first parameter of the function.
+     * @param secondSetter
+     *            Sets the second parameter of the function.
+     */
+    private static <F extends AbstractFunction> void registerBinary(final Keyword keyword, final Supplier<F> constructor,
+            final BiConsumer<F, Expression> firstSetter, final BiConsumer<F, Expression> secondSetter) {
+        KeywordTable.register(keyword, constructor, (analysis, function, parameters) -> {
+            firstSetter.accept(function, analysis.parseExpression(parameters[0]));
+            secondSetter.accept(function, analysis.parseExpression(parameters[1]));
+        });
+    }
+
+    /**
+     * Registers a keyword that is a function with a variable number of
+     * parameters.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param keyword
+     *            The keyword.
+     * @param constructor
+     *            Constructs a new function.
+     * @param setter
+     *            Sets the parameters of the function.
+     */
+    private static <F extends AbstractFunction> void registerVariadic(final Keyword keyword, final Supplier<F> constructor,
+            final BiConsumer<F, List<Expression>> setter) {
+        KeywordTable.register(keyword, constructor,
+                (analysis, function, parameters) -> setter.accept(function, analysis.parseExpressions(parameters, 0)));
+    }
+
+    /**
+     * Registers a keyword that is a function that can be used as a value.
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param keyword
+     *            The keyword.
+     * @param constructor
+     *            Constructs a new function.
+     * @param initializer
+     *            Initializes the function from its parameters.
+     */
+    private static <F extends AbstractFunction> void register(final Keyword keyword, final Supplier<F> constructor,
+            final FunctionFactory.Initializer<F> initializer) {
+        KeywordTable.register(keyword, FunctionFactory.of(keyword.getKeyword(), constructor, initializer));
+    }
+
+    /**
+     * Registers a keyword that is a function that cannot be used as a value
+     * (a special form).
+     *
+     * @param <F>
+     *            The type of the function.
+     * @param keyword
+     *            The keyword.
+     * @param constructor
+     *            Constructs a new function.
+     * @param initializer
+     *            Initializes the function from its parameters.
+     */
+    private static <F extends AbstractFunction> void registerSpecial(final Keyword keyword, final Supplier<F> constructor,
+            final FunctionFactory.Initializer<F> initializer) {
+        KeywordTable.register(keyword,
+                FunctionFactory.of(keyword.getKeyword(), FunctionFactory.NO_VALUE, constructor, initializer));
+    }
+
+    /**
+     * Registers the given factory for the given keyword.
+     *
+     * @param keyword
+     *            The keyword.
+     * @param factory
+     *            The factory.
+     */
+    private static void register(final Keyword keyword, final FunctionFactory factory) {
+        KeywordTable.FACTORIES[keyword.ordinal()] = factory;
+    }
+}
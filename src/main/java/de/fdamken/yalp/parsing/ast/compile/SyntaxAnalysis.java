@@ -0,0 +1,645 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.compile;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.exception.AbstractSyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.Keyword;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+
+/**
+ * A single run of the syntax analysis. Holds the state that is needed while
+ * converting the forms of one program (the functions of the defined
+ * structures), so it must not be shared between threads.
+ *
+ * <p>
+ * The function of a function call is looked up in the following order:
+ * <ol>
+ * <li>Keywords are found in the {@link KeywordTable} using the symbol ID of
+ * the literal.</li>
+ * <li>The functions of the defined structures (e.g. <code>make-posn</code>)
+ * are found in a hash map.</li>
+ * <li>Everything else is the application of a function value (e.g. a
+ * function defined by <code>define</code> or a lambda).</li>
+ * </ol>
+ * </p>
+ *
+ */
+final class SyntaxAnalysis {
+    /**
+     * The functions of the structures defined in the current scope by their
+     * names.
+     *
+     */
+    private Map<String, FunctionFactory> structFunctions = new HashMap<>();
+
+    /**
+     * Converts the given forms that may contain definitions. The structures
+     * are defined before any other form is converted, so their functions can
+     * be used before their definition.
+     *
+     * @param forms
+     *            The forms to convert.
+     * @return The converted forms.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    List<Expression> parseForms(final SyntaxTreeElement[] forms) throws CompilationException {
+        final Expression[] expressions = new Expression[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            if (forms[i] instanceof FunctionCall
+                    && SyntaxAnalysis.getKeyword(((FunctionCall) forms[i]).getFunction()) == Keyword.STRUCT_DEFINE) {
+                expressions[i] = this.parseForm(forms[i]);
+            }
+        }
+        for (int i = 0; i < forms.length; i++) {
+            if (expressions[i] == null) {
+                expressions[i] = this.parseForm(forms[i]);
+            }
+        }
+
+        final List<Expression> result = new ArrayList<>(expressions.length);
+        Collections.addAll(result, expressions);
+        return result;
+    }
+
+    /**
+     * Converts the given element that must not be a definition.
+     *
+     * @param element
+     *            The element to convert.
+     * @return The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    Expression parseExpression(final SyntaxTreeElement element) throws CompilationException {
+        final Expression expression = this.parseForm(element);
+        if (expression instanceof Definition) {
+            throw new AbstractSyntaxTreeParsingException("Definitions are only allowed at the top level or in local!");
+        }
+        return expression;
+    }
+
+    /**
+     * Converts the given elements that must not be definitions.
+     *
+     * @param elements
+     *            The elements to convert.
+     * @param from
+     *            The index of the first element to convert.
+     * @return The expressions.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    List<Expression> parseExpressions(final SyntaxTreeElement[] elements, final int from) throws CompilationException {
+        final List<Expression> expressions = new ArrayList<>(elements.length - from);
+        for (int i = from; i < elements.length; i++) {
+            expressions.add(this.parseExpression(elements[i]));
+        }
+        return expressions;
+    }
+
+    /**
+     * Converts the given element into a name (e.g. of a parameter).
+     *
+     * @param element
+     *            The element to convert.
+     * @return The name.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the element is not a name.
+     */
+    SymbolLiteral parseName(final SyntaxTreeElement element) throws AbstractSyntaxTreeParsingException {
+        if (!(element instanceof Literal) || ((Literal) element).getKind() != LiteralKind.SYMBOL
+                || ((Literal) element).getContent().isEmpty() || ((Literal) element).getContent().charAt(0) == '\'') {
+            throw new AbstractSyntaxTreeParsingException("Expected a name, but got " + element + "!");
+        }
+        if (SyntaxAnalysis.getKeyword(element) != null) {
+            throw new AbstractSyntaxTreeParsingException("The keyword " + element + " cannot be used as a name!");
+        }
+
+        final SymbolLiteral name = new SymbolLiteral();
+        name.setContent(((Literal) element).getContent());
+        return name;
+    }
+
+    /**
+     * Converts the given elements into names.
+     *
+     * @param elements
+     *            The elements to convert.
+     * @return The names.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If any of the elements is not a name.
+     */
+    List<de.fdamken.yalp.parsing.ast.representation.expression.Literal> parseNames(final SyntaxTreeElement[] elements)
+            throws AbstractSyntaxTreeParsingException {
+        final List<de.fdamken.yalp.parsing.ast.representation.expression.Literal> names = new ArrayList<>(elements.length);
+        for (final SyntaxTreeElement element : elements) {
+            names.add(this.parseName(element));
+        }
+        return names;
+    }
+
+    /**
+     * Converts the given element that must be a string.
+     *
+     * @param element
+     *            The element to convert.
+     * @return The string.
+     * @throws CompilationException
+     *             If the element is not a string.
+     */
+    StringLiteral parseString(final SyntaxTreeElement element) throws CompilationException {
+        if (!(element instanceof Literal) || ((Literal) element).getKind() != LiteralKind.STRING) {
+            throw new AbstractSyntaxTreeParsingException("Expected a string, but got " + element + "!");
+        }
+        return (StringLiteral) this.parseLiteral((Literal) element);
+    }
+
+    /**
+     * Converts the definitions and the expression of a <code>local</code>.
+     * The structures defined in the definitions are only visible inside of
+     * the <code>local</code>.
+     *
+     * @param function
+     *            The function to initialize.
+     * @param definitions
+     *            The list of the definitions.
+     * @param expression
+     *            The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    void parseLocal(final LocalFunction function, final SyntaxTreeElement definitions, final SyntaxTreeElement expression)
+            throws CompilationException {
+        final Map<String, FunctionFactory> outerStructFunctions = this.structFunctions;
+        this.structFunctions = new HashMap<>(outerStructFunctions);
+        try {
+            final List<Definition> parsedDefinitions = new ArrayList<>();
+            for (final Expression definition : this.parseForms(SyntaxAnalysis.getElements(definitions))) {
+                if (!(definition instanceof Definition)) {
+                    throw new AbstractSyntaxTreeParsingException("local expects only definitions in its first parameter!");
+                }
+                parsedDefinitions.add((Definition) definition);
+            }
+            function.setDefinitions(parsedDefinitions);
+            function.setExpression(this.parseExpression(expression));
+        } finally {
+            this.structFunctions = outerStructFunctions;
+        }
+    }
+
+    /**
+     * Converts the clauses of a <code>cond</code>.
+     *
+     * @param function
+     *            The function to initialize.
+     * @param clauses
+     *            The clauses.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    void parseCond(final CondFunction function, final SyntaxTreeElement[] clauses) throws CompilationException {
+        final List<CondFunction.CondPart> cases = new ArrayList<>(clauses.length);
+        for (int i = 0; i < clauses.length; i++) {
+            final SyntaxTreeElement[] clause = SyntaxAnalysis.getElements(clauses[i]);
+            final CondFunction.CondPart part = new CondFunction.CondPart();
+            FunctionFactory.checkArity("A cond clause", part, clause.length);
+            if (SyntaxAnalysis.getKeyword(clause[0]) == Keyword.ELSE) {
+                if (i != clauses.length - 1) {
+                    throw new AbstractSyntaxTreeParsingException("else must be the last clause of cond!");
+                }
+                function.setElse0(this.parseExpression(clause[1]));
+            } else {
+                part.setTest(this.parseExpression(clause[0]));
+                part.setThen(this.parseExpression(clause[1]));
+                cases.add(part);
+            }
+        }
+        function.setCases(cases);
+    }
+
+    /**
+     * Defines the functions of the given structure in the current scope:
+     * <code>make-NAME</code>, <code>NAME?</code> and
+     * <code>NAME-ATTRIBUTE</code> for every attribute.
+     *
+     * @param structure
+     *            The definition of the structure.
+     */
+    void defineStruct(final DefineStructFunction structure) {
+        final String name = ((SymbolLiteral) structure.getName()).getContent();
+        final int attributeCount = structure.getAttributes().size();
+
+        final String makeName = "make-" + name;
+        this.structFunctions.put(makeName, FunctionFactory.of(makeName, attributeCount, MakeStructFunction::new,
+                (analysis, function, parameters) -> {
+                    FunctionFactory.checkArity(makeName, attributeCount, attributeCount, parameters.length);
+                    function.setName(name);
+                    function.setAttributes(analysis.parseExpressions(parameters, 0));
+                }));
+        final String predicateName = name + "?";
+        this.structFunctions.put(predicateName,
+                FunctionFactory.of(predicateName, StructPredicateFunction::new, (analysis, function, parameters) -> {
+                    function.setName(name);
+                    function.setInstance(analysis.parseExpression(parameters[0]));
+                }));
+        for (final de.fdamken.yalp.parsing.ast.representation.expression.Literal attribute : structure.getAttributes()) {
+            final String attributeName = ((SymbolLiteral) attribute).getContent();
+            final String selectName = name + "-" + attributeName;
+            this.structFunctions.put(selectName,
+                    FunctionFactory.of(selectName, StructAttributeSelectFunction::new, (analysis, function, parameters) -> {
+                        function.setName(name);
+                        function.setAttribute(attributeName);
+                        function.setInstance(analysis.parseExpression(parameters[0]));
+                    }));
+        }
+    }
+
+    /**
+     * Retrieves the elements of the given list (e.g. the parameters of a
+     * lambda). As the syntax tree does not distinguish between lists and
+     * function calls, the elements are the function followed by the
+     * parameters.
+     *
+     * @param element
+     *            The list.
+     * @return The elements.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the element is not a list.
+     */
+    static SyntaxTreeElement[] getElements(final SyntaxTreeElement element) throws AbstractSyntaxTreeParsingException {
+        if (!(element instanceof FunctionCall)) {
+            throw new AbstractSyntaxTreeParsingException("Expected a list, but got " + element + "!");
+        }
+
+        final FunctionCall call = (FunctionCall) element;
+        final SyntaxTreeElement[] parameters = call.getParameters();
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[parameters.length + 1];
+        elements[0] = call.getFunction();
+        System.arraycopy(parameters, 0, elements, 1, parameters.length);
+        return elements;
+    }
+
+    /**
+     * Looks up the keyword the given element refers to. Symbols with a symbol
+     * ID are looked up by the ID, the others by their name.
+     *
+     * @param element
+     *            The element.
+     * @return The keyword or <code>null</code> if the element is not a
+     *         keyword.
+     */
+    static Keyword getKeyword(final SyntaxTreeElement element) {
+        if (!(element instanceof Literal) || ((Literal) element).getKind() != LiteralKind.SYMBOL) {
+            return null;
+        }
+
+        final Literal literal = (Literal) element;
+        if (literal.getSymbolId() != SymbolTable.NO_SYMBOL) {
+            return Keyword.fromSymbolId(literal.getSymbolId());
+        }
+        return Keyword.fromKeyword(literal.getContent());
+    }
+
+    /**
+     * Converts the given element that may be a definition.
+     *
+     * @param element
+     *            The element to convert.
+     * @return The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    private Expression parseForm(final SyntaxTreeElement element) throws CompilationException {
+        if (element instanceof FunctionCall) {
+            return this.parseCall((FunctionCall) element);
+        } else if (element instanceof Literal) {
+            return this.parseLiteral((Literal) element);
+        }
+        throw new AbstractSyntaxTreeParsingException(
+                "Unknown syntax tree element type " + element.getClass().getSimpleName() + "!");
+    }
+
+    /**
+     * Converts the given function call.
+     *
+     * @param call
+     *            The function call to convert.
+     * @return The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    private Expression parseCall(final FunctionCall call) throws CompilationException {
+        final SyntaxTreeElement function = call.getFunction();
+        final Keyword keyword = SyntaxAnalysis.getKeyword(function);
+        if (keyword != null) {
+            final FunctionFactory factory = KeywordTable.get(keyword);
+            if (factory == null) {
+                throw new AbstractSyntaxTreeParsingException(keyword.getKeyword() + " is not a function!");
+            }
+            return factory.create(this, call.getParameters());
+        }
+        final FunctionFactory factory = this.getStructFunction(function);
+        if (factory != null) {
+            return factory.create(this, call.getParameters());
+        }
+
+        final Expression functionValue = this.parseExpression(function);
+        if (functionValue instanceof de.fdamken.yalp.parsing.ast.representation.expression.Literal) {
+            throw new AbstractSyntaxTreeParsingException(function + " is not a function!");
+        }
+        final ApplicationFunction application = new ApplicationFunction();
+        application.setFunction(functionValue);
+        application.setArguments(this.parseExpressions(call.getParameters(), 0));
+        return application;
+    }
+
+    /**
+     * Converts the given literal using its kind that was determined by the
+     * lexer.
+     *
+     * @param literal
+     *            The literal to convert.
+     * @return The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    private Expression parseLiteral(final Literal literal) throws CompilationException {
+        final String content = literal.getContent();
+        switch (literal.getKind()) {
+            case INTEGER:
+                return SyntaxAnalysis.parseInteger(content);
+            case FRACTION:
+                return SyntaxAnalysis.parseFraction(content);
+            case FLOATING_POINT:
+                final FloatingPointLiteral floatingPoint = new FloatingPointLiteral();
+                floatingPoint.setContent(Double.parseDouble(content));
+                return floatingPoint;
+            case BOOLEAN:
+                final BooleanLiteral bool = new BooleanLiteral();
+                bool.setContent(content.charAt(1) == 't');
+                return bool;
+            case STRING:
+                final StringLiteral string = new StringLiteral();
+                final boolean closed = content.length() > 1 && content.charAt(content.length() - 1) == '"';
+                string.setContent(content.substring(1, closed ? content.length() - 1 : content.length()));
+                return string;
+            case CHAR:
+                return SyntaxAnalysis.parseChar(content);
+            default:
+                return this.parseSymbol(literal);
+        }
+    }
+
+    /**
+     * Converts the given symbol: A quoted symbol, a keyword or a function of
+     * a structure that is used as a value or a variable.
+     *
+     * @param literal
+     *            The literal to convert.
+     * @return The expression.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    private Expression parseSymbol(final Literal literal) throws CompilationException {
+        final String content = literal.getContent();
+        if (!content.isEmpty() && content.charAt(0) == '\'') {
+            if (content.length() == 1) {
+                throw new AbstractSyntaxTreeParsingException("Quoted lists are not supported!");
+            }
+            final SymbolLiteral symbol = new SymbolLiteral();
+            symbol.setContent(content.substring(1));
+            return symbol;
+        }
+
+        final Keyword keyword = SyntaxAnalysis.getKeyword(literal);
+        if (keyword != null) {
+            return this.parseKeywordValue(keyword);
+        }
+        final FunctionFactory factory = this.getStructFunction(literal);
+        if (factory != null) {
+            return this.parseFunctionValue(factory);
+        }
+
+        final Variable variable = new Variable();
+        variable.setName(content);
+        variable.setSymbolId(literal.getSymbolId());
+        return variable;
+    }
+
+    /**
+     * Converts the given keyword that is used as a value.
+     *
+     * @param keyword
+     *            The keyword.
+     * @return The expression.
+     * @throws CompilationException
+     *             If the keyword cannot be used as a value.
+     */
+    private Expression parseKeywordValue(final Keyword keyword) throws CompilationException {
+        switch (keyword) {
+            case TRUE:
+            case FALSE:
+                final BooleanLiteral bool = new BooleanLiteral();
+                bool.setContent(keyword == Keyword.TRUE);
+                return bool;
+            case EMPTY:
+                final ListFunction empty = new ListFunction();
+                empty.setValues(new ArrayList<>());
+                return empty;
+            default:
+                final FunctionFactory factory = KeywordTable.get(keyword);
+                if (factory == null) {
+                    throw new AbstractSyntaxTreeParsingException(keyword.getKeyword() + " cannot be used as a value!");
+                }
+                return this.parseFunctionValue(factory);
+        }
+    }
+
+    /**
+     * Converts a function that is used as a value (e.g. <code>cons</code> in
+     * <code>(foldr cons empty l)</code>) into an equivalent lambda (e.g.
+     * <code>(lambda (x0 x1) (cons x0 x1))</code>). Functions that take
+     * arbitrarily many parameters become a {@link BuiltinReference} instead.
+     *
+     * @param factory
+     *            The factory of the function.
+     * @return The lambda.
+     * @throws CompilationException
+     *             If the function cannot be used as a value.
+     */
+    private Expression parseFunctionValue(final FunctionFactory factory) throws CompilationException {
+        final int arity = factory.getValueArity();
+        if (arity == FunctionFactory.NO_VALUE) {
+            throw new AbstractSyntaxTreeParsingException(factory.getName() + " cannot be used as a value!");
+        } else if (arity == FunctionFactory.VARIADIC) {
+            final BuiltinReference builtin = new BuiltinReference();
+            builtin.setName(factory.getName());
+            return builtin;
+        }
+
+        // The parameters of the lambda shadow all other variables, so no
+        // unique names are needed.
+        final SyntaxTreeElement[] parameters = new SyntaxTreeElement[arity];
+        for (int i = 0; i < arity; i++) {
+            parameters[i] = new Literal("x" + i, SymbolTable.NO_SYMBOL, LiteralKind.SYMBOL);
+        }
+        final LambdaFunction lambda = new LambdaFunction();
+        lambda.setParameters(this.parseNames(parameters));
+        lambda.setExpression(factory.create(this, parameters));
+        return lambda;
+    }
+
+    /**
+     * Looks up the function of a defined structure the given element refers
+     * to.
+     *
+     * @param element
+     *            The element.
+     * @return The factory of the function or <code>null</code> if the element
+     *         is not a function of a structure.
+     */
+    private FunctionFactory getStructFunction(final SyntaxTreeElement element) {
+        if (this.structFunctions.isEmpty() || !(element instanceof Literal)
+                || ((Literal) element).getKind() != LiteralKind.SYMBOL) {
+            return null;
+        }
+        return this.structFunctions.get(((Literal) element).getContent());
+    }
+
+    /**
+     * Converts the given integer. Integers are arbitrarily large, just like in
+     * Racket.
+     *
+     * @param content
+     *            The content of the literal.
+     * @return The integer literal.
+     */
+    private static IntegerLiteral parseInteger(final String content) {
+        final IntegerLiteral integer = new IntegerLiteral();
+        integer.setContent(new BigInteger(content));
+        return integer;
+    }
+
+    /**
+     * Converts the given fraction. The fraction is reduced and fractions with
+     * a denominator of <code>1</code> become integers, just like in Racket.
+     *
+     * @param content
+     *            The content of the literal.
+     * @return The fraction or integer literal.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the denominator is <code>0</code>.
+     */
+    private static Expression parseFraction(final String content) throws AbstractSyntaxTreeParsingException {
+        final int slash = content.indexOf('/');
+        BigInteger numerator = new BigInteger(content.substring(0, slash));
+        BigInteger denominator = new BigInteger(content.substring(slash + 1));
+        if (denominator.signum() == 0) {
+            throw new AbstractSyntaxTreeParsingException("Division by zero in " + content + "!");
+        }
+
+        final BigInteger divisor = numerator.gcd(denominator);
+        numerator = numerator.divide(divisor);
+        denominator = denominator.divide(divisor);
+        if (denominator.equals(BigInteger.ONE)) {
+            final IntegerLiteral integer = new IntegerLiteral();
+            integer.setContent(numerator);
+            return integer;
+        }
+
+        final FractionLiteral fraction = new FractionLiteral();
+        fraction.setNumerator(numerator);
+        fraction.setDenominator(denominator);
+        return fraction;
+    }
+
+    /**
+     * Converts the given character. Besides single characters, the names
+     * <code>space</code>, <code>newline</code>, <code>tab</code> and
+     * <code>nul</code> are supported.
+     *
+     * @param content
+     *            The content of the literal (a hash sign followed by the
+     *            escape character and the character).
+     * @return The character literal.
+     * @throws AbstractSyntaxTreeParsingException
+     *             If the character is unknown.
+     */
+    private static CharLiteral parseChar(final String content) throws AbstractSyntaxTreeParsingException {
+        final char c;
+        if (content.length() == 3) {
+            c = content.charAt(2);
+        } else {
+            switch (content.substring(2)) {
+                case "space":
+                    c = ' ';
+                    break;
+                case "newline":
+                    c = '\n';
+                    break;
+                case "tab":
+                    c = '\t';
+                    break;
+                case "nul":
+                    c = '\0';
+                    break;
+                default:
+                    throw new AbstractSyntaxTreeParsingException("Unknown character " + content + "!");
+            }
+        }
+
+        final CharLiteral character = new CharLiteral();
+        character.setContent(c);
+        return character;
+    }
+}
@@ -19,17 +19,54 @@
  */
 package de.fdamken.yalp.parsing.ast.representation;
 
-import lombok.Value;
+import java.util.List;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.SymbolTable;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 /**
  * Wrapper class for the abstract syntax tree.
  *
  */
-@Value
-public class AbstractSyntaxTree {
+@Data
+@EqualsAndHashCode(exclude = "symbolTable")
+public class AbstractSyntaxTree implements IntermediateRepresentation {
+    /**
+     * The actual AST: The top-level expressions (definitions and expressions
+     * to evaluate) in the order they appear in the code.
+     *
+     */
+    private final List<Expression> expressions;
+    /**
+     * The symbol table containing the symbols of the names in the AST. This is
+     * not considered by {@link #equals(Object)}.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor of AbstractSyntaxTree.
+     *
+     * @param expressions
+     *            The top-level expressions.
+     */
+    public AbstractSyntaxTree(final List<Expression> expressions) {
+        this(expressions, new SymbolTable());
+    }
+
     /**
-     * The actual AST.
+     * Constructor of AbstractSyntaxTree.
      *
+     * @param expressions
+     *            The top-level expressions.
+     * @param symbolTable
+     *            The symbol table containing the symbols of the names in the
+     *            AST.
      */
-    Expression expressions;
+    public AbstractSyntaxTree(final List<Expression> expressions, final SymbolTable symbolTable) {
+        this.expressions = expressions;
+        this.symbolTable = symbolTable;
+    }
 }
@@ -0,0 +1,308 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.representation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FilterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFormatFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.AppendFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.EighthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FifthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FirstFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FourthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.LengthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.RestFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SecondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SeventhFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SixthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ThirdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.AndFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.NotFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.OrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AbsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.DivideFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.ExptFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.FloorFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GcdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MaxFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MinFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.NumberEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.RemainderFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrtFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SubtractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.BooleanPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EmptyPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EqPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EvenPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ListPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.NumberPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.OddPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.SymbolPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ZeroPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.ByteLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.ComplexNumberLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+
+/**
+ * Utility methods for working with {@link Expression expressions}
+ * independently of the type of the AST node.
+ *
+ */
+public final class Expressions {
+    /**
+     * The functions that retrieve the children of the nodes by the type of the
+     * node.
+     *
+     */
+    private static final Map<Class<?>, ChildrenAccessor<?>> ACCESSORS = new HashMap<>();
+
+    static {
+        Expressions.register(BooleanLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(CharLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(StringLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(SymbolLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(ByteLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(ComplexNumberLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(FloatingPointLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(FractionLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(IntegerLiteral.class, expression -> Collections.emptyList());
+        Expressions.register(Variable.class, expression -> Collections.emptyList());
+        Expressions.register(BuiltinReference.class, expression -> Collections.emptyList());
+        Expressions.register(DefineStructFunction.class, expression -> Collections.emptyList());
+
+        Expressions.register(ApplicationFunction.class,
+                expression -> Expressions.concat(expression.getFunction(), expression.getArguments()));
+        Expressions.register(CondFunction.class, expression -> {
+            final List<Expression> children = new ArrayList<>(expression.getCases().size() * 2 + 1);
+            for (final CondFunction.CondPart part : expression.getCases()) {
+                children.add(part.getTest());
+                children.add(part.getThen());
+            }
+            if (expression.getElse0() != null) {
+                children.add(expression.getElse0());
+            }
+            return children;
+        });
+        Expressions.register(FilterFunction.class, expression -> Arrays.asList(expression.getFunction(), expression.getList()));
+        Expressions.register(FoldlFunction.class, expression -> {
+            final List<Expression> children = new ArrayList<>(expression.getLists().size() + 2);
+            children.add(expression.getFolder());
+            children.add(expression.getStartValue());
+            children.addAll(expression.getLists());
+            return children;
+        });
+        Expressions.register(FoldrFunction.class, expression -> {
+            final List<Expression> children = new ArrayList<>(expression.getLists().size() + 2);
+            children.add(expression.getFolder());
+            children.add(expression.getStartValue());
+            children.addAll(expression.getLists());
+            return children;
+        });
+        Expressions.register(IfFunction.class,
+                expression -> Arrays.asList(expression.getTest(), expression.getThen(), expression.getElse0()));
+        Expressions.register(LambdaFunction.class, expression -> Collections.singletonList(expression.getExpression()));
+        Expressions.register(LocalFunction.class, expression -> {
+            final List<Expression> children = new ArrayList<>(expression.getDefinitions().size() + 1);
+            for (final Definition definition : expression.getDefinitions()) {
+                children.add((Expression) definition);
+            }
+            children.add(expression.getExpression());
+            return children;
+        });
+        Expressions.register(MapFunction.class,
+                expression -> Expressions.concat(expression.getFunction(), expression.getLists()));
+        Expressions.register(DefineConstantFunction.class, expression -> Collections.singletonList(expression.getExpression()));
+        Expressions.register(DefineFunction.class, expression -> Collections.singletonList(expression.getExpression()));
+
+        Expressions.register(PrintFormatFunction.class, PrintFormatFunction::getArguments);
+        Expressions.register(PrintFunction.class, expression -> Collections.singletonList(expression.getValue()));
+
+        Expressions.register(AppendFunction.class, expression -> Arrays.asList(expression.getListA(), expression.getListB()));
+        Expressions.register(ConsFunction.class, expression -> Arrays.asList(expression.getElement(), expression.getList()));
+        Expressions.register(FirstFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(SecondFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(ThirdFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(FourthFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(FifthFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(SixthFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(SeventhFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(EighthFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(RestFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(LengthFunction.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(ListFunction.class, ListFunction::getValues);
+
+        Expressions.register(AndFunction.class, AndFunction::getExpressions);
+        Expressions.register(OrFunction.class, OrFunction::getExpressions);
+        Expressions.register(NotFunction.class, expression -> Collections.singletonList(expression.getExpression()));
+
+        Expressions.register(AbsFunction.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(FloorFunction.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(SqrFunction.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(SqrtFunction.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(ExptFunction.class, expression -> Arrays.asList(expression.getValueA(), expression.getValueB()));
+        Expressions.register(GcdFunction.class, expression -> Arrays.asList(expression.getValueA(), expression.getValueB()));
+        Expressions.register(RemainderFunction.class,
+                expression -> Arrays.asList(expression.getValueA(), expression.getValueB()));
+        Expressions.register(AddFunction.class, AddFunction::getValues);
+        Expressions.register(SubtractFunction.class, SubtractFunction::getValues);
+        Expressions.register(MultiplyFunction.class, MultiplyFunction::getValues);
+        Expressions.register(DivideFunction.class, DivideFunction::getValues);
+        Expressions.register(LessFunction.class, LessFunction::getValues);
+        Expressions.register(LessOrEqualFunction.class, LessOrEqualFunction::getValues);
+        Expressions.register(GreaterFunction.class, GreaterFunction::getValues);
+        Expressions.register(GreaterOrEqualFunction.class, GreaterOrEqualFunction::getValues);
+        Expressions.register(NumberEqualFunction.class, NumberEqualFunction::getValues);
+        Expressions.register(MaxFunction.class, MaxFunction::getValues);
+        Expressions.register(MinFunction.class, MinFunction::getValues);
+
+        Expressions.register(BooleanPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(EvenPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(NumberPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(OddPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(SymbolPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(ZeroPredicate.class, expression -> Collections.singletonList(expression.getValue()));
+        Expressions.register(EmptyPredicate.class, expression -> Collections.singletonList(expression.getList()));
+        Expressions.register(EqPredicate.class, expression -> Arrays.asList(expression.getValueA(), expression.getValueB()));
+        Expressions.register(ListPredicate.class, expression -> Collections.singletonList(expression.getAny()));
+        Expressions.register(StructPredicateFunction.class, expression -> Collections.singletonList(expression.getInstance()));
+
+        Expressions.register(MakeStructFunction.class, MakeStructFunction::getAttributes);
+        Expressions.register(StructAttributeSelectFunction.class,
+                expression -> Collections.singletonList(expression.getInstance()));
+    }
+
+    /**
+     * Constructor of Expressions.
+     *
+     */
+    private Expressions() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Retrieves the direct sub-expressions of the given expression in the
+     * order they are evaluated. Names (e.g. the parameters of a lambda) are
+     * not expressions and therefore not contained, but the definitions of a
+     * <code>local</code> are.
+     *
+     * @param expression
+     *            The expression.
+     * @return The sub-expressions.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Expression> getChildren(final Expression expression) throws IllegalArgumentException {
+        final ChildrenAccessor<Expression> accessor = (ChildrenAccessor<Expression>) Expressions.ACCESSORS
+                .get(expression.getClass());
+        if (accessor == null) {
+            throw new IllegalArgumentException("Unknown expression type " + expression.getClass().getSimpleName() + "!");
+        }
+        return accessor.getChildren(expression);
+    }
+
+    /**
+     * Registers the accessor for the children of the given type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     * @param type
+     *            The type of the expression.
+     * @param accessor
+     *            The accessor.
+     */
+    private static <E extends Expression> void register(final Class<E> type, final ChildrenAccessor<E> accessor) {
+        Expressions.ACCESSORS.put(type, accessor);
+    }
+
+    /**
+     * Creates a list of the given expression followed by the given
+     * expressions.
+     *
+     * @param first
+     *            The first expression.
+     * @param rest
+     *            The other expressions.
+     * @return The list.
+     */
+    private static List<Expression> concat(final Expression first, final List<Expression> rest) {
+        final List<Expression> list = new ArrayList<>(rest.size() + 1);
+        list.add(first);
+        list.addAll(rest);
+        return list;
+    }
+
+    /**
+     * Retrieves the children of an expression.
+     *
+     * @param <E>
+     *            The type of the expression.
+     */
+    @FunctionalInterface
+    private interface ChildrenAccessor<E extends Expression> {
+        /**
+         * Retrieves the children of the given expression.
+         *
+         * @param expression
+         *            The expression.
+         * @return The children.
+         */
+        List<Expression> getChildren(final E expression);
+    }
+}
@@ -19,6 +19,10 @@
  */
 package de.fdamken.yalp.parsing.ast.representation;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.SymbolTable;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -74,7 +78,54 @@ public enum Keyword {
     FILTER("filter"),
     CHECK_EXPECT("check-expect"),
     CHECK_WITHIN("check-within"),
-    CHECK_ERROR("check-error");
+    CHECK_ERROR("check-error"),
+    PLUS("+"),
+    MINUS("-"),
+    MULTIPLY("*"),
+    DIVIDE("/"),
+    LESS("<"),
+    LESS_EQUAL("<="),
+    GREATER(">"),
+    GREATER_EQUAL(">="),
+    NUMBER_EQUAL("="),
+    TRUE("true"),
+    FALSE("false"),
+    EMPTY("empty"),
+    LIST("list");
+
+    private static final Keyword[] VALUES = Keyword.values();
+    private static final Map<String, Keyword> BY_KEYWORD = new HashMap<>();
+
+    static {
+        for (final Keyword keyword : Keyword.VALUES) {
+            Keyword.BY_KEYWORD.put(keyword.getKeyword(), keyword);
+        }
+    }
 
     private final String keyword;
+
+    /**
+     * Looks up the keyword with the given symbol ID. This relies on the
+     * keywords being the first symbols of every {@link SymbolTable}.
+     *
+     * @param symbolId
+     *            The symbol ID.
+     * @return The keyword or <code>null</code> if the symbol is not a keyword.
+     */
+    public static Keyword fromSymbolId(final int symbolId) {
+        return symbolId >= 0 && symbolId < Keyword.VALUES.length ? Keyword.VALUES[symbolId] : null;
+    }
+
+    /**
+     * Looks up the keyword with the given name. This is only needed for
+     * symbols that have no symbol ID, otherwise {@link #fromSymbolId(int)} is
+     * faster.
+     *
+     * @param keyword
+     *            The name of the keyword.
+     * @return The keyword or <code>null</code> if the name is not a keyword.
+     */
+    public static Keyword fromKeyword(final String keyword) {
+        return Keyword.BY_KEYWORD.get(keyword);
+    }
 }
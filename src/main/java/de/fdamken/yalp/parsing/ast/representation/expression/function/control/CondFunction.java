@@ -34,7 +34,7 @@ public class CondFunction extends AbstractFunction {
     private Expression else0;
 
     public CondFunction() {
-        super(0);
+        super(1, -1);
     }
 
     @Data
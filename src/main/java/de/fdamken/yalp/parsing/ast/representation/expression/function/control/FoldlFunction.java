@@ -30,7 +30,7 @@ import lombok.EqualsAndHashCode;
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class FoldlFunction extends AbstractFunction {
-    private LambdaFunction folder;
+    private Expression folder;
     private Expression startValue;
     private List<Expression> lists;
 
@@ -32,6 +32,7 @@ import lombok.EqualsAndHashCode;
 final @EqualsAndHashCode(callSuper = false) public class LocalFunction extends AbstractFunction {
     private List<Definition> definitions;
     private Expression expression;
+    private int frameSize;
 
     public LocalFunction() {
         super(2);
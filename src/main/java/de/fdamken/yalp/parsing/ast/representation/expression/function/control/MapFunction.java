@@ -30,7 +30,7 @@ import lombok.EqualsAndHashCode;
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class MapFunction extends AbstractFunction {
-    private LambdaFunction lambda;
+    private Expression function;
     private List<Expression> lists;
 
     public MapFunction() {
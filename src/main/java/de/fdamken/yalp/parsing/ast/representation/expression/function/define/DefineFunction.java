@@ -24,6 +24,7 @@ import java.util.List;
 import de.fdamken.yalp.parsing.ast.representation.Expression;
 import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
 import de.fdamken.yalp.parsing.ast.representation.expression.function.AbstractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -33,6 +34,7 @@ import lombok.EqualsAndHashCode;
 public class DefineFunction extends AbstractFunction implements Definition {
     private List<Literal> header;
     private Expression expression;
+    private int slot = Variable.UNRESOLVED;
 
     public DefineFunction() {
         super(2);
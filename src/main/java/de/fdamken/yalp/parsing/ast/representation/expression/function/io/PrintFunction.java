@@ -19,7 +19,7 @@
  */
 package de.fdamken.yalp.parsing.ast.representation.expression.function.io;
 
-import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
 import de.fdamken.yalp.parsing.ast.representation.expression.function.AbstractFunction;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -28,7 +28,7 @@ import lombok.EqualsAndHashCode;
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class PrintFunction extends AbstractFunction {
-    private Literal str;
+    private Expression value;
 
     public PrintFunction() {
         super(1);
@@ -24,7 +24,7 @@ import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class BooleanLiteral extends AbstractLiteral {
     private boolean content;
 }
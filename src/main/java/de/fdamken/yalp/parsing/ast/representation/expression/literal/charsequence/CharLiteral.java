@@ -25,7 +25,7 @@ import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class CharLiteral extends AbstractLiteral implements CharSequenceLiteral {
     private char content;
 }
@@ -25,7 +25,7 @@ import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class SymbolLiteral extends AbstractLiteral implements CharSequenceLiteral {
     private String content;
 }
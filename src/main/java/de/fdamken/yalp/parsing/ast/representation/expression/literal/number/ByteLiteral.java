@@ -25,7 +25,7 @@ import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class ByteLiteral extends AbstractLiteral implements NumberLiteral {
     private byte content;
 }
@@ -25,7 +25,7 @@ import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class ComplexNumberLiteral extends AbstractLiteral implements NumberLiteral {
     private NumberLiteral real;
     private NumberLiteral imaginary;
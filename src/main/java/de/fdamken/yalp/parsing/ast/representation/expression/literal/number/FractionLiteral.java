@@ -19,14 +19,16 @@
  */
 package de.fdamken.yalp.parsing.ast.representation.expression.literal.number;
 
+import java.math.BigInteger;
+
 import de.fdamken.yalp.parsing.ast.representation.expression.literal.AbstractLiteral;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class FractionLiteral extends AbstractLiteral implements NumberLiteral {
-    private int numerator;
-    private int denominator;
+    private BigInteger numerator;
+    private BigInteger denominator;
 }
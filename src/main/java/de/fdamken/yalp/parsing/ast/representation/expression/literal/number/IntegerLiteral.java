@@ -19,13 +19,15 @@
  */
 package de.fdamken.yalp.parsing.ast.representation.expression.literal.number;
 
+import java.math.BigInteger;
+
 import de.fdamken.yalp.parsing.ast.representation.expression.literal.AbstractLiteral;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
 @SuppressWarnings("javadoc")
 @Data
-@EqualsAndHashCode(callSuper = true)
+@EqualsAndHashCode(callSuper = false)
 public class IntegerLiteral extends AbstractLiteral implements NumberLiteral {
-    private int content;
+    private BigInteger content;
 }
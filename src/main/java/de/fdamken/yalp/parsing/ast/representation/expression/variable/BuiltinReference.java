@@ -0,0 +1,44 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.representation.expression.variable;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import lombok.Data;
+
+/**
+ * A reference to a built-in function that takes any number of parameters and
+ * is used as a value (e.g. <code>list</code> in <code>(map list l)</code>).
+ *
+ * <p>
+ * Unlike the other built-in functions, it cannot be converted into an
+ * equivalent lambda, as lambdas have a fixed number of parameters. The
+ * execution engines evaluate it to a function value that accepts any number
+ * of arguments.
+ * </p>
+ *
+ */
+@Data
+public class BuiltinReference implements Expression {
+    /**
+     * The name of the function (e.g. <code>+</code>).
+     *
+     */
+    private String name;
+}
@@ -0,0 +1,77 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.ast.representation.expression.variable;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import lombok.Data;
+
+/**
+ * A reference to a variable (e.g. a parameter of a function or a constant)
+ * by its name.
+ *
+ * <p>
+ * The context analysis resolves the variable to its lexical address: The
+ * number of frames between the reference and the frame of the variable (the
+ * {@link #getDepth() depth}) and the index of the variable in that frame (the
+ * {@link #getSlot() slot}). A frame is created by every function (for its
+ * parameters) and every <code>local</code> (for its definitions); the
+ * outermost frame holds the top-level definitions.
+ * </p>
+ *
+ */
+@Data
+public class Variable implements Expression {
+    /**
+     * The value of the depth and the slot of a variable that is not resolved
+     * yet.
+     *
+     */
+    public static final int UNRESOLVED = -1;
+
+    /**
+     * The name of the variable.
+     *
+     */
+    private String name;
+    /**
+     * The symbol ID of the name or
+     * {@link de.fdamken.yalp.parsing.SymbolTable#NO_SYMBOL} if it is not
+     * known.
+     *
+     */
+    private int symbolId;
+    /**
+     * The number of frames between the reference and the frame of the
+     * variable or {@link #UNRESOLVED}.
+     *
+     */
+    private int depth = Variable.UNRESOLVED;
+    /**
+     * The index of the variable in its frame or {@link #UNRESOLVED}.
+     *
+     */
+    private int slot = Variable.UNRESOLVED;
+    /**
+     * Whether the variable is a top-level definition (i.e. its frame is the
+     * outermost frame).
+     *
+     */
+    private boolean global;
+}
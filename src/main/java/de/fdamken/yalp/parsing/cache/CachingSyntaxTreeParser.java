@@ -0,0 +1,324 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.cache;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeLexer;
+import de.fdamken.yalp.parsing.tt.compile.TreeBuilder;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import lombok.Getter;
+
+/**
+ * Parses Lisp code into a syntax tree and reuses the syntax tree elements of
+ * top-level forms that were parsed before. The result (including the errors)
+ * is the same as when using a {@link de.fdamken.yalp.parsing.tt.compile.TokenTreeParser
+ * TokenTreeParser} followed by a {@link SyntaxTreeParser}.
+ *
+ * <p>
+ * The code is split into segments, each ending with the closing bracket of a
+ * top-level form (so leading whitespace and comments belong to the following
+ * form). The lexer is in its initial state at every segment boundary, so
+ * every segment can be parsed on its own. A segment is looked up in the
+ * {@link FormCache} by the SHA-256 hash of its source code and is only parsed
+ * if it is not cached. Finding the boundaries requires lexing the code, but
+ * no elements are built while doing so.
+ * </p>
+ *
+ * <p>
+ * The built syntax trees use the symbol table of the cache. This class is
+ * thread-safe.
+ * </p>
+ *
+ */
+public class CachingSyntaxTreeParser extends AbstractCompilationStep<Input, SyntaxTree> {
+    /**
+     * The size of the blocks the code is read in.
+     *
+     */
+    private static final int BLOCK_SIZE = 8192;
+    /**
+     * The hexadecimal digits.
+     *
+     */
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The cache of the forms.
+     *
+     */
+    @Getter
+    private final FormCache cache;
+    /**
+     * The parser that is used for parsing the forms that are not cached.
+     *
+     */
+    private final SyntaxTreeParser syntaxTreeParser = new SyntaxTreeParser();
+
+    /**
+     * Constructor of CachingSyntaxTreeParser.
+     *
+     * @param cache
+     *            The cache of the forms.
+     */
+    public CachingSyntaxTreeParser(final FormCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public SyntaxTree parse(final Input input) throws CompilationException {
+        final char[] code;
+        try {
+            code = CachingSyntaxTreeParser.read(input.getReader());
+        } catch (final IOException cause) {
+            throw new TokenTreeParsingException("Error whilst doing I/O things.", cause);
+        }
+
+        // Lexing the whole code first throws the same lexer errors as the
+        // token tree parser, before any syntax tree errors.
+        final FormSplitter splitter = new FormSplitter();
+        final TokenTreeLexer lexer = new TokenTreeLexer(splitter);
+        splitter.lexer = lexer;
+        lexer.feed(code, 0, code.length);
+        lexer.finishInput();
+
+        final MessageDigest digest = CachingSyntaxTreeParser.createDigest();
+        SyntaxTreeElement[] elements = new SyntaxTreeElement[16];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i < splitter.count; i++) {
+            final int end = splitter.boundaries[i];
+            final SyntaxTreeElement[] formElements = this.parseForm(code, start, end, digest);
+            if (count + formElements.length > elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(elements.length * 2, count + formElements.length));
+            }
+            System.arraycopy(formElements, 0, elements, count, formElements.length);
+            count += formElements.length;
+            start = end;
+        }
+
+        if (count == 0) {
+            throw new SyntaxTreeParsingException("Missing parameters for function call!");
+        }
+        return new SyntaxTree(new FunctionCall(elements[0], Arrays.copyOfRange(elements, 1, count)),
+                this.cache.getSymbolTable());
+    }
+
+    /**
+     * Retrieves the syntax tree elements of a single segment from the cache or
+     * parses them.
+     *
+     * @param code
+     *            The code.
+     * @param start
+     *            The start index of the segment (inclusive).
+     * @param end
+     *            The end index of the segment (exclusive).
+     * @param digest
+     *            The digest to hash the segment with.
+     * @return The elements of the segment.
+     * @throws CompilationException
+     *             If an error occurs during the compilation.
+     */
+    private SyntaxTreeElement[] parseForm(final char[] code, final int start, final int end, final MessageDigest digest)
+            throws CompilationException {
+        final String key = CachingSyntaxTreeParser.hash(code, start, end, digest);
+        final SyntaxTreeElement[] cached = this.cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final TokenTreeLexer lexer = new TokenTreeLexer(new TokenTreeBuilder(this.cache.getSymbolTable()));
+        lexer.feed(code, start, end - start);
+        final TokenTree tokenTree = lexer.finish();
+        final TokenTreeContainer root = tokenTree.getRootContainer();
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[root.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = this.syntaxTreeParser.parseElement(root.get(i));
+        }
+        this.cache.put(key, end - start, elements);
+        return elements;
+    }
+
+    /**
+     * Reads the whole code.
+     *
+     * @param reader
+     *            The reader to read from.
+     * @return The code.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private static char[] read(final Reader reader) throws IOException {
+        char[] code = new char[CachingSyntaxTreeParser.BLOCK_SIZE];
+        int length = 0;
+        int read;
+        while ((read = reader.read(code, length, code.length - length)) != -1) {
+            length += read;
+            if (length == code.length) {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+        }
+        return length == code.length ? code : Arrays.copyOf(code, length);
+    }
+
+    /**
+     *
+     * @return A new SHA-256 digest.
+     */
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException cause) {
+            throw new IllegalStateException("Every JVM has to support SHA-256!", cause);
+        }
+    }
+
+    /**
+     * Hashes a segment of the code.
+     *
+     * @param code
+     *            The code.
+     * @param start
+     *            The start index of the segment (inclusive).
+     * @param end
+     *            The end index of the segment (exclusive).
+     * @param digest
+     *            The digest to use.
+     * @return The hexadecimal hash of the segment.
+     */
+    private static String hash(final char[] code, final int start, final int end, final MessageDigest digest) {
+        final byte[] bytes = new byte[(end - start) * 2];
+        for (int i = start, j = 0; i < end; i++, j += 2) {
+            bytes[j] = (byte) (code[i] >>> 8);
+            bytes[j + 1] = (byte) code[i];
+        }
+        final byte[] hash = digest.digest(bytes);
+
+        final char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = CachingSyntaxTreeParser.HEX_DIGITS[(hash[i] >>> 4) & 0xF];
+            hex[i * 2 + 1] = CachingSyntaxTreeParser.HEX_DIGITS[hash[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * A tree builder that does not build anything, but records the positions
+     * after the closing brackets of the top-level forms.
+     *
+     */
+    private static class FormSplitter implements TreeBuilder {
+        /**
+         * The lexer that feeds this builder.
+         *
+         */
+        private TokenTreeLexer lexer;
+        /**
+         * The number of open containers.
+         *
+         */
+        private int depth;
+        /**
+         * The positions after the closing brackets of the top-level forms.
+         *
+         */
+        private int[] boundaries = new int[16];
+        /**
+         * The number of recorded boundaries.
+         *
+         */
+        private int count;
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#openContainer()
+         */
+        @Override
+        public void openContainer() {
+            this.depth++;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#closeContainer()
+         */
+        @Override
+        public void closeContainer() {
+            if (this.depth == 0) {
+                return;
+            }
+
+            this.depth--;
+            if (this.depth == 0) {
+                if (this.count == this.boundaries.length) {
+                    this.boundaries = Arrays.copyOf(this.boundaries, this.count * 2);
+                }
+                this.boundaries[this.count++] = (int) this.lexer.getPosition();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#addElement(java.lang.CharSequence,
+         *      de.fdamken.yalp.parsing.LiteralKind)
+         */
+        @Override
+        public void addElement(final CharSequence content, final LiteralKind kind) throws IllegalStateException {
+            if (this.depth == 0) {
+                throw new IllegalStateException("There is no open container!");
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#isFinished()
+         */
+        @Override
+        public boolean isFinished() {
+            return this.depth == 0;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.cache;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.st.binary.BinarySyntaxTreeReader;
+import de.fdamken.yalp.parsing.st.binary.BinarySyntaxTreeWriter;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import lombok.Getter;
+
+/**
+ * A cache of the syntax tree elements of top-level forms, keyed by the hash of
+ * the source code of the forms (see {@link CachingSyntaxTreeParser}).
+ *
+ * <p>
+ * The cache is bounded by the total length of the source code of the cached
+ * forms. If the bound is exceeded, the least recently used forms are evicted.
+ * Optionally, the forms are also written to a directory, so they survive
+ * restarts. The directory is not bounded and errors while accessing it are
+ * ignored (the form is parsed again).
+ * </p>
+ *
+ * <p>
+ * All cached elements use the symbol table of the cache. This class is
+ * thread-safe.
+ * </p>
+ *
+ */
+public class FormCache {
+    /**
+     * The file name extension of the cached forms in the directory.
+     *
+     */
+    private static final String FILE_EXTENSION = ".form";
+
+    /**
+     * The symbol table that is used by all cached elements.
+     *
+     */
+    @Getter
+    private final SymbolTable symbolTable = new SymbolTable();
+    /**
+     * The maximum total length of the source code of the cached forms.
+     *
+     */
+    @Getter
+    private final long maxSize;
+    /**
+     * The directory the forms are stored in or <code>null</code> if the forms
+     * are only cached in memory.
+     *
+     */
+    @Getter
+    private final Path directory;
+    /**
+     * The cached forms in the order of their last access.
+     *
+     */
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75F, true);
+    /**
+     * The total length of the source code of the cached forms.
+     *
+     */
+    private long size;
+    /**
+     * The number of forms that were found in memory.
+     *
+     */
+    private long hits;
+    /**
+     * The number of forms that were found in the directory.
+     *
+     */
+    private long diskHits;
+    /**
+     * The number of forms that were not found.
+     *
+     */
+    private long misses;
+    /**
+     * The number of forms that were evicted from memory.
+     *
+     */
+    private long evictions;
+
+    /**
+     * Constructor of FormCache. The forms are only cached in memory.
+     *
+     * @param maxSize
+     *            The maximum total length of the source code of the cached
+     *            forms.
+     */
+    public FormCache(final long maxSize) {
+        this.maxSize = maxSize;
+        this.directory = null;
+    }
+
+    /**
+     * Constructor of FormCache.
+     *
+     * @param maxSize
+     *            The maximum total length of the source code of the cached
+     *            forms that are kept in memory.
+     * @param directory
+     *            The directory to store the forms in. It is created if it does
+     *            not exist.
+     * @throws IOException
+     *             If the directory cannot be created.
+     */
+    public FormCache(final long maxSize, final Path directory) throws IOException {
+        this.maxSize = maxSize;
+        this.directory = Files.createDirectories(directory);
+    }
+
+    /**
+     * Retrieves the elements of the form with the given key.
+     *
+     * @param key
+     *            The key of the form.
+     * @return The elements of the form or <code>null</code> if the form is not
+     *         cached.
+     */
+    public SyntaxTreeElement[] get(final String key) {
+        synchronized (this) {
+            final Entry entry = this.entries.get(key);
+            if (entry != null) {
+                this.hits++;
+                return entry.elements;
+            }
+        }
+
+        final SyntaxTreeElement[] elements = this.read(key);
+        synchronized (this) {
+            if (elements == null) {
+                this.misses++;
+            } else {
+                this.diskHits++;
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Adds a form to this cache.
+     *
+     * @param key
+     *            The key of the form.
+     * @param sourceLength
+     *            The length of the source code of the form.
+     * @param elements
+     *            The elements of the form. They must use the
+     *            {@link #symbolTable symbol table} of this cache.
+     */
+    public void put(final String key, final int sourceLength, final SyntaxTreeElement[] elements) {
+        this.write(key, sourceLength, elements);
+        this.putInMemory(key, new Entry(sourceLength, elements));
+    }
+
+    /**
+     * Removes all forms from the memory. The forms in the directory are kept.
+     *
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    /**
+     *
+     * @return The number of forms that are cached in memory.
+     */
+    public synchronized int getEntryCount() {
+        return this.entries.size();
+    }
+
+    /**
+     *
+     * @return The total length of the source code of the forms that are cached
+     *         in memory.
+     */
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    /**
+     *
+     * @return The number of lookups that were answered from memory.
+     */
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    /**
+     *
+     * @return The number of lookups that were answered from the directory.
+     */
+    public synchronized long getDiskHits() {
+        return this.diskHits;
+    }
+
+    /**
+     *
+     * @return The number of lookups that found nothing.
+     */
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     *
+     * @return The number of forms that were evicted from memory.
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Adds an entry to the memory and evicts the least recently used entries
+     * if the cache is too large.
+     *
+     * @param key
+     *            The key of the form.
+     * @param entry
+     *            The entry to add.
+     */
+    private synchronized void putInMemory(final String key, final Entry entry) {
+        if (entry.sourceLength > this.maxSize) {
+            return;
+        }
+
+        final Entry previous = this.entries.put(key, entry);
+        if (previous != null) {
+            this.size -= previous.sourceLength;
+        }
+        this.size += entry.sourceLength;
+
+        final Iterator<Entry> iterator = this.entries.values().iterator();
+        while (this.size > this.maxSize) {
+            this.size -= iterator.next().sourceLength;
+            iterator.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Reads the form with the given key from the directory and adds it to the
+     * memory.
+     *
+     * @param key
+     *            The key of the form.
+     * @return The elements of the form or <code>null</code> if the form is not
+     *         stored or cannot be read.
+     */
+    private SyntaxTreeElement[] read(final String key) {
+        if (this.directory == null) {
+            return null;
+        }
+
+        final Path file = this.directory.resolve(key + FormCache.FILE_EXTENSION);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (final InputStream in = Files.newInputStream(file)) {
+            final DataInputStream data = new DataInputStream(in);
+            final int sourceLength = data.readInt();
+            final SyntaxTreeElement[] elements = new BinarySyntaxTreeReader(data, this.symbolTable).readElements();
+            if (elements == null) {
+                return null;
+            }
+            this.putInMemory(key, new Entry(sourceLength, elements));
+            return elements;
+        } catch (final IOException | RuntimeException ex) {
+            // The file is broken, so it is replaced once the form is parsed.
+            return null;
+        }
+    }
+
+    /**
+     * Writes the given form to the directory. The file is written atomically,
+     * so concurrent readers never see partially written forms.
+     *
+     * @param key
+     *            The key of the form.
+     * @param sourceLength
+     *            The length of the source code of the form.
+     * @param elements
+     *            The elements of the form.
+     */
+    private void write(final String key, final int sourceLength, final SyntaxTreeElement[] elements) {
+        if (this.directory == null) {
+            return;
+        }
+
+        try {
+            final Path temporary = Files.createTempFile(this.directory, key, ".tmp");
+            try {
+                try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+                    out.writeInt(sourceLength);
+                    try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+                        writer.writeElements(elements);
+                    }
+                }
+                Files.move(temporary, this.directory.resolve(key + FormCache.FILE_EXTENSION),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (final IOException ex) {
+            // The form is just not stored.
+        }
+    }
+
+    /**
+     * A form that is cached in memory.
+     *
+     */
+    private static class Entry {
+        /**
+         * The length of the source code of the form.
+         *
+         */
+        private final int sourceLength;
+        /**
+         * The elements of the form.
+         *
+         */
+        private final SyntaxTreeElement[] elements;
+
+        /**
+         * Constructor of Entry.
+         *
+         * @param sourceLength
+         *            The length of the source code of the form.
+         * @param elements
+         *            The elements of the form.
+         */
+        Entry(final int sourceLength, final SyntaxTreeElement[] elements) {
+            this.sourceLength = sourceLength;
+            this.elements = elements;
+        }
+    }
+}
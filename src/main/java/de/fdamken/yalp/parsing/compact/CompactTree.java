@@ -0,0 +1,519 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.compact;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.tt.representation.TokenSlice;
+import de.fdamken.yalp.util.CharSequences;
+import lombok.Getter;
+
+/**
+ * A compact encoding of a token tree or a syntax tree. Instead of one object
+ * per node, the nodes are stored in parallel primitive arrays and referred to
+ * by their index. The nodes are stored in pre-order, so the root always has
+ * the index <code>0</code> and the children of a node always have greater
+ * indices than the node itself.
+ *
+ * <p>
+ * A {@link Kind#CONTAINER container} corresponds to a
+ * {@link de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer token
+ * tree container} or a
+ * {@link de.fdamken.yalp.parsing.st.representation.element.FunctionCall
+ * function call} (whose first child is the function); an {@link Kind#ELEMENT
+ * element} corresponds to a
+ * {@link de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement
+ * simple token tree element} or a
+ * {@link de.fdamken.yalp.parsing.st.representation.element.Literal literal}.
+ * Interned elements only store their symbol ID; the contents of all other
+ * elements are stored in a single text buffer.
+ * </p>
+ *
+ * <p>
+ * If the tree was built by a {@link de.fdamken.yalp.parsing.tt.compile.TokenTreeLexer
+ * lexer}, every node also stores its start/end position in the source code.
+ * Trees converted from token trees or syntax trees have no source positions.
+ * </p>
+ *
+ * <p>
+ * Compact trees are immutable and are created using a
+ * {@link CompactTreeBuilder} or the {@link CompactTreeConverter}.
+ * </p>
+ *
+ */
+public final class CompactTree implements IntermediateRepresentation {
+    /**
+     * The index that is used if a node does not exist (e.g. the parent of the
+     * root).
+     *
+     */
+    public static final int NONE = -1;
+
+    /**
+     * The kinds of the nodes.
+     *
+     */
+    private final byte[] kinds;
+    /**
+     * The parents of the nodes.
+     *
+     */
+    private final int[] parents;
+    /**
+     * The first children of the nodes.
+     *
+     */
+    private final int[] firstChildren;
+    /**
+     * The next siblings of the nodes.
+     *
+     */
+    private final int[] nextSiblings;
+    /**
+     * The positions of the first characters of the nodes in the source code
+     * or {@link #NONE} if they are unknown.
+     *
+     */
+    private final int[] starts;
+    /**
+     * The positions after the last characters of the nodes in the source code
+     * or {@link #NONE} if they are unknown.
+     *
+     */
+    private final int[] ends;
+    /**
+     * The symbol IDs of the nodes. This is {@link SymbolTable#NO_SYMBOL} for
+     * containers and elements that are not interned.
+     *
+     */
+    private final int[] symbolIds;
+    /**
+     * The {@link LiteralKind#ordinal() ordinals} of the literal kinds of the
+     * nodes. This is <code>-1</code> for containers.
+     *
+     */
+    private final byte[] literalKinds;
+    /**
+     * The offsets of the contents of the nodes in the {@link #text}. The
+     * content of a node ends where the content of the next node starts, so
+     * this has one more entry than there are nodes. Containers and interned
+     * elements have an empty content.
+     *
+     */
+    private final int[] contentStarts;
+    /**
+     * The contents of all elements that are not interned.
+     *
+     */
+    private final char[] text;
+    /**
+     * The number of nodes.
+     *
+     */
+    private final int size;
+
+    /**
+     * The symbol table the symbol IDs refer to.
+     *
+     */
+    @Getter
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor of CompactTree. The arrays are not copied.
+     *
+     * @param kinds
+     *            The kinds of the nodes.
+     * @param parents
+     *            The parents of the nodes.
+     * @param firstChildren
+     *            The first children of the nodes.
+     * @param nextSiblings
+     *            The next siblings of the nodes.
+     * @param starts
+     *            The source positions of the first characters of the nodes.
+     * @param ends
+     *            The source positions after the last characters of the nodes.
+     * @param symbolIds
+     *            The symbol IDs of the nodes.
+     * @param literalKinds
+     *            The ordinals of the literal kinds of the nodes.
+     * @param contentStarts
+     *            The offsets of the contents of the nodes in the text.
+     * @param text
+     *            The contents of all elements that are not interned.
+     * @param size
+     *            The number of nodes.
+     * @param symbolTable
+     *            The symbol table the symbol IDs refer to.
+     */
+    CompactTree(final byte[] kinds, final int[] parents, final int[] firstChildren, final int[] nextSiblings,
+            final int[] starts, final int[] ends, final int[] symbolIds, final byte[] literalKinds, final int[] contentStarts,
+            final char[] text, final int size, final SymbolTable symbolTable) {
+        this.kinds = kinds;
+        this.parents = parents;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.starts = starts;
+        this.ends = ends;
+        this.symbolIds = symbolIds;
+        this.literalKinds = literalKinds;
+        this.contentStarts = contentStarts;
+        this.text = text;
+        this.size = size;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The kind of the node.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public Kind getKind(final int node) throws IndexOutOfBoundsException {
+        return Kind.VALUES[this.kinds[this.checkNode(node)]];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return Whether the node is a {@link Kind#CONTAINER container}.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public boolean isContainer(final int node) throws IndexOutOfBoundsException {
+        return this.kinds[this.checkNode(node)] == Kind.CONTAINER.code;
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The parent of the node or {@link #NONE} for the root.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getParent(final int node) throws IndexOutOfBoundsException {
+        return this.parents[this.checkNode(node)];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The first child of the node or {@link #NONE} if the node has no
+     *         children.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getFirstChild(final int node) throws IndexOutOfBoundsException {
+        return this.firstChildren[this.checkNode(node)];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The next sibling of the node or {@link #NONE} if the node is the
+     *         last child of its parent.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getNextSibling(final int node) throws IndexOutOfBoundsException {
+        return this.nextSiblings[this.checkNode(node)];
+    }
+
+    /**
+     * Counts the children of the given node.
+     *
+     * @param node
+     *            The index of the node.
+     * @return The number of children of the node.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getChildCount(final int node) throws IndexOutOfBoundsException {
+        int count = 0;
+        for (int child = this.firstChildren[this.checkNode(node)]; child != CompactTree.NONE; child = this.nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The position of the first character of the node in the source
+     *         code or {@link #NONE} if it is unknown.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getStart(final int node) throws IndexOutOfBoundsException {
+        return this.starts[this.checkNode(node)];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The position after the last character of the node in the
+     *         source code or {@link #NONE} if it is unknown.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getEnd(final int node) throws IndexOutOfBoundsException {
+        return this.ends[this.checkNode(node)];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The symbol ID of the node or {@link SymbolTable#NO_SYMBOL} if
+     *         the node is a container or was not interned.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public int getSymbolId(final int node) throws IndexOutOfBoundsException {
+        return this.symbolIds[this.checkNode(node)];
+    }
+
+    /**
+     *
+     * @param node
+     *            The index of the node.
+     * @return The literal kind of the node or <code>null</code> if the node is
+     *         a container.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public LiteralKind getLiteralKind(final int node) throws IndexOutOfBoundsException {
+        final byte literalKind = this.literalKinds[this.checkNode(node)];
+        return literalKind < 0 ? null : LiteralKind.fromOrdinal(literalKind);
+    }
+
+    /**
+     * Returns the content of the given node. For interned elements, this is
+     * the interned string; otherwise, this is a slice of the text of this
+     * tree.
+     *
+     * @param node
+     *            The index of the node.
+     * @return The content of the node. For containers, this is the
+     *         concatenated content of all descendants.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    public CharSequence getContent(final int node) throws IndexOutOfBoundsException {
+        final int symbolId = this.symbolIds[this.checkNode(node)];
+        if (symbolId != SymbolTable.NO_SYMBOL) {
+            return this.symbolTable.getSymbol(symbolId);
+        }
+        if (this.kinds[node] == Kind.CONTAINER.code) {
+            // The descendants directly follow the container.
+            final StringBuilder content = new StringBuilder();
+            final int end = this.getSubtreeEnd(node);
+            for (int descendant = node + 1; descendant < end; descendant++) {
+                if (this.kinds[descendant] == Kind.ELEMENT.code) {
+                    content.append(this.getContent(descendant));
+                }
+            }
+            return content;
+        }
+        return new TokenSlice(this.text, this.contentStarts[node], this.contentStarts[node + 1] - this.contentStarts[node]);
+    }
+
+    /**
+     * Finds the end of the subtree of the given node, that is the next
+     * sibling of the node or of its closest ancestor that has one.
+     *
+     * @param node
+     *            The index of the node.
+     * @return The index after the last descendant of the node.
+     */
+    private int getSubtreeEnd(final int node) {
+        int current = node;
+        while (current != CompactTree.NONE && this.nextSiblings[current] == CompactTree.NONE) {
+            current = this.parents[current];
+        }
+        return current == CompactTree.NONE ? this.size : this.nextSiblings[current];
+    }
+
+    /**
+     * Checks that the given node exists.
+     *
+     * @param node
+     *            The index of the node.
+     * @return The index of the node.
+     * @throws IndexOutOfBoundsException
+     *             If the node does not exist.
+     */
+    private int checkNode(final int node) throws IndexOutOfBoundsException {
+        if (node < 0 || node >= this.size) {
+            throw new IndexOutOfBoundsException("Node: " + node + ", Size: " + this.size);
+        }
+        return node;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Two compact trees are equal if they have the same structure and the
+     * same contents. The symbol tables are not considered.
+     * </p>
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CompactTree)) {
+            return false;
+        }
+
+        final CompactTree other = (CompactTree) obj;
+        if (this.size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (this.kinds[i] != other.kinds[i] || this.firstChildren[i] != other.firstChildren[i]
+                    || this.nextSiblings[i] != other.nextSiblings[i]) {
+                return false;
+            }
+            if (this.kinds[i] == Kind.ELEMENT.code && (this.literalKinds[i] != other.literalKinds[i]
+                    || !CharSequences.contentEquals(this.getContent(i), other.getContent(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int result = this.size;
+        for (int i = 0; i < this.size; i++) {
+            result = 31 * result + this.kinds[i];
+            if (this.kinds[i] == Kind.ELEMENT.code) {
+                result = 31 * result + CharSequences.hashCode(this.getContent(i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (int node = 0; node < this.size; node++) {
+            if (this.kinds[node] == Kind.CONTAINER.code) {
+                result.append('(');
+            } else {
+                result.append(this.getContent(node));
+            }
+
+            if (this.firstChildren[node] != CompactTree.NONE) {
+                // The children follow.
+                continue;
+            }
+            if (this.kinds[node] == Kind.CONTAINER.code) {
+                result.append(')');
+            }
+
+            // Close all containers that end with this node.
+            int current = node;
+            while (this.nextSiblings[current] == CompactTree.NONE) {
+                current = this.parents[current];
+                if (current == CompactTree.NONE) {
+                    break;
+                }
+                result.append(')');
+            }
+            if (current != CompactTree.NONE) {
+                result.append(' ');
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * The kinds of the nodes of a {@link CompactTree}.
+     *
+     */
+    public enum Kind {
+        /**
+         * A container (or function call).
+         *
+         */
+        CONTAINER,
+        /**
+         * An element (or literal).
+         *
+         */
+        ELEMENT;
+
+        /**
+         * All kinds indexed by their {@link #code}.
+         *
+         */
+        private static final Kind[] VALUES = Kind.values();
+
+        /**
+         * The code of the kind that is stored in the
+         * {@link CompactTree#kinds}.
+         *
+         */
+        final byte code = (byte) this.ordinal();
+    }
+}
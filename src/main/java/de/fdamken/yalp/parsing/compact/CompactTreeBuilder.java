@@ -0,0 +1,438 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.compact;
+
+import java.util.Arrays;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.tt.compile.TreeBuilder;
+
+/**
+ * A builder used for building a {@link CompactTree} in a flat way. The nodes
+ * have to be added in pre-order, which is the order they appear in the code.
+ *
+ * <p>
+ * The builder can be fed directly by a lexer (see
+ * {@link de.fdamken.yalp.parsing.tt.compile.TokenTreeParser#lex(de.fdamken.yalp.parsing.Input, TreeBuilder)}).
+ * Like the {@link de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder}, all
+ * top-level containers are merged into the root container then, the contents
+ * are interned (except for strings) and the source positions reported by the
+ * lexer are recorded.
+ * </p>
+ *
+ */
+public class CompactTreeBuilder implements TreeBuilder {
+    /**
+     * The initial capacity of the node arrays.
+     *
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The symbol table the symbol IDs refer to.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * See {@link CompactTree#kinds}.
+     *
+     */
+    private byte[] kinds = new byte[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#parents}.
+     *
+     */
+    private int[] parents = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#firstChildren}.
+     *
+     */
+    private int[] firstChildren = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#nextSiblings}.
+     *
+     */
+    private int[] nextSiblings = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#starts}.
+     *
+     */
+    private int[] starts = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#ends}.
+     *
+     */
+    private int[] ends = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#symbolIds}.
+     *
+     */
+    private int[] symbolIds = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#literalKinds}.
+     *
+     */
+    private byte[] literalKinds = new byte[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * See {@link CompactTree#contentStarts}.
+     *
+     */
+    private int[] contentStarts = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * The number of added nodes.
+     *
+     */
+    private int size;
+
+    /**
+     * See {@link CompactTree#text}.
+     *
+     */
+    private char[] text = new char[CompactTreeBuilder.INITIAL_CAPACITY * 4];
+    /**
+     * The number of used characters of the {@link #text}.
+     *
+     */
+    private int textLength;
+
+    /**
+     * The stack of the open containers.
+     *
+     */
+    private int[] openContainers = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * The last child of each open container or {@link CompactTree#NONE} if
+     * the container has no children yet.
+     *
+     */
+    private int[] lastChildren = new int[CompactTreeBuilder.INITIAL_CAPACITY];
+    /**
+     * The number of open containers.
+     *
+     */
+    private int depth;
+    /**
+     * The last child of the root container when it was closed the last time.
+     * This is used for reopening the root container.
+     *
+     */
+    private int rootLastChild = CompactTree.NONE;
+
+    /**
+     * Constructor of CompactTreeBuilder.
+     *
+     * @param symbolTable
+     *            The symbol table the symbol IDs refer to.
+     */
+    public CompactTreeBuilder(final SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Opens a new container where the new nodes will be added to. If no
+     * container is open, this reopens the root container.
+     *
+     * @throws IllegalStateException
+     *             If the root is an element.
+     */
+    @Override
+    public void openContainer() throws IllegalStateException {
+        this.openContainer(TreeBuilder.UNKNOWN_POSITION);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * If no container is open, this reopens the root container.
+     * </p>
+     *
+     * @throws IllegalStateException
+     *             If the root is an element.
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#openContainer(long)
+     */
+    @Override
+    public void openContainer(final long start) throws IllegalStateException {
+        final int node;
+        final int lastChild;
+        if (this.depth == 0 && this.size > 0) {
+            if (this.kinds[0] != CompactTree.Kind.CONTAINER.code) {
+                throw new IllegalStateException("The root was already completed!");
+            }
+            node = 0;
+            lastChild = this.rootLastChild;
+        } else {
+            node = this.addNode(CompactTree.Kind.CONTAINER, SymbolTable.NO_SYMBOL, start);
+            lastChild = CompactTree.NONE;
+        }
+
+        if (this.depth == this.openContainers.length) {
+            this.openContainers = Arrays.copyOf(this.openContainers, this.depth * 2);
+            this.lastChildren = Arrays.copyOf(this.lastChildren, this.depth * 2);
+        }
+        this.openContainers[this.depth] = node;
+        this.lastChildren[this.depth] = lastChild;
+        this.depth++;
+    }
+
+    /**
+     * Closes the current container. If there is no open container, this does
+     * nothing.
+     *
+     */
+    @Override
+    public void closeContainer() {
+        this.closeContainer(TreeBuilder.UNKNOWN_POSITION);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#closeContainer(long)
+     */
+    @Override
+    public void closeContainer(final long end) {
+        if (this.depth > 0) {
+            this.depth--;
+            this.ends[this.openContainers[this.depth]] = CompactTreeBuilder.toPosition(end);
+            if (this.depth == 0) {
+                this.rootLastChild = this.lastChildren[0];
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Except for strings, the content is interned in the symbol table.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#addElement(java.lang.CharSequence,
+     *      de.fdamken.yalp.parsing.LiteralKind)
+     */
+    @Override
+    public void addElement(final CharSequence content, final LiteralKind kind) throws IllegalStateException {
+        this.addElement(content, kind, TreeBuilder.UNKNOWN_POSITION, TreeBuilder.UNKNOWN_POSITION);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Except for strings, the content is interned in the symbol table.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#addElement(java.lang.CharSequence,
+     *      de.fdamken.yalp.parsing.LiteralKind, long, long)
+     */
+    @Override
+    public void addElement(final CharSequence content, final LiteralKind kind, final long start, final long end)
+            throws IllegalStateException {
+        if (this.depth == 0) {
+            throw new IllegalStateException("There is no open container!");
+        }
+
+        // Strings are usually unique, so interning them is not worth it.
+        final int symbolId = kind == LiteralKind.STRING ? SymbolTable.NO_SYMBOL : this.symbolTable.intern(content);
+        this.addElement(content, symbolId, kind, start, end);
+    }
+
+    /**
+     * Adds an element with the given content to the current container. The
+     * kind of the content is {@link LiteralKind#classify(CharSequence)
+     * determined} from the content.
+     *
+     * @param content
+     *            The content of the element. This is only copied if the
+     *            element is not interned.
+     * @param symbolId
+     *            The symbol ID of the element or {@link SymbolTable#NO_SYMBOL}
+     *            if the element is not interned.
+     * @throws IllegalStateException
+     *             If the root was already completed.
+     */
+    public void addElement(final CharSequence content, final int symbolId) throws IllegalStateException {
+        this.addElement(content, symbolId, LiteralKind.classify(content));
+    }
+
+    /**
+     * Adds an element with the given content to the current container. The
+     * element has no source position.
+     *
+     * @param content
+     *            The content of the element. This is only copied if the
+     *            element is not interned.
+     * @param symbolId
+     *            The symbol ID of the element or {@link SymbolTable#NO_SYMBOL}
+     *            if the element is not interned.
+     * @param kind
+     *            The kind of the content.
+     * @throws IllegalStateException
+     *             If the root was already completed.
+     */
+    public void addElement(final CharSequence content, final int symbolId, final LiteralKind kind)
+            throws IllegalStateException {
+        this.addElement(content, symbolId, kind, TreeBuilder.UNKNOWN_POSITION, TreeBuilder.UNKNOWN_POSITION);
+    }
+
+    /**
+     *
+     * @return Whether the building was finished, i.e. the root was added and
+     *         all containers are closed.
+     */
+    @Override
+    public boolean isFinished() {
+        return this.size > 0 && this.depth == 0;
+    }
+
+    /**
+     * Builds the compact tree. The builder can be used further afterwards
+     * without affecting the built tree.
+     *
+     * @return The built compact tree.
+     * @throws IllegalStateException
+     *             If the building was not {@link #isFinished() finished}.
+     */
+    public CompactTree build() throws IllegalStateException {
+        if (!this.isFinished()) {
+            throw new IllegalStateException("The compact tree is not complete!");
+        }
+
+        final int[] contentStarts = Arrays.copyOf(this.contentStarts, this.size + 1);
+        contentStarts[this.size] = this.textLength;
+        return new CompactTree(Arrays.copyOf(this.kinds, this.size), Arrays.copyOf(this.parents, this.size),
+                Arrays.copyOf(this.firstChildren, this.size), Arrays.copyOf(this.nextSiblings, this.size),
+                Arrays.copyOf(this.starts, this.size), Arrays.copyOf(this.ends, this.size),
+                Arrays.copyOf(this.symbolIds, this.size), Arrays.copyOf(this.literalKinds, this.size), contentStarts,
+                Arrays.copyOf(this.text, this.textLength), this.size, this.symbolTable);
+    }
+
+    /**
+     * Adds an element with the given content to the current container.
+     *
+     * @param content
+     *            The content of the element. This is only copied if the
+     *            element is not interned.
+     * @param symbolId
+     *            The symbol ID of the element or {@link SymbolTable#NO_SYMBOL}
+     *            if the element is not interned.
+     * @param kind
+     *            The kind of the content.
+     * @param start
+     *            The position of the first character of the element in the
+     *            code or {@link TreeBuilder#UNKNOWN_POSITION}.
+     * @param end
+     *            The position after the last character of the element in the
+     *            code or {@link TreeBuilder#UNKNOWN_POSITION}.
+     * @throws IllegalStateException
+     *             If the root was already completed.
+     */
+    private void addElement(final CharSequence content, final int symbolId, final LiteralKind kind, final long start,
+            final long end) throws IllegalStateException {
+        final int node = this.addNode(CompactTree.Kind.ELEMENT, symbolId, start);
+        this.literalKinds[node] = (byte) kind.ordinal();
+        this.ends[node] = CompactTreeBuilder.toPosition(end);
+
+        if (symbolId == SymbolTable.NO_SYMBOL) {
+            final int length = content.length();
+            if (this.textLength + length > this.text.length) {
+                this.text = Arrays.copyOf(this.text, Math.max(this.text.length * 2, this.textLength + length));
+            }
+            for (int i = 0; i < length; i++) {
+                this.text[this.textLength++] = content.charAt(i);
+            }
+        }
+    }
+
+    /**
+     * Adds a new node to the current container (or as the root).
+     *
+     * @param kind
+     *            The kind of the node.
+     * @param symbolId
+     *            The symbol ID of the node.
+     * @param start
+     *            The position of the first character of the node in the code
+     *            or {@link TreeBuilder#UNKNOWN_POSITION}.
+     * @return The index of the new node.
+     * @throws IllegalStateException
+     *             If the root was already completed.
+     */
+    private int addNode(final CompactTree.Kind kind, final int symbolId, final long start) throws IllegalStateException {
+        if (this.depth == 0 && this.size > 0) {
+            throw new IllegalStateException("The root was already completed!");
+        }
+
+        if (this.size == this.kinds.length) {
+            final int capacity = this.size * 2;
+            this.kinds = Arrays.copyOf(this.kinds, capacity);
+            this.parents = Arrays.copyOf(this.parents, capacity);
+            this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+            this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+            this.starts = Arrays.copyOf(this.starts, capacity);
+            this.ends = Arrays.copyOf(this.ends, capacity);
+            this.symbolIds = Arrays.copyOf(this.symbolIds, capacity);
+            this.literalKinds = Arrays.copyOf(this.literalKinds, capacity);
+            this.contentStarts = Arrays.copyOf(this.contentStarts, capacity + 1);
+        }
+
+        final int node = this.size++;
+        this.kinds[node] = kind.code;
+        this.firstChildren[node] = CompactTree.NONE;
+        this.nextSiblings[node] = CompactTree.NONE;
+        this.starts[node] = CompactTreeBuilder.toPosition(start);
+        this.ends[node] = CompactTree.NONE;
+        this.symbolIds[node] = symbolId;
+        this.literalKinds[node] = -1;
+        this.contentStarts[node] = this.textLength;
+
+        if (this.depth == 0) {
+            this.parents[node] = CompactTree.NONE;
+        } else {
+            final int parent = this.openContainers[this.depth - 1];
+            final int lastChild = this.lastChildren[this.depth - 1];
+            this.parents[node] = parent;
+            if (lastChild == CompactTree.NONE) {
+                this.firstChildren[parent] = node;
+            } else {
+                this.nextSiblings[lastChild] = node;
+            }
+            this.lastChildren[this.depth - 1] = node;
+        }
+        return node;
+    }
+
+    /**
+     * Converts the given source position into a position of a
+     * {@link CompactTree}.
+     *
+     * @param position
+     *            The position in the code or
+     *            {@link TreeBuilder#UNKNOWN_POSITION}.
+     * @return The position or {@link CompactTree#NONE} if it is unknown or
+     *         does not fit into an <code>int</code>.
+     */
+    private static int toPosition(final long position) {
+        return position < 0 || position > Integer.MAX_VALUE ? CompactTree.NONE : (int) position;
+    }
+}
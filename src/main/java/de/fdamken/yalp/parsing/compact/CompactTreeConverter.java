@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.compact;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+import de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
+
+/**
+ * Converts token trees and syntax trees from and to {@link CompactTree compact
+ * trees}. All conversions are iterative, so arbitrarily deep trees can be
+ * converted.
+ *
+ */
+public final class CompactTreeConverter {
+    /**
+     * Constructor of CompactTreeConverter.
+     *
+     */
+    private CompactTreeConverter() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Converts the given token tree into a compact tree.
+     *
+     * @param tokenTree
+     *            The token tree to convert.
+     * @return The compact tree.
+     */
+    public static CompactTree fromTokenTree(final TokenTree tokenTree) {
+        final CompactTreeBuilder builder = new CompactTreeBuilder(tokenTree.getSymbolTable());
+
+        final Deque<TokenTreeContainer> containers = new ArrayDeque<>();
+        final Deque<int[]> indices = new ArrayDeque<>();
+        containers.push(tokenTree.getRootContainer());
+        indices.push(new int[1]);
+        builder.openContainer();
+        while (!containers.isEmpty()) {
+            final TokenTreeContainer container = containers.peek();
+            final int[] index = indices.peek();
+            if (index[0] == container.size()) {
+                containers.pop();
+                indices.pop();
+                builder.closeContainer();
+                continue;
+            }
+
+            final TokenTreeElement element = container.get(index[0]++);
+            if (element instanceof TokenTreeContainer) {
+                containers.push((TokenTreeContainer) element);
+                indices.push(new int[1]);
+                builder.openContainer();
+            } else {
+                final SimpleTokenTreeElement simpleElement = (SimpleTokenTreeElement) element;
+                builder.addElement(simpleElement.getContentSequence(), simpleElement.getSymbolId(), simpleElement.getKind());
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Converts the given syntax tree into a compact tree. The function of a
+     * function call becomes the first child of the container.
+     *
+     * @param syntaxTree
+     *            The syntax tree to convert.
+     * @return The compact tree.
+     */
+    public static CompactTree fromSyntaxTree(final SyntaxTree syntaxTree) {
+        final CompactTreeBuilder builder = new CompactTreeBuilder(syntaxTree.getSymbolTable());
+
+        final Deque<FunctionCall> calls = new ArrayDeque<>();
+        final Deque<int[]> indices = new ArrayDeque<>();
+        SyntaxTreeElement next = syntaxTree.getRootElement();
+        do {
+            if (next instanceof FunctionCall) {
+                calls.push((FunctionCall) next);
+                indices.push(new int[1]);
+                builder.openContainer();
+            } else if (next != null) {
+                final Literal literal = (Literal) next;
+                builder.addElement(literal.getContentSequence(), literal.getSymbolId(), literal.getKind());
+            }
+
+            next = null;
+            while (next == null && !calls.isEmpty()) {
+                final FunctionCall call = calls.peek();
+                final int index = indices.peek()[0]++;
+                if (index == 0) {
+                    next = call.getFunction();
+                } else if (index <= call.getParameters().length) {
+                    next = call.getParameters()[index - 1];
+                } else {
+                    calls.pop();
+                    indices.pop();
+                    builder.closeContainer();
+                }
+            }
+        } while (next != null);
+        return builder.build();
+    }
+
+    /**
+     * Converts the given compact tree into a token tree. The containers of the
+     * token tree are {@link TokenTreeContainer#freeze() frozen}.
+     *
+     * @param compactTree
+     *            The compact tree to convert.
+     * @return The token tree.
+     * @throws IllegalArgumentException
+     *             If the root of the compact tree is not a container.
+     */
+    public static TokenTree toTokenTree(final CompactTree compactTree) throws IllegalArgumentException {
+        if (!compactTree.isContainer(0)) {
+            throw new IllegalArgumentException("The root of a token tree must be a container!");
+        }
+
+        // The children always follow their parent, so building the nodes in
+        // reverse order guarantees that all children are built before their
+        // parent.
+        final TokenTreeElement[] elements = new TokenTreeElement[compactTree.size()];
+        for (int node = compactTree.size() - 1; node >= 0; node--) {
+            if (compactTree.isContainer(node)) {
+                final TokenTreeContainer container = new TokenTreeContainer();
+                for (int child = compactTree.getFirstChild(node); child != CompactTree.NONE; child = compactTree
+                        .getNextSibling(child)) {
+                    container.addElement(elements[child]);
+                    elements[child] = null;
+                }
+                container.freeze();
+                elements[node] = container;
+            } else {
+                elements[node] = new SimpleTokenTreeElement(compactTree.getContent(node), compactTree.getSymbolId(node),
+                        compactTree.getLiteralKind(node));
+            }
+        }
+        return new TokenTree((TokenTreeContainer) elements[0], compactTree.getSymbolTable());
+    }
+
+    /**
+     * Converts the given compact tree into a syntax tree. The first child of a
+     * container becomes the function of the function call.
+     *
+     * @param compactTree
+     *            The compact tree to convert.
+     * @return The syntax tree.
+     * @throws SyntaxTreeParsingException
+     *             If the compact tree contains an empty container.
+     */
+    public static SyntaxTree toSyntaxTree(final CompactTree compactTree) throws SyntaxTreeParsingException {
+        // See toTokenTree(CompactTree).
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[compactTree.size()];
+        for (int node = compactTree.size() - 1; node >= 0; node--) {
+            if (compactTree.isContainer(node)) {
+                final int function = compactTree.getFirstChild(node);
+                if (function == CompactTree.NONE) {
+                    throw new SyntaxTreeParsingException("Missing parameters for function call!");
+                }
+
+                final SyntaxTreeElement[] parameters = new SyntaxTreeElement[compactTree.getChildCount(node) - 1];
+                int i = 0;
+                for (int child = compactTree.getNextSibling(function); child != CompactTree.NONE; child = compactTree
+                        .getNextSibling(child)) {
+                    parameters[i++] = elements[child];
+                    elements[child] = null;
+                }
+                elements[node] = new FunctionCall(elements[function], parameters);
+                elements[function] = null;
+            } else {
+                elements[node] = new Literal(compactTree.getContent(node), compactTree.getSymbolId(node),
+                        compactTree.getLiteralKind(node));
+            }
+        }
+        return new SyntaxTree(elements[0], compactTree.getSymbolTable());
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.dast.compile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.ast.representation.AbstractSyntaxTree;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.Expressions;
+import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.dast.exception.ContextAnalysisException;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+
+/**
+ * The context analysis for converting the abstract syntax tree into a
+ * decorated abstract syntax tree.
+ *
+ * <p>
+ * Every {@link Variable} is resolved to its lexical address (frame depth and
+ * slot), so an evaluator can find the value of a variable by following a
+ * fixed number of parent frames and indexing into an array instead of looking
+ * up the name. The frames are laid out as follows:
+ * <ul>
+ * <li>The outermost frame holds the top-level definitions (functions and
+ * constants) in the order they appear in the code.</li>
+ * <li>A lambda or a function defined by <code>define</code> creates a frame
+ * holding its parameters.</li>
+ * <li>A <code>local</code> creates a frame holding its definitions.</li>
+ * </ul>
+ * All names of a frame are visible in the whole frame, so functions can
+ * refer to functions that are defined later (e.g. for mutual recursion).
+ * The slots of the definitions are stored in the definitions.
+ * </p>
+ *
+ * <p>
+ * The nodes of the abstract syntax tree are decorated in place, so the
+ * decorated tree shares them with the input. The analyzer itself is
+ * stateless, so a single instance can be used by multiple threads
+ * concurrently (as long as they analyze different trees).
+ * </p>
+ *
+ */
+public class ContextAnalyzer extends AbstractCompilationStep<AbstractSyntaxTree, DecoratedAbstractSyntaxTree> {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public DecoratedAbstractSyntaxTree parse(final AbstractSyntaxTree abstractSyntaxTree) throws CompilationException {
+        final Frame globalFrame = new Frame(null);
+        for (final Expression expression : abstractSyntaxTree.getExpressions()) {
+            this.declareDefinition(globalFrame, expression);
+        }
+        for (final Expression expression : abstractSyntaxTree.getExpressions()) {
+            this.analyze(expression, globalFrame);
+        }
+        return new DecoratedAbstractSyntaxTree(abstractSyntaxTree.getExpressions(), globalFrame.names,
+                abstractSyntaxTree.getSymbolTable());
+    }
+
+    /**
+     * Resolves all variables in the given expression.
+     *
+     * @param expression
+     *            The expression.
+     * @param frame
+     *            The innermost frame the expression is evaluated in.
+     * @throws ContextAnalysisException
+     *             If a variable is not defined or a name is defined twice.
+     */
+    private void analyze(final Expression expression, final Frame frame) throws ContextAnalysisException {
+        if (expression instanceof Variable) {
+            this.resolve((Variable) expression, frame);
+        } else if (expression instanceof LambdaFunction) {
+            final LambdaFunction lambda = (LambdaFunction) expression;
+            this.analyze(lambda.getExpression(), this.createParameterFrame(frame, lambda.getParameters(), 0));
+        } else if (expression instanceof DefineFunction) {
+            // The first element of the header is the name of the function.
+            final DefineFunction define = (DefineFunction) expression;
+            this.analyze(define.getExpression(), this.createParameterFrame(frame, define.getHeader(), 1));
+        } else if (expression instanceof LocalFunction) {
+            final LocalFunction local = (LocalFunction) expression;
+            final Frame localFrame = new Frame(frame);
+            for (final Definition definition : local.getDefinitions()) {
+                this.declareDefinition(localFrame, (Expression) definition);
+            }
+            local.setFrameSize(localFrame.names.size());
+            for (final Definition definition : local.getDefinitions()) {
+                this.analyze((Expression) definition, localFrame);
+            }
+            this.analyze(local.getExpression(), localFrame);
+        } else {
+            for (final Expression child : Expressions.getChildren(expression)) {
+                this.analyze(child, frame);
+            }
+        }
+    }
+
+    /**
+     * Declares the name defined by the given expression (if it is a function
+     * or constant definition) in the given frame.
+     *
+     * @param frame
+     *            The frame.
+     * @param expression
+     *            The expression.
+     * @throws ContextAnalysisException
+     *             If the name is already defined in the frame.
+     */
+    private void declareDefinition(final Frame frame, final Expression expression) throws ContextAnalysisException {
+        if (expression instanceof DefineFunction) {
+            final DefineFunction define = (DefineFunction) expression;
+            define.setSlot(frame.declare(define.getHeader().get(0)));
+        } else if (expression instanceof DefineConstantFunction) {
+            final DefineConstantFunction define = (DefineConstantFunction) expression;
+            define.setSlot(frame.declare(define.getName()));
+        }
+    }
+
+    /**
+     * Creates the frame of a function.
+     *
+     * @param parent
+     *            The frame the function is defined in.
+     * @param parameters
+     *            The names of the parameters.
+     * @param from
+     *            The index of the first parameter in the given list.
+     * @return The frame.
+     * @throws ContextAnalysisException
+     *             If a parameter name is used twice.
+     */
+    private Frame createParameterFrame(final Frame parent, final List<Literal> parameters, final int from)
+            throws ContextAnalysisException {
+        final Frame frame = new Frame(parent);
+        for (int i = from; i < parameters.size(); i++) {
+            frame.declare(parameters.get(i));
+        }
+        return frame;
+    }
+
+    /**
+     * Resolves the given variable.
+     *
+     * @param variable
+     *            The variable to resolve.
+     * @param frame
+     *            The innermost frame the variable is referenced in.
+     * @throws ContextAnalysisException
+     *             If the variable is not defined.
+     */
+    private void resolve(final Variable variable, final Frame frame) throws ContextAnalysisException {
+        int depth = 0;
+        for (Frame current = frame; current != null; current = current.parent) {
+            final Integer slot = current.slots.get(variable.getName());
+            if (slot != null) {
+                variable.setDepth(depth);
+                variable.setSlot(slot);
+                variable.setGlobal(current.parent == null);
+                return;
+            }
+            depth++;
+        }
+        throw new ContextAnalysisException(variable.getName() + " is not defined!");
+    }
+
+    /**
+     * A frame during the analysis: The names declared in the frame.
+     *
+     */
+    private static final class Frame {
+        /**
+         * The frame the frame is nested in or <code>null</code> for the
+         * outermost frame.
+         *
+         */
+        private final Frame parent;
+        /**
+         * The declared names, indexed by their slots.
+         *
+         */
+        private final List<String> names = new ArrayList<>();
+        /**
+         * The slots of the declared names.
+         *
+         */
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        /**
+         * Constructor of Frame.
+         *
+         * @param parent
+         *            The frame the frame is nested in or <code>null</code>
+         *            for the outermost frame.
+         */
+        private Frame(final Frame parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * Declares the given name in this frame.
+         *
+         * @param name
+         *            The name.
+         * @return The slot of the name.
+         * @throws ContextAnalysisException
+         *             If the name is already declared in this frame.
+         */
+        private int declare(final Literal name) throws ContextAnalysisException {
+            final String content = ((SymbolLiteral) name).getContent();
+            final int slot = this.names.size();
+            if (this.slots.putIfAbsent(content, slot) != null) {
+                throw new ContextAnalysisException(content + " is defined twice!");
+            }
+            this.names.add(content);
+            return slot;
+        }
+    }
+}
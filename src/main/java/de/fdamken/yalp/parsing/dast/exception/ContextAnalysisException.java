@@ -0,0 +1,35 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.dast.exception;
+
+import de.fdamken.yalp.parsing.exception.CompilationException;
+
+@SuppressWarnings("javadoc")
+public class ContextAnalysisException extends CompilationException {
+    private static final long serialVersionUID = -3851404125741893870L;
+
+    public ContextAnalysisException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
+    public ContextAnalysisException(final String message) {
+        super(message);
+    }
+}
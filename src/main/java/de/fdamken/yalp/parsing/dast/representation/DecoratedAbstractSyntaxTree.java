@@ -0,0 +1,56 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.dast.representation;
+
+import java.util.List;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Wrapper class for the decorated abstract syntax tree: An abstract syntax
+ * tree whose variables are resolved to their lexical addresses (see
+ * {@link de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable}).
+ *
+ */
+@Data
+@EqualsAndHashCode(exclude = "symbolTable")
+public class DecoratedAbstractSyntaxTree implements IntermediateRepresentation {
+    /**
+     * The top-level expressions in the order they appear in the code.
+     *
+     */
+    private final List<Expression> expressions;
+    /**
+     * The names of the top-level definitions, indexed by their slot in the
+     * outermost frame.
+     *
+     */
+    private final List<String> globals;
+    /**
+     * The symbol table containing the symbols of the names in the tree. This
+     * is not considered by {@link #equals(Object)}.
+     *
+     */
+    private final SymbolTable symbolTable;
+}
@@ -0,0 +1,755 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.incremental;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeLexer;
+import de.fdamken.yalp.parsing.tt.compile.TopLevelFormListener;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
+
+/**
+ * Parses a document that is edited repeatedly (e.g. in an editor) and only
+ * re-parses the parts of the document that are affected by an edit.
+ *
+ * <p>
+ * The document is split into segments, each ending right after the closing
+ * bracket of a top-level form. At these positions the lexer is always in its
+ * initial state, so every segment can be lexed independently. An
+ * {@link #edit(int, int, CharSequence) edit} re-lexes the document starting
+ * at the first segment that is affected by the edit until a form ends at the
+ * (shifted) end of an old segment behind the edit. From there on, the rest of
+ * the document is unchanged and so are the segments, which are reused
+ * including their token tree and syntax tree elements.
+ * </p>
+ *
+ * <p>
+ * Every segment stores its own text, so an edit only touches the text of the
+ * re-lexed segments. The segment containing an offset is found using a
+ * {@link FenwickTree Fenwick tree} of the segment lengths and the top-level
+ * elements of the segments are kept in one array, of which only the entries
+ * of the re-lexed segments are replaced.
+ * </p>
+ *
+ * <p>
+ * The results (including the errors) are always the same as when parsing the
+ * whole document using a
+ * {@link de.fdamken.yalp.parsing.tt.compile.TokenTreeParser} and a
+ * {@link SyntaxTreeParser}. Errors are thrown when the trees are requested,
+ * so a document can be edited further while it is invalid.
+ * </p>
+ *
+ * <p>
+ * The symbol table of the document is never cleared, so it also contains the
+ * symbols of removed code.
+ * </p>
+ *
+ */
+public class IncrementalParser {
+    /**
+     * The number of characters that are fed into the lexer at once. After a
+     * block, the lexer checks whether it can stop lexing.
+     *
+     */
+    private static final int BLOCK_SIZE = 1024;
+    /**
+     * The initial capacity of the {@link #elements} and the
+     * {@link #syntaxElements}.
+     *
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The symbol table of the document.
+     *
+     */
+    private final SymbolTable symbolTable;
+    /**
+     * The syntax tree parser for parsing the forms.
+     *
+     */
+    private final SyntaxTreeParser syntaxTreeParser = new SyntaxTreeParser();
+    /**
+     * The segments of the document. The last segment is the tail of the
+     * document following the last complete form.
+     *
+     */
+    private final List<Segment> segments = new ArrayList<>();
+    /**
+     * The lengths of the {@link #segments}.
+     *
+     */
+    private FenwickTree offsets;
+    /**
+     * The numbers of top-level elements of the {@link #segments}.
+     *
+     */
+    private FenwickTree counts;
+
+    /**
+     * The top-level elements of all segments. Only the first {@link #size}
+     * elements are used.
+     *
+     */
+    private TokenTreeElement[] elements = new TokenTreeElement[IncrementalParser.INITIAL_CAPACITY];
+    /**
+     * The parsed {@link #elements}. An entry is <code>null</code> if the
+     * element was not parsed yet.
+     *
+     */
+    private SyntaxTreeElement[] syntaxElements = new SyntaxTreeElement[IncrementalParser.INITIAL_CAPACITY];
+    /**
+     * The number of top-level elements.
+     *
+     */
+    private int size;
+    /**
+     * Whether the {@link #elements} are used by the {@link #tokenTree}. The
+     * array is copied before it is modified in this case.
+     *
+     */
+    private boolean shared;
+    /**
+     * The start of the range of the {@link #syntaxElements} that contains
+     * all elements that were not parsed yet.
+     *
+     */
+    private int unparsedStart;
+    /**
+     * The end of the range of the {@link #syntaxElements} that contains all
+     * elements that were not parsed yet.
+     *
+     */
+    private int unparsedEnd;
+
+    /**
+     * The token tree of the whole document or <code>null</code> if it was not
+     * built since the last edit.
+     *
+     */
+    private TokenTree tokenTree;
+    /**
+     * The syntax tree of the whole document or <code>null</code> if it was
+     * not built since the last edit.
+     *
+     */
+    private SyntaxTree syntaxTree;
+
+    /**
+     * Constructor of IncrementalParser. The document gets a new symbol table.
+     *
+     * @param text
+     *            The initial text of the document.
+     */
+    public IncrementalParser(final CharSequence text) {
+        this(text, new SymbolTable());
+    }
+
+    /**
+     * Constructor of IncrementalParser.
+     *
+     * @param text
+     *            The initial text of the document.
+     * @param symbolTable
+     *            The symbol table of the document.
+     */
+    public IncrementalParser(final CharSequence text, final SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        this.segments.add(new Segment("", 0, null));
+        this.index();
+        this.relex(0, 0, 0, 0, text.toString());
+    }
+
+    /**
+     *
+     * @return The current text of the document.
+     */
+    public String getText() {
+        final StringBuilder text = new StringBuilder(this.offsets.sum(this.segments.size()));
+        for (final Segment segment : this.segments) {
+            text.append(segment.text);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Applies the given edit to the document and re-parses the affected
+     * forms.
+     *
+     * @param offset
+     *            The offset of the edit.
+     * @param removedLength
+     *            The number of characters that are removed at the offset.
+     * @param insertedText
+     *            The text that is inserted at the offset.
+     * @throws IndexOutOfBoundsException
+     *             If the edit exceeds the document.
+     */
+    public void edit(final int offset, final int removedLength, final CharSequence insertedText) throws IndexOutOfBoundsException {
+        final int length = this.offsets.sum(this.segments.size());
+        if (offset < 0 || removedLength < 0 || offset + removedLength > length) {
+            throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removedLength)
+                    + ") exceeds the document of length " + length + "!");
+        }
+
+        // All segments that end before the edit are not affected.
+        final int index = Math.min(this.offsets.find(offset), this.segments.size() - 1);
+        this.relex(index, this.offsets.sum(index), offset, removedLength, insertedText.toString());
+
+        this.tokenTree = null;
+        this.syntaxTree = null;
+    }
+
+    /**
+     * Returns the token tree of the whole document. The elements of the forms
+     * that were not affected by an edit are reused.
+     *
+     * @return The token tree.
+     * @throws CompilationException
+     *             If the document is invalid.
+     * @throws IllegalStateException
+     *             If the document contains an element outside of any
+     *             container.
+     */
+    public TokenTree getTokenTree() throws CompilationException, IllegalStateException {
+        if (this.tokenTree == null) {
+            final Exception failure = this.segments.get(this.segments.size() - 1).failure;
+            if (failure instanceof CompilationException) {
+                throw (CompilationException) failure;
+            } else if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+
+            this.shared = true;
+            this.tokenTree = new TokenTree(TokenTreeContainer.wrap(this.elements, this.size), this.symbolTable);
+        }
+        return this.tokenTree;
+    }
+
+    /**
+     * Returns the syntax tree of the whole document. The syntax tree elements
+     * of the forms that were not affected by an edit are reused.
+     *
+     * @return The syntax tree.
+     * @throws CompilationException
+     *             If the document is invalid.
+     * @throws IllegalStateException
+     *             If the document contains an element outside of any
+     *             container.
+     */
+    public SyntaxTree getSyntaxTree() throws CompilationException, IllegalStateException {
+        if (this.syntaxTree == null) {
+            this.getTokenTree();
+            if (this.size == 0) {
+                throw new SyntaxTreeParsingException("Missing parameters for function call!");
+            }
+
+            for (; this.unparsedStart < this.unparsedEnd; this.unparsedStart++) {
+                final int i = this.unparsedStart;
+                if (this.syntaxElements[i] == null) {
+                    this.syntaxElements[i] = this.syntaxTreeParser.parseElement(this.elements[i]);
+                }
+            }
+
+            final SyntaxTreeElement[] parameters = Arrays.copyOfRange(this.syntaxElements, 1, this.size);
+            this.syntaxTree = new SyntaxTree(new FunctionCall(this.syntaxElements[0], parameters), this.symbolTable);
+        }
+        return this.syntaxTree;
+    }
+
+    /**
+     * Re-lexes the document starting at the given segment and replaces the
+     * affected segments.
+     *
+     * @param index
+     *            The index of the first affected segment.
+     * @param start
+     *            The position of the first affected segment.
+     * @param offset
+     *            The offset of the edit.
+     * @param removedLength
+     *            The number of characters that are removed at the offset.
+     * @param insertedText
+     *            The text that is inserted at the offset.
+     */
+    private void relex(final int index, final int start, final int offset, final int removedLength, final String insertedText) {
+        final int editEnd = offset + removedLength;
+        final Relexer relexer = new Relexer(index, start, editEnd, insertedText.length() - removedLength);
+
+        relexer.feed(this.segments.get(index).text, 0, offset - start);
+        relexer.feed(insertedText, 0, insertedText.length());
+        // The old text behind the edit.
+        final int oldIndex = Math.min(this.offsets.find(editEnd), this.segments.size() - 1);
+        int from = editEnd - this.offsets.sum(oldIndex);
+        for (int i = oldIndex; i < this.segments.size() && relexer.reusedIndex < 0; i++) {
+            final String text = this.segments.get(i).text;
+            relexer.feed(text, from, text.length());
+            from = 0;
+        }
+
+        if (relexer.reusedIndex >= 0) {
+            this.replace(index, relexer.reusedIndex + 1, relexer.lexedSegments, relexer.lexedElements);
+        } else {
+            relexer.finish();
+            relexer.lexedSegments.add(new Segment(relexer.text.substring(relexer.segmentStart - start), 0, relexer.failure));
+            this.replace(index, this.segments.size(), relexer.lexedSegments, relexer.lexedElements);
+        }
+    }
+
+    /**
+     * Replaces the segments in the given range and their top-level elements.
+     *
+     * @param from
+     *            The index of the first replaced segment.
+     * @param to
+     *            The index after the last replaced segment.
+     * @param segments
+     *            The new segments.
+     * @param elements
+     *            The top-level elements of the new segments.
+     */
+    private void replace(final int from, final int to, final List<Segment> segments, final List<TokenTreeElement> elements) {
+        final int elementStart = this.counts.sum(from);
+        this.replaceElements(elementStart, this.counts.sum(to) - elementStart, elements);
+
+        if (to - from == segments.size()) {
+            for (int i = 0; i < segments.size(); i++) {
+                final Segment segment = segments.get(i);
+                final Segment old = this.segments.set(from + i, segment);
+                this.offsets.add(from + i, segment.text.length() - old.text.length());
+                this.counts.add(from + i, segment.elementCount - old.elementCount);
+            }
+        } else {
+            final List<Segment> replaced = this.segments.subList(from, to);
+            replaced.clear();
+            replaced.addAll(segments);
+            this.index();
+        }
+    }
+
+    /**
+     * Replaces the top-level elements in the given range. The syntax tree
+     * elements of the new elements are parsed when the syntax tree is
+     * requested.
+     *
+     * @param start
+     *            The index of the first replaced element.
+     * @param removed
+     *            The number of replaced elements.
+     * @param added
+     *            The new elements.
+     */
+    private void replaceElements(final int start, final int removed, final List<TokenTreeElement> added) {
+        final int size = this.size - removed + added.size();
+        final int tail = this.size - start - removed;
+
+        TokenTreeElement[] elements = this.elements;
+        SyntaxTreeElement[] syntaxElements = this.syntaxElements;
+        if (size > elements.length) {
+            final int capacity = Math.max(size, elements.length * 2);
+            elements = new TokenTreeElement[capacity];
+            syntaxElements = new SyntaxTreeElement[capacity];
+            System.arraycopy(this.syntaxElements, 0, syntaxElements, 0, start);
+        } else if (this.shared) {
+            elements = new TokenTreeElement[elements.length];
+        }
+        if (elements != this.elements) {
+            System.arraycopy(this.elements, 0, elements, 0, start);
+        }
+        System.arraycopy(this.elements, start + removed, elements, start + added.size(), tail);
+        System.arraycopy(this.syntaxElements, start + removed, syntaxElements, start + added.size(), tail);
+        for (int i = 0; i < added.size(); i++) {
+            elements[start + i] = added.get(i);
+            syntaxElements[start + i] = null;
+        }
+        if (size < this.size) {
+            Arrays.fill(elements, size, this.size, null);
+            Arrays.fill(syntaxElements, size, this.size, null);
+        }
+
+        if (this.unparsedStart < this.unparsedEnd) {
+            this.unparsedStart = Math.min(this.unparsedStart, start);
+            this.unparsedEnd = Math.max(this.unparsedEnd > start + removed ? this.unparsedEnd - removed : start, start) + added.size();
+        } else {
+            this.unparsedStart = start;
+            this.unparsedEnd = start + added.size();
+        }
+
+        this.elements = elements;
+        this.syntaxElements = syntaxElements;
+        this.size = size;
+        this.shared = false;
+    }
+
+    /**
+     * Rebuilds the {@link #offsets} and the {@link #counts} after segments
+     * were inserted or removed.
+     *
+     */
+    private void index() {
+        final int[] lengths = new int[this.segments.size()];
+        final int[] counts = new int[this.segments.size()];
+        for (int i = 0; i < lengths.length; i++) {
+            final Segment segment = this.segments.get(i);
+            lengths[i] = segment.text.length();
+            counts[i] = segment.elementCount;
+        }
+        this.offsets = new FenwickTree(lengths);
+        this.counts = new FenwickTree(counts);
+    }
+
+    /**
+     * Collects the completed forms during a {@link IncrementalParser#relex(int,
+     * int, int, int, String) re-lexing} and detects when the old segments can
+     * be reused.
+     *
+     */
+    private class Relexer implements TopLevelFormListener {
+        /**
+         * The lexer.
+         *
+         */
+        final TokenTreeLexer lexer;
+        /**
+         * The position the lexing started at.
+         *
+         */
+        private final int start;
+        /**
+         * The position after the edited range in the old text. All old
+         * segments ending at or behind this position may be reused.
+         *
+         */
+        private final int editEnd;
+        /**
+         * The difference of the lengths of the new and the old text.
+         *
+         */
+        private final int delta;
+        /**
+         * The block that is fed into the lexer.
+         *
+         */
+        private final char[] block = new char[IncrementalParser.BLOCK_SIZE];
+
+        /**
+         * The text that was fed into the lexer.
+         *
+         */
+        final StringBuilder text = new StringBuilder();
+        /**
+         * The segments that were lexed.
+         *
+         */
+        final List<Segment> lexedSegments = new ArrayList<>();
+        /**
+         * The top-level elements of the {@link #lexedSegments}.
+         *
+         */
+        final List<TokenTreeElement> lexedElements = new ArrayList<>();
+        /**
+         * The position of the next segment.
+         *
+         */
+        int segmentStart;
+        /**
+         * The index of the old segment that is compared with the lexed
+         * segments.
+         *
+         */
+        private int oldIndex;
+        /**
+         * The end of the old segment with the index {@link #oldIndex} in the
+         * old text.
+         *
+         */
+        private int oldEnd;
+        /**
+         * The index of the old segment the lexed segments synchronized with
+         * or <code>-1</code>. All old segments behind this segment are
+         * reused.
+         *
+         */
+        int reusedIndex = -1;
+        /**
+         * The error that occurred whilst lexing or <code>null</code>.
+         *
+         */
+        Exception failure;
+
+        /**
+         * Constructor of Relexer.
+         *
+         * @param index
+         *            The index of the first affected segment.
+         * @param start
+         *            The position of the first affected segment.
+         * @param editEnd
+         *            See {@link #editEnd}.
+         * @param delta
+         *            See {@link #delta}.
+         */
+        Relexer(final int index, final int start, final int editEnd, final int delta) {
+            this.lexer = new TokenTreeLexer(new TokenTreeBuilder(IncrementalParser.this.symbolTable), this);
+            this.start = start;
+            this.editEnd = editEnd;
+            this.delta = delta;
+            this.segmentStart = start;
+            this.oldIndex = index;
+            this.oldEnd = start + IncrementalParser.this.segments.get(index).text.length();
+
+            // If the edit only removed whole segments, the old segments can be
+            // reused immediately.
+            this.synchronize(start);
+        }
+
+        /**
+         * Feeds the given range of the given text into the lexer block by
+         * block until the old segments can be reused. After an error, the
+         * text is only collected for the tail segment.
+         *
+         * @param text
+         *            The text.
+         * @param from
+         *            The start of the range.
+         * @param to
+         *            The end of the range.
+         */
+        void feed(final String text, final int from, final int to) {
+            if (this.reusedIndex >= 0) {
+                return;
+            }
+
+            this.text.append(text, from, to);
+            if (this.failure != null) {
+                return;
+            }
+            try {
+                for (int position = from; position < to && this.reusedIndex < 0; position += this.block.length) {
+                    final int length = Math.min(this.block.length, to - position);
+                    text.getChars(position, position + length, this.block, 0);
+                    this.lexer.feed(this.block, 0, length);
+                }
+            } catch (final IllegalStateException cause) {
+                this.failure = cause;
+            }
+        }
+
+        /**
+         * Finishes the lexing at the end of the document if no error occurred
+         * yet.
+         *
+         */
+        void finish() {
+            if (this.failure == null) {
+                try {
+                    this.lexer.finish();
+                } catch (final TokenTreeParsingException | IllegalStateException cause) {
+                    this.failure = cause;
+                }
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.TopLevelFormListener#formCompleted(de.fdamken.yalp.parsing.tt.representation.TokenTree)
+         */
+        @Override
+        public void formCompleted(final TokenTree form) {
+            if (this.reusedIndex >= 0) {
+                // The rest of the block behind the reused segments.
+                return;
+            }
+
+            final int end = this.start + (int) this.lexer.getPosition();
+            final TokenTreeContainer root = form.getRootContainer();
+            for (int i = 0; i < root.size(); i++) {
+                this.lexedElements.add(root.get(i));
+            }
+            final String text = this.text.substring(this.segmentStart - this.start, end - this.start);
+            this.lexedSegments.add(new Segment(text, root.size(), null));
+            this.segmentStart = end;
+
+            this.synchronize(end);
+        }
+
+        /**
+         * Checks whether the given position of the new text corresponds to
+         * the end of an old segment behind the edit. As the lexer is in its
+         * initial state at both positions and the texts behind them are
+         * equal, all following old segments can be reused in this case.
+         *
+         * @param position
+         *            The position of the new text the lexer is in its initial
+         *            state at.
+         */
+        private void synchronize(final int position) {
+            // The last old segment is the tail, which never ends at a clean
+            // position.
+            final List<Segment> oldSegments = IncrementalParser.this.segments;
+            while (this.oldIndex < oldSegments.size() - 2
+                    && (this.oldEnd < this.editEnd || this.oldEnd + this.delta < position)) {
+                this.oldIndex++;
+                this.oldEnd += oldSegments.get(this.oldIndex).text.length();
+            }
+            if (this.oldIndex < oldSegments.size() - 1 && this.oldEnd >= this.editEnd && this.oldEnd + this.delta == position) {
+                this.reusedIndex = this.oldIndex;
+            }
+        }
+    }
+
+    /**
+     * A segment of the document ending right after a top-level form (or at
+     * the end of the document).
+     *
+     */
+    private static class Segment {
+        /**
+         * The text of the segment.
+         *
+         */
+        final String text;
+        /**
+         * The number of top-level token tree elements of the segment.
+         *
+         */
+        final int elementCount;
+        /**
+         * The error that occurred whilst lexing the segment or
+         * <code>null</code>. Only the last segment may have an error.
+         *
+         */
+        final Exception failure;
+
+        /**
+         * Constructor of Segment.
+         *
+         * @param text
+         *            The text of the segment.
+         * @param elementCount
+         *            The number of top-level token tree elements of the
+         *            segment.
+         * @param failure
+         *            The error that occurred whilst lexing the segment or
+         *            <code>null</code>.
+         */
+        Segment(final String text, final int elementCount, final Exception failure) {
+            this.text = text;
+            this.elementCount = elementCount;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * A Fenwick tree (binary indexed tree) of non-negative values that
+     * computes prefix sums and finds the prefix containing a position in
+     * logarithmic time.
+     *
+     */
+    private static class FenwickTree {
+        /**
+         * The partial sums. The entry <code>i</code> contains the sum of the
+         * <code>i &amp; -i</code> values ending with the value
+         * <code>i - 1</code>.
+         *
+         */
+        private final int[] tree;
+
+        /**
+         * Constructor of FenwickTree.
+         *
+         * @param values
+         *            The initial values.
+         */
+        FenwickTree(final int[] values) {
+            this.tree = new int[values.length + 1];
+            for (int i = 1; i < this.tree.length; i++) {
+                this.tree[i] += values[i - 1];
+                final int parent = i + (i & -i);
+                if (parent < this.tree.length) {
+                    this.tree[parent] += this.tree[i];
+                }
+            }
+        }
+
+        /**
+         * Adds the given delta to the value with the given index.
+         *
+         * @param index
+         *            The index of the value.
+         * @param delta
+         *            The delta to add.
+         */
+        void add(final int index, final int delta) {
+            for (int i = index + 1; i < this.tree.length; i += i & -i) {
+                this.tree[i] += delta;
+            }
+        }
+
+        /**
+         * Computes the sum of the first values.
+         *
+         * @param count
+         *            The number of values to sum up.
+         * @return The sum of the first <code>count</code> values.
+         */
+        int sum(final int count) {
+            int sum = 0;
+            for (int i = count; i > 0; i -= i & -i) {
+                sum += this.tree[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Finds the greatest number of first values whose sum is not greater
+         * than the given value.
+         *
+         * @param value
+         *            The value.
+         * @return The number of values.
+         */
+        int find(final int value) {
+            int count = 0;
+            int remaining = value;
+            for (int step = Integer.highestOneBit(this.tree.length); step > 0; step >>= 1) {
+                if (count + step < this.tree.length && this.tree[count + step] <= remaining) {
+                    count += step;
+                    remaining -= this.tree[count];
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.instrumentation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+
+/**
+ * A {@link CompilationListener} that aggregates the measurements of all steps
+ * into one {@link StepSummary} per step class, so steps with equal simple
+ * names do not overwrite each other. This class is thread-safe, so a single
+ * instance can be attached to multiple pipelines.
+ *
+ */
+public class AggregatingCompilationListener implements CompilationListener {
+    /**
+     * The column names of the {@link #export(Appendable) exported} table.
+     *
+     */
+    private static final String HEADER = "step\texecutions\tfailures\ttotal_wall_ns\tmin_wall_ns\tmax_wall_ns\ttotal_cpu_ns"
+            + "\tallocated_bytes\tinput_size\toutput_size";
+
+    /**
+     * Whether the sizes of the inputs and outputs are measured.
+     *
+     */
+    private final boolean measuringSizes;
+    /**
+     * The summaries, keyed by the class of the step and ordered by the first
+     * execution of the step.
+     *
+     */
+    private final Map<Class<?>, StepSummary> summaries = new LinkedHashMap<>();
+
+    /**
+     * Constructor of AggregatingCompilationListener. The sizes of the inputs
+     * and outputs are not measured.
+     *
+     */
+    public AggregatingCompilationListener() {
+        this(false);
+    }
+
+    /**
+     * Constructor of AggregatingCompilationListener.
+     *
+     * @param measuringSizes
+     *            Whether the sizes of the inputs and outputs should be
+     *            measured. This may walk the whole representations.
+     */
+    public AggregatingCompilationListener(final boolean measuringSizes) {
+        this.measuringSizes = measuringSizes;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.instrumentation.CompilationListener#isMeasuringSizes()
+     */
+    @Override
+    public boolean isMeasuringSizes() {
+        return this.measuringSizes;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.instrumentation.CompilationListener#stepFinished(de.fdamken.yalp.parsing.instrumentation.StepMeasurement)
+     */
+    @Override
+    public void stepFinished(final StepMeasurement measurement) {
+        final Class<?> stepType = measurement.getStep().getClass();
+        synchronized (this.summaries) {
+            StepSummary summary = this.summaries.get(stepType);
+            if (summary == null) {
+                summary = new StepSummary(measurement.getStepName());
+                this.summaries.put(stepType, summary);
+            }
+            summary.add(measurement);
+        }
+    }
+
+    /**
+     *
+     * @return Snapshots of the summaries of all steps, ordered by the first
+     *         execution of the step.
+     */
+    public List<StepSummary> getSummaries() {
+        synchronized (this.summaries) {
+            final List<StepSummary> result = new ArrayList<>(this.summaries.size());
+            for (final StepSummary summary : this.summaries.values()) {
+                result.add(new StepSummary(summary));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Retrieves a snapshot of the summary of the steps of the given class.
+     *
+     * @param stepType
+     *            The class of the steps.
+     * @return The summary or <code>null</code> if no such step was executed
+     *         yet.
+     */
+    public StepSummary getSummary(final Class<? extends AbstractCompilationStep<?, ?>> stepType) {
+        synchronized (this.summaries) {
+            final StepSummary summary = this.summaries.get(stepType);
+            return summary == null ? null : new StepSummary(summary);
+        }
+    }
+
+    /**
+     * Retrieves a snapshot of the summary of the first executed step with the
+     * given name. Prefer {@link #getSummary(Class)} if multiple steps may
+     * share their name.
+     *
+     * @param stepName
+     *            The name of the step.
+     * @return The summary or <code>null</code> if the step was not executed
+     *         yet.
+     */
+    public StepSummary getSummary(final String stepName) {
+        synchronized (this.summaries) {
+            for (final StepSummary summary : this.summaries.values()) {
+                if (summary.getStepName().equals(stepName)) {
+                    return new StepSummary(summary);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Discards all summaries.
+     *
+     */
+    public void reset() {
+        synchronized (this.summaries) {
+            this.summaries.clear();
+        }
+    }
+
+    /**
+     * Exports the summaries as a tab-separated table with a header line.
+     *
+     * @param out
+     *            The appendable to write the table to.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    public void export(final Appendable out) throws IOException {
+        out.append(AggregatingCompilationListener.HEADER).append('\n');
+        for (final StepSummary summary : this.getSummaries()) {
+            out.append(summary.getStepName()) //
+                    .append('\t').append(Long.toString(summary.getExecutions())) //
+                    .append('\t').append(Long.toString(summary.getFailures())) //
+                    .append('\t').append(Long.toString(summary.getTotalWallTime())) //
+                    .append('\t').append(Long.toString(summary.getMinWallTime())) //
+                    .append('\t').append(Long.toString(summary.getMaxWallTime())) //
+                    .append('\t').append(Long.toString(summary.getTotalCpuTime())) //
+                    .append('\t').append(Long.toString(summary.getTotalAllocatedBytes())) //
+                    .append('\t').append(Long.toString(summary.getTotalInputSize())) //
+                    .append('\t').append(Long.toString(summary.getTotalOutputSize())) //
+                    .append('\n');
+        }
+    }
+}
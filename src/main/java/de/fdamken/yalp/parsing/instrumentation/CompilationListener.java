@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.instrumentation;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.CompilationPipeline;
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+
+/**
+ * A listener that is notified by a {@link CompilationPipeline} before and
+ * after every {@link AbstractCompilationStep compilation step}.
+ *
+ * <p>
+ * The listeners are invoked on the thread that runs the compilation, so
+ * listeners that are attached to a pipeline that is used concurrently must be
+ * thread-safe. Exceptions thrown by a listener abort the compilation.
+ * </p>
+ *
+ */
+public interface CompilationListener {
+    /**
+     * Invoked before the given step is executed.
+     *
+     * @param step
+     *            The step that is about to be executed.
+     * @param input
+     *            The input of the step.
+     */
+    default void stepStarted(final AbstractCompilationStep<?, ?> step, final IntermediateRepresentation input) {
+        // Nothing to do.
+    }
+
+    /**
+     * Checks whether this listener needs the
+     * {@link IntermediateRepresentation#getSize() sizes} of the inputs and
+     * outputs of the steps. Computing a size may walk the whole
+     * representation, so the sizes are only computed if at least one listener
+     * needs them; otherwise they are
+     * {@link IntermediateRepresentation#UNKNOWN_SIZE unknown}.
+     *
+     * @return Whether this listener needs the sizes. This is
+     *         <code>false</code> by default.
+     */
+    default boolean isMeasuringSizes() {
+        return false;
+    }
+
+    /**
+     * Invoked after a step was executed, regardless of whether it succeeded.
+     *
+     * @param measurement
+     *            The measurement of the execution.
+     */
+    void stepFinished(StepMeasurement measurement);
+}
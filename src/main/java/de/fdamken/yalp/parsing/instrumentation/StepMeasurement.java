@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.instrumentation;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import lombok.Value;
+
+/**
+ * The measurement of a single execution of a {@link AbstractCompilationStep
+ * compilation step}.
+ *
+ */
+@Value
+public class StepMeasurement {
+    /**
+     * The value of the times and of the allocated bytes if the JVM does not
+     * support measuring them.
+     *
+     */
+    public static final long UNSUPPORTED = -1;
+
+    /**
+     * The step that was executed.
+     *
+     */
+    AbstractCompilationStep<?, ?> step;
+    /**
+     * The index of the step within its pipeline.
+     *
+     */
+    int index;
+    /**
+     * The elapsed wall clock time in nanoseconds.
+     *
+     */
+    long wallTime;
+    /**
+     * The CPU time in nanoseconds that was used by the compiling thread or
+     * {@link #UNSUPPORTED}.
+     *
+     */
+    long cpuTime;
+    /**
+     * The number of bytes that were allocated by the compiling thread or
+     * {@link #UNSUPPORTED}.
+     *
+     */
+    long allocatedBytes;
+    /**
+     * The {@link IntermediateRepresentation#getSize() size} of the input or
+     * {@link IntermediateRepresentation#UNKNOWN_SIZE} if no listener is
+     * {@link CompilationListener#isMeasuringSizes() measuring} sizes.
+     *
+     */
+    long inputSize;
+    /**
+     * The {@link IntermediateRepresentation#getSize() size} of the output or
+     * {@link IntermediateRepresentation#UNKNOWN_SIZE} if the step failed or no
+     * listener is {@link CompilationListener#isMeasuringSizes() measuring}
+     * sizes.
+     *
+     */
+    long outputSize;
+    /**
+     * The exception that was thrown by the step or <code>null</code> if the
+     * step succeeded.
+     *
+     */
+    Throwable failure;
+
+    /**
+     *
+     * @return The name of the step (the simple name of its class).
+     */
+    public String getStepName() {
+        return StepMeasurement.getStepName(this.step);
+    }
+
+    /**
+     *
+     * @return Whether the step succeeded.
+     */
+    public boolean isSuccessful() {
+        return this.failure == null;
+    }
+
+    /**
+     * Retrieves the name of the given step.
+     *
+     * @param step
+     *            The step.
+     * @return The simple name of the class of the step or the full name if
+     *         the class is anonymous.
+     */
+    static String getStepName(final AbstractCompilationStep<?, ?> step) {
+        final Class<?> type = step.getClass();
+        return type.isAnonymousClass() ? type.getName() : type.getSimpleName();
+    }
+}
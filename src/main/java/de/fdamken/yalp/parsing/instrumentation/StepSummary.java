@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.instrumentation;
+
+import lombok.Getter;
+
+/**
+ * The aggregated measurements of all executions of a single compilation step.
+ *
+ * <p>
+ * Totals of measurements that are not supported by the JVM are
+ * {@link StepMeasurement#UNSUPPORTED}. Sizes that were not known are not
+ * included in the size totals.
+ * </p>
+ *
+ */
+@Getter
+public class StepSummary {
+    /**
+     * The name of the step.
+     *
+     */
+    private final String stepName;
+    /**
+     * The number of executions.
+     *
+     */
+    private long executions;
+    /**
+     * The number of failed executions.
+     *
+     */
+    private long failures;
+    /**
+     * The total wall clock time in nanoseconds.
+     *
+     */
+    private long totalWallTime;
+    /**
+     * The minimum wall clock time in nanoseconds.
+     *
+     */
+    private long minWallTime = Long.MAX_VALUE;
+    /**
+     * The maximum wall clock time in nanoseconds.
+     *
+     */
+    private long maxWallTime;
+    /**
+     * The total CPU time in nanoseconds.
+     *
+     */
+    private long totalCpuTime;
+    /**
+     * The total number of allocated bytes.
+     *
+     */
+    private long totalAllocatedBytes;
+    /**
+     * The total size of the inputs.
+     *
+     */
+    private long totalInputSize;
+    /**
+     * The total size of the outputs.
+     *
+     */
+    private long totalOutputSize;
+
+    /**
+     * Constructor of StepSummary.
+     *
+     * @param stepName
+     *            The name of the step.
+     */
+    StepSummary(final String stepName) {
+        this.stepName = stepName;
+    }
+
+    /**
+     * Constructor of StepSummary. Copies the given summary.
+     *
+     * @param other
+     *            The summary to copy.
+     */
+    StepSummary(final StepSummary other) {
+        this.stepName = other.stepName;
+        this.executions = other.executions;
+        this.failures = other.failures;
+        this.totalWallTime = other.totalWallTime;
+        this.minWallTime = other.minWallTime;
+        this.maxWallTime = other.maxWallTime;
+        this.totalCpuTime = other.totalCpuTime;
+        this.totalAllocatedBytes = other.totalAllocatedBytes;
+        this.totalInputSize = other.totalInputSize;
+        this.totalOutputSize = other.totalOutputSize;
+    }
+
+    /**
+     * Adds the given measurement to this summary.
+     *
+     * @param measurement
+     *            The measurement to add.
+     */
+    void add(final StepMeasurement measurement) {
+        this.executions++;
+        if (!measurement.isSuccessful()) {
+            this.failures++;
+        }
+        this.totalWallTime += measurement.getWallTime();
+        this.minWallTime = Math.min(this.minWallTime, measurement.getWallTime());
+        this.maxWallTime = Math.max(this.maxWallTime, measurement.getWallTime());
+        this.totalCpuTime = StepSummary.addMeasured(this.totalCpuTime, measurement.getCpuTime());
+        this.totalAllocatedBytes = StepSummary.addMeasured(this.totalAllocatedBytes, measurement.getAllocatedBytes());
+        this.totalInputSize += Math.max(0, measurement.getInputSize());
+        this.totalOutputSize += Math.max(0, measurement.getOutputSize());
+    }
+
+    /**
+     *
+     * @return The minimum wall clock time in nanoseconds or <code>0</code> if
+     *         the step was not executed yet.
+     */
+    public long getMinWallTime() {
+        return this.executions == 0 ? 0 : this.minWallTime;
+    }
+
+    /**
+     *
+     * @return The average wall clock time in nanoseconds or <code>0</code> if
+     *         the step was not executed yet.
+     */
+    public long getAverageWallTime() {
+        return this.executions == 0 ? 0 : this.totalWallTime / this.executions;
+    }
+
+    /**
+     * Adds a measured value to a total. Once a value was not supported, the
+     * total stays unsupported.
+     *
+     * @param total
+     *            The current total.
+     * @param value
+     *            The measured value.
+     * @return The new total.
+     */
+    private static long addMeasured(final long total, final long value) {
+        if (total == StepMeasurement.UNSUPPORTED || value == StepMeasurement.UNSUPPORTED) {
+            return StepMeasurement.UNSUPPORTED;
+        }
+        return total + value;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.stepName + "[executions=" + this.executions + ", failures=" + this.failures + ", wall="
+                + this.totalWallTime + "ns, cpu=" + this.totalCpuTime + "ns, allocated=" + this.totalAllocatedBytes
+                + "B, in=" + this.totalInputSize + ", out=" + this.totalOutputSize + "]";
+    }
+}
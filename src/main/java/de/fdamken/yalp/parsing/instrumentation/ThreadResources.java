@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.instrumentation;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the resources that were used by the current thread using the
+ * {@link ThreadMXBean}.
+ *
+ */
+public final class ThreadResources {
+    /**
+     * The thread MX bean.
+     *
+     */
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+    /**
+     * The thread MX bean of HotSpot that supports measuring the allocated
+     * bytes or <code>null</code> if the JVM does not support it.
+     *
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = ThreadResources.findAllocationBean();
+    /**
+     * Whether the CPU time can be measured.
+     *
+     */
+    private static final boolean CPU_TIME_SUPPORTED = ThreadResources.enableCpuTime();
+
+    /**
+     * Constructor of ThreadResources.
+     *
+     */
+    private ThreadResources() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     *
+     * @return The CPU time in nanoseconds that was used by the current thread
+     *         so far or {@link StepMeasurement#UNSUPPORTED} if the JVM does
+     *         not support measuring it.
+     */
+    public static long getCpuTime() {
+        return ThreadResources.CPU_TIME_SUPPORTED ? ThreadResources.THREAD_BEAN.getCurrentThreadCpuTime()
+                : StepMeasurement.UNSUPPORTED;
+    }
+
+    /**
+     *
+     * @return The number of bytes that were allocated by the current thread so
+     *         far or {@link StepMeasurement#UNSUPPORTED} if the JVM does not
+     *         support measuring it.
+     */
+    public static long getAllocatedBytes() {
+        return ThreadResources.ALLOCATION_BEAN == null ? StepMeasurement.UNSUPPORTED
+                : ThreadResources.ALLOCATION_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Enables measuring the CPU time if it is supported.
+     *
+     * @return Whether the CPU time can be measured.
+     */
+    private static boolean enableCpuTime() {
+        if (!ThreadResources.THREAD_BEAN.isCurrentThreadCpuTimeSupported()) {
+            return false;
+        }
+        try {
+            if (!ThreadResources.THREAD_BEAN.isThreadCpuTimeEnabled()) {
+                ThreadResources.THREAD_BEAN.setThreadCpuTimeEnabled(true);
+            }
+            return true;
+        } catch (final UnsupportedOperationException | SecurityException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the HotSpot thread MX bean and enables measuring the allocated
+     * bytes.
+     *
+     * @return The bean or <code>null</code> if the JVM does not support
+     *         measuring the allocated bytes.
+     */
+    private static com.sun.management.ThreadMXBean findAllocationBean() {
+        try {
+            if (!(ThreadResources.THREAD_BEAN instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ThreadResources.THREAD_BEAN;
+            if (!bean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            if (!bean.isThreadAllocatedMemoryEnabled()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            }
+            return bean;
+        } catch (final LinkageError | UnsupportedOperationException | SecurityException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.binary;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+
+/**
+ * The constants of the binary syntax tree format.
+ *
+ * <p>
+ * A stream starts with the {@link #MAGIC magic bytes} and the
+ * {@link #VERSION version} (a varint). It is followed by records, each
+ * starting with its kind (a varint): {@link #RECORD_END} ends the stream,
+ * {@link #RECORD_SYNTAX_TREE} is followed by the root element of a syntax
+ * tree and {@link #RECORD_ELEMENTS} by the number of elements (a varint) and
+ * the elements.
+ * </p>
+ *
+ * <p>
+ * The elements are written in pre-order. Every node starts with a varint whose
+ * lowest two bits are the node kind and the remaining bits are its value:
+ * <ul>
+ * <li>{@link #NODE_FUNCTION_CALL}: The value is the number of parameters. The
+ * node is followed by the function and the parameters.</li>
+ * <li>{@link #NODE_LITERAL}: The value is the index of the content in the
+ * string table.</li>
+ * <li>{@link #NODE_NEW_LITERAL}: The value is the length of the UTF-8 encoded
+ * content. The node is followed by the {@link LiteralKind#ordinal() ordinal}
+ * of the literal kind (a byte) and the content. The literal is appended to
+ * the string table.</li>
+ * </ul>
+ * The string table is shared by all records of a stream. Literals with the
+ * same content but different kinds have separate entries.
+ * </p>
+ *
+ */
+final class BinaryFormat {
+    /**
+     * The magic bytes every stream starts with.
+     *
+     */
+    static final byte[] MAGIC = { 'Y', 'L', 'S', 'T' };
+    /**
+     * The current version of the format. Version 2 added the literal kinds,
+     * in version 1 the kinds are determined from the contents.
+     *
+     */
+    static final int VERSION = 2;
+    /**
+     * The oldest version of the format that can still be read.
+     *
+     */
+    static final int MIN_VERSION = 1;
+
+    /**
+     * The record kind that ends the stream.
+     *
+     */
+    static final int RECORD_END = 0;
+    /**
+     * The record kind of a syntax tree.
+     *
+     */
+    static final int RECORD_SYNTAX_TREE = 1;
+    /**
+     * The record kind of a list of elements.
+     *
+     */
+    static final int RECORD_ELEMENTS = 2;
+
+    /**
+     * The number of bits of the node kind.
+     *
+     */
+    static final int NODE_KIND_BITS = 2;
+    /**
+     * The mask of the node kind.
+     *
+     */
+    static final int NODE_KIND_MASK = (1 << BinaryFormat.NODE_KIND_BITS) - 1;
+    /**
+     * The node kind of a function call.
+     *
+     */
+    static final int NODE_FUNCTION_CALL = 0;
+    /**
+     * The node kind of a literal whose content is already in the string
+     * table.
+     *
+     */
+    static final int NODE_LITERAL = 1;
+    /**
+     * The node kind of a literal whose content is not yet in the string
+     * table.
+     *
+     */
+    static final int NODE_NEW_LITERAL = 2;
+
+    /**
+     * Constructor of BinaryFormat.
+     *
+     */
+    private BinaryFormat() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.binary;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+import lombok.Getter;
+
+/**
+ * Reads syntax trees that were written by a {@link BinarySyntaxTreeWriter},
+ * one record at a time. This is considerably faster than parsing the code
+ * again, as neither the lexer nor the token tree is involved.
+ *
+ * <p>
+ * Every distinct content is only interned once per stream, and literals with
+ * the same content share the same {@link Literal} instance. The trees are
+ * rebuilt without recursion, so arbitrarily deep trees can be read.
+ * </p>
+ *
+ * <p>
+ * The counts and lengths in the stream are not trusted: Arrays are grown as
+ * their elements are read instead of being allocated with the size the
+ * stream claims, so a corrupt stream fails with an {@link IOException}
+ * (usually an {@link EOFException}) instead of exhausting the memory.
+ * </p>
+ *
+ */
+public class BinarySyntaxTreeReader implements Closeable {
+    /**
+     * The size of the buffer.
+     *
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The initial number of entries of the string table and of open function
+     * calls the reader has room for.
+     *
+     */
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    /**
+     * The stream to read from.
+     *
+     */
+    private final InputStream in;
+    /**
+     * The symbol table the contents are interned into.
+     *
+     */
+    @Getter
+    private final SymbolTable symbolTable;
+    /**
+     * The version of the stream.
+     *
+     */
+    @Getter
+    private final int version;
+    /**
+     * The buffer.
+     *
+     */
+    private final byte[] buffer = new byte[BinarySyntaxTreeReader.BUFFER_SIZE];
+    /**
+     * The index of the next byte in the {@link #buffer}.
+     *
+     */
+    private int position;
+    /**
+     * The number of bytes in the {@link #buffer}.
+     *
+     */
+    private int limit;
+    /**
+     * The string table: The literals of all contents read so far.
+     *
+     */
+    private Literal[] literals = new Literal[BinarySyntaxTreeReader.INITIAL_TABLE_SIZE];
+    /**
+     * The number of entries of the string table.
+     *
+     */
+    private int literalCount;
+    /**
+     * Whether the end of the stream was reached.
+     *
+     */
+    private boolean finished;
+
+    /**
+     * The functions of the open function calls.
+     *
+     */
+    private SyntaxTreeElement[] functions = new SyntaxTreeElement[BinarySyntaxTreeReader.INITIAL_TABLE_SIZE];
+    /**
+     * The parameters of the open function calls.
+     *
+     */
+    private SyntaxTreeElement[][] parameters = new SyntaxTreeElement[BinarySyntaxTreeReader.INITIAL_TABLE_SIZE][];
+    /**
+     * The number of parameters of the open function calls.
+     *
+     */
+    private int[] sizes = new int[BinarySyntaxTreeReader.INITIAL_TABLE_SIZE];
+    /**
+     * The number of read children of the open function calls.
+     *
+     */
+    private int[] counts = new int[BinarySyntaxTreeReader.INITIAL_TABLE_SIZE];
+
+    /**
+     * Constructor of BinarySyntaxTreeReader. The contents are interned into a
+     * new symbol table.
+     *
+     * @param in
+     *            The stream to read from.
+     * @throws IOException
+     *             If an I/O error occurs or the stream is not in a supported
+     *             version of the format.
+     */
+    public BinarySyntaxTreeReader(final InputStream in) throws IOException {
+        this(in, new SymbolTable());
+    }
+
+    /**
+     * Constructor of BinarySyntaxTreeReader. Reads the header.
+     *
+     * @param in
+     *            The stream to read from.
+     * @param symbolTable
+     *            The symbol table the contents are interned into.
+     * @throws IOException
+     *             If an I/O error occurs or the stream is not in a supported
+     *             version of the format.
+     */
+    public BinarySyntaxTreeReader(final InputStream in, final SymbolTable symbolTable) throws IOException {
+        this.in = in;
+        this.symbolTable = symbolTable;
+
+        for (final byte b : BinaryFormat.MAGIC) {
+            if (this.readByte() != b) {
+                throw new IOException("The stream does not contain binary syntax trees!");
+            }
+        }
+        this.version = this.readCount();
+        if (this.version < BinaryFormat.MIN_VERSION || this.version > BinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary syntax tree version " + this.version + "!");
+        }
+    }
+
+    /**
+     * Reads the next syntax tree.
+     *
+     * @return The syntax tree or <code>null</code> if the end of the stream was
+     *         reached.
+     * @throws IOException
+     *             If an I/O error occurs or the stream is malformed.
+     */
+    public SyntaxTree read() throws IOException {
+        if (!this.startRecord(BinaryFormat.RECORD_SYNTAX_TREE)) {
+            return null;
+        }
+        return new SyntaxTree(this.readElement(), this.symbolTable);
+    }
+
+    /**
+     * Reads the next list of elements that was written using
+     * {@link BinarySyntaxTreeWriter#writeElements(SyntaxTreeElement[])}.
+     *
+     * @return The elements or <code>null</code> if the end of the stream was
+     *         reached.
+     * @throws IOException
+     *             If an I/O error occurs or the stream is malformed.
+     */
+    public SyntaxTreeElement[] readElements() throws IOException {
+        if (!this.startRecord(BinaryFormat.RECORD_ELEMENTS)) {
+            return null;
+        }
+
+        final int count = this.readCount();
+        SyntaxTreeElement[] elements = new SyntaxTreeElement[BinarySyntaxTreeReader.initialCapacity(count)];
+        for (int i = 0; i < count; i++) {
+            if (i == elements.length) {
+                elements = Arrays.copyOf(elements, BinarySyntaxTreeReader.grow(i, count));
+            }
+            elements[i] = this.readElement();
+        }
+        return elements;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Reads the kind of the next record.
+     *
+     * @param expectedKind
+     *            The expected kind of the record.
+     * @return <code>true</code> if a record of the expected kind follows or
+     *         <code>false</code> if the end of the stream was reached.
+     * @throws IOException
+     *             If an I/O error occurs or a record of another kind follows.
+     */
+    private boolean startRecord(final int expectedKind) throws IOException {
+        if (this.finished) {
+            return false;
+        }
+
+        final int kind = this.readCount();
+        if (kind == BinaryFormat.RECORD_END) {
+            this.finished = true;
+            return false;
+        }
+        if (kind != expectedKind) {
+            throw new IOException("Unexpected record kind " + kind + " (expected " + expectedKind + ")!");
+        }
+        return true;
+    }
+
+    /**
+     * Reads an element and its children.
+     *
+     * @return The element.
+     * @throws IOException
+     *             If an I/O error occurs or the stream is malformed.
+     */
+    private SyntaxTreeElement readElement() throws IOException {
+        int depth = 0;
+        while (true) {
+            final long node = this.readVarint();
+            final int kind = (int) (node & BinaryFormat.NODE_KIND_MASK);
+            final long value = node >>> BinaryFormat.NODE_KIND_BITS;
+            if (value > Integer.MAX_VALUE) {
+                throw new IOException("Node value " + value + " is out of range!");
+            }
+
+            SyntaxTreeElement result;
+            if (kind == BinaryFormat.NODE_FUNCTION_CALL) {
+                if (depth == this.counts.length) {
+                    this.functions = Arrays.copyOf(this.functions, depth * 2);
+                    this.parameters = Arrays.copyOf(this.parameters, depth * 2);
+                    this.sizes = Arrays.copyOf(this.sizes, depth * 2);
+                    this.counts = Arrays.copyOf(this.counts, depth * 2);
+                }
+                this.parameters[depth] = new SyntaxTreeElement[BinarySyntaxTreeReader.initialCapacity((int) value)];
+                this.sizes[depth] = (int) value;
+                this.counts[depth] = 0;
+                depth++;
+                continue;
+            } else if (kind == BinaryFormat.NODE_LITERAL) {
+                if (value >= this.literalCount) {
+                    throw new IOException("Unknown string table index " + value + "!");
+                }
+                result = this.literals[(int) value];
+            } else if (kind == BinaryFormat.NODE_NEW_LITERAL) {
+                result = this.readLiteral((int) value);
+            } else {
+                throw new IOException("Unknown node kind " + kind + "!");
+            }
+
+            // Complete all function calls whose children are read.
+            while (true) {
+                if (depth == 0) {
+                    return result;
+                }
+                final int top = depth - 1;
+                final int count = this.counts[top]++;
+                if (count == 0) {
+                    this.functions[top] = result;
+                } else {
+                    if (count > this.parameters[top].length) {
+                        this.parameters[top] = Arrays.copyOf(this.parameters[top],
+                                BinarySyntaxTreeReader.grow(count - 1, this.sizes[top]));
+                    }
+                    this.parameters[top][count - 1] = result;
+                }
+                if (count < this.sizes[top]) {
+                    break;
+                }
+
+                result = new FunctionCall(this.functions[top], this.parameters[top]);
+                this.functions[top] = null;
+                this.parameters[top] = null;
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Reads the content of a new literal and appends it to the string table.
+     *
+     * @param length
+     *            The length of the UTF-8 encoded content.
+     * @return The literal.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private Literal readLiteral(final int length) throws IOException {
+        int kindOrdinal = -1;
+        if (this.version >= 2) {
+            kindOrdinal = this.readByte() & 0xFF;
+        }
+
+        final String content;
+        if (this.limit - this.position >= length) {
+            content = new String(this.buffer, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+        } else {
+            byte[] bytes = new byte[Math.min(length, BinarySyntaxTreeReader.BUFFER_SIZE)];
+            for (int i = 0; i < length;) {
+                if (this.position == this.limit) {
+                    this.fill();
+                }
+                if (i == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, BinarySyntaxTreeReader.grow(i, length));
+                }
+                final int read = Math.min(bytes.length - i, this.limit - this.position);
+                System.arraycopy(this.buffer, this.position, bytes, i, read);
+                this.position += read;
+                i += read;
+            }
+            content = new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        final LiteralKind kind;
+        try {
+            kind = kindOrdinal < 0 ? LiteralKind.classify(content) : LiteralKind.fromOrdinal(kindOrdinal);
+        } catch (final IllegalArgumentException cause) {
+            throw new IOException(cause.getMessage(), cause);
+        }
+
+        final Literal literal;
+        if (kind == LiteralKind.STRING) {
+            // Strings are not interned, just like in the lexer.
+            literal = new Literal(content, SymbolTable.NO_SYMBOL, kind);
+        } else {
+            final int symbolId = this.symbolTable.intern(content);
+            literal = new Literal(this.symbolTable.getSymbol(symbolId), symbolId, kind);
+        }
+        if (this.literalCount == this.literals.length) {
+            this.literals = Arrays.copyOf(this.literals, this.literalCount * 2);
+        }
+        this.literals[this.literalCount++] = literal;
+        return literal;
+    }
+
+    /**
+     * Computes the initial capacity of an array whose size is read from the
+     * stream. The capacity is limited, as the size may be corrupt.
+     *
+     * @param size
+     *            The size read from the stream.
+     * @return The initial capacity.
+     */
+    private static int initialCapacity(final int size) {
+        return Math.min(size, BinarySyntaxTreeReader.INITIAL_TABLE_SIZE);
+    }
+
+    /**
+     * Computes the new capacity of a full array whose size is read from the
+     * stream.
+     *
+     * @param capacity
+     *            The current capacity.
+     * @param size
+     *            The size read from the stream.
+     * @return The new capacity.
+     */
+    private static int grow(final int capacity, final int size) {
+        return (int) Math.min(capacity * 2L, size);
+    }
+
+    /**
+     * Reads a varint that must fit into an <code>int</code>.
+     *
+     * @return The value.
+     * @throws IOException
+     *             If an I/O error occurs or the value is out of range.
+     */
+    private int readCount() throws IOException {
+        final long value = this.readVarint();
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Count " + value + " is out of range!");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads an unsigned varint of at most five bytes.
+     *
+     * @return The value.
+     * @throws IOException
+     *             If an I/O error occurs or the varint is too long.
+     */
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint!");
+    }
+
+    /**
+     * Reads a single byte.
+     *
+     * @return The byte.
+     * @throws IOException
+     *             If an I/O error occurs or the end of the stream was reached.
+     */
+    private byte readByte() throws IOException {
+        if (this.position == this.limit) {
+            this.fill();
+        }
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * Refills the empty buffer.
+     *
+     * @throws IOException
+     *             If an I/O error occurs.
+     * @throws EOFException
+     *             If the end of the stream was reached.
+     */
+    private void fill() throws IOException, EOFException {
+        int read;
+        do {
+            read = this.in.read(this.buffer, 0, this.buffer.length);
+        } while (read == 0);
+        if (read < 0) {
+            throw new EOFException("Unexpected end of the binary syntax tree stream!");
+        }
+        this.position = 0;
+        this.limit = read;
+    }
+}
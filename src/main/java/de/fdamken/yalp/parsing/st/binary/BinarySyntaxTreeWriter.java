@@ -0,0 +1,331 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.binary;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+
+/**
+ * Writes syntax trees in the binary syntax tree format (see
+ * {@link BinarySyntaxTreeReader}). Multiple trees can be written to the same
+ * stream and share their string table.
+ *
+ * <p>
+ * The trees are written without recursion, so arbitrarily deep trees can be
+ * written. The stream is buffered internally.
+ * </p>
+ *
+ */
+public class BinarySyntaxTreeWriter implements Closeable, Flushable {
+    /**
+     * The size of the buffer.
+     *
+     */
+    private static final int BUFFER_SIZE = 8192;
+    /**
+     * The maximum number of bytes of a varint.
+     *
+     */
+    private static final int MAX_VARINT_SIZE = 5;
+    /**
+     * The maximum number of bytes of a node header including the literal
+     * kind.
+     *
+     */
+    private static final int MAX_NODE_SIZE = BinarySyntaxTreeWriter.MAX_VARINT_SIZE + 1;
+    /**
+     * The initial number of pending elements the writer has room for.
+     *
+     */
+    private static final int INITIAL_STACK_SIZE = 16;
+
+    /**
+     * The stream to write to.
+     *
+     */
+    private final OutputStream out;
+    /**
+     * The buffer.
+     *
+     */
+    private final byte[] buffer = new byte[BinarySyntaxTreeWriter.BUFFER_SIZE];
+    /**
+     * The number of bytes in the {@link #buffer}.
+     *
+     */
+    private int count;
+    /**
+     * The string table: The indices of the already written contents per
+     * literal kind.
+     *
+     */
+    private final Map<LiteralKind, Map<String, Integer>> strings = new EnumMap<>(LiteralKind.class);
+    /**
+     * The number of entries of the string table.
+     *
+     */
+    private int stringCount;
+    /**
+     * The elements that are still to be written.
+     *
+     */
+    private SyntaxTreeElement[] pending = new SyntaxTreeElement[BinarySyntaxTreeWriter.INITIAL_STACK_SIZE];
+    /**
+     * Whether the stream was closed.
+     *
+     */
+    private boolean closed;
+
+    /**
+     * Constructor of BinarySyntaxTreeWriter. Writes the header.
+     *
+     * @param out
+     *            The stream to write to.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    public BinarySyntaxTreeWriter(final OutputStream out) throws IOException {
+        this.out = out;
+
+        for (final byte b : BinaryFormat.MAGIC) {
+            this.buffer[this.count++] = b;
+        }
+        this.writeVarint(BinaryFormat.VERSION);
+    }
+
+    /**
+     * Writes a syntax tree.
+     *
+     * @param syntaxTree
+     *            The syntax tree to write.
+     * @throws IOException
+     *             If an I/O error occurs.
+     * @throws IllegalStateException
+     *             If the writer was closed.
+     */
+    public void write(final SyntaxTree syntaxTree) throws IOException, IllegalStateException {
+        this.checkNotClosed();
+
+        this.writeVarint(BinaryFormat.RECORD_SYNTAX_TREE);
+        this.writeElement(syntaxTree.getRootElement());
+    }
+
+    /**
+     * Writes a list of elements that is read using
+     * {@link BinarySyntaxTreeReader#readElements()}.
+     *
+     * @param elements
+     *            The elements to write.
+     * @throws IOException
+     *             If an I/O error occurs.
+     * @throws IllegalStateException
+     *             If the writer was closed.
+     */
+    public void writeElements(final SyntaxTreeElement[] elements) throws IOException, IllegalStateException {
+        this.checkNotClosed();
+
+        this.writeVarint(BinaryFormat.RECORD_ELEMENTS);
+        this.writeVarint(elements.length);
+        for (final SyntaxTreeElement element : elements) {
+            this.writeElement(element);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Flushable#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        this.flushBuffer();
+        this.out.flush();
+    }
+
+    /**
+     * Writes the end of the stream and closes the underlying stream.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+
+        this.closed = true;
+        try {
+            this.writeVarint(BinaryFormat.RECORD_END);
+            this.flushBuffer();
+        } finally {
+            this.out.close();
+        }
+    }
+
+    /**
+     * Writes the given element and its children in pre-order.
+     *
+     * @param element
+     *            The element to write.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeElement(final SyntaxTreeElement element) throws IOException {
+        int count = 0;
+        this.pending[count++] = element;
+        while (count > 0) {
+            final SyntaxTreeElement next = this.pending[--count];
+            this.pending[count] = null;
+            if (next instanceof FunctionCall) {
+                final FunctionCall call = (FunctionCall) next;
+                final SyntaxTreeElement[] parameters = call.getParameters();
+                this.writeNode(BinaryFormat.NODE_FUNCTION_CALL, parameters.length);
+
+                if (count + parameters.length + 1 > this.pending.length) {
+                    this.pending = Arrays.copyOf(this.pending, Math.max(this.pending.length * 2, count + parameters.length + 1));
+                }
+                for (int i = parameters.length - 1; i >= 0; i--) {
+                    this.pending[count++] = parameters[i];
+                }
+                this.pending[count++] = call.getFunction();
+            } else if (next instanceof Literal) {
+                this.writeLiteral((Literal) next);
+            } else {
+                throw new IllegalArgumentException("Unknown syntax tree element type " + next.getClass().getSimpleName() + "!");
+            }
+        }
+    }
+
+    /**
+     * Writes a literal and adds its content to the string table if it is not
+     * in there yet.
+     *
+     * @param literal
+     *            The literal to write.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeLiteral(final Literal literal) throws IOException {
+        final String content = literal.getContent();
+        Map<String, Integer> strings = this.strings.get(literal.getKind());
+        if (strings == null) {
+            strings = new HashMap<>();
+            this.strings.put(literal.getKind(), strings);
+        }
+        final Integer index = strings.get(content);
+        if (index != null) {
+            this.writeNode(BinaryFormat.NODE_LITERAL, index);
+            return;
+        }
+
+        strings.put(content, this.stringCount++);
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        this.writeNode(BinaryFormat.NODE_NEW_LITERAL, bytes.length);
+        this.buffer[this.count++] = (byte) literal.getKind().ordinal();
+        if (bytes.length > this.buffer.length - this.count) {
+            this.flushBuffer();
+            if (bytes.length > this.buffer.length) {
+                this.out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, this.buffer, this.count, bytes.length);
+        this.count += bytes.length;
+    }
+
+    /**
+     * Writes the header of a node.
+     *
+     * @param kind
+     *            The kind of the node.
+     * @param value
+     *            The value of the node.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeNode(final int kind, final int value) throws IOException {
+        if (this.buffer.length - this.count < BinarySyntaxTreeWriter.MAX_NODE_SIZE) {
+            this.flushBuffer();
+        }
+        this.writeVarint((long) value << BinaryFormat.NODE_KIND_BITS | kind);
+    }
+
+    /**
+     * Writes an unsigned varint (7 bits per byte, least significant group
+     * first).
+     *
+     * @param value
+     *            The value to write. Must not be negative and must fit into 35
+     *            bits.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeVarint(final long value) throws IOException {
+        if (this.buffer.length - this.count < BinarySyntaxTreeWriter.MAX_VARINT_SIZE) {
+            this.flushBuffer();
+        }
+
+        long remaining = value;
+        while (remaining >= 0x80) {
+            this.buffer[this.count++] = (byte) (remaining | 0x80);
+            remaining >>>= 7;
+        }
+        this.buffer[this.count++] = (byte) remaining;
+    }
+
+    /**
+     * Writes the buffer to the stream.
+     *
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void flushBuffer() throws IOException {
+        if (this.count > 0) {
+            this.out.write(this.buffer, 0, this.count);
+            this.count = 0;
+        }
+    }
+
+    /**
+     * Checks that the writer was not closed yet.
+     *
+     * @throws IllegalStateException
+     *             If the writer was closed.
+     */
+    private void checkNotClosed() throws IllegalStateException {
+        if (this.closed) {
+            throw new IllegalStateException("The writer was already closed!");
+        }
+    }
+}
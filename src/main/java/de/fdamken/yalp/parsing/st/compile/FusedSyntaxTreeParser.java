@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.compile;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+
+/**
+ * Parses Lisp code directly into a syntax tree in a single pass, without
+ * building a token tree first. The result (including the errors) is the same
+ * as when using a {@link TokenTreeParser} followed by a
+ * {@link SyntaxTreeParser}, but considerably less memory is allocated.
+ *
+ * <p>
+ * Like the two separate steps, a single instance can be used by multiple
+ * threads concurrently.
+ * </p>
+ *
+ */
+public class FusedSyntaxTreeParser extends AbstractCompilationStep<Input, SyntaxTree> {
+    /**
+     * The token tree parser that is used for lexing the code.
+     *
+     */
+    private final TokenTreeParser tokenTreeParser = new TokenTreeParser();
+    /**
+     * The symbol table that is shared between all parsed inputs or
+     * <code>null</code> if every input gets its own symbol table.
+     *
+     */
+    private final SymbolTable sharedSymbolTable;
+
+    /**
+     * Constructor of FusedSyntaxTreeParser. Every parsed input gets its own
+     * symbol table.
+     *
+     */
+    public FusedSyntaxTreeParser() {
+        this(null);
+    }
+
+    /**
+     * Constructor of FusedSyntaxTreeParser.
+     *
+     * @param sharedSymbolTable
+     *            The symbol table that is shared between all parsed inputs or
+     *            <code>null</code> if every input should get its own symbol
+     *            table.
+     */
+    public FusedSyntaxTreeParser(final SymbolTable sharedSymbolTable) {
+        this.sharedSymbolTable = sharedSymbolTable;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public SyntaxTree parse(final Input input) throws CompilationException {
+        final SyntaxTreeBuilder builder = new SyntaxTreeBuilder(
+                this.sharedSymbolTable == null ? new SymbolTable() : this.sharedSymbolTable);
+        this.tokenTreeParser.lex(input, builder);
+        return builder.build();
+    }
+}
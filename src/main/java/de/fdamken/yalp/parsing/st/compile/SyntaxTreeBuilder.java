@@ -0,0 +1,239 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.compile;
+
+import java.util.Arrays;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
+import de.fdamken.yalp.parsing.tt.compile.TreeBuilder;
+
+/**
+ * A builder used for building a syntax tree directly from the lexed elements
+ * in a flat way, without building a token tree first. The result is the same
+ * as building a token tree using a {@link TokenTreeBuilder} and parsing it
+ * using a {@link SyntaxTreeParser}.
+ *
+ * <p>
+ * Errors of the syntax tree (i.e. empty function calls) are not thrown
+ * immediately but by {@link #build()}, so errors of the lexing (which are
+ * detected before the syntax tree is parsed when using two steps) take
+ * precedence.
+ * </p>
+ *
+ */
+public class SyntaxTreeBuilder implements TreeBuilder {
+    /**
+     * The initial number of open containers the builder has room for.
+     *
+     */
+    private static final int INITIAL_DEPTH = 16;
+    /**
+     * The initial number of children of a container the builder has room
+     * for.
+     *
+     */
+    private static final int INITIAL_CHILDREN = 8;
+
+    /**
+     * The symbol table the contents of the literals are interned in.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * The children of the open containers. The children of the root
+     * container are at index <code>0</code>. The arrays are reused for the
+     * containers at the same depth.
+     *
+     */
+    private SyntaxTreeElement[][] children = new SyntaxTreeElement[SyntaxTreeBuilder.INITIAL_DEPTH][];
+    /**
+     * The number of children of the open containers.
+     *
+     */
+    private int[] childCounts = new int[SyntaxTreeBuilder.INITIAL_DEPTH];
+    /**
+     * The number of open containers (including the root container).
+     *
+     */
+    private int depth;
+
+    /**
+     * The first error of the syntax tree or <code>null</code>.
+     *
+     */
+    private SyntaxTreeParsingException failure;
+
+    /**
+     * Constructor of SyntaxTreeBuilder.
+     *
+     * @param symbolTable
+     *            The symbol table the contents of the literals are interned
+     *            in.
+     */
+    public SyntaxTreeBuilder(final SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+        this.children[0] = new SyntaxTreeElement[SyntaxTreeBuilder.INITIAL_CHILDREN];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Like the {@link TokenTreeBuilder}, all top-level containers are merged
+     * into the root container.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#openContainer()
+     */
+    @Override
+    public void openContainer() {
+        if (this.depth > 0) {
+            if (this.depth == this.children.length) {
+                this.children = Arrays.copyOf(this.children, this.depth * 2);
+                this.childCounts = Arrays.copyOf(this.childCounts, this.depth * 2);
+            }
+            if (this.children[this.depth] == null) {
+                this.children[this.depth] = new SyntaxTreeElement[SyntaxTreeBuilder.INITIAL_CHILDREN];
+            }
+            this.childCounts[this.depth] = 0;
+        }
+        this.depth++;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#closeContainer()
+     */
+    @Override
+    public void closeContainer() {
+        if (this.depth > 1) {
+            final int top = this.depth - 1;
+            this.depth--;
+            this.addChild(this.createFunctionCall(this.children[top], this.childCounts[top]));
+        } else {
+            this.depth = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * Except for strings, the content is interned in the symbol table and the
+     * literal uses the interned string instead of the given content.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#addElement(java.lang.CharSequence,
+     *      de.fdamken.yalp.parsing.LiteralKind)
+     */
+    @Override
+    public void addElement(final CharSequence content, final LiteralKind kind) throws IllegalStateException {
+        if (this.depth == 0) {
+            throw new IllegalStateException("There is no open container!");
+        }
+
+        if (kind == LiteralKind.STRING) {
+            this.addChild(new Literal(content, SymbolTable.NO_SYMBOL, kind));
+        } else {
+            final int symbolId = this.symbolTable.intern(content);
+            this.addChild(new Literal(this.symbolTable.getSymbol(symbolId), symbolId, kind));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.TreeBuilder#isFinished()
+     */
+    @Override
+    public boolean isFinished() {
+        return this.depth == 0;
+    }
+
+    /**
+     * Builds the syntax tree.
+     *
+     * @return The built syntax tree.
+     * @throws SyntaxTreeParsingException
+     *             If the code contains an empty function call.
+     * @throws IllegalStateException
+     *             If the building was not {@link #isFinished() finished}.
+     */
+    public SyntaxTree build() throws SyntaxTreeParsingException, IllegalStateException {
+        if (!this.isFinished()) {
+            throw new IllegalStateException("Not all containers are closed!");
+        }
+
+        final FunctionCall root = this.createFunctionCall(this.children[0], this.childCounts[0]);
+        if (this.failure != null) {
+            throw this.failure;
+        }
+        return new SyntaxTree(root, this.symbolTable);
+    }
+
+    /**
+     * Adds the given child to the current container.
+     *
+     * @param child
+     *            The child to add.
+     */
+    private void addChild(final SyntaxTreeElement child) {
+        final int top = this.depth - 1;
+        final int count = this.childCounts[top];
+        if (count == this.children[top].length) {
+            this.children[top] = Arrays.copyOf(this.children[top], count * 2);
+        }
+        this.children[top][count] = child;
+        this.childCounts[top] = count + 1;
+    }
+
+    /**
+     * Creates a function call from the given children. If there are no
+     * children, the error is recorded and <code>null</code> is returned.
+     *
+     * @param elements
+     *            The children. The first child is the function.
+     * @param count
+     *            The number of children.
+     * @return The function call or <code>null</code>.
+     */
+    private FunctionCall createFunctionCall(final SyntaxTreeElement[] elements, final int count) {
+        if (count == 0) {
+            if (this.failure == null) {
+                this.failure = new SyntaxTreeParsingException("Missing parameters for function call!");
+            }
+            return null;
+        }
+
+        final FunctionCall call = new FunctionCall(elements[0], Arrays.copyOfRange(elements, 1, count));
+        // Release the children as the array is reused.
+        Arrays.fill(elements, 0, count, null);
+        return call;
+    }
+}
@@ -19,8 +19,7 @@
  */
 package de.fdamken.yalp.parsing.st.compile;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import de.fdamken.yalp.parsing.AbstractCompilationStep;
 import de.fdamken.yalp.parsing.exception.CompilationException;
@@ -38,8 +37,19 @@ import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
  * The syntax tree parser for converting the token tree into a syntax tree (not
  * an AST!).
  *
+ * <p>
+ * The parser is stateless, so a single instance can be used by multiple
+ * threads concurrently.
+ * </p>
+ *
  */
 public class SyntaxTreeParser extends AbstractCompilationStep<TokenTree, SyntaxTree> {
+    /**
+     * The initial number of open function calls the parser has room for.
+     *
+     */
+    private static final int INITIAL_STACK_SIZE = 16;
+
     /**
      * {@inheritDoc}
      *
@@ -47,57 +57,121 @@ public class SyntaxTreeParser extends AbstractCompilationStep<TokenTree, SyntaxT
      */
     @Override
     public SyntaxTree parse(final TokenTree tokenTree) throws CompilationException {
-        return new SyntaxTree(this.parse(tokenTree.getRootContainer()));
+        return new SyntaxTree(this.parse(tokenTree.getRootContainer()), tokenTree.getSymbolTable());
     }
 
     /**
-     * Parses the given token tree element into a syntax tree element.
+     * Parses a single token tree element (e.g. a top-level form) into a
+     * syntax tree element.
      *
-     * @param tokenTree
-     *            The token tree to parse.
-     * @return The parsed syntax tree.
+     * @param tokenTreeElement
+     *            The token tree element to parse.
+     * @return The parsed syntax tree element.
      * @throws CompilationException
      *             If an error occurs during the compilation.
      */
-    private SyntaxTreeElement parse(final TokenTreeElement tokenTree) throws CompilationException {
-        if (tokenTree instanceof TokenTreeContainer) {
-            return this.parseFunctionCall((TokenTreeContainer) tokenTree);
-        } else if (tokenTree instanceof SimpleTokenTreeElement) {
-            return this.parseLiteral((SimpleTokenTreeElement) tokenTree);
-        } else {
-            throw new SyntaxTreeParsingException("Unknown token tree element type " + tokenTree.getClass().getSimpleName() + "!");
-        }
+    public SyntaxTreeElement parseElement(final TokenTreeElement tokenTreeElement) throws CompilationException {
+        return this.parse(tokenTreeElement);
     }
 
     /**
-     * Parses the given container as a function call.
+     * Parses the given token tree element into a syntax tree element.
      *
-     * @param tokenTreeContainer
-     *            The token tree container to parse.
-     * @return The parsed function call.
+     * <p>
+     * The nested containers are parsed without recursion using an explicit
+     * stack of the open function calls, so arbitrarily deep trees can be
+     * parsed without exhausting the call stack. The elements are visited in
+     * the same order (depth-first, pre-order) as by a recursive descent, so
+     * the same errors are thrown.
+     * </p>
+     *
+     * @param tokenTree
+     *            The token tree to parse.
+     * @return The parsed syntax tree.
      * @throws CompilationException
      *             If an error occurs during the compilation.
      */
-    private FunctionCall parseFunctionCall(final TokenTreeContainer tokenTreeContainer) throws CompilationException {
-        final List<SyntaxTreeElement> functionContent = new ArrayList<>();
-        for (final TokenTreeElement tokenTreeElement : tokenTreeContainer) {
-            functionContent.add(this.parse(tokenTreeElement));
+    private SyntaxTreeElement parse(final TokenTreeElement tokenTree) throws CompilationException {
+        if (!(tokenTree instanceof TokenTreeContainer)) {
+            return this.parseLiteral(tokenTree);
         }
-        if (functionContent.isEmpty()) {
-            throw new SyntaxTreeParsingException("Missing parameters for function call!");
+
+        // The open function calls: The container, the index of the next
+        // child to parse and the already parsed children.
+        TokenTreeContainer[] containers = new TokenTreeContainer[SyntaxTreeParser.INITIAL_STACK_SIZE];
+        int[] indices = new int[SyntaxTreeParser.INITIAL_STACK_SIZE];
+        SyntaxTreeElement[] functions = new SyntaxTreeElement[SyntaxTreeParser.INITIAL_STACK_SIZE];
+        SyntaxTreeElement[][] parameters = new SyntaxTreeElement[SyntaxTreeParser.INITIAL_STACK_SIZE][];
+        int depth = 0;
+
+        TokenTreeElement next = tokenTree;
+        while (true) {
+            SyntaxTreeElement result = null;
+            if (next instanceof TokenTreeContainer) {
+                final TokenTreeContainer container = (TokenTreeContainer) next;
+                if (container.size() == 0) {
+                    throw new SyntaxTreeParsingException("Missing parameters for function call!");
+                }
+
+                if (depth == containers.length) {
+                    final int size = depth * 2;
+                    containers = Arrays.copyOf(containers, size);
+                    indices = Arrays.copyOf(indices, size);
+                    functions = Arrays.copyOf(functions, size);
+                    parameters = Arrays.copyOf(parameters, size);
+                }
+                containers[depth] = container;
+                indices[depth] = 0;
+                parameters[depth] = new SyntaxTreeElement[container.size() - 1];
+                depth++;
+            } else {
+                result = this.parseLiteral(next);
+            }
+
+            // Complete all function calls whose children are parsed.
+            while (true) {
+                final int top = depth - 1;
+                if (result != null) {
+                    final int index = indices[top] - 1;
+                    if (index == 0) {
+                        functions[top] = result;
+                    } else {
+                        parameters[top][index - 1] = result;
+                    }
+                }
+                if (indices[top] < containers[top].size()) {
+                    next = containers[top].get(indices[top]++);
+                    break;
+                }
+
+                result = new FunctionCall(functions[top], parameters[top]);
+                containers[top] = null;
+                functions[top] = null;
+                parameters[top] = null;
+                depth--;
+                if (depth == 0) {
+                    return result;
+                }
+            }
         }
-        return new FunctionCall(functionContent.remove(0),
-                functionContent.toArray(new SyntaxTreeElement[functionContent.size()]));
     }
 
     /**
-     * Parses the given element as a literal call.
+     * Parses the given element as a literal.
      *
      * @param tokenTreeElement
-     *            The token tree element to parse.
-     * @return The parsed function call.
+     *            The token tree element to parse. Must not be a container.
+     * @return The parsed literal.
+     * @throws SyntaxTreeParsingException
+     *             If the element is not a simple token tree element.
      */
-    private Literal parseLiteral(final SimpleTokenTreeElement tokenTreeElement) {
-        return new Literal(tokenTreeElement.getContent());
+    private Literal parseLiteral(final TokenTreeElement tokenTreeElement) throws SyntaxTreeParsingException {
+        if (!(tokenTreeElement instanceof SimpleTokenTreeElement)) {
+            throw new SyntaxTreeParsingException(
+                    "Unknown token tree element type " + tokenTreeElement.getClass().getSimpleName() + "!");
+        }
+
+        final SimpleTokenTreeElement simpleElement = (SimpleTokenTreeElement) tokenTreeElement;
+        return new Literal(simpleElement.getContentSequence(), simpleElement.getSymbolId(), simpleElement.getKind());
     }
 }
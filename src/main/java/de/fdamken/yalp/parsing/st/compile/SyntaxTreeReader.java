@@ -0,0 +1,96 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.st.compile;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeReader;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+
+/**
+ * Reads the top-level forms from a {@link TokenTreeReader} and parses them
+ * into syntax trees, one form at a time.
+ *
+ */
+public class SyntaxTreeReader implements Closeable {
+    /**
+     * The reader providing the token trees of the forms.
+     *
+     */
+    private final TokenTreeReader tokenTreeReader;
+    /**
+     * The parser used for parsing every form.
+     *
+     */
+    private final SyntaxTreeParser syntaxTreeParser;
+
+    /**
+     * Constructor of SyntaxTreeReader.
+     *
+     * @param tokenTreeReader
+     *            The reader providing the token trees of the forms.
+     */
+    public SyntaxTreeReader(final TokenTreeReader tokenTreeReader) {
+        this(tokenTreeReader, new SyntaxTreeParser());
+    }
+
+    /**
+     * Constructor of SyntaxTreeReader.
+     *
+     * @param tokenTreeReader
+     *            The reader providing the token trees of the forms.
+     * @param syntaxTreeParser
+     *            The parser used for parsing every form.
+     */
+    public SyntaxTreeReader(final TokenTreeReader tokenTreeReader, final SyntaxTreeParser syntaxTreeParser) {
+        this.tokenTreeReader = tokenTreeReader;
+        this.syntaxTreeParser = syntaxTreeParser;
+    }
+
+    /**
+     * Reads the next top-level form.
+     *
+     * @return The syntax tree containing only the next top-level form or
+     *         <code>null</code> if the end of the input was reached.
+     * @throws CompilationException
+     *             If an error occurs whilst reading or parsing the input.
+     */
+    public SyntaxTree read() throws CompilationException {
+        final TokenTree tokenTree = this.tokenTreeReader.read();
+        if (tokenTree == null) {
+            return null;
+        }
+        return this.syntaxTreeParser.parse(tokenTree);
+    }
+
+    /**
+     * Closes the underlying {@link TokenTreeReader}.
+     *
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        this.tokenTreeReader.close();
+    }
+}
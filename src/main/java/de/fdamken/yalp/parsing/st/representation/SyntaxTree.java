@@ -19,22 +19,86 @@
  */
 package de.fdamken.yalp.parsing.st.representation;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
 
 import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 /**
  * Represents the syntax tree.
  *
  */
 @Data
+@EqualsAndHashCode(exclude = "symbolTable")
 public class SyntaxTree implements IntermediateRepresentation {
     /**
      * The root element of the syntax tree.
      *
      */
     private final SyntaxTreeElement rootElement;
+    /**
+     * The symbol table containing the symbols of the syntax tree. This is not
+     * considered by {@link #equals(Object)}.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor of SyntaxTree.
+     *
+     * @param rootElement
+     *            The root element of the syntax tree.
+     */
+    public SyntaxTree(final SyntaxTreeElement rootElement) {
+        this(rootElement, new SymbolTable());
+    }
+
+    /**
+     * Constructor of SyntaxTree.
+     *
+     * @param rootElement
+     *            The root element of the syntax tree.
+     * @param symbolTable
+     *            The symbol table containing the symbols of the syntax tree.
+     */
+    public SyntaxTree(final SyntaxTreeElement rootElement, final SymbolTable symbolTable) {
+        this.rootElement = rootElement;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The size of a syntax tree is the number of its nodes (function calls
+     * and literals).
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        long size = 0;
+        final Deque<SyntaxTreeElement> pending = new ArrayDeque<>();
+        pending.push(this.rootElement);
+        while (!pending.isEmpty()) {
+            final SyntaxTreeElement element = pending.pop();
+            size++;
+            if (element instanceof FunctionCall) {
+                final FunctionCall call = (FunctionCall) element;
+                pending.push(call.getFunction());
+                for (final SyntaxTreeElement parameter : call.getParameters()) {
+                    pending.push(parameter);
+                }
+            }
+        }
+        return size;
+    }
 
     /**
      * {@inheritDoc}
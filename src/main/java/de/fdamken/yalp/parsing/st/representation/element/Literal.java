@@ -19,21 +19,154 @@
  */
 package de.fdamken.yalp.parsing.st.representation.element;
 
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
 import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
-import lombok.Value;
+import de.fdamken.yalp.util.CharSequences;
 
 /**
  * Represents a "literal" in the code (a simple string value, can also be a
  * keyword).
  *
  */
-@Value
 public class Literal implements SyntaxTreeElement {
     /**
-     * The content of the literal.
+     * The content of the literal. This may be a slice of the code that is
+     * only converted into a string if it is needed.
      *
      */
-    String content;
+    private final CharSequence content;
+    /**
+     * The content of the literal as a string. This is created lazily by
+     * {@link #getContent()}.
+     *
+     */
+    private String contentString;
+    /**
+     * The ID of the content in the {@link SymbolTable symbol table} or
+     * {@link SymbolTable#NO_SYMBOL} if the content is not interned.
+     *
+     */
+    private final int symbolId;
+    /**
+     * The kind of the content.
+     *
+     */
+    private final LiteralKind kind;
+
+    /**
+     * Constructor of Literal.
+     *
+     * @param content
+     *            The content of this literal.
+     */
+    public Literal(final CharSequence content) {
+        this(content, SymbolTable.NO_SYMBOL);
+    }
+
+    /**
+     * Constructor of Literal. The kind of the content is
+     * {@link LiteralKind#classify(CharSequence) determined} from the content.
+     *
+     * @param content
+     *            The content of this literal.
+     * @param symbolId
+     *            The ID of the content in the {@link SymbolTable symbol
+     *            table} or {@link SymbolTable#NO_SYMBOL} if the content is
+     *            not interned.
+     */
+    public Literal(final CharSequence content, final int symbolId) {
+        this(content, symbolId, LiteralKind.classify(content));
+    }
+
+    /**
+     * Constructor of Literal.
+     *
+     * @param content
+     *            The content of this literal.
+     * @param symbolId
+     *            The ID of the content in the {@link SymbolTable symbol
+     *            table} or {@link SymbolTable#NO_SYMBOL} if the content is
+     *            not interned.
+     * @param kind
+     *            The kind of the content that was determined by the lexer.
+     */
+    public Literal(final CharSequence content, final int symbolId, final LiteralKind kind) {
+        this.content = content;
+        if (content instanceof String) {
+            this.contentString = (String) content;
+        }
+        this.symbolId = symbolId;
+        this.kind = kind;
+    }
+
+    /**
+     *
+     * @return The content of the literal without converting it into a string.
+     */
+    public CharSequence getContentSequence() {
+        return this.content;
+    }
+
+    /**
+     *
+     * @return The ID of the content in the {@link SymbolTable symbol table} or
+     *         {@link SymbolTable#NO_SYMBOL} if the content is not interned.
+     */
+    public int getSymbolId() {
+        return this.symbolId;
+    }
+
+    /**
+     *
+     * @return The kind of the content.
+     */
+    public LiteralKind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Returns the content of the literal as a string. The string is only
+     * created on the first invocation of this method.
+     *
+     * @return The content of the literal.
+     */
+    public String getContent() {
+        String result = this.contentString;
+        if (result == null) {
+            result = this.content.toString();
+            this.contentString = result;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Literal)) {
+            return false;
+        }
+        final Literal other = (Literal) obj;
+        return this.kind == other.kind && CharSequences.contentEquals(this.content, other.content);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        // The ordinal is used as the hash code of an enum is not stable.
+        return 31 * CharSequences.hashCode(this.content) + this.kind.ordinal();
+    }
 
     /**
      * {@inheritDoc}
@@ -42,6 +175,6 @@ public class Literal implements SyntaxTreeElement {
      */
     @Override
     public String toString() {
-        return this.content;
+        return this.getContent();
     }
 }
@@ -0,0 +1,269 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+
+/**
+ * Base class for the lexers that split Lisp code into its elements and feed
+ * them into a {@link TreeBuilder} (usually a {@link TokenTreeBuilder}). This contains the state that is kept
+ * between multiple blocks of code (escapes, comments and strings) and the
+ * handling of the structural characters, whereas the implementations take
+ * care of scanning a specific kind of input.
+ *
+ * <p>
+ * All implementations have to produce exactly the same token trees for the
+ * same code.
+ * </p>
+ *
+ * <p>
+ * By default, all top-level forms are added to the same token tree. If a
+ * {@link TopLevelFormListener} is set, every top-level form is passed to the
+ * listener as its own token tree as soon as it is complete and the builder is
+ * replaced by a new one, so the lexer does not keep any completed forms.
+ * </p>
+ *
+ */
+public abstract class AbstractTokenTreeLexer {
+    /**
+     * The builder the elements are added to.
+     *
+     */
+    protected TreeBuilder builder;
+    /**
+     * The listener that is notified about completed top-level forms or
+     * <code>null</code> if all forms should be added to the same token tree.
+     *
+     */
+    private final TopLevelFormListener formListener;
+
+    /**
+     * Whether the next character is escaped.
+     *
+     */
+    protected boolean escape;
+    /**
+     * Whether the lexer is currently inside of a comment.
+     *
+     */
+    protected boolean comment;
+    /**
+     * Whether the lexer is currently inside of a string.
+     *
+     */
+    protected boolean string;
+
+    /**
+     * Constructor of AbstractTokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     */
+    protected AbstractTokenTreeLexer(final TreeBuilder builder) {
+        this(builder, null);
+    }
+
+    /**
+     * Constructor of AbstractTokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     * @param formListener
+     *            The listener that is notified about completed top-level forms
+     *            or <code>null</code> if all forms should be added to the same
+     *            token tree.
+     * @throws IllegalArgumentException
+     *             If a listener is given, but the builder is not a
+     *             {@link TokenTreeBuilder}.
+     */
+    protected AbstractTokenTreeLexer(final TreeBuilder builder, final TopLevelFormListener formListener)
+            throws IllegalArgumentException {
+        if (formListener != null && !(builder instanceof TokenTreeBuilder)) {
+            throw new IllegalArgumentException("Top-level forms can only be passed to a listener when building token trees!");
+        }
+
+        this.builder = builder;
+        this.formListener = formListener;
+    }
+
+    /**
+     * Finishes the lexing and returns the built token tree. The tree is handed
+     * over by the builder without copying it, so this must only be called
+     * once.
+     *
+     * @return The built token tree. If a {@link TopLevelFormListener} is set,
+     *         this only contains an empty root container as all forms were
+     *         passed to the listener.
+     * @throws TokenTreeParsingException
+     *             If not all brackets are closed.
+     * @throws IllegalStateException
+     *             If the lexing was already finished or if the builder is not
+     *             a {@link TokenTreeBuilder}.
+     */
+    public TokenTree finish() throws TokenTreeParsingException, IllegalStateException {
+        this.finishInput();
+        if (!(this.builder instanceof TokenTreeBuilder)) {
+            throw new IllegalStateException("The lexer does not build a token tree!");
+        }
+
+        return ((TokenTreeBuilder) this.builder).buildTokenTree();
+    }
+
+    /**
+     * Finishes the lexing without building anything. This is used if the
+     * builder is not a {@link TokenTreeBuilder}; the result has to be taken
+     * from the builder afterwards.
+     *
+     * @throws TokenTreeParsingException
+     *             If not all brackets are closed.
+     */
+    public void finishInput() throws TokenTreeParsingException {
+        this.lexRemainingInput();
+        if (!this.builder.isFinished()) {
+            throw new TokenTreeParsingException("Not all brackets are closed!");
+        }
+    }
+
+    /**
+     * Lexes any input that is kept back by the implementation (e.g. an
+     * incomplete multi-byte sequence) as the end of the code. By default, this
+     * does nothing.
+     *
+     */
+    protected void lexRemainingInput() {
+        // Nothing to do.
+    }
+
+    /**
+     * Executes the given structural character class, that is a character
+     * outside of any string or comment that is not part of an element.
+     *
+     * @param characterClass
+     *            The class of the character. Must not be
+     *            {@link CharacterClasses#OTHER}.
+     */
+    protected final void execute(final byte characterClass) {
+        this.execute(characterClass, TreeBuilder.UNKNOWN_POSITION);
+    }
+
+    /**
+     * Executes the given structural character class, that is a character
+     * outside of any string or comment that is not part of an element, and
+     * passes the position of the character to the builder.
+     *
+     * @param characterClass
+     *            The class of the character. Must not be
+     *            {@link CharacterClasses#OTHER}.
+     * @param position
+     *            The position of the character in the code or
+     *            {@link TreeBuilder#UNKNOWN_POSITION}.
+     */
+    protected final void execute(final byte characterClass, final long position) {
+        this.flushElement();
+        if (characterClass == CharacterClasses.OPENING_BRACKET) {
+            this.builder.openContainer(position);
+        } else if (characterClass == CharacterClasses.CLOSING_BRACKET) {
+            final boolean open = !this.builder.isFinished();
+            this.builder.closeContainer(position == TreeBuilder.UNKNOWN_POSITION ? position : position + 1);
+            if (open && this.formListener != null && this.builder.isFinished()) {
+                this.completeForm();
+            }
+        }
+    }
+
+    /**
+     * Passes the completed top-level form to the {@link #formListener} and
+     * replaces the builder with a new one (using the same symbol table).
+     *
+     */
+    private void completeForm() {
+        final TokenTreeBuilder tokenTreeBuilder = (TokenTreeBuilder) this.builder;
+        final TokenTree form = tokenTreeBuilder.buildTokenTree();
+        this.builder = new TokenTreeBuilder(tokenTreeBuilder.getSymbolTable());
+        this.formListener.formCompleted(form);
+    }
+
+    /**
+     * Checks whether the lexer is in its initial state, i.e. all brackets are
+     * closed and there is no escape, comment, string or element in progress.
+     * Lexing the rest of the code with a new lexer then gives the same result
+     * as lexing it with this lexer.
+     *
+     * @return Whether the lexer is in its initial state.
+     */
+    final boolean isClean() {
+        return !this.escape && !this.comment && !this.string && this.builder.isFinished() && !this.hasPendingInput();
+    }
+
+    /**
+     * Checks whether there is an element or any other input in progress that
+     * was not added to the builder yet.
+     *
+     * @return Whether there is any pending input.
+     */
+    protected abstract boolean hasPendingInput();
+
+    /**
+     * Adds the current element (if any) to the builder and resets the element
+     * buffer.
+     *
+     * @throws IllegalStateException
+     *             If no container is open.
+     */
+    protected abstract void flushElement() throws IllegalStateException;
+
+    /**
+     * Adds the completed element to the builder together with its
+     * {@link LiteralKind kind}. The kind only depends on the content (the
+     * escape character of character literals is kept for that reason), so
+     * lexing some code and {@link TreeBuilder#addElement(CharSequence) adding}
+     * its elements by hand yields equal trees.
+     *
+     * @param content
+     *            The content of the element.
+     * @throws IllegalStateException
+     *             If no container is open.
+     */
+    protected final void addElement(final CharSequence content) throws IllegalStateException {
+        this.builder.addElement(content, LiteralKind.classify(content));
+    }
+
+    /**
+     * Adds the completed element to the builder together with its
+     * {@link LiteralKind kind} and its position in the code.
+     *
+     * @param content
+     *            The content of the element.
+     * @param start
+     *            The position of the first character of the element in the
+     *            code.
+     * @param end
+     *            The position after the last character of the element in the
+     *            code.
+     * @throws IllegalStateException
+     *             If no container is open.
+     * @see #addElement(CharSequence)
+     */
+    protected final void addElement(final CharSequence content, final long start, final long end) throws IllegalStateException {
+        this.builder.addElement(content, LiteralKind.classify(content), start, end);
+    }
+}
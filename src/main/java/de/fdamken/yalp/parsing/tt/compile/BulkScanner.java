@@ -0,0 +1,284 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Skips the bodies of comments and strings in bulk. Inside of a comment or a
+ * string, only a few characters change the state of the lexer, so the
+ * characters in between can be skipped (or appended to the string element)
+ * at once instead of passing each of them through the whole state machine.
+ *
+ * <p>
+ * The stop characters are:
+ * <ul>
+ * <li>In a comment: <code>\n</code>, <code>\r</code>, <code>\</code> and
+ * <code>"</code>.</li>
+ * <li>In a string: <code>\</code>, <code>"</code> and <code>;</code> (and
+ * <code>\n</code> and <code>\r</code> if the comment flag is set, too).</li>
+ * </ul>
+ * As all stop characters are ASCII characters, the bytes of UTF-8 encoded
+ * multi-byte sequences never match them.
+ * </p>
+ *
+ * <p>
+ * Both the byte and the character variant scan several code units at a time
+ * using SWAR (SIMD within a register) tricks: eight bytes or four characters
+ * are packed into one word and compared against all stop characters at once.
+ * </p>
+ *
+ */
+final class BulkScanner {
+    /**
+     * A word having every byte set to <code>0x01</code>.
+     *
+     */
+    private static final long ONES = 0x0101010101010101L;
+    /**
+     * A word having the highest bit of every byte set.
+     *
+     */
+    private static final long HIGHS = 0x8080808080808080L;
+
+    /**
+     * A word having every byte set to <code>\n</code>.
+     *
+     */
+    private static final long LINE_FEEDS = BulkScanner.ONES * '\n';
+    /**
+     * A word having every byte set to <code>\r</code>.
+     *
+     */
+    private static final long CARRIAGE_RETURNS = BulkScanner.ONES * '\r';
+    /**
+     * A word having every byte set to <code>\</code>.
+     *
+     */
+    private static final long BACKSLASHES = BulkScanner.ONES * '\\';
+    /**
+     * A word having every byte set to <code>"</code>.
+     *
+     */
+    private static final long QUOTES = BulkScanner.ONES * '"';
+    /**
+     * A word having every byte set to <code>;</code>.
+     *
+     */
+    private static final long SEMICOLONS = BulkScanner.ONES * ';';
+
+    /**
+     * A word having every character set to <code>0x0001</code>.
+     *
+     */
+    private static final long CHAR_ONES = 0x0001000100010001L;
+    /**
+     * A word having the highest bit of every character set.
+     *
+     */
+    private static final long CHAR_HIGHS = 0x8000800080008000L;
+    /**
+     * The number of characters packed into one word.
+     *
+     */
+    private static final int CHARS_PER_WORD = Long.BYTES / Character.BYTES;
+
+    /**
+     * A word having every character set to <code>\n</code>.
+     *
+     */
+    private static final long CHAR_LINE_FEEDS = BulkScanner.CHAR_ONES * '\n';
+    /**
+     * A word having every character set to <code>\r</code>.
+     *
+     */
+    private static final long CHAR_CARRIAGE_RETURNS = BulkScanner.CHAR_ONES * '\r';
+    /**
+     * A word having every character set to <code>\</code>.
+     *
+     */
+    private static final long CHAR_BACKSLASHES = BulkScanner.CHAR_ONES * '\\';
+    /**
+     * A word having every character set to <code>"</code>.
+     *
+     */
+    private static final long CHAR_QUOTES = BulkScanner.CHAR_ONES * '"';
+    /**
+     * A word having every character set to <code>;</code>.
+     *
+     */
+    private static final long CHAR_SEMICOLONS = BulkScanner.CHAR_ONES * ';';
+
+    /**
+     * Constructor of BulkScanner.
+     *
+     */
+    private BulkScanner() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Finds the next stop character in the given range of characters. The
+     * characters are scanned four at a time using SWAR (SIMD within a
+     * register) tricks.
+     *
+     * @param buffer
+     *            The buffer containing the characters.
+     * @param start
+     *            The index to start searching at.
+     * @param end
+     *            The index after the last character to search.
+     * @param string
+     *            Whether the lexer is inside of a string.
+     * @param comment
+     *            Whether the comment flag of the lexer is set.
+     * @return The index of the next stop character or <code>end</code> if
+     *         there is none.
+     */
+    static int findStop(final char[] buffer, final int start, final int end, final boolean string, final boolean comment) {
+        final boolean newlines = !string || comment;
+        int i = start;
+        while (i + BulkScanner.CHARS_PER_WORD <= end) {
+            final long word = buffer[i] | (long) buffer[i + 1] << 16 | (long) buffer[i + 2] << 32 | (long) buffer[i + 3] << 48;
+            long matches = BulkScanner.zeroChars(word ^ BulkScanner.CHAR_BACKSLASHES)
+                    | BulkScanner.zeroChars(word ^ BulkScanner.CHAR_QUOTES);
+            if (string) {
+                matches |= BulkScanner.zeroChars(word ^ BulkScanner.CHAR_SEMICOLONS);
+            }
+            if (newlines) {
+                matches |= BulkScanner.zeroChars(word ^ BulkScanner.CHAR_LINE_FEEDS)
+                        | BulkScanner.zeroChars(word ^ BulkScanner.CHAR_CARRIAGE_RETURNS);
+            }
+            if (matches != 0) {
+                break;
+            }
+            i += BulkScanner.CHARS_PER_WORD;
+        }
+        while (i < end) {
+            final char c = buffer[i];
+            // All stop characters are less than or equal to the backslash,
+            // which excludes all lower case letters at once.
+            if (c <= '\\' && BulkScanner.isStop(c, string, newlines)) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Finds the next stop byte in the given range of UTF-8 encoded bytes. The
+     * bytes are scanned eight at a time using SWAR (SIMD within a register)
+     * tricks.
+     *
+     * @param buffer
+     *            The buffer containing the bytes.
+     * @param start
+     *            The index to start searching at.
+     * @param end
+     *            The index after the last byte to search.
+     * @param string
+     *            Whether the lexer is inside of a string.
+     * @param comment
+     *            Whether the comment flag of the lexer is set.
+     * @return The index of the next stop byte or <code>end</code> if there is
+     *         none.
+     */
+    static int findStop(final ByteBuffer buffer, final int start, final int end, final boolean string, final boolean comment) {
+        final boolean newlines = !string || comment;
+        int i = start;
+        while (i + Long.BYTES <= end) {
+            // The byte order does not matter as the matching bytes are
+            // located by the byte-wise loop below.
+            final long word = buffer.getLong(i);
+            long matches = BulkScanner.zeroBytes(word ^ BulkScanner.BACKSLASHES) | BulkScanner.zeroBytes(word ^ BulkScanner.QUOTES);
+            if (string) {
+                matches |= BulkScanner.zeroBytes(word ^ BulkScanner.SEMICOLONS);
+            }
+            if (newlines) {
+                matches |= BulkScanner.zeroBytes(word ^ BulkScanner.LINE_FEEDS)
+                        | BulkScanner.zeroBytes(word ^ BulkScanner.CARRIAGE_RETURNS);
+            }
+            if (matches != 0) {
+                break;
+            }
+            i += Long.BYTES;
+        }
+        while (i < end && !BulkScanner.isStop(buffer.get(i), string, newlines)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks whether the given character is a stop character.
+     *
+     * @param c
+     *            The character to check.
+     * @param string
+     *            Whether the lexer is inside of a string.
+     * @param newlines
+     *            Whether line breaks are stop characters.
+     * @return Whether the character is a stop character.
+     */
+    private static boolean isStop(final int c, final boolean string, final boolean newlines) {
+        switch (c) {
+            case '\\':
+            case '"':
+                return true;
+            case ';':
+                return string;
+            case '\n':
+            case '\r':
+                return newlines;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Computes a word that has the highest bit of a byte set if the
+     * corresponding byte of the given word is zero. Bytes above (in terms of
+     * significance) a zero byte may be reported falsely, but there is no
+     * false report if the word does not contain a zero byte at all.
+     *
+     * @param word
+     *            The word to check.
+     * @return The word containing the zero bytes.
+     */
+    private static long zeroBytes(final long word) {
+        return word - BulkScanner.ONES & ~word & BulkScanner.HIGHS;
+    }
+
+    /**
+     * Computes a word that has the highest bit of a character set if the
+     * corresponding character of the given word is zero. Like
+     * {@link #zeroBytes(long)}, characters above a zero character may be
+     * reported falsely, but there is no false report if the word does not
+     * contain a zero character at all.
+     *
+     * @param word
+     *            The word to check.
+     * @return The word containing the zero characters.
+     */
+    private static long zeroChars(final long word) {
+        return word - BulkScanner.CHAR_ONES & ~word & BulkScanner.CHAR_HIGHS;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+/**
+ * Contains the character classes the lexer distinguishes and a precomputed
+ * lookup table for classifying ASCII characters without any branching.
+ *
+ */
+final class CharacterClasses {
+    /**
+     * A character that has no special meaning and is part of an element.
+     *
+     */
+    static final byte OTHER = 0;
+    /**
+     * A whitespace character that is not a line break.
+     *
+     */
+    static final byte WHITESPACE = 1;
+    /**
+     * A line break (<code>\n</code> or <code>\r</code>), which is also a
+     * whitespace character but additionally ends a comment.
+     *
+     */
+    static final byte NEWLINE = 2;
+    /**
+     * An opening bracket (<code>(</code>, <code>[</code> or <code>{</code>).
+     *
+     */
+    static final byte OPENING_BRACKET = 3;
+    /**
+     * A closing bracket (<code>)</code>, <code>]</code> or <code>}</code>).
+     *
+     */
+    static final byte CLOSING_BRACKET = 4;
+    /**
+     * The start of a comment (<code>;</code>).
+     *
+     */
+    static final byte COMMENT = 5;
+    /**
+     * The escape character (<code>\</code>).
+     *
+     */
+    static final byte ESCAPE = 6;
+    /**
+     * The string delimiter (<code>"</code>).
+     *
+     */
+    static final byte QUOTE = 7;
+
+    /**
+     * The number of characters that are classified using the {@link #TABLE}.
+     *
+     */
+    static final int TABLE_SIZE = 128;
+
+    /**
+     * The character classes of all ASCII characters, indexed by the character.
+     *
+     */
+    private static final byte[] TABLE = new byte[CharacterClasses.TABLE_SIZE];
+
+    static {
+        for (char c = 0; c < CharacterClasses.TABLE_SIZE; c++) {
+            final byte characterClass;
+            if (c == '\n' || c == '\r') {
+                characterClass = CharacterClasses.NEWLINE;
+            } else if (Character.isWhitespace(c)) {
+                characterClass = CharacterClasses.WHITESPACE;
+            } else if (c == '(' || c == '[' || c == '{') {
+                characterClass = CharacterClasses.OPENING_BRACKET;
+            } else if (c == ')' || c == ']' || c == '}') {
+                characterClass = CharacterClasses.CLOSING_BRACKET;
+            } else if (c == ';') {
+                characterClass = CharacterClasses.COMMENT;
+            } else if (c == '\\') {
+                characterClass = CharacterClasses.ESCAPE;
+            } else if (c == '"') {
+                characterClass = CharacterClasses.QUOTE;
+            } else {
+                characterClass = CharacterClasses.OTHER;
+            }
+            CharacterClasses.TABLE[c] = characterClass;
+        }
+    }
+
+    /**
+     * Constructor of CharacterClasses.
+     *
+     */
+    private CharacterClasses() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Classifies the given character. ASCII characters are looked up in the
+     * {@link #TABLE}, all other characters take the slow path which can only
+     * yield {@link #WHITESPACE} or {@link #OTHER}.
+     *
+     * @param c
+     *            The character (or code point) to classify.
+     * @return The character class of the given character.
+     */
+    static byte classify(final int c) {
+        if (c < CharacterClasses.TABLE_SIZE) {
+            return CharacterClasses.TABLE[c];
+        }
+        return Character.isWhitespace(c) ? CharacterClasses.WHITESPACE : CharacterClasses.OTHER;
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+
+/**
+ * A push-based lexer for code that arrives in chunks, e.g. from a
+ * non-blocking NIO channel. The chunks are passed using
+ * {@link #feed(ByteBuffer)} (UTF-8 encoded bytes) or {@link #feed(CharBuffer)}
+ * as soon as they are available; all state (escapes, comments, strings,
+ * incomplete multi-byte sequences and the nesting of the brackets) is kept
+ * between the calls, so the chunks can be split anywhere. Every top-level form
+ * is passed to the {@link TopLevelFormListener} as soon as its closing bracket
+ * was lexed.
+ *
+ * <p>
+ * A single lexer can only be fed with either bytes or characters. It is not
+ * thread-safe, but the calls may be made by different threads as long as they
+ * are properly synchronized.
+ * </p>
+ *
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+ * IncrementalTokenTreeLexer lexer = new IncrementalTokenTreeLexer(form -&gt; ...);
+ * // Whenever the channel is readable:
+ * if (channel.read(buffer) &lt; 0) {
+ *     lexer.finish();
+ * } else {
+ *     buffer.flip();
+ *     lexer.feed(buffer);
+ *     buffer.clear();
+ * }
+ * </code>
+ * </pre>
+ * </p>
+ *
+ */
+public class IncrementalTokenTreeLexer {
+    /**
+     * The builder that is used by the lexer created on the first chunk.
+     *
+     */
+    private final TokenTreeBuilder builder;
+    /**
+     * The listener that is notified about completed top-level forms.
+     *
+     */
+    private final TopLevelFormListener formListener;
+
+    /**
+     * The lexer for characters or <code>null</code> if the lexer is not fed
+     * with characters (yet).
+     *
+     */
+    private TokenTreeLexer charLexer;
+    /**
+     * The lexer for bytes or <code>null</code> if the lexer is not fed with
+     * bytes (yet).
+     *
+     */
+    private Utf8TokenTreeLexer byteLexer;
+    /**
+     * Whether the lexing was {@link #finish() finished}.
+     *
+     */
+    private boolean finished;
+
+    /**
+     * Constructor of IncrementalTokenTreeLexer. All forms share a new symbol
+     * table.
+     *
+     * @param formListener
+     *            The listener that is notified about completed top-level
+     *            forms.
+     */
+    public IncrementalTokenTreeLexer(final TopLevelFormListener formListener) {
+        this(new SymbolTable(), formListener);
+    }
+
+    /**
+     * Constructor of IncrementalTokenTreeLexer.
+     *
+     * @param symbolTable
+     *            The symbol table that is shared by all forms.
+     * @param formListener
+     *            The listener that is notified about completed top-level
+     *            forms.
+     */
+    public IncrementalTokenTreeLexer(final SymbolTable symbolTable, final TopLevelFormListener formListener) {
+        this.builder = new TokenTreeBuilder(symbolTable);
+        this.formListener = formListener;
+    }
+
+    /**
+     * Lexes the remaining UTF-8 encoded bytes of the given buffer. The buffer
+     * is not referenced after this method returns, so it may be reused by the
+     * caller. After this method returns, the position of the buffer is equal
+     * to its limit.
+     *
+     * @param buffer
+     *            The buffer containing the next chunk.
+     * @throws IllegalStateException
+     *             If the lexer was already fed with characters, if the lexing
+     *             was already finished or if an element is found outside of
+     *             any container.
+     */
+    public void feed(final ByteBuffer buffer) throws IllegalStateException {
+        this.checkNotFinished();
+        if (this.byteLexer == null) {
+            if (this.charLexer != null) {
+                throw new IllegalStateException("The lexer was already fed with characters!");
+            }
+            this.byteLexer = new Utf8TokenTreeLexer(this.builder, this.formListener);
+        }
+        this.byteLexer.feed(buffer);
+    }
+
+    /**
+     * Lexes the remaining characters of the given buffer. The buffer is not
+     * referenced after this method returns, so it may be reused by the caller.
+     * After this method returns, the position of the buffer is equal to its
+     * limit.
+     *
+     * @param buffer
+     *            The buffer containing the next chunk.
+     * @throws IllegalStateException
+     *             If the lexer was already fed with bytes, if the lexing was
+     *             already finished or if an element is found outside of any
+     *             container.
+     */
+    public void feed(final CharBuffer buffer) throws IllegalStateException {
+        this.checkNotFinished();
+        if (this.charLexer == null) {
+            if (this.byteLexer != null) {
+                throw new IllegalStateException("The lexer was already fed with bytes!");
+            }
+            this.charLexer = new TokenTreeLexer(this.builder, this.formListener);
+        }
+        this.charLexer.feed(buffer);
+    }
+
+    /**
+     * Signals the end of the code. Afterwards, the lexer cannot be fed
+     * anymore.
+     *
+     * @throws TokenTreeParsingException
+     *             If not all brackets are closed.
+     * @throws IllegalStateException
+     *             If the lexing was already finished.
+     */
+    public void finish() throws TokenTreeParsingException, IllegalStateException {
+        this.checkNotFinished();
+        this.finished = true;
+        if (this.byteLexer != null) {
+            this.byteLexer.finish();
+        } else if (this.charLexer != null) {
+            this.charLexer.finish();
+        }
+    }
+
+    /**
+     *
+     * @return Whether the lexing was {@link #finish() finished}.
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * Checks that the lexing was not finished yet.
+     *
+     * @throws IllegalStateException
+     *             If the lexing was already finished.
+     */
+    private void checkNotFinished() throws IllegalStateException {
+        if (this.finished) {
+            throw new IllegalStateException("The lexing was already finished!");
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.MappedFileInput;
+import de.fdamken.yalp.parsing.tt.representation.TokenSlice;
+
+/**
+ * Reads an {@link Input} block by block and feeds the blocks into the lexer
+ * that fits the input best:
+ *
+ * <ul>
+ * <li>UTF-8 encoded {@link MappedFileInput mapped inputs} are lexed on byte
+ * level directly from the mapped buffer.</li>
+ * <li>UTF-8 encoded {@link Input#getInputStream() input streams} are lexed on
+ * byte level without decoding them first.</li>
+ * <li>All other inputs are read from their {@link Input#getReader() reader}
+ * and lexed by a {@link TokenTreeLexer} that owns the blocks, so the elements
+ * are {@link TokenSlice slices} of the blocks.</li>
+ * </ul>
+ *
+ */
+abstract class LexerFeeder {
+    /**
+     * The number of characters (or bytes) that are read from the input at
+     * once.
+     *
+     */
+    static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Creates the feeder for the given input.
+     *
+     * @param input
+     *            The input to read.
+     * @param builder
+     *            The builder the lexer adds the elements to.
+     * @param formListener
+     *            The listener that is notified about completed top-level forms
+     *            or <code>null</code> if all forms should be added to the same
+     *            token tree.
+     * @return The created feeder.
+     */
+    static LexerFeeder create(final Input input, final TreeBuilder builder, final TopLevelFormListener formListener) {
+        if (input instanceof MappedFileInput && input.isUtf8()) {
+            return new MappedFeeder((MappedFileInput) input, new Utf8TokenTreeLexer(builder, formListener));
+        }
+        if (input.isUtf8()) {
+            return new StreamFeeder(input.getInputStream(), new Utf8TokenTreeLexer(builder, formListener));
+        }
+        return new ReaderFeeder(input.getReader(), new TokenTreeLexer(builder, formListener));
+    }
+
+    /**
+     *
+     * @return The lexer the blocks are fed into.
+     */
+    abstract AbstractTokenTreeLexer getLexer();
+
+    /**
+     * Reads the next block from the input and feeds it into the lexer.
+     *
+     * @return Whether a block was read. If this is <code>false</code>, the end
+     *         of the input is reached.
+     * @throws IOException
+     *             If an I/O error occurs.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    abstract boolean feedNextBlock() throws IOException, IllegalStateException;
+
+    /**
+     * Feeds the characters of a reader into a {@link TokenTreeLexer}. Every
+     * block is a new array as the lexer takes the ownership of the blocks.
+     *
+     */
+    private static class ReaderFeeder extends LexerFeeder {
+        /**
+         * The reader to read from.
+         *
+         */
+        private final Reader reader;
+        /**
+         * The lexer to feed.
+         *
+         */
+        private final TokenTreeLexer lexer;
+
+        /**
+         * Constructor of ReaderFeeder.
+         *
+         * @param reader
+         *            The reader to read from.
+         * @param lexer
+         *            The lexer to feed.
+         */
+        ReaderFeeder(final Reader reader, final TokenTreeLexer lexer) {
+            this.reader = reader;
+            this.lexer = lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#getLexer()
+         */
+        @Override
+        AbstractTokenTreeLexer getLexer() {
+            return this.lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#feedNextBlock()
+         */
+        @Override
+        boolean feedNextBlock() throws IOException {
+            final char[] buffer = new char[LexerFeeder.BUFFER_SIZE];
+            final int read = this.reader.read(buffer);
+            if (read < 0) {
+                return false;
+            }
+            this.lexer.feedBlock(buffer, 0, read);
+            return true;
+        }
+    }
+
+    /**
+     * Feeds the bytes of an UTF-8 encoded input stream into an
+     * {@link Utf8TokenTreeLexer}.
+     *
+     */
+    private static class StreamFeeder extends LexerFeeder {
+        /**
+         * The input stream to read from.
+         *
+         */
+        private final InputStream in;
+        /**
+         * The lexer to feed.
+         *
+         */
+        private final Utf8TokenTreeLexer lexer;
+        /**
+         * The reused buffer the bytes are read into.
+         *
+         */
+        private final byte[] buffer = new byte[LexerFeeder.BUFFER_SIZE];
+        /**
+         * Wraps the {@link #buffer}.
+         *
+         */
+        private final ByteBuffer wrapper = ByteBuffer.wrap(this.buffer);
+
+        /**
+         * Constructor of StreamFeeder.
+         *
+         * @param in
+         *            The input stream to read from.
+         * @param lexer
+         *            The lexer to feed.
+         */
+        StreamFeeder(final InputStream in, final Utf8TokenTreeLexer lexer) {
+            this.in = in;
+            this.lexer = lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#getLexer()
+         */
+        @Override
+        AbstractTokenTreeLexer getLexer() {
+            return this.lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#feedNextBlock()
+         */
+        @Override
+        boolean feedNextBlock() throws IOException {
+            final int read = this.in.read(this.buffer);
+            if (read < 0) {
+                return false;
+            }
+            this.wrapper.limit(read).position(0);
+            this.lexer.feed(this.wrapper);
+            return true;
+        }
+    }
+
+    /**
+     * Feeds the UTF-8 encoded bytes of a mapped buffer window by window into
+     * an {@link Utf8TokenTreeLexer} without copying them.
+     *
+     */
+    private static class MappedFeeder extends LexerFeeder {
+        /**
+         * The window of the mapped buffer that is fed next.
+         *
+         */
+        private final ByteBuffer window;
+        /**
+         * The index after the last byte of the mapped code.
+         *
+         */
+        private final int end;
+        /**
+         * The lexer to feed.
+         *
+         */
+        private final Utf8TokenTreeLexer lexer;
+
+        /**
+         * Constructor of MappedFeeder.
+         *
+         * @param input
+         *            The input to read from.
+         * @param lexer
+         *            The lexer to feed.
+         */
+        MappedFeeder(final MappedFileInput input, final Utf8TokenTreeLexer lexer) {
+            this.window = input.getBuffer().duplicate();
+            this.end = this.window.limit();
+            this.lexer = lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#getLexer()
+         */
+        @Override
+        AbstractTokenTreeLexer getLexer() {
+            return this.lexer;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.LexerFeeder#feedNextBlock()
+         */
+        @Override
+        boolean feedNextBlock() {
+            final int position = this.window.position();
+            if (position == this.end) {
+                return false;
+            }
+            this.window.limit(Math.min(this.end, position + LexerFeeder.BUFFER_SIZE));
+            this.lexer.feed(this.window);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,685 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.MappedFileInput;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
+
+/**
+ * Lexes a whole {@link Input} in parallel by splitting it into chunks that
+ * are lexed speculatively on a {@link ForkJoinPool}.
+ *
+ * <p>
+ * A fast pre-scan runs through the code tracking the escape, comment and
+ * string state and the bracket depth exactly like the lexers do, but without
+ * building any elements. It splits the code at opening brackets of top-level
+ * forms. Every chunk is then lexed by its own lexer, starting in the initial
+ * state at the beginning of the chunk. The chunks are stitched together in
+ * the original order: If the lexer of the preceding code is
+ * {@link AbstractTokenTreeLexer#isClean() clean} at the end of the preceding
+ * chunk, the speculative result is used. Otherwise (e.g. if an element is
+ * directly followed by a bracket on the top level), the speculative result
+ * is discarded and the chunk is fed into the lexer of the preceding code
+ * instead. Therefore, the result (including the errors) is always the same as
+ * when lexing the code sequentially.
+ * </p>
+ *
+ * <p>
+ * The first chunk is lexed into the shared symbol table directly. All other
+ * chunks are lexed into symbol tables of their own, whose symbols are
+ * interned into the shared table while stitching, in the order of the code.
+ * Hence, the symbol IDs are the same as when lexing sequentially, no matter
+ * in which order the chunks are finished.
+ * </p>
+ *
+ * <p>
+ * Inputs smaller than {@link #MIN_PARALLEL_SIZE} are lexed sequentially.
+ * </p>
+ *
+ */
+abstract class ParallelLexer {
+    /**
+     * The minimal number of characters (or bytes) of a chunk. Smaller chunks
+     * are not worth the overhead of a task.
+     *
+     */
+    static final int MIN_CHUNK_SIZE = 1 << 20;
+    /**
+     * The minimal number of characters (or bytes) of an input to be lexed in
+     * parallel, which is the size of two chunks.
+     *
+     */
+    static final int MIN_PARALLEL_SIZE = 2 * ParallelLexer.MIN_CHUNK_SIZE;
+    /**
+     * The number of chunks per thread of the pool. More chunks balance the
+     * load better if the forms differ in their complexity.
+     *
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+    /**
+     * The maximal size of an array.
+     *
+     */
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * The pool the chunks are lexed on.
+     *
+     */
+    private final ForkJoinPool pool;
+    /**
+     * The symbol table of the resulting token tree.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor of ParallelLexer.
+     *
+     * @param pool
+     *            The pool the chunks are lexed on.
+     * @param symbolTable
+     *            The symbol table of the resulting token tree.
+     */
+    ParallelLexer(final ForkJoinPool pool, final SymbolTable symbolTable) {
+        this.pool = pool;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Checks whether the given input may be large enough to be lexed in
+     * parallel. Inputs of an unknown size have to be read completely to find
+     * out.
+     *
+     * @param input
+     *            The input to check.
+     * @return Whether the input may be lexed in parallel.
+     */
+    static boolean isCandidate(final Input input) {
+        final long size = input.getSize();
+        return size == IntermediateRepresentation.UNKNOWN_SIZE || size >= ParallelLexer.MIN_PARALLEL_SIZE;
+    }
+
+    /**
+     * Reads the whole given input and creates the parallel lexer that fits the
+     * input best (see {@link LexerFeeder}). The code is read into a single
+     * buffer that is shared by all chunks; the buffer of a mapped file is
+     * used directly.
+     *
+     * @param input
+     *            The input to lex.
+     * @param pool
+     *            The pool the chunks are lexed on.
+     * @param symbolTable
+     *            The symbol table of the resulting token tree.
+     * @return The created lexer.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    static ParallelLexer create(final Input input, final ForkJoinPool pool, final SymbolTable symbolTable)
+            throws IOException {
+        if (input instanceof MappedFileInput && input.isUtf8()) {
+            return new ByteParallelLexer(((MappedFileInput) input).getBuffer().duplicate(), pool, symbolTable);
+        }
+
+        int capacity = ParallelLexer.initialCapacity(input);
+        if (input.isUtf8()) {
+            final InputStream in = input.getInputStream();
+            byte[] code = new byte[capacity];
+            int length = 0;
+            int read;
+            while ((read = in.read(code, length, code.length - length)) >= 0) {
+                length += read;
+                if (length == code.length) {
+                    capacity = ParallelLexer.grow(capacity);
+                    code = Arrays.copyOf(code, capacity);
+                }
+            }
+            return new ByteParallelLexer(ByteBuffer.wrap(code, 0, length), pool, symbolTable);
+        }
+
+        final Reader reader = input.getReader();
+        char[] code = new char[capacity];
+        int length = 0;
+        int read;
+        while ((read = reader.read(code, length, code.length - length)) >= 0) {
+            length += read;
+            if (length == code.length) {
+                capacity = ParallelLexer.grow(capacity);
+                code = Arrays.copyOf(code, capacity);
+            }
+        }
+        return new CharParallelLexer(code, length, pool, symbolTable);
+    }
+
+    /**
+     * Lexes the code.
+     *
+     * @return The token tree.
+     * @throws TokenTreeParsingException
+     *             If not all brackets are closed.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    TokenTree lex() throws TokenTreeParsingException, IllegalStateException {
+        if (this.length() < ParallelLexer.MIN_PARALLEL_SIZE) {
+            return this.lexChunk(this.createLexer(this.symbolTable), 0, this.length()).finish();
+        }
+
+        final int[] bounds = this.split();
+        final int chunks = bounds.length - 1;
+
+        final List<ForkJoinTask<AbstractTokenTreeLexer>> tasks = new ArrayList<>(chunks);
+        tasks.add(null);
+        for (int i = 1; i < chunks; i++) {
+            final int start = bounds[i];
+            final int end = bounds[i + 1];
+            tasks.add(this.pool.submit(() -> this.lexChunk(this.createLexer(new SymbolTable()), start, end)));
+        }
+
+        final List<ForkJoinTask<TokenTreeContainer>> parts = new ArrayList<>(chunks);
+        final TokenTreeContainer root = new TokenTreeContainer();
+        try {
+            // The first chunk always starts in the initial state.
+            AbstractTokenTreeLexer lexer = this.lexChunk(this.createLexer(this.symbolTable), bounds[0], bounds[1]);
+            for (int i = 1; i < chunks; i++) {
+                if (lexer.isClean()) {
+                    parts.add(this.stitch(lexer.finish()));
+                    lexer = tasks.get(i).join();
+                } else {
+                    tasks.get(i).cancel(false);
+                    lexer = this.lexChunk(lexer, bounds[i], bounds[i + 1]);
+                }
+                tasks.set(i, null);
+            }
+            parts.add(this.stitch(lexer.finish()));
+
+            for (final ForkJoinTask<TokenTreeContainer> part : parts) {
+                ParallelLexer.addChildren(root, part.join());
+            }
+        } finally {
+            for (final ForkJoinTask<AbstractTokenTreeLexer> task : tasks) {
+                if (task != null) {
+                    task.cancel(false);
+                }
+            }
+        }
+        root.freeze();
+        return new TokenTree(root, this.symbolTable);
+    }
+
+    /**
+     * Splits the code into chunks at the opening brackets of top-level forms.
+     * The state of the lexers is tracked exactly, so brackets inside of
+     * strings, comments and forms are never used.
+     *
+     * @return The bounds of the chunks: The chunk <code>i</code> starts at
+     *         <code>bounds[i]</code> and ends before
+     *         <code>bounds[i + 1]</code>.
+     */
+    private int[] split() {
+        final int length = this.length();
+        final int chunkSize = Math.max(ParallelLexer.MIN_CHUNK_SIZE,
+                length / (this.pool.getParallelism() * ParallelLexer.CHUNKS_PER_THREAD));
+
+        final List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        int next = chunkSize;
+        boolean escape = false;
+        boolean comment = false;
+        boolean string = false;
+        int depth = 0;
+        for (int i = 0; i < length; i++) {
+            if (escape) {
+                escape = false;
+                continue;
+            }
+            if (comment || string) {
+                i = this.findStop(i, length, string, comment);
+                if (i == length) {
+                    break;
+                }
+            }
+
+            switch (this.classify(i)) {
+                case CharacterClasses.COMMENT:
+                    comment = true;
+                    break;
+                case CharacterClasses.ESCAPE:
+                    escape = true;
+                    break;
+                case CharacterClasses.QUOTE:
+                    string = !string;
+                    break;
+                case CharacterClasses.NEWLINE:
+                    comment = false;
+                    break;
+                case CharacterClasses.OPENING_BRACKET:
+                    if (!comment && !string) {
+                        if (depth == 0 && i >= next) {
+                            bounds.add(i);
+                            next = i + chunkSize;
+                        }
+                        depth++;
+                    }
+                    break;
+                case CharacterClasses.CLOSING_BRACKET:
+                    if (!comment && !string && depth > 0) {
+                        depth--;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        bounds.add(length);
+
+        return bounds.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Prepares the given token tree of one or more chunks for being added to
+     * the result. If the tree uses a symbol table of its own, its symbols are
+     * interned into the {@link #symbolTable shared symbol table} right away,
+     * so the IDs are assigned in the order of the code; the elements are
+     * rebuilt with the new IDs on the pool.
+     *
+     * @param tokenTree
+     *            The token tree.
+     * @return The task yielding the root container to add the elements of.
+     */
+    private ForkJoinTask<TokenTreeContainer> stitch(final TokenTree tokenTree) {
+        final TokenTreeContainer container = tokenTree.getRootContainer();
+        final SymbolTable ownSymbolTable = tokenTree.getSymbolTable();
+        if (ownSymbolTable == this.symbolTable) {
+            // Completes the task right away without involving any pool.
+            final ForkJoinTask<TokenTreeContainer> task = ForkJoinTask.adapt(() -> container);
+            task.invoke();
+            return task;
+        }
+
+        final int[] ids = new int[ownSymbolTable.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = this.symbolTable.intern(ownSymbolTable.getSymbol(id));
+        }
+        return this.pool.submit(() -> ParallelLexer.remap(container, ids, this.symbolTable));
+    }
+
+    /**
+     * Creates a new lexer for a chunk.
+     *
+     * @param symbolTable
+     *            The symbol table to intern the symbols into.
+     * @return The created lexer.
+     */
+    abstract AbstractTokenTreeLexer createLexer(SymbolTable symbolTable);
+
+    /**
+     *
+     * @return The number of characters (or bytes) of the code.
+     */
+    abstract int length();
+
+    /**
+     * Classifies the character (or byte) at the given index. The bytes of
+     * multi-byte sequences are never special characters.
+     *
+     * @param index
+     *            The index of the character (or byte).
+     * @return The {@link CharacterClasses character class}.
+     */
+    abstract byte classify(int index);
+
+    /**
+     * Finds the next character (or byte) that changes the state inside of a
+     * comment or a string (see {@link BulkScanner}).
+     *
+     * @param start
+     *            The index to start searching at.
+     * @param end
+     *            The index after the last character (or byte) to search.
+     * @param string
+     *            Whether the scan is inside of a string.
+     * @param comment
+     *            Whether the comment flag is set.
+     * @return The index of the next stop character or <code>end</code> if
+     *         there is none.
+     */
+    abstract int findStop(int start, int end, boolean string, boolean comment);
+
+    /**
+     * Feeds the given chunk into the given lexer.
+     *
+     * @param lexer
+     *            The lexer to feed. Must be a lexer created by
+     *            {@link #createLexer(SymbolTable)}.
+     * @param start
+     *            The index of the first character (or byte) of the chunk.
+     * @param end
+     *            The index after the last character (or byte) of the chunk.
+     * @return The given lexer.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    abstract AbstractTokenTreeLexer lexChunk(AbstractTokenTreeLexer lexer, int start, int end) throws IllegalStateException;
+
+    /**
+     * Rebuilds the given container replacing the symbol IDs of all elements.
+     * The tree is walked iteratively, so deeply nested code does not overflow
+     * the stack.
+     *
+     * @param container
+     *            The container to rebuild.
+     * @param ids
+     *            The new IDs, indexed by the old IDs.
+     * @param symbolTable
+     *            The symbol table the new IDs belong to.
+     * @return The rebuilt container.
+     */
+    private static TokenTreeContainer remap(final TokenTreeContainer container, final int[] ids,
+            final SymbolTable symbolTable) {
+        TokenTreeContainer[] sources = new TokenTreeContainer[16];
+        TokenTreeContainer[] targets = new TokenTreeContainer[16];
+        int[] indices = new int[16];
+        int depth = 0;
+        sources[0] = container;
+        targets[0] = new TokenTreeContainer();
+        while (depth >= 0) {
+            final TokenTreeContainer source = sources[depth];
+            final TokenTreeContainer target = targets[depth];
+            final int index = indices[depth];
+            if (index == source.size()) {
+                target.freeze();
+                depth--;
+                continue;
+            }
+            indices[depth] = index + 1;
+
+            final TokenTreeElement element = source.get(index);
+            if (element instanceof TokenTreeContainer) {
+                final TokenTreeContainer child = new TokenTreeContainer();
+                target.addElement(child);
+                depth++;
+                if (depth == sources.length) {
+                    sources = Arrays.copyOf(sources, 2 * depth);
+                    targets = Arrays.copyOf(targets, 2 * depth);
+                    indices = Arrays.copyOf(indices, 2 * depth);
+                }
+                sources[depth] = (TokenTreeContainer) element;
+                targets[depth] = child;
+                indices[depth] = 0;
+            } else {
+                final SimpleTokenTreeElement simple = (SimpleTokenTreeElement) element;
+                final int id = simple.getSymbolId();
+                if (id == SymbolTable.NO_SYMBOL) {
+                    target.addElement(simple);
+                } else {
+                    final int newId = ids[id];
+                    target.addElement(new SimpleTokenTreeElement(symbolTable.getSymbol(newId), newId, simple.getKind()));
+                }
+            }
+        }
+        return targets[0];
+    }
+
+    /**
+     * Adds the elements of the given container to the given root container.
+     *
+     * @param root
+     *            The root container to add the elements to.
+     * @param container
+     *            The root container of a chunk.
+     */
+    private static void addChildren(final TokenTreeContainer root, final TokenTreeContainer container) {
+        for (int i = 0; i < container.size(); i++) {
+            root.addElement(container.get(i));
+        }
+    }
+
+    /**
+     * Determines the initial capacity of the buffer the given input is read
+     * into. If the size of the input is known, the buffer is large enough to
+     * read the whole input (and to detect its end) without growing.
+     *
+     * @param input
+     *            The input.
+     * @return The initial capacity.
+     */
+    private static int initialCapacity(final Input input) {
+        final long size = input.getSize();
+        if (size == IntermediateRepresentation.UNKNOWN_SIZE) {
+            return LexerFeeder.BUFFER_SIZE;
+        }
+        return (int) Math.min(size + 1, ParallelLexer.MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Computes the grown capacity of a full buffer.
+     *
+     * @param capacity
+     *            The current capacity.
+     * @return The new capacity.
+     * @throws OutOfMemoryError
+     *             If the buffer cannot grow anymore.
+     */
+    private static int grow(final int capacity) throws OutOfMemoryError {
+        if (capacity == ParallelLexer.MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("The input is too large to be lexed in parallel!");
+        }
+        return (int) Math.min(2L * capacity, ParallelLexer.MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Lexes the chunks of a character array using {@link TokenTreeLexer
+     * lexers} that own the array.
+     *
+     */
+    private static class CharParallelLexer extends ParallelLexer {
+        /**
+         * The code. Only the first {@link #length} characters are used.
+         *
+         */
+        private final char[] code;
+        /**
+         * The number of characters of the code.
+         *
+         */
+        private final int length;
+
+        /**
+         * Constructor of CharParallelLexer.
+         *
+         * @param code
+         *            The code. This must not be modified afterwards.
+         * @param length
+         *            The number of characters of the code.
+         * @param pool
+         *            The pool the chunks are lexed on.
+         * @param symbolTable
+         *            The symbol table of the resulting token tree.
+         */
+        CharParallelLexer(final char[] code, final int length, final ForkJoinPool pool, final SymbolTable symbolTable) {
+            super(pool, symbolTable);
+
+            this.code = code;
+            this.length = length;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#createLexer(de.fdamken.yalp.parsing.SymbolTable)
+         */
+        @Override
+        AbstractTokenTreeLexer createLexer(final SymbolTable symbolTable) {
+            return new TokenTreeLexer(new TokenTreeBuilder(symbolTable));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#length()
+         */
+        @Override
+        int length() {
+            return this.length;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#classify(int)
+         */
+        @Override
+        byte classify(final int index) {
+            final char c = this.code[index];
+            return c < CharacterClasses.TABLE_SIZE ? CharacterClasses.classify(c) : CharacterClasses.OTHER;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#findStop(int,
+         *      int, boolean, boolean)
+         */
+        @Override
+        int findStop(final int start, final int end, final boolean string, final boolean comment) {
+            return BulkScanner.findStop(this.code, start, end, string, comment);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#lexChunk(de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer,
+         *      int, int)
+         */
+        @Override
+        AbstractTokenTreeLexer lexChunk(final AbstractTokenTreeLexer lexer, final int start, final int end) {
+            ((TokenTreeLexer) lexer).feedBlock(this.code, start, end - start);
+            return lexer;
+        }
+    }
+
+    /**
+     * Lexes the chunks of a buffer containing UTF-8 encoded code using
+     * {@link Utf8TokenTreeLexer UTF-8 lexers}. As the bytes of multi-byte
+     * sequences are never ASCII characters, the chunks never split a
+     * sequence.
+     *
+     */
+    private static class ByteParallelLexer extends ParallelLexer {
+        /**
+         * The code. Only absolute accesses are used, so the buffer can be
+         * shared by all threads.
+         *
+         */
+        private final ByteBuffer code;
+
+        /**
+         * Constructor of ByteParallelLexer.
+         *
+         * @param code
+         *            The code between the position and the limit of the
+         *            buffer.
+         * @param pool
+         *            The pool the chunks are lexed on.
+         * @param symbolTable
+         *            The symbol table of the resulting token tree.
+         */
+        ByteParallelLexer(final ByteBuffer code, final ForkJoinPool pool, final SymbolTable symbolTable) {
+            super(pool, symbolTable);
+
+            this.code = code.slice();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#createLexer(de.fdamken.yalp.parsing.SymbolTable)
+         */
+        @Override
+        AbstractTokenTreeLexer createLexer(final SymbolTable symbolTable) {
+            return new Utf8TokenTreeLexer(new TokenTreeBuilder(symbolTable));
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#length()
+         */
+        @Override
+        int length() {
+            return this.code.limit();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#classify(int)
+         */
+        @Override
+        byte classify(final int index) {
+            final byte value = this.code.get(index);
+            return value >= 0 ? CharacterClasses.classify(value) : CharacterClasses.OTHER;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#findStop(int,
+         *      int, boolean, boolean)
+         */
+        @Override
+        int findStop(final int start, final int end, final boolean string, final boolean comment) {
+            return BulkScanner.findStop(this.code, start, end, string, comment);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see de.fdamken.yalp.parsing.tt.compile.ParallelLexer#lexChunk(de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer,
+         *      int, int)
+         */
+        @Override
+        AbstractTokenTreeLexer lexChunk(final AbstractTokenTreeLexer lexer, final int start, final int end) {
+            final ByteBuffer chunk = this.code.duplicate();
+            chunk.limit(end).position(start);
+            ((Utf8TokenTreeLexer) lexer).feed(chunk);
+            return lexer;
+        }
+    }
+}
@@ -22,15 +22,18 @@ package de.fdamken.yalp.parsing.tt.compile;
 import java.util.ArrayDeque;
 import java.util.Deque;
 
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
 import de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement;
 import de.fdamken.yalp.parsing.tt.representation.TokenTree;
 import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import lombok.Getter;
 
 /**
  * A builder used for building an TT in a flat way.
  *
  */
-public class TokenTreeBuilder {
+public class TokenTreeBuilder implements TreeBuilder {
     /**
      * The parent containers of the current container. This is used for
      * {@link #closeContainer()}.
@@ -48,20 +51,49 @@ public class TokenTreeBuilder {
      *
      */
     private TokenTreeContainer currentContainer;
+    /**
+     * Whether the token tree was handed over using {@link #buildTokenTree()}.
+     * Afterwards, the builder must not be used anymore.
+     *
+     */
+    private boolean built;
+
+    /**
+     * The symbol table the contents of the elements are interned in.
+     *
+     */
+    @Getter
+    private final SymbolTable symbolTable;
 
     /**
      * Constructor of TokenTreeBuilder.
      *
      */
     public TokenTreeBuilder() {
-        // Nothing to do.
+        this(new SymbolTable());
+    }
+
+    /**
+     * Constructor of TokenTreeBuilder.
+     *
+     * @param symbolTable
+     *            The symbol table the contents of the elements are interned
+     *            in.
+     */
+    public TokenTreeBuilder(final SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
     }
 
     /**
      * Opens a new container where the new elements will be added to.
      *
+     * @throws IllegalStateException
+     *             If the token tree was already {@link #buildTokenTree()
+     *             built}.
      */
-    public void openContainer() {
+    @Override
+    public void openContainer() throws IllegalStateException {
+        this.checkNotBuilt();
         if (this.currentContainer == null) {
             this.currentContainer = this.rootContainer;
         } else {
@@ -77,9 +109,16 @@ public class TokenTreeBuilder {
      * Closes the current container. If there is no open container, this does
      * nothing.
      *
+     * @throws IllegalStateException
+     *             If the token tree was already {@link #buildTokenTree()
+     *             built}.
      */
-    public void closeContainer() {
+    @Override
+    public void closeContainer() throws IllegalStateException {
+        this.checkNotBuilt();
         if (this.parentContainers.size() > 0) {
+            // Nested containers are never reopened, so they are complete.
+            this.currentContainer.freeze();
             this.currentContainer = this.parentContainers.pop();
         } else {
             this.currentContainer = null;
@@ -87,34 +126,86 @@ public class TokenTreeBuilder {
     }
 
     /**
-     * Adds the given content to the current container.
+     * Adds the given content to the current container. Except for strings,
+     * the content is interned in the {@link #symbolTable symbol table} and the
+     * element uses the interned string instead of the given content.
      *
      * @param content
-     *            The content to add to the current container.
+     *            The content to add to the current container. This is not
+     *            copied, so it must not be modified afterwards.
+     * @param kind
+     *            The kind of the content that was determined by the lexer.
      * @throws IllegalStateException
-     *             If no container is open.
+     *             If no container is open or if the token tree was already
+     *             {@link #buildTokenTree() built}.
      */
-    public void addElement(final String content) throws IllegalStateException {
+    @Override
+    public void addElement(final CharSequence content, final LiteralKind kind) throws IllegalStateException {
+        this.checkNotBuilt();
         if (this.currentContainer == null) {
             throw new IllegalStateException("There is no open container!");
         }
 
-        this.currentContainer.addElement(new SimpleTokenTreeElement(content));
+        final SimpleTokenTreeElement element;
+        if (kind == LiteralKind.STRING) {
+            // Strings are usually unique, so interning them is not worth it.
+            element = new SimpleTokenTreeElement(content, SymbolTable.NO_SYMBOL, kind);
+        } else {
+            final int symbolId = this.symbolTable.intern(content);
+            element = new SimpleTokenTreeElement(this.symbolTable.getSymbol(symbolId), symbolId, kind);
+        }
+        this.currentContainer.addElement(element);
     }
 
     /**
      *
      * @return Whether the building was finished.
      */
+    @Override
     public boolean isFinished() {
         return this.currentContainer == null;
     }
 
     /**
+     * Returns a copy of the current token tree. The builder can still be used
+     * afterwards.
      *
      * @return Returns the current token tree.
+     * @throws IllegalStateException
+     *             If the token tree was already {@link #buildTokenTree()
+     *             built}.
+     */
+    public TokenTree getTokenTree() throws IllegalStateException {
+        this.checkNotBuilt();
+
+        return new TokenTree(this.rootContainer.copy(), this.symbolTable);
+    }
+
+    /**
+     * Hands over the token tree without copying it. Afterwards, the builder
+     * cannot be used anymore.
+     *
+     * @return Returns the built token tree.
+     * @throws IllegalStateException
+     *             If the token tree was already built.
      */
-    public TokenTree getTokenTree() {
-        return new TokenTree(this.rootContainer.copy());
+    public TokenTree buildTokenTree() throws IllegalStateException {
+        this.checkNotBuilt();
+        this.built = true;
+        this.rootContainer.freeze();
+
+        return new TokenTree(this.rootContainer, this.symbolTable);
+    }
+
+    /**
+     * Checks that the token tree was not {@link #buildTokenTree() built} yet.
+     *
+     * @throws IllegalStateException
+     *             If the token tree was already built.
+     */
+    private void checkNotBuilt() throws IllegalStateException {
+        if (this.built) {
+            throw new IllegalStateException("The token tree was already built!");
+        }
     }
 }
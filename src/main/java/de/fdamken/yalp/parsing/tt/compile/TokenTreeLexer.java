@@ -0,0 +1,415 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.nio.CharBuffer;
+
+import de.fdamken.yalp.parsing.tt.representation.TokenSlice;
+
+/**
+ * A table-driven lexer that lexes blocks of characters. The code is passed in
+ * blocks using {@link #feed(char[], int, int)}, {@link #feed(CharBuffer)} or
+ * {@link #feedBlock(char[], int, int)}; the state (escapes, comments and
+ * strings) is kept between the blocks, so the blocks can be split anywhere.
+ *
+ * <p>
+ * Elements that are contained in a single block without any escapes are
+ * tracked as a range of the block instead of being copied character by
+ * character. If the lexer owns the block (see
+ * {@link #feedBlock(char[], int, int)}), these elements are passed to the
+ * builder as {@link TokenSlice slices} of the block without copying them at
+ * all.
+ * </p>
+ *
+ * <p>
+ * The positions of the containers and elements in the code are passed to the
+ * builder (see {@link TreeBuilder#openContainer(long)}).
+ * </p>
+ *
+ * <p>
+ * Every character is classified using {@link CharacterClasses}, which uses a
+ * lookup table for ASCII characters and only falls back to
+ * {@link Character#isWhitespace(char)} for non-ASCII characters.
+ * </p>
+ *
+ */
+public class TokenTreeLexer extends AbstractTokenTreeLexer {
+    /**
+     * Contains the content of the element that is currently lexed if it is
+     * not a contiguous range of the current block.
+     *
+     */
+    private final StringBuilder elementBuilder = new StringBuilder();
+    /**
+     * The block that is currently lexed.
+     *
+     */
+    private char[] block;
+    /**
+     * Whether the lexer owns the current {@link #block}.
+     *
+     */
+    private boolean blockOwned;
+    /**
+     * The index of the first character of the current element in the
+     * {@link #block} or <code>-1</code> if the element is not a contiguous
+     * range of the block (or if there is no element).
+     *
+     */
+    private int elementStart = -1;
+    /**
+     * The index after the last character of the current element in the
+     * {@link #block}. Only valid if {@link #elementStart} is not
+     * <code>-1</code>.
+     *
+     */
+    private int elementEnd;
+    /**
+     * The position of the first character of the current element in the code
+     * or <code>-1</code> if there is no element in progress.
+     *
+     */
+    private long elementPosition = -1;
+    /**
+     * The position after the last character of the current element in the
+     * code. Only valid if {@link #elementPosition} is not <code>-1</code>.
+     *
+     */
+    private long elementEndPosition;
+    /**
+     * The number of characters of all blocks that were lexed completely.
+     *
+     */
+    private long lexed;
+    /**
+     * The position of the current block relative to the beginning of the
+     * code, i.e. the position of the character at index <code>0</code> of the
+     * {@link #block}.
+     *
+     */
+    private long blockPosition;
+    /**
+     * See {@link #getPosition()}.
+     *
+     */
+    private long position;
+
+    /**
+     * Constructor of TokenTreeLexer.
+     *
+     */
+    public TokenTreeLexer() {
+        this(new TokenTreeBuilder());
+    }
+
+    /**
+     * Constructor of TokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     */
+    public TokenTreeLexer(final TreeBuilder builder) {
+        super(builder);
+    }
+
+    /**
+     * Constructor of TokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     * @param formListener
+     *            The listener that is notified about completed top-level forms
+     *            or <code>null</code> if all forms should be added to the same
+     *            token tree.
+     * @throws IllegalArgumentException
+     *             If a listener is given, but the builder is not a
+     *             {@link TokenTreeBuilder}.
+     */
+    public TokenTreeLexer(final TreeBuilder builder, final TopLevelFormListener formListener) throws IllegalArgumentException {
+        super(builder, formListener);
+    }
+
+    /**
+     * Lexes the given block of characters. The buffer is not referenced after
+     * this method returns, so it may be reused by the caller.
+     *
+     * @param buffer
+     *            The buffer containing the characters.
+     * @param offset
+     *            The offset of the first character in the buffer.
+     * @param length
+     *            The number of characters to lex.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    public void feed(final char[] buffer, final int offset, final int length) throws IllegalStateException {
+        this.lex(buffer, offset, length, false);
+    }
+
+    /**
+     * Lexes the remaining characters of the given buffer. The buffer is not
+     * referenced after this method returns, so it may be reused by the caller.
+     * After this method returns, the position of the buffer is equal to its
+     * limit.
+     *
+     * @param buffer
+     *            The buffer containing the characters.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    public void feed(final CharBuffer buffer) throws IllegalStateException {
+        if (buffer.hasArray()) {
+            this.feed(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            buffer.position(buffer.limit());
+        } else {
+            // Read-only and direct buffers have to be copied anyway, so the
+            // copy can be owned by the lexer.
+            final char[] block = new char[buffer.remaining()];
+            buffer.get(block);
+            this.feedBlock(block, 0, block.length);
+        }
+    }
+
+    /**
+     * Lexes the given block of characters and takes the ownership of the
+     * block: The elements of the built token tree may refer to slices of the
+     * block, so it must not be modified afterwards.
+     *
+     * @param buffer
+     *            The buffer containing the characters.
+     * @param offset
+     *            The offset of the first character in the buffer.
+     * @param length
+     *            The number of characters to lex.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    public void feedBlock(final char[] buffer, final int offset, final int length) throws IllegalStateException {
+        this.lex(buffer, offset, length, true);
+    }
+
+    /**
+     * Lexes the given block of characters.
+     *
+     * @param buffer
+     *            The buffer containing the characters.
+     * @param offset
+     *            The offset of the first character in the buffer.
+     * @param length
+     *            The number of characters to lex.
+     * @param owned
+     *            Whether the lexer owns the block.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    private void lex(final char[] buffer, final int offset, final int length, final boolean owned) throws IllegalStateException {
+        this.block = buffer;
+        this.blockOwned = owned;
+        this.blockPosition = this.lexed - offset;
+
+        final int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (this.escape) {
+                this.appendElement(i);
+                this.escape = false;
+
+                continue;
+            }
+
+            if (this.comment || this.string) {
+                // Skip to the next character that changes the state.
+                final int stop = BulkScanner.findStop(buffer, i, end, this.string, this.comment);
+                if (this.string && stop > i) {
+                    this.appendElement(i, stop);
+                }
+                if (stop == end) {
+                    break;
+                }
+                i = stop;
+            }
+
+            final byte characterClass = CharacterClasses.classify(buffer[i]);
+            switch (characterClass) {
+                case CharacterClasses.COMMENT:
+                    this.comment = true;
+                    break;
+                case CharacterClasses.ESCAPE:
+                    if (!this.comment && this.isSingleHash()) {
+                        // Character literals keep their escape character.
+                        this.appendElement(i);
+                    } else if (!this.comment && this.elementPosition < 0) {
+                        // The escaped character starts the element.
+                        this.elementPosition = this.blockPosition + i;
+                    }
+                    this.escape = true;
+                    break;
+                case CharacterClasses.QUOTE:
+                    this.appendElement(i);
+                    if (this.string) {
+                        this.flushElement();
+                    }
+                    this.string = !this.string;
+                    break;
+                default:
+                    if (this.comment && characterClass == CharacterClasses.NEWLINE) {
+                        this.comment = false;
+                    } else if (this.string) {
+                        this.appendElement(i);
+                    } else if (!this.comment) {
+                        if (characterClass == CharacterClasses.OTHER) {
+                            this.appendElement(i);
+                        } else {
+                            this.position = this.blockPosition + i + 1;
+                            this.execute(characterClass, this.blockPosition + i);
+                        }
+                    }
+                    break;
+            }
+        }
+
+        // The next block is a different one, so the current element cannot
+        // be a range of the current block anymore.
+        this.spillElement();
+        this.block = null;
+        this.lexed += length;
+        this.position = this.lexed;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer#flushElement()
+     */
+    @Override
+    protected void flushElement() {
+        if (this.elementStart >= 0) {
+            final int length = this.elementEnd - this.elementStart;
+            final CharSequence content = this.blockOwned ? new TokenSlice(this.block, this.elementStart, length)
+                    : new String(this.block, this.elementStart, length);
+            this.addElement(content, this.elementPosition, this.elementEndPosition);
+            this.elementStart = -1;
+        } else if (this.elementBuilder.length() > 0) {
+            this.addElement(this.elementBuilder.toString(), this.elementPosition, this.elementEndPosition);
+            this.elementBuilder.setLength(0);
+        }
+        this.elementPosition = -1;
+    }
+
+    /**
+     * Appends the character at the given index of the current {@link #block}
+     * to the current element.
+     *
+     * @param index
+     *            The index of the character.
+     */
+    private void appendElement(final int index) {
+        this.trackElement(index, index + 1);
+        if (this.elementStart >= 0 && this.elementEnd == index) {
+            this.elementEnd++;
+        } else if (this.elementStart < 0 && this.elementBuilder.length() == 0) {
+            this.elementStart = index;
+            this.elementEnd = index + 1;
+        } else {
+            this.spillElement();
+            this.elementBuilder.append(this.block[index]);
+        }
+    }
+
+    /**
+     *
+     * @return Whether the element in progress consists of a single hash sign.
+     */
+    private boolean isSingleHash() {
+        if (this.elementStart >= 0) {
+            return this.elementEnd - this.elementStart == 1 && this.block[this.elementStart] == '#';
+        }
+        return this.elementBuilder.length() == 1 && this.elementBuilder.charAt(0) == '#';
+    }
+
+    /**
+     * Returns the number of characters that were lexed so far. While a
+     * {@link TopLevelFormListener} is notified, this is the position after the
+     * closing bracket of the completed form.
+     *
+     * @return The number of characters that were lexed so far.
+     */
+    public long getPosition() {
+        return this.position;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer#hasPendingInput()
+     */
+    @Override
+    protected boolean hasPendingInput() {
+        return this.elementStart >= 0 || this.elementBuilder.length() > 0;
+    }
+
+    /**
+     * Appends the given range of the current block to the current element.
+     *
+     * @param start
+     *            The index of the first character to append.
+     * @param end
+     *            The index after the last character to append.
+     */
+    private void appendElement(final int start, final int end) {
+        this.trackElement(start, end);
+        if (this.elementStart >= 0 && this.elementEnd == start) {
+            this.elementEnd = end;
+        } else if (this.elementStart < 0 && this.elementBuilder.length() == 0) {
+            this.elementStart = start;
+            this.elementEnd = end;
+        } else {
+            this.spillElement();
+            this.elementBuilder.append(this.block, start, end - start);
+        }
+    }
+
+    /**
+     * Updates the position of the current element in the code after the given
+     * range of the current block was appended to it.
+     *
+     * @param start
+     *            The index of the first appended character.
+     * @param end
+     *            The index after the last appended character.
+     */
+    private void trackElement(final int start, final int end) {
+        if (this.elementPosition < 0) {
+            this.elementPosition = this.blockPosition + start;
+        }
+        this.elementEndPosition = this.blockPosition + end;
+    }
+
+    /**
+     * Copies the range of the current element (if any) into the
+     * {@link #elementBuilder}.
+     *
+     */
+    private void spillElement() {
+        if (this.elementStart >= 0) {
+            this.elementBuilder.append(this.block, this.elementStart, this.elementEnd - this.elementStart);
+            this.elementStart = -1;
+        }
+    }
+}
@@ -19,12 +19,13 @@
  */
 package de.fdamken.yalp.parsing.tt.compile;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
 
 import de.fdamken.yalp.parsing.AbstractCompilationStep;
 import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
 import de.fdamken.yalp.parsing.exception.CompilationException;
 import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
 import de.fdamken.yalp.parsing.tt.representation.TokenTree;
@@ -32,8 +33,72 @@ import de.fdamken.yalp.parsing.tt.representation.TokenTree;
 /**
  * This class parsed Lisp code and returns it as an TT.
  *
+ * <p>
+ * A parser does not keep any state between two inputs, so a single instance
+ * can be used by multiple threads concurrently (a shared symbol table is
+ * thread-safe as well).
+ * </p>
+ *
  */
 public class TokenTreeParser extends AbstractCompilationStep<Input, TokenTree> {
+    /**
+     * The symbol table that is shared between all parsed inputs or
+     * <code>null</code> if every input gets its own symbol table.
+     *
+     */
+    private final SymbolTable sharedSymbolTable;
+    /**
+     * The pool that is used for lexing large inputs in parallel or
+     * <code>null</code> if the inputs are lexed sequentially.
+     *
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor of TokenTreeParser. Every parsed input gets its own symbol
+     * table.
+     *
+     */
+    public TokenTreeParser() {
+        this(null);
+    }
+
+    /**
+     * Constructor of TokenTreeParser.
+     *
+     * @param sharedSymbolTable
+     *            The symbol table that is shared between all parsed inputs or
+     *            <code>null</code> if every input should get its own symbol
+     *            table.
+     */
+    public TokenTreeParser(final SymbolTable sharedSymbolTable) {
+        this(sharedSymbolTable, null);
+    }
+
+    /**
+     * Constructor of TokenTreeParser.
+     *
+     * <p>
+     * If a pool is given, the inputs are read completely and large inputs
+     * (several megabytes) are lexed in parallel on the pool (see
+     * {@link ParallelLexer}). The result, including the symbol IDs, is the
+     * same as when lexing them sequentially, but large inputs are lexed
+     * considerably faster.
+     * </p>
+     *
+     * @param sharedSymbolTable
+     *            The symbol table that is shared between all parsed inputs or
+     *            <code>null</code> if every input should get its own symbol
+     *            table.
+     * @param pool
+     *            The pool that is used for lexing the inputs in parallel or
+     *            <code>null</code> if the inputs should be lexed sequentially.
+     */
+    public TokenTreeParser(final SymbolTable sharedSymbolTable, final ForkJoinPool pool) {
+        this.sharedSymbolTable = sharedSymbolTable;
+        this.pool = pool;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -48,10 +113,43 @@ public class TokenTreeParser extends AbstractCompilationStep<Input, TokenTree> {
         }
     }
 
+    /**
+     * Lexes the given input into the given builder, so other representations
+     * than token trees can be built directly from the code. The input is
+     * always lexed sequentially.
+     *
+     * @param input
+     *            The code.
+     * @param builder
+     *            The builder the elements are added to.
+     * @throws CompilationException
+     *             If not all brackets are closed or an I/O error occurs.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    public void lex(final Input input, final TreeBuilder builder) throws CompilationException, IllegalStateException {
+        try {
+            final LexerFeeder feeder = LexerFeeder.create(input, builder, null);
+            while (feeder.feedNextBlock()) {
+                // Nothing to do.
+            }
+            feeder.getLexer().finishInput();
+        } catch (final IOException cause) {
+            throw new TokenTreeParsingException("Error whilst doing I/O things.", cause);
+        }
+    }
+
     /**
      * Parses the Lisp code that is returned by the given (non-closed!)
      * {@link Reader reader}.
      *
+     * <p>
+     * The code is read in blocks which are passed to the lexer that fits the
+     * input best (see {@link LexerFeeder}). If a {@link #pool} is set and the
+     * input is not known to be small, the code is lexed in parallel instead
+     * (see {@link ParallelLexer}).
+     * </p>
+     *
      * @param input
      *            The code.
      * @return The token tree.
@@ -61,77 +159,33 @@ public class TokenTreeParser extends AbstractCompilationStep<Input, TokenTree> {
      *             If any error occurs whilst parsing the Lisp code.
      */
     private TokenTree internalParse(final Input input) throws IOException, TokenTreeParsingException {
-        final BufferedReader reader = new BufferedReader(input.getReader());
-
-        final TokenTreeBuilder builder = new TokenTreeBuilder();
-
-        StringBuilder elementBuilder = new StringBuilder();
-        boolean escape = false;
-        boolean comment = false;
-        boolean string = false;
-
-        int value = -1;
-        while ((value = reader.read()) > -1) {
-            final char control = (char) value;
-
-            final boolean execute;
-            if (escape) {
-                elementBuilder.append(control);
-                escape = false;
-
-                execute = false;
-            } else if (control == ';') {
-                comment = true;
-
-                execute = false;
-            } else if (comment && (control == '\n' || control == '\r')) {
-                comment = false;
-
-                execute = false;
-            } else if (control == '\\') {
-                escape = true;
-
-                execute = false;
-            } else if (control == '"') {
-                elementBuilder.append('"');
-                if (string) {
-                    builder.addElement(elementBuilder.toString());
-                    elementBuilder = new StringBuilder();
-                }
-                string = !string;
-
-                execute = false;
-            } else if (string) {
-                elementBuilder.append(control);
-
-                execute = false;
-            } else {
-                execute = true;
-            }
-
-            if (!comment && execute) {
-                final boolean isOpeningBracket = control == '(' || control == '{' || control == '[';
-                final boolean isClosingBracket = control == ')' || control == '}' || control == ']';
-                final boolean isWhitespace = Character.isWhitespace(control);
-
-                if ((isOpeningBracket || isClosingBracket || isWhitespace) && elementBuilder.length() > 0) {
-                    builder.addElement(elementBuilder.toString());
-                    elementBuilder = new StringBuilder();
-                }
-                if (isOpeningBracket) {
-                    builder.openContainer();
-                } else if (isClosingBracket) {
-                    builder.closeContainer();
-                } else if (!isWhitespace) {
-                    elementBuilder.append(control);
-                }
-            }
+        if (this.pool != null && ParallelLexer.isCandidate(input)) {
+            return ParallelLexer.create(input, this.pool, this.createSymbolTable()).lex();
         }
 
-        if (!builder.isFinished()) {
-            throw new TokenTreeParsingException("Not all brackets are closed!");
+        final LexerFeeder feeder = LexerFeeder.create(input, this.createBuilder(), null);
+        while (feeder.feedNextBlock()) {
+            // Nothing to do.
         }
+        return feeder.getLexer().finish();
+    }
 
-        return builder.getTokenTree();
+    /**
+     * Creates the builder for a new token tree.
+     *
+     * @return The builder using either the {@link #sharedSymbolTable} or a new
+     *         symbol table.
+     */
+    private TokenTreeBuilder createBuilder() {
+        return new TokenTreeBuilder(this.createSymbolTable());
+    }
+
+    /**
+     * Creates the symbol table for a new token tree.
+     *
+     * @return Either the {@link #sharedSymbolTable} or a new symbol table.
+     */
+    private SymbolTable createSymbolTable() {
+        return this.sharedSymbolTable == null ? new SymbolTable() : this.sharedSymbolTable;
     }
 }
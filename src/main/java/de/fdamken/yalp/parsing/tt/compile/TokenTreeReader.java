@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+
+/**
+ * Reads the top-level forms of an {@link Input} one after another, each as
+ * its own {@link TokenTree}. In contrast to the {@link TokenTreeParser}, a
+ * form is returned as soon as its closing bracket was read and the reader
+ * does not keep any reference to it afterwards, so the memory usage is
+ * bounded by the largest form and not by the size of the input.
+ *
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * <code>
+ * try (TokenTreeReader reader = new TokenTreeReader(input)) {
+ *     TokenTree form;
+ *     while ((form = reader.read()) != null) {
+ *         // ...
+ *     }
+ * }
+ * </code>
+ * </pre>
+ * </p>
+ *
+ */
+public class TokenTreeReader implements Closeable {
+    /**
+     * The input to read from.
+     *
+     */
+    private final Input input;
+    /**
+     * Feeds the input into the lexer.
+     *
+     */
+    private final LexerFeeder feeder;
+    /**
+     * The forms that were completed but not yet returned by {@link #read()}.
+     * A single block may complete multiple forms.
+     *
+     */
+    private final Queue<TokenTree> completedForms = new ArrayDeque<>();
+    /**
+     * Whether the end of the input was reached.
+     *
+     */
+    private boolean endOfInput;
+
+    /**
+     * Constructor of TokenTreeReader. All forms share a new symbol table.
+     *
+     * @param input
+     *            The input to read from.
+     */
+    public TokenTreeReader(final Input input) {
+        this(input, new SymbolTable());
+    }
+
+    /**
+     * Constructor of TokenTreeReader.
+     *
+     * @param input
+     *            The input to read from.
+     * @param symbolTable
+     *            The symbol table that is shared by all forms.
+     */
+    public TokenTreeReader(final Input input, final SymbolTable symbolTable) {
+        this.input = input;
+        this.feeder = LexerFeeder.create(input, new TokenTreeBuilder(symbolTable), this.completedForms::add);
+    }
+
+    /**
+     * Reads the next top-level form.
+     *
+     * @return The token tree containing only the next top-level form or
+     *         <code>null</code> if the end of the input was reached.
+     * @throws CompilationException
+     *             If an error occurs whilst reading or lexing the input.
+     */
+    public TokenTree read() throws CompilationException {
+        try {
+            while (this.completedForms.isEmpty() && !this.endOfInput) {
+                if (!this.feeder.feedNextBlock()) {
+                    this.endOfInput = true;
+                    this.feeder.getLexer().finish();
+                }
+            }
+        } catch (final IOException cause) {
+            throw new TokenTreeParsingException("Error whilst doing I/O things.", cause);
+        }
+        return this.completedForms.poll();
+    }
+
+    /**
+     * Closes the reader of the underlying input.
+     *
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        this.input.getReader().close();
+    }
+}
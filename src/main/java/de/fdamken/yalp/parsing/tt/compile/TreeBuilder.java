@@ -0,0 +1,148 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import de.fdamken.yalp.parsing.LiteralKind;
+
+/**
+ * A builder the lexers feed the elements of the code into in a flat way. The
+ * {@link TokenTreeBuilder} builds a token tree; other implementations may
+ * build other representations directly (e.g. a syntax tree), skipping the
+ * token tree.
+ *
+ * <p>
+ * All implementations have to follow the semantics of the
+ * {@link TokenTreeBuilder}: Opening a container while no container is open
+ * reopens the root container, closing a container while no container is open
+ * does nothing and adding an element while no container is open fails.
+ * </p>
+ *
+ * <p>
+ * Lexers that track the position in the code (like the
+ * {@link TokenTreeLexer}) pass the source positions of the containers and
+ * elements to the builder. By default, the positions are ignored.
+ * </p>
+ *
+ */
+public interface TreeBuilder {
+    /**
+     * The position that is passed to the builder if the lexer does not track
+     * the position in the code.
+     *
+     */
+    long UNKNOWN_POSITION = -1;
+
+    /**
+     * Opens a new container where the new elements will be added to.
+     *
+     */
+    void openContainer();
+
+    /**
+     * Opens a new container where the new elements will be added to. By
+     * default, this ignores the position and calls {@link #openContainer()}.
+     *
+     * @param start
+     *            The position of the opening bracket in the code or
+     *            {@link #UNKNOWN_POSITION}.
+     */
+    default void openContainer(final long start) {
+        this.openContainer();
+    }
+
+    /**
+     * Closes the current container. If there is no open container, this does
+     * nothing.
+     *
+     */
+    void closeContainer();
+
+    /**
+     * Closes the current container. If there is no open container, this does
+     * nothing. By default, this ignores the position and calls
+     * {@link #closeContainer()}.
+     *
+     * @param end
+     *            The position after the closing bracket in the code or
+     *            {@link #UNKNOWN_POSITION}.
+     */
+    default void closeContainer(final long end) {
+        this.closeContainer();
+    }
+
+    /**
+     * Adds the given content to the current container. The kind of the content
+     * is {@link LiteralKind#classify(CharSequence) determined} from the
+     * content, so it must not contain any escaped characters.
+     *
+     * @param content
+     *            The content to add to the current container. This is not
+     *            copied, so it must not be modified afterwards.
+     * @throws IllegalStateException
+     *             If no container is open.
+     */
+    default void addElement(final CharSequence content) throws IllegalStateException {
+        this.addElement(content, LiteralKind.classify(content));
+    }
+
+    /**
+     * Adds the given content to the current container.
+     *
+     * @param content
+     *            The content to add to the current container. This is not
+     *            copied, so it must not be modified afterwards.
+     * @param kind
+     *            The kind of the content that was determined by the lexer.
+     * @throws IllegalStateException
+     *             If no container is open.
+     */
+    void addElement(CharSequence content, LiteralKind kind) throws IllegalStateException;
+
+    /**
+     * Adds the given content to the current container. By default, this
+     * ignores the positions and calls
+     * {@link #addElement(CharSequence, LiteralKind)}.
+     *
+     * @param content
+     *            The content to add to the current container. This is not
+     *            copied, so it must not be modified afterwards.
+     * @param kind
+     *            The kind of the content that was determined by the lexer.
+     * @param start
+     *            The position of the first character of the element in the
+     *            code (including quotes and escape characters) or
+     *            {@link #UNKNOWN_POSITION}.
+     * @param end
+     *            The position after the last character of the element in the
+     *            code or {@link #UNKNOWN_POSITION}.
+     * @throws IllegalStateException
+     *             If no container is open.
+     */
+    default void addElement(final CharSequence content, final LiteralKind kind, final long start, final long end)
+            throws IllegalStateException {
+        this.addElement(content, kind);
+    }
+
+    /**
+     *
+     * @return Whether the building was finished, i.e. no container is open.
+     */
+    boolean isFinished();
+}
@@ -0,0 +1,440 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.compile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A table-driven lexer that lexes UTF-8 encoded bytes directly without
+ * decoding the whole code first. As all characters that have a special meaning
+ * are ASCII characters (which are encoded as single bytes in UTF-8), only the
+ * bytes of the elements have to be decoded and that is only done when the
+ * element is complete.
+ *
+ * <p>
+ * Multi-byte sequences are only decoded if they could encode a non-ASCII
+ * whitespace character, every other non-ASCII character is treated as part of
+ * an element. The code can be passed in arbitrary blocks, even if they split
+ * multi-byte sequences.
+ * </p>
+ *
+ */
+public class Utf8TokenTreeLexer extends AbstractTokenTreeLexer {
+    /**
+     * The initial capacity of the {@link #elementBytes}.
+     *
+     */
+    private static final int INITIAL_ELEMENT_CAPACITY = 64;
+
+    /**
+     * Contains the (still encoded) content of the element that is currently
+     * lexed.
+     *
+     */
+    private byte[] elementBytes = new byte[Utf8TokenTreeLexer.INITIAL_ELEMENT_CAPACITY];
+    /**
+     * The number of used bytes in {@link #elementBytes}.
+     *
+     */
+    private int elementLength;
+    /**
+     * Contains the beginning of a multi-byte sequence that was cut off at the
+     * end of the last block.
+     *
+     */
+    private final byte[] pendingBytes = new byte[4];
+    /**
+     * The number of used bytes in {@link #pendingBytes}.
+     *
+     */
+    private int pendingLength;
+
+    /**
+     * Constructor of Utf8TokenTreeLexer.
+     *
+     */
+    public Utf8TokenTreeLexer() {
+        this(new TokenTreeBuilder());
+    }
+
+    /**
+     * Constructor of Utf8TokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     */
+    public Utf8TokenTreeLexer(final TreeBuilder builder) {
+        super(builder);
+    }
+
+    /**
+     * Constructor of Utf8TokenTreeLexer.
+     *
+     * @param builder
+     *            The builder the elements are added to.
+     * @param formListener
+     *            The listener that is notified about completed top-level forms
+     *            or <code>null</code> if all forms should be added to the same
+     *            token tree.
+     * @throws IllegalArgumentException
+     *             If a listener is given, but the builder is not a
+     *             {@link TokenTreeBuilder}.
+     */
+    public Utf8TokenTreeLexer(final TreeBuilder builder, final TopLevelFormListener formListener) throws IllegalArgumentException {
+        super(builder, formListener);
+    }
+
+    /**
+     * Lexes the remaining bytes of the given buffer. After this method returns,
+     * the position of the buffer is equal to its limit.
+     *
+     * <p>
+     * The buffer may end in the middle of a multi-byte sequence. In that case
+     * the beginning of the sequence is kept until the rest of it is passed in
+     * the next call or until the lexing is {@link #finish() finished}.
+     * </p>
+     *
+     * @param buffer
+     *            The buffer containing the UTF-8 encoded code.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    public void feed(final ByteBuffer buffer) throws IllegalStateException {
+        final int end = buffer.limit();
+        int position = buffer.position();
+
+        if (this.pendingLength > 0) {
+            final int expectedLength = Utf8TokenTreeLexer.expectedSequenceLength(this.pendingBytes[0]);
+            while (this.pendingLength < expectedLength && position < end
+                    && Utf8TokenTreeLexer.isContinuation(buffer.get(position))) {
+                this.pendingBytes[this.pendingLength++] = buffer.get(position++);
+            }
+            if (this.pendingLength < expectedLength && position == end) {
+                // Still incomplete, wait for more bytes.
+                buffer.position(end);
+                return;
+            }
+            this.lexPending();
+        }
+
+        final int stop = this.lex(buffer, position, end, false);
+        for (int i = stop; i < end; i++) {
+            this.pendingBytes[this.pendingLength++] = buffer.get(i);
+        }
+        buffer.position(end);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * An incomplete multi-byte sequence at the end of the code is decoded
+     * into replacement characters.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer#lexRemainingInput()
+     */
+    @Override
+    protected void lexRemainingInput() {
+        if (this.pendingLength > 0) {
+            this.lexPending();
+        }
+    }
+
+    /**
+     * Lexes the {@link #pendingBytes} as if they were the end of the code.
+     *
+     */
+    private void lexPending() {
+        final int length = this.pendingLength;
+        this.pendingLength = 0;
+        this.lex(ByteBuffer.wrap(this.pendingBytes, 0, length), 0, length, true);
+    }
+
+    /**
+     * Lexes the bytes of the given buffer in the given range.
+     *
+     * @param buffer
+     *            The buffer containing the UTF-8 encoded code.
+     * @param start
+     *            The index of the first byte to lex.
+     * @param end
+     *            The index after the last byte to lex.
+     * @param endOfInput
+     *            Whether no more bytes follow after the given range. If this
+     *            is <code>false</code>, the lexing stops at an incomplete
+     *            multi-byte sequence at the end of the range.
+     * @return The index of the first byte that was not lexed. This is always
+     *         <code>end</code> unless the range ends with an incomplete
+     *         multi-byte sequence.
+     * @throws IllegalStateException
+     *             If an element is found outside of any container.
+     */
+    private int lex(final ByteBuffer buffer, final int start, final int end, final boolean endOfInput) throws IllegalStateException {
+        int i = start;
+        while (i < end) {
+            if (!this.escape && (this.comment || this.string)) {
+                // Skip to the next byte that changes the state.
+                final int stop = BulkScanner.findStop(buffer, i, end, this.string, this.comment);
+                if (this.string && stop > i) {
+                    this.appendElement(buffer, i, stop - i);
+                }
+                if (stop == end) {
+                    break;
+                }
+                i = stop;
+            }
+
+            final byte value = buffer.get(i);
+
+            final int length;
+            final byte characterClass;
+            if (value >= 0) {
+                length = 1;
+                characterClass = CharacterClasses.classify(value);
+            } else {
+                if (!endOfInput && Utf8TokenTreeLexer.isIncompleteSequence(buffer, i, end)) {
+                    return i;
+                }
+                length = Utf8TokenTreeLexer.sequenceLength(buffer, i, end);
+                characterClass = Utf8TokenTreeLexer.classifySequence(buffer, i, length);
+            }
+
+            if (this.escape) {
+                this.appendElement(buffer, i, length);
+                this.escape = false;
+            } else {
+                switch (characterClass) {
+                    case CharacterClasses.COMMENT:
+                        this.comment = true;
+                        break;
+                    case CharacterClasses.ESCAPE:
+                        if (!this.comment && this.elementLength == 1 && this.elementBytes[0] == '#') {
+                            // Character literals keep their escape character.
+                            this.appendElement(value);
+                        }
+                        this.escape = true;
+                        break;
+                    case CharacterClasses.QUOTE:
+                        this.appendElement(value);
+                        if (this.string) {
+                            this.flushElement();
+                        }
+                        this.string = !this.string;
+                        break;
+                    default:
+                        if (this.comment && characterClass == CharacterClasses.NEWLINE) {
+                            this.comment = false;
+                        } else if (this.string) {
+                            this.appendElement(buffer, i, length);
+                        } else if (!this.comment) {
+                            if (characterClass == CharacterClasses.OTHER) {
+                                this.appendElement(buffer, i, length);
+                            } else {
+                                this.execute(characterClass);
+                            }
+                        }
+                        break;
+                }
+            }
+
+            i += length;
+        }
+        return end;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer#flushElement()
+     */
+    @Override
+    protected void flushElement() {
+        if (this.elementLength > 0) {
+            this.addElement(new String(this.elementBytes, 0, this.elementLength, StandardCharsets.UTF_8));
+            this.elementLength = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.tt.compile.AbstractTokenTreeLexer#hasPendingInput()
+     */
+    @Override
+    protected boolean hasPendingInput() {
+        return this.elementLength > 0 || this.pendingLength > 0;
+    }
+
+    /**
+     * Appends the given byte to the {@link #elementBytes}.
+     *
+     * @param value
+     *            The byte to append.
+     */
+    private void appendElement(final byte value) {
+        this.ensureElementCapacity(1);
+        this.elementBytes[this.elementLength++] = value;
+    }
+
+    /**
+     * Appends the given bytes of the buffer to the {@link #elementBytes}.
+     *
+     * @param buffer
+     *            The buffer containing the bytes.
+     * @param index
+     *            The index of the first byte.
+     * @param length
+     *            The number of bytes to append.
+     */
+    private void appendElement(final ByteBuffer buffer, final int index, final int length) {
+        this.ensureElementCapacity(length);
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + index, this.elementBytes, this.elementLength, length);
+            this.elementLength += length;
+        } else {
+            for (int i = 0; i < length; i++) {
+                this.elementBytes[this.elementLength++] = buffer.get(index + i);
+            }
+        }
+    }
+
+    /**
+     * Makes sure that the given number of bytes can be appended to the
+     * {@link #elementBytes}.
+     *
+     * @param length
+     *            The number of bytes that should be appended.
+     */
+    private void ensureElementCapacity(final int length) {
+        if (this.elementLength + length > this.elementBytes.length) {
+            this.elementBytes = Arrays.copyOf(this.elementBytes, Math.max(this.elementBytes.length * 2, this.elementLength + length));
+        }
+    }
+
+    /**
+     * Computes the length of the UTF-8 sequence starting with the given lead
+     * byte.
+     *
+     * @param lead
+     *            The leading byte of the sequence.
+     * @return The length of the sequence in bytes or <code>1</code> if the
+     *         byte is not a valid leading byte.
+     */
+    private static int expectedSequenceLength(final byte lead) {
+        if ((lead & 0xE0) == 0xC0) {
+            return 2;
+        } else if ((lead & 0xF0) == 0xE0) {
+            return 3;
+        } else if ((lead & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    /**
+     * Checks whether the given byte is a continuation byte of a multi-byte
+     * sequence.
+     *
+     * @param value
+     *            The byte to check.
+     * @return Whether the byte is a continuation byte.
+     */
+    private static boolean isContinuation(final byte value) {
+        return (value & 0xC0) == 0x80;
+    }
+
+    /**
+     * Checks whether the UTF-8 sequence starting at the given index is valid
+     * so far, but is cut off by the end of the range.
+     *
+     * @param buffer
+     *            The buffer containing the sequence.
+     * @param index
+     *            The index of the leading byte.
+     * @param end
+     *            The index after the last readable byte.
+     * @return Whether the sequence is incomplete.
+     */
+    private static boolean isIncompleteSequence(final ByteBuffer buffer, final int index, final int end) {
+        if (index + Utf8TokenTreeLexer.expectedSequenceLength(buffer.get(index)) <= end) {
+            return false;
+        }
+        for (int i = index + 1; i < end; i++) {
+            if (!Utf8TokenTreeLexer.isContinuation(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the length of the UTF-8 sequence starting at the given index.
+     * Malformed sequences are treated as sequences of length <code>1</code>
+     * and are decoded into replacement characters later on.
+     *
+     * @param buffer
+     *            The buffer containing the sequence.
+     * @param index
+     *            The index of the leading byte.
+     * @param end
+     *            The index after the last readable byte.
+     * @return The length of the sequence in bytes.
+     */
+    private static int sequenceLength(final ByteBuffer buffer, final int index, final int end) {
+        final int length = Utf8TokenTreeLexer.expectedSequenceLength(buffer.get(index));
+        if (index + length > end) {
+            return 1;
+        }
+        for (int i = 1; i < length; i++) {
+            if (!Utf8TokenTreeLexer.isContinuation(buffer.get(index + i))) {
+                return 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Classifies the non-ASCII UTF-8 sequence at the given index. Only three
+     * byte sequences can encode whitespace characters, so all other sequences
+     * are not decoded at all. Overlong sequences are never treated as
+     * whitespace.
+     *
+     * @param buffer
+     *            The buffer containing the sequence.
+     * @param index
+     *            The index of the leading byte.
+     * @param length
+     *            The length of the sequence.
+     * @return The character class of the encoded character.
+     */
+    private static byte classifySequence(final ByteBuffer buffer, final int index, final int length) {
+        if (length != 3) {
+            return CharacterClasses.OTHER;
+        }
+        final int codePoint = (buffer.get(index) & 0x0F) << 12 | (buffer.get(index + 1) & 0x3F) << 6 | buffer.get(index + 2) & 0x3F;
+        if (codePoint < 0x800) {
+            return CharacterClasses.OTHER;
+        }
+        return CharacterClasses.classify(codePoint);
+    }
+}
@@ -19,7 +19,9 @@
  */
 package de.fdamken.yalp.parsing.tt.representation;
 
-import lombok.Value;
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.util.CharSequences;
 
 /**
  * One {@link SimpleTokenTreeElement list element} represents a single element
@@ -62,13 +64,116 @@ import lombok.Value;
  * </p>
  *
  */
-@Value
 public class SimpleTokenTreeElement implements TokenTreeElement {
     /**
-     * The content of this element.
+     * The content of this element. This is usually a {@link TokenSlice slice}
+     * of the code or a string.
      *
      */
-    String content;
+    private final CharSequence content;
+    /**
+     * The content of this element as a string. This is created lazily by
+     * {@link #getContent()}.
+     *
+     */
+    private String contentString;
+    /**
+     * The ID of the content in the {@link SymbolTable symbol table} or
+     * {@link SymbolTable#NO_SYMBOL} if the content is not interned.
+     *
+     */
+    private final int symbolId;
+    /**
+     * The kind of the content.
+     *
+     */
+    private final LiteralKind kind;
+
+    /**
+     * Constructor of SimpleTokenTreeElement.
+     *
+     * @param content
+     *            The content of this element.
+     */
+    public SimpleTokenTreeElement(final CharSequence content) {
+        this(content, SymbolTable.NO_SYMBOL);
+    }
+
+    /**
+     * Constructor of SimpleTokenTreeElement. The kind of the content is
+     * {@link LiteralKind#classify(CharSequence) determined} from the content.
+     *
+     * @param content
+     *            The content of this element.
+     * @param symbolId
+     *            The ID of the content in the {@link SymbolTable symbol
+     *            table} or {@link SymbolTable#NO_SYMBOL} if the content is
+     *            not interned.
+     */
+    public SimpleTokenTreeElement(final CharSequence content, final int symbolId) {
+        this(content, symbolId, LiteralKind.classify(content));
+    }
+
+    /**
+     * Constructor of SimpleTokenTreeElement.
+     *
+     * @param content
+     *            The content of this element.
+     * @param symbolId
+     *            The ID of the content in the {@link SymbolTable symbol
+     *            table} or {@link SymbolTable#NO_SYMBOL} if the content is
+     *            not interned.
+     * @param kind
+     *            The kind of the content that was determined by the lexer.
+     */
+    public SimpleTokenTreeElement(final CharSequence content, final int symbolId, final LiteralKind kind) {
+        this.content = content;
+        if (content instanceof String) {
+            this.contentString = (String) content;
+        }
+        this.symbolId = symbolId;
+        this.kind = kind;
+    }
+
+    /**
+     *
+     * @return The content of this element without converting it into a string.
+     */
+    public CharSequence getContentSequence() {
+        return this.content;
+    }
+
+    /**
+     *
+     * @return The ID of the content in the {@link SymbolTable symbol table} or
+     *         {@link SymbolTable#NO_SYMBOL} if the content is not interned.
+     */
+    public int getSymbolId() {
+        return this.symbolId;
+    }
+
+    /**
+     *
+     * @return The kind of the content.
+     */
+    public LiteralKind getKind() {
+        return this.kind;
+    }
+
+    /**
+     * Returns the content of this element as a string. The string is only
+     * created on the first invocation of this method.
+     *
+     * @return The content of this element.
+     */
+    public String getContent() {
+        String result = this.contentString;
+        if (result == null) {
+            result = this.content.toString();
+            this.contentString = result;
+        }
+        return result;
+    }
 
     /**
      * {@inheritDoc}
@@ -77,7 +182,35 @@ public class SimpleTokenTreeElement implements TokenTreeElement {
      */
     @Override
     public SimpleTokenTreeElement copy() {
-        return new SimpleTokenTreeElement(this.content);
+        return new SimpleTokenTreeElement(this.content, this.symbolId, this.kind);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof SimpleTokenTreeElement)) {
+            return false;
+        }
+        final SimpleTokenTreeElement other = (SimpleTokenTreeElement) obj;
+        return this.kind == other.kind && CharSequences.contentEquals(this.content, other.content);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        // The ordinal is used as the hash code of an enum is not stable.
+        return 31 * CharSequences.hashCode(this.content) + this.kind.ordinal();
     }
 
     /**
@@ -87,6 +220,6 @@ public class SimpleTokenTreeElement implements TokenTreeElement {
      */
     @Override
     public String toString() {
-        return this.content;
+        return this.getContent();
     }
 }
@@ -0,0 +1,149 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.parsing.tt.representation;
+
+import de.fdamken.yalp.util.CharSequences;
+
+/**
+ * A slice of a shared character buffer that contains the content of a token.
+ * This is used for referring to the code a token was lexed from without
+ * copying it into a separate string.
+ *
+ * <p>
+ * <b> NOTE: The buffer must not be modified after the slice was created. </b>
+ * </p>
+ *
+ */
+public final class TokenSlice implements CharSequence {
+    /**
+     * The shared buffer.
+     *
+     */
+    private final char[] buffer;
+    /**
+     * The offset of the first character of this slice in the {@link #buffer}.
+     *
+     */
+    private final int offset;
+    /**
+     * The number of characters of this slice.
+     *
+     */
+    private final int length;
+
+    /**
+     * Constructor of TokenSlice.
+     *
+     * @param buffer
+     *            The shared buffer.
+     * @param offset
+     *            The offset of the first character of this slice in the
+     *            buffer.
+     * @param length
+     *            The number of characters of this slice.
+     * @throws IndexOutOfBoundsException
+     *             If the slice exceeds the buffer.
+     */
+    public TokenSlice(final char[] buffer, final int offset, final int length) throws IndexOutOfBoundsException {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) {
+            throw new IndexOutOfBoundsException("Slice [" + offset + ", " + (offset + length) + ") exceeds the buffer of length "
+                    + buffer.length + "!");
+        }
+
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.CharSequence#length()
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.CharSequence#charAt(int)
+     */
+    @Override
+    public char charAt(final int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " exceeds the slice of length " + this.length + "!");
+        }
+        return this.buffer[this.offset + index];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The returned sequence shares the buffer of this slice.
+     * </p>
+     *
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    @Override
+    public TokenSlice subSequence(final int start, final int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException("Sub-sequence [" + start + ", " + end + ") exceeds the slice of length "
+                    + this.length + "!");
+        }
+        return new TokenSlice(this.buffer, this.offset + start, end - start);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof TokenSlice && CharSequences.contentEquals(this, (TokenSlice) obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return CharSequences.hashCode(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * This copies the content of this slice into a new string.
+     * </p>
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return new String(this.buffer, this.offset, this.length);
+    }
+}
@@ -19,22 +19,84 @@
  */
 package de.fdamken.yalp.parsing.tt.representation;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Objects;
 
 import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.SymbolTable;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 
 /**
  * Wrapper class for the token tree.
  *
  */
 @Data
+@EqualsAndHashCode(exclude = "symbolTable")
 public class TokenTree implements IntermediateRepresentation {
     /**
      * The root container of the token tree.
      *
      */
     private final TokenTreeContainer rootContainer;
+    /**
+     * The symbol table containing the symbols of the token tree. This is not
+     * considered by {@link #equals(Object)}.
+     *
+     */
+    private final SymbolTable symbolTable;
+
+    /**
+     * Constructor of TokenTree.
+     *
+     * @param rootContainer
+     *            The root container of the token tree.
+     */
+    public TokenTree(final TokenTreeContainer rootContainer) {
+        this(rootContainer, new SymbolTable());
+    }
+
+    /**
+     * Constructor of TokenTree.
+     *
+     * @param rootContainer
+     *            The root container of the token tree.
+     * @param symbolTable
+     *            The symbol table containing the symbols of the token tree.
+     */
+    public TokenTree(final TokenTreeContainer rootContainer, final SymbolTable symbolTable) {
+        this.rootContainer = rootContainer;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The size of a token tree is the number of its elements (including all
+     * containers but the root container).
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        long size = 0;
+        final Deque<TokenTreeContainer> pending = new ArrayDeque<>();
+        pending.push(this.rootContainer);
+        while (!pending.isEmpty()) {
+            final TokenTreeContainer container = pending.pop();
+            size += container.size();
+            for (int i = 0; i < container.size(); i++) {
+                final TokenTreeElement element = container.get(i);
+                if (element instanceof TokenTreeContainer) {
+                    pending.push((TokenTreeContainer) element);
+                }
+            }
+        }
+        return size;
+    }
 
     /**
      * {@inheritDoc}
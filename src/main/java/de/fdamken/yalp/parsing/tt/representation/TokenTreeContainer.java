@@ -19,13 +19,11 @@
  */
 package de.fdamken.yalp.parsing.tt.representation;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
-
-import lombok.Data;
+import java.util.NoSuchElementException;
 
 /**
  * The {@link TokenTreeContainer list element container} contains other
@@ -35,21 +33,57 @@ import lombok.Data;
  * {@link SimpleTokenTreeElement simple list elements} <code>+</code>,
  * <code>1</code> and <code>2</code>).
  *
+ * <p>
+ * The elements are stored in an array that can be accessed using
+ * {@link #size()} and {@link #get(int)} without allocating anything. Once the
+ * container is {@link #freeze() frozen}, the container is immutable. The containers of a built token tree are always
+ * frozen, so {@link #getElements()} returns a view that is created only once
+ * and {@link #iterator()} allocates nothing but the iterator.
+ * </p>
+ *
  */
-@Data
 public class TokenTreeContainer implements TokenTreeElement, Iterable<TokenTreeElement> {
     /**
-     * The stored elements of this container.
+     * The initial capacity of the {@link #elements}.
+     *
+     */
+    private static final int INITIAL_CAPACITY = 4;
+    /**
+     * An empty array that is shared by all empty frozen containers.
      *
      */
-    private final List<TokenTreeElement> elements;
+    private static final TokenTreeElement[] EMPTY = new TokenTreeElement[0];
+
+    /**
+     * The stored elements of this container. Only the first {@link #size}
+     * elements are used.
+     *
+     */
+    private TokenTreeElement[] elements;
+    /**
+     * The number of stored elements.
+     *
+     */
+    private int size;
+    /**
+     * Whether this container is {@link #freeze() frozen}.
+     *
+     */
+    private boolean frozen;
+    /**
+     * The unmodifiable view of the elements returned by
+     * {@link #getElements()} once this container is {@link #freeze() frozen}
+     * or <code>null</code> if it is not frozen.
+     *
+     */
+    private List<TokenTreeElement> view;
 
     /**
      * Constructor of ListElementContainer.
      *
      */
     public TokenTreeContainer() {
-        this(new ArrayList<>());
+        this(new TokenTreeElement[TokenTreeContainer.INITIAL_CAPACITY], 0, false);
     }
 
     /**
@@ -57,9 +91,134 @@ public class TokenTreeContainer implements TokenTreeElement, Iterable<TokenTreeE
      *
      * @param elements
      *            The elements to set.
+     * @param size
+     *            The number of used elements.
+     * @param frozen
+     *            Whether the container is frozen.
      */
-    private TokenTreeContainer(final List<TokenTreeElement> elements) {
+    private TokenTreeContainer(final TokenTreeElement[] elements, final int size, final boolean frozen) {
         this.elements = elements;
+        this.size = size;
+        this.frozen = frozen;
+        if (frozen) {
+            this.view = TokenTreeContainer.createView(elements, size);
+        }
+    }
+
+    /**
+     * Creates a {@link #freeze() frozen} container of the first elements of
+     * the given array without copying it. The array must not be modified
+     * afterwards.
+     *
+     * @param elements
+     *            The elements.
+     * @param size
+     *            The number of used elements.
+     * @return The frozen container.
+     * @throws IndexOutOfBoundsException
+     *             If the size is negative or greater than the length of the
+     *             array.
+     */
+    public static TokenTreeContainer wrap(final TokenTreeElement[] elements, final int size) throws IndexOutOfBoundsException {
+        if (size < 0 || size > elements.length) {
+            throw new IndexOutOfBoundsException("Size: " + size + ", Length: " + elements.length);
+        }
+
+        return new TokenTreeContainer(size == 0 ? TokenTreeContainer.EMPTY : elements, size, true);
+    }
+
+    /**
+     *
+     * @return The number of stored elements.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the element at the given index.
+     *
+     * @param index
+     *            The index of the element.
+     * @return The element at the given index.
+     * @throws IndexOutOfBoundsException
+     *             If the index is negative or not less than {@link #size()}.
+     */
+    public TokenTreeElement get(final int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+
+        return this.elements[index];
+    }
+
+    /**
+     *
+     * @return An unmodifiable view of the stored elements.
+     */
+    public List<TokenTreeElement> getElements() {
+        return this.frozen ? this.view : TokenTreeContainer.createView(this.elements, this.size);
+    }
+
+    /**
+     *
+     * @return Whether this container is {@link #freeze() frozen}.
+     */
+    public boolean isFrozen() {
+        return this.frozen;
+    }
+
+    /**
+     * Trims the stored elements to the exact size and makes this container
+     * immutable. Freezing a frozen container does nothing.
+     *
+     */
+    public void freeze() {
+        if (!this.frozen) {
+            this.elements = this.size == 0 ? TokenTreeContainer.EMPTY : Arrays.copyOf(this.elements, this.size);
+            this.view = TokenTreeContainer.createView(this.elements, this.size);
+            this.frozen = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof TokenTreeContainer)) {
+            return false;
+        }
+
+        final TokenTreeContainer other = (TokenTreeContainer) obj;
+        if (this.size != other.size) {
+            return false;
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (!this.elements[i].equals(other.elements[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        int result = 1;
+        for (int i = 0; i < this.size; i++) {
+            result = 31 * result + this.elements[i].hashCode();
+        }
+        return result;
     }
 
     /**
@@ -69,29 +228,46 @@ public class TokenTreeContainer implements TokenTreeElement, Iterable<TokenTreeE
      */
     @Override
     public String toString() {
-        return "(" + this.elements.stream().map(Object::toString).collect(Collectors.joining(" ")) + ")";
+        final StringBuilder result = new StringBuilder("(");
+        for (int i = 0; i < this.size; i++) {
+            if (i > 0) {
+                result.append(' ');
+            }
+            result.append(this.elements[i]);
+        }
+        return result.append(')').toString();
     }
 
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * The iterator does not support {@link Iterator#remove()}.
+     * </p>
+     *
      * @see java.lang.Iterable#iterator()
      */
     @Override
     public Iterator<TokenTreeElement> iterator() {
-        // Create an unmodifiable list as iterating loops are able to remove
-        // elements from the initial list.
-        return Collections.unmodifiableList(this.elements).iterator();
+        return new ElementIterator(this.elements, this.size);
     }
 
     /**
      * {@inheritDoc}
      *
+     * <p>
+     * The copy is {@link #freeze() frozen}.
+     * </p>
+     *
      * @see de.fdamken.yalp.parsing.tt.representation.TokenTreeElement#copy()
      */
     @Override
     public TokenTreeContainer copy() {
-        return new TokenTreeContainer(this.elements.stream().map(TokenTreeElement::copy).collect(Collectors.toList()));
+        final TokenTreeElement[] copy = this.size == 0 ? TokenTreeContainer.EMPTY : new TokenTreeElement[this.size];
+        for (int i = 0; i < this.size; i++) {
+            copy[i] = this.elements[i].copy();
+        }
+        return new TokenTreeContainer(copy, this.size, true);
     }
 
     /**
@@ -100,8 +276,106 @@ public class TokenTreeContainer implements TokenTreeElement, Iterable<TokenTreeE
      *
      * @param element
      *            The {@link SimpleTokenTreeElement list element} to add.
+     * @throws IllegalStateException
+     *             If this container is {@link #freeze() frozen}.
      */
-    public void addElement(final TokenTreeElement element) {
-        this.elements.add(element);
+    public void addElement(final TokenTreeElement element) throws IllegalStateException {
+        if (this.frozen) {
+            throw new IllegalStateException("The container is frozen!");
+        }
+
+        if (this.size == this.elements.length) {
+            this.elements = Arrays.copyOf(this.elements, this.size * 2);
+        }
+        this.elements[this.size++] = element;
+    }
+
+    /**
+     * Creates an unmodifiable view of the first elements of the given array.
+     *
+     * @param elements
+     *            The elements.
+     * @param size
+     *            The number of used elements.
+     * @return The view.
+     */
+    private static List<TokenTreeElement> createView(final TokenTreeElement[] elements, final int size) {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        final List<TokenTreeElement> list = Arrays.asList(elements);
+        return Collections.unmodifiableList(size == elements.length ? list : list.subList(0, size));
+    }
+
+    /**
+     * Iterates over the first elements of an array.
+     *
+     */
+    private static final class ElementIterator implements Iterator<TokenTreeElement> {
+        /**
+         * The elements.
+         *
+         */
+        private final TokenTreeElement[] elements;
+        /**
+         * The number of used elements.
+         *
+         */
+        private final int size;
+        /**
+         * The index of the next element.
+         *
+         */
+        private int index;
+
+        /**
+         * Constructor of ElementIterator.
+         *
+         * @param elements
+         *            The elements.
+         * @param size
+         *            The number of used elements.
+         */
+        ElementIterator(final TokenTreeElement[] elements, final int size) {
+            this.elements = elements;
+            this.size = size;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return this.index < this.size;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public TokenTreeElement next() {
+            if (this.index >= this.size) {
+                throw new NoSuchElementException();
+            }
+            return this.elements[this.index++];
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * <p>
+         * Removing elements is not supported.
+         * </p>
+         *
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("The elements of a token tree container cannot be removed!");
+        }
     }
 }
@@ -0,0 +1,333 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The built-in functions that take any number of arguments as function values
+ * (e.g. <code>list</code> in <code>(map list l)</code>). All execution
+ * engines use these procedures, as their own function values have a fixed
+ * number of parameters.
+ *
+ */
+public enum Builtin implements Procedure {
+    /**
+     * <code>+</code>.
+     *
+     */
+    ADD("+", 0) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            Object result = 0L;
+            for (int i = start; i < start + count; i++) {
+                result = Numbers.add(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>-</code>: Negates a single operand.
+     *
+     */
+    SUBTRACT("-", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            if (count == 1) {
+                return Numbers.subtract(0L, values[start]);
+            }
+            Object result = values[start];
+            for (int i = start + 1; i < start + count; i++) {
+                result = Numbers.subtract(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>*</code>.
+     *
+     */
+    MULTIPLY("*", 0) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            Object result = 1L;
+            for (int i = start; i < start + count; i++) {
+                result = Numbers.multiply(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>/</code>: Inverts a single operand.
+     *
+     */
+    DIVIDE("/", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            if (count == 1) {
+                return Numbers.divide(1L, values[start]);
+            }
+            Object result = values[start];
+            for (int i = start + 1; i < start + count; i++) {
+                result = Numbers.divide(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>max</code>.
+     *
+     */
+    MAX("max", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            Object result = Numbers.max(values[start], values[start]);
+            for (int i = start + 1; i < start + count; i++) {
+                result = Numbers.max(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>min</code>.
+     *
+     */
+    MIN("min", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            Object result = Numbers.min(values[start], values[start]);
+            for (int i = start + 1; i < start + count; i++) {
+                result = Numbers.min(result, values[i]);
+            }
+            return result;
+        }
+    },
+    /**
+     * <code>&lt;</code>.
+     *
+     */
+    LESS("<", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            return this.compare(values, start, count);
+        }
+    },
+    /**
+     * <code>&lt;=</code>.
+     *
+     */
+    LESS_OR_EQUAL("<=", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            return this.compare(values, start, count);
+        }
+    },
+    /**
+     * <code>&gt;</code>.
+     *
+     */
+    GREATER(">", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            return this.compare(values, start, count);
+        }
+    },
+    /**
+     * <code>&gt;=</code>.
+     *
+     */
+    GREATER_OR_EQUAL(">=", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            return this.compare(values, start, count);
+        }
+    },
+    /**
+     * <code>=</code>.
+     *
+     */
+    NUMBER_EQUAL("=", 1) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) throws EvaluationException {
+            return this.compare(values, start, count);
+        }
+    },
+    /**
+     * <code>list</code>.
+     *
+     */
+    LIST("list", 0) {
+        @Override
+        public Object apply(final Object[] values, final int start, final int count) {
+            Pair result = Pair.EMPTY;
+            for (int i = start + count - 1; i >= start; i--) {
+                result = Pair.cons(values[i], result);
+            }
+            return result;
+        }
+    };
+
+    /**
+     * The built-in functions, indexed by their names.
+     *
+     */
+    private static final Map<String, Builtin> BUILTINS = new HashMap<>();
+
+    static {
+        for (final Builtin builtin : Builtin.values()) {
+            Builtin.BUILTINS.put(builtin.name, builtin);
+        }
+    }
+
+    /**
+     * The name of the function.
+     *
+     */
+    private final String name;
+    /**
+     * The minimum number of arguments.
+     *
+     */
+    private final int minArity;
+
+    /**
+     * Constructor of Builtin.
+     *
+     * @param name
+     *            The name of the function.
+     * @param minArity
+     *            The minimum number of arguments.
+     */
+    Builtin(final String name, final int minArity) {
+        this.name = name;
+        this.minArity = minArity;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The built-in functions take any number of arguments, so this is always
+     * <code>-1</code>.
+     * </p>
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#getArity()
+     */
+    @Override
+    public int getArity() {
+        return -1;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#apply(java.lang.Object[])
+     */
+    @Override
+    public Object apply(final Object[] arguments) throws EvaluationException {
+        if (arguments.length < this.minArity) {
+            throw new EvaluationException(this.name + ": expects at least " + this.minArity
+                    + " argument(s), but received " + arguments.length + "!");
+        }
+        return this.apply(arguments, 0, arguments.length);
+    }
+
+    /**
+     * Applies this function to consecutive values of an array without
+     * checking the number of arguments.
+     *
+     * @param values
+     *            The array holding the arguments.
+     * @param start
+     *            The index of the first argument.
+     * @param count
+     *            The number of arguments. Must be at least the minimum number
+     *            of arguments.
+     * @return The result.
+     * @throws EvaluationException
+     *             If the arguments are invalid.
+     */
+    public abstract Object apply(final Object[] values, final int start, final int count) throws EvaluationException;
+
+    /**
+     * Retrieves the name of the function.
+     *
+     * @return The name of the function.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Retrieves the built-in function with the given name.
+     *
+     * @param name
+     *            The name of the function.
+     * @return The built-in function.
+     * @throws IllegalArgumentException
+     *             If there is no such function.
+     */
+    public static Builtin forName(final String name) throws IllegalArgumentException {
+        final Builtin builtin = Builtin.BUILTINS.get(name);
+        if (builtin == null) {
+            throw new IllegalArgumentException("Unknown built-in function " + name + "!");
+        }
+        return builtin;
+    }
+
+    /**
+     * Compares numbers pairwise using this comparison.
+     *
+     * @param values
+     *            The array holding the numbers.
+     * @param start
+     *            The index of the first number.
+     * @param count
+     *            The number of numbers.
+     * @return Whether all pairs match the comparison.
+     * @throws EvaluationException
+     *             If a value is not a number.
+     */
+    Object compare(final Object[] values, final int start, final int count) throws EvaluationException {
+        boolean result = true;
+        for (int i = start; i < start + count - 1; i++) {
+            final int comparison = Numbers.compare(values[i], values[i + 1], this.name);
+            switch (this) {
+                case LESS:
+                    result &= comparison < 0;
+                    break;
+                case LESS_OR_EQUAL:
+                    result &= comparison <= 0;
+                    break;
+                case GREATER:
+                    result &= comparison > 0;
+                    break;
+                case GREATER_OR_EQUAL:
+                    result &= comparison >= 0;
+                    break;
+                default:
+                    result &= comparison == 0;
+                    break;
+            }
+        }
+        return Boolean.valueOf(result && (count > 1 || Numbers.isNumber(values[start])));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+/**
+ * Thrown if an error occurs while a program is evaluated (e.g. a division by
+ * zero or a call of a function with the wrong number of arguments).
+ *
+ */
+public class EvaluationException extends RuntimeException {
+    /**
+     * The serial version UID.
+     *
+     */
+    private static final long serialVersionUID = 6021744237106418337L;
+
+    /**
+     * Constructor of EvaluationException.
+     *
+     * @param message
+     *            The error message.
+     */
+    public EvaluationException(final String message) {
+        super(message);
+    }
+
+    /**
+     * Constructor of EvaluationException.
+     *
+     * @param message
+     *            The error message.
+     * @param cause
+     *            The cause of the error.
+     */
+    public EvaluationException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs evaluations on separate threads with a large stack. The execution
+ * engines that evaluate function calls on the Java stack would otherwise be
+ * limited to a recursion depth of a few thousand calls by the default stack
+ * size. If the stack is exhausted nevertheless, an
+ * {@link EvaluationException} is thrown instead of the
+ * {@link StackOverflowError}.
+ *
+ * <p>
+ * The threads are daemon threads of a pool with at most one thread per
+ * processor that are stopped when they are idle, so they neither keep the JVM
+ * alive nor have to be created for every evaluation. If the thread waiting
+ * for an evaluation is interrupted, the evaluation is cancelled: The
+ * evaluation thread is interrupted and the execution engines check that flag
+ * with {@link #checkCancelled()} wherever an evaluation may loop forever.
+ * </p>
+ *
+ */
+public final class EvaluationThread {
+    /**
+     * The size of the stack of the evaluation threads in bytes.
+     *
+     */
+    public static final long STACK_SIZE = 64L * 1024 * 1024;
+    /**
+     * The maximum number of evaluation threads.
+     *
+     */
+    private static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    /**
+     * The time in seconds an idle evaluation thread is kept.
+     *
+     */
+    private static final long KEEP_ALIVE = 60;
+
+    /**
+     * The number of the next evaluation thread (used for its name).
+     *
+     */
+    private static final AtomicInteger NEXT_NUMBER = new AtomicInteger();
+    /**
+     * The pool of the evaluation threads.
+     *
+     */
+    private static final ExecutorService EXECUTOR;
+
+    static {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(EvaluationThread.MAX_THREADS,
+                EvaluationThread.MAX_THREADS, EvaluationThread.KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(null, runnable,
+                            "yalp-evaluation-" + EvaluationThread.NEXT_NUMBER.incrementAndGet(), EvaluationThread.STACK_SIZE);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        EXECUTOR = executor;
+    }
+
+    /**
+     * Constructor of EvaluationThread.
+     *
+     */
+    private EvaluationThread() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Runs the given evaluation on an evaluation thread with a stack of
+     * {@link #STACK_SIZE} bytes and waits for it to finish. Exceptions thrown
+     * by the evaluation are rethrown by this method. If the current thread is
+     * interrupted while waiting, the evaluation is cancelled and this method
+     * waits until it stopped.
+     *
+     * @param <T>
+     *            The type of the result.
+     * @param evaluation
+     *            The evaluation.
+     * @return The result of the evaluation.
+     * @throws EvaluationException
+     *             If the evaluation fails, the stack is exhausted or the
+     *             current thread is interrupted while waiting.
+     */
+    public static <T> T run(final Supplier<T> evaluation) throws EvaluationException {
+        final Evaluation<T> task = new Evaluation<>(evaluation);
+        EvaluationThread.EXECUTOR.execute(task);
+        try {
+            task.await();
+        } catch (final InterruptedException ex) {
+            task.cancel();
+            Thread.currentThread().interrupt();
+            throw new EvaluationException("Interrupted while waiting for the evaluation!", ex);
+        }
+        return task.getResult();
+    }
+
+    /**
+     * Checks whether the evaluation running on the current thread has been
+     * cancelled. The execution engines call this method wherever an
+     * evaluation may loop forever, e.g. when executing tail calls.
+     *
+     * @throws EvaluationException
+     *             If the evaluation has been cancelled.
+     */
+    public static void checkCancelled() throws EvaluationException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new EvaluationException("The evaluation was cancelled!");
+        }
+    }
+
+    /**
+     * An evaluation that is run by an evaluation thread.
+     *
+     * @param <T>
+     *            The type of the result.
+     */
+    private static final class Evaluation<T> implements Runnable {
+        /**
+         * The evaluation.
+         *
+         */
+        private final Supplier<T> evaluation;
+        /**
+         * The result of the evaluation.
+         *
+         */
+        private T result;
+        /**
+         * The exception thrown by the evaluation or <code>null</code>.
+         *
+         */
+        private Throwable failure;
+        /**
+         * The thread running the evaluation or <code>null</code> if it is
+         * not running.
+         *
+         */
+        private Thread thread;
+        /**
+         * Whether the evaluation has been cancelled.
+         *
+         */
+        private boolean cancelled;
+        /**
+         * Whether the evaluation has finished.
+         *
+         */
+        private boolean finished;
+
+        /**
+         * Constructor of Evaluation.
+         *
+         * @param evaluation
+         *            The evaluation.
+         */
+        Evaluation(final Supplier<T> evaluation) {
+            this.evaluation = evaluation;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (this.cancelled) {
+                    return;
+                }
+                this.thread = Thread.currentThread();
+            }
+            try {
+                this.result = this.evaluation.get();
+            } catch (final StackOverflowError ex) {
+                this.failure = new EvaluationException("Maximum recursion depth exceeded!");
+            } catch (final RuntimeException | Error ex) {
+                this.failure = ex;
+            } finally {
+                synchronized (this) {
+                    // Clear an interrupt of a cancellation, as the thread is
+                    // reused.
+                    Thread.interrupted();
+                    this.thread = null;
+                    this.finished = true;
+                    this.notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Waits until the evaluation has finished.
+         *
+         * @throws InterruptedException
+         *             If the current thread is interrupted while waiting.
+         */
+        synchronized void await() throws InterruptedException {
+            while (!this.finished) {
+                this.wait();
+            }
+        }
+
+        /**
+         * Cancels the evaluation and waits until it has stopped if it is
+         * running already. An evaluation that has not been started yet is
+         * never started.
+         *
+         */
+        synchronized void cancel() {
+            this.cancelled = true;
+            if (this.thread != null) {
+                this.thread.interrupt();
+            }
+            boolean interrupted = false;
+            while (this.thread != null) {
+                try {
+                    this.wait();
+                } catch (final InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Retrieves the result of the finished evaluation.
+         *
+         * @return The result.
+         * @throws EvaluationException
+         *             If the evaluation failed.
+         */
+        T getResult() throws EvaluationException {
+            if (this.failure instanceof RuntimeException) {
+                throw (RuntimeException) this.failure;
+            } else if (this.failure instanceof Error) {
+                throw (Error) this.failure;
+            }
+            return this.result;
+        }
+    }
+}
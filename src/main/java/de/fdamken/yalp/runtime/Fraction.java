@@ -0,0 +1,109 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * An exact rational number that is not an integer. Fractions are always
+ * reduced and have a positive denominator.
+ *
+ */
+@Getter
+@EqualsAndHashCode
+public final class Fraction {
+    /**
+     * The numerator.
+     *
+     */
+    private final BigInteger numerator;
+    /**
+     * The denominator. Always greater than one.
+     *
+     */
+    private final BigInteger denominator;
+
+    /**
+     * Constructor of Fraction.
+     *
+     * @param numerator
+     *            The reduced numerator.
+     * @param denominator
+     *            The reduced denominator.
+     */
+    private Fraction(final BigInteger numerator, final BigInteger denominator) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+    }
+
+    /**
+     * Creates the exact number <code>numerator / denominator</code>.
+     *
+     * @param numerator
+     *            The numerator.
+     * @param denominator
+     *            The denominator. Must not be zero.
+     * @return The number. Either a {@link Fraction} or, if the result is an
+     *         integer, an integer as returned by
+     *         {@link Numbers#normalize(BigInteger)}.
+     * @throws EvaluationException
+     *             If the denominator is zero.
+     */
+    public static Object of(final BigInteger numerator, final BigInteger denominator) throws EvaluationException {
+        if (denominator.signum() == 0) {
+            throw new EvaluationException("/: division by zero!");
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (denominator.signum() < 0) {
+            gcd = gcd.negate();
+        }
+        final BigInteger reducedNumerator = numerator.divide(gcd);
+        final BigInteger reducedDenominator = denominator.divide(gcd);
+        if (reducedDenominator.equals(BigInteger.ONE)) {
+            return Numbers.normalize(reducedNumerator);
+        }
+        return new Fraction(reducedNumerator, reducedDenominator);
+    }
+
+    /**
+     * Converts this fraction to a floating point number.
+     *
+     * @return The floating point number.
+     */
+    public double doubleValue() {
+        return new BigDecimal(this.numerator).divide(new BigDecimal(this.denominator), MathContext.DECIMAL64)
+                .doubleValue();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return this.numerator + "/" + this.denominator;
+    }
+}
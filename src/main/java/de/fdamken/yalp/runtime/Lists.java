@@ -0,0 +1,355 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list functions of the runtime. The functions check their arguments and
+ * throw an {@link EvaluationException} with the name of the function if they
+ * have the wrong type.
+ *
+ */
+public final class Lists {
+    /**
+     * The names of the functions that retrieve the n-th element of a list.
+     *
+     */
+    private static final String[] NTH_NAMES = { "first", "second", "third", "fourth", "fifth", "sixth", "seventh",
+            "eighth" };
+
+    /**
+     * Constructor of Lists.
+     *
+     */
+    private Lists() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Casts the given value to a list.
+     *
+     * @param value
+     *            The value.
+     * @param function
+     *            The name of the function that expects the list.
+     * @return The list.
+     * @throws EvaluationException
+     *             If the value is not a list.
+     */
+    public static Pair toList(final Object value, final String function) throws EvaluationException {
+        if (!(value instanceof Pair)) {
+            throw new EvaluationException(function + ": expects a list, but received " + Values.toPrintString(value) + "!");
+        }
+        return (Pair) value;
+    }
+
+    /**
+     * Creates a list of the given elements (<code>list</code>).
+     *
+     * @param elements
+     *            The elements.
+     * @return The list.
+     */
+    public static Pair list(final Object... elements) {
+        Pair list = Pair.EMPTY;
+        for (int i = elements.length - 1; i >= 0; i--) {
+            list = Pair.cons(elements[i], list);
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves the first element of the given list (<code>first</code>).
+     *
+     * @param list
+     *            The list.
+     * @return The first element.
+     * @throws EvaluationException
+     *             If the value is not a non-empty list.
+     */
+    public static Object first(final Object list) throws EvaluationException {
+        return Lists.toList(list, "first").getFirst();
+    }
+
+    /**
+     * Retrieves the rest of the given list (<code>rest</code>).
+     *
+     * @param list
+     *            The list.
+     * @return The rest.
+     * @throws EvaluationException
+     *             If the value is not a non-empty list.
+     */
+    public static Pair rest(final Object list) throws EvaluationException {
+        return Lists.toList(list, "rest").getRest();
+    }
+
+    /**
+     * Retrieves the element with the given index of the given list
+     * (<code>first</code> to <code>eighth</code>).
+     *
+     * @param list
+     *            The list.
+     * @param index
+     *            The index of the element (<code>0</code> to
+     *            <code>7</code>).
+     * @return The element.
+     * @throws EvaluationException
+     *             If the value is not a list or the list is too short.
+     */
+    public static Object nth(final Object list, final int index) throws EvaluationException {
+        final String name = Lists.NTH_NAMES[index];
+        Pair current = Lists.toList(list, name);
+        for (int i = 0; i < index && !current.isEmpty(); i++) {
+            current = current.getRest();
+        }
+        if (current.isEmpty()) {
+            throw new EvaluationException(
+                    name + ": expects a list with at least " + (index + 1) + " element(s), but received "
+                            + Values.toPrintString(list) + "!");
+        }
+        return current.getFirst();
+    }
+
+    /**
+     * Counts the elements of the given list (<code>length</code>).
+     *
+     * @param list
+     *            The list.
+     * @return The number of elements.
+     * @throws EvaluationException
+     *             If the value is not a list.
+     */
+    public static long length(final Object list) throws EvaluationException {
+        long length = 0;
+        for (Pair current = Lists.toList(list, "length"); !current.isEmpty(); current = current.getRest()) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Appends the second list to the first list (<code>append</code>).
+     *
+     * @param first
+     *            The first list.
+     * @param second
+     *            The second list.
+     * @return The concatenation of the lists.
+     * @throws EvaluationException
+     *             If one of the values is not a list.
+     */
+    public static Pair append(final Object first, final Object second) throws EvaluationException {
+        final Pair secondList = Lists.toList(second, "append");
+        final List<Object> elements = Lists.toJavaList(Lists.toList(first, "append"));
+        Pair result = secondList;
+        for (int i = elements.size() - 1; i >= 0; i--) {
+            result = Pair.cons(elements.get(i), result);
+        }
+        return result;
+    }
+
+    /**
+     * Applies the given function to the elements of the given lists
+     * (<code>map</code>).
+     *
+     * @param function
+     *            The function.
+     * @param lists
+     *            The lists. All lists must have the same length.
+     * @return The list of the results.
+     * @throws EvaluationException
+     *             If an argument is invalid or the function fails.
+     */
+    public static Pair map(final Procedure function, final Object[] lists) throws EvaluationException {
+        final Pair[] current = Lists.toLists(lists, "map");
+        final List<Object> results = new ArrayList<>();
+        while (!current[0].isEmpty()) {
+            results.add(function.apply(Lists.nextElements(current, 0, "map")));
+        }
+        Lists.checkEnd(current, "map");
+        return Lists.list(results.toArray());
+    }
+
+    /**
+     * Folds the given lists from the left (<code>foldl</code>): The function
+     * is called with the elements and the accumulated value as the last
+     * argument.
+     *
+     * @param function
+     *            The function.
+     * @param start
+     *            The initial value.
+     * @param lists
+     *            The lists. All lists must have the same length.
+     * @return The accumulated value.
+     * @throws EvaluationException
+     *             If an argument is invalid or the function fails.
+     */
+    public static Object foldl(final Procedure function, final Object start, final Object[] lists)
+            throws EvaluationException {
+        final Pair[] current = Lists.toLists(lists, "foldl");
+        Object result = start;
+        while (!current[0].isEmpty()) {
+            final Object[] arguments = Lists.nextElements(current, 1, "foldl");
+            arguments[lists.length] = result;
+            result = function.apply(arguments);
+        }
+        Lists.checkEnd(current, "foldl");
+        return result;
+    }
+
+    /**
+     * Folds the given lists from the right (<code>foldr</code>): The function
+     * is called with the elements and the accumulated value as the last
+     * argument, starting with the last elements.
+     *
+     * @param function
+     *            The function.
+     * @param start
+     *            The initial value.
+     * @param lists
+     *            The lists. All lists must have the same length.
+     * @return The accumulated value.
+     * @throws EvaluationException
+     *             If an argument is invalid or the function fails.
+     */
+    public static Object foldr(final Procedure function, final Object start, final Object[] lists)
+            throws EvaluationException {
+        final Pair[] current = Lists.toLists(lists, "foldr");
+        final List<Object[]> argumentLists = new ArrayList<>();
+        while (!current[0].isEmpty()) {
+            argumentLists.add(Lists.nextElements(current, 1, "foldr"));
+        }
+        Lists.checkEnd(current, "foldr");
+
+        Object result = start;
+        for (int i = argumentLists.size() - 1; i >= 0; i--) {
+            final Object[] arguments = argumentLists.get(i);
+            arguments[lists.length] = result;
+            result = function.apply(arguments);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the elements of the given list for which the given function
+     * returns a true value (<code>filter</code>).
+     *
+     * @param function
+     *            The function.
+     * @param list
+     *            The list.
+     * @return The filtered list.
+     * @throws EvaluationException
+     *             If an argument is invalid or the function fails.
+     */
+    public static Pair filter(final Procedure function, final Object list) throws EvaluationException {
+        final List<Object> results = new ArrayList<>();
+        for (Pair current = Lists.toList(list, "filter"); !current.isEmpty(); current = current.getRest()) {
+            final Object element = current.getFirst();
+            if (Values.isTrue(function.apply(new Object[] { element }))) {
+                results.add(element);
+            }
+        }
+        return Lists.list(results.toArray());
+    }
+
+    /**
+     * Copies the elements of the given list into a Java list.
+     *
+     * @param list
+     *            The list.
+     * @return The Java list.
+     */
+    public static List<Object> toJavaList(final Pair list) {
+        final List<Object> elements = new ArrayList<>();
+        for (Pair current = list; !current.isEmpty(); current = current.getRest()) {
+            elements.add(current.getFirst());
+        }
+        return elements;
+    }
+
+    /**
+     * Casts the given values to lists.
+     *
+     * @param lists
+     *            The values.
+     * @param function
+     *            The name of the function that expects the lists.
+     * @return The lists.
+     * @throws EvaluationException
+     *             If a value is not a list.
+     */
+    private static Pair[] toLists(final Object[] lists, final String function) throws EvaluationException {
+        final Pair[] result = new Pair[lists.length];
+        for (int i = 0; i < lists.length; i++) {
+            result[i] = Lists.toList(lists[i], function);
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the next elements of the given lists and advances the lists.
+     *
+     * @param current
+     *            The remaining lists. The first list must not be empty.
+     * @param extra
+     *            The number of additional empty slots at the end of the
+     *            returned array.
+     * @param function
+     *            The name of the function.
+     * @return The elements.
+     * @throws EvaluationException
+     *             If the lists have different lengths.
+     */
+    private static Object[] nextElements(final Pair[] current, final int extra, final String function)
+            throws EvaluationException {
+        final Object[] elements = new Object[current.length + extra];
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].isEmpty()) {
+                throw new EvaluationException(function + ": all lists must have the same size!");
+            }
+            elements[i] = current[i].getFirst();
+            current[i] = current[i].getRest();
+        }
+        return elements;
+    }
+
+    /**
+     * Checks whether all the given lists are empty.
+     *
+     * @param current
+     *            The remaining lists.
+     * @param function
+     *            The name of the function.
+     * @throws EvaluationException
+     *             If the lists have different lengths.
+     */
+    private static void checkEnd(final Pair[] current, final String function) throws EvaluationException {
+        for (final Pair list : current) {
+            if (!list.isEmpty()) {
+                throw new EvaluationException(function + ": all lists must have the same size!");
+            }
+        }
+    }
+}
@@ -0,0 +1,650 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.math.BigInteger;
+
+/**
+ * The numeric tower of the runtime. Numbers are represented as follows, from
+ * the lowest to the highest rank:
+ *
+ * <ul>
+ * <li>{@link Long}: Exact integers that fit into 64 bits.</li>
+ * <li>{@link BigInteger}: Exact integers that do not fit into 64 bits.</li>
+ * <li>{@link Fraction}: Exact rational numbers that are not integers.</li>
+ * <li>{@link Double}: Inexact numbers.</li>
+ * </ul>
+ *
+ * <p>
+ * Operations convert their operands to the highest rank of both operands.
+ * Exact integer results are always normalized to a {@link Long} if they fit.
+ * </p>
+ *
+ */
+public final class Numbers {
+    /**
+     * The rank of {@link Long}.
+     *
+     */
+    private static final int RANK_LONG = 0;
+    /**
+     * The rank of {@link BigInteger}.
+     *
+     */
+    private static final int RANK_BIG_INTEGER = 1;
+    /**
+     * The rank of {@link Fraction}.
+     *
+     */
+    private static final int RANK_FRACTION = 2;
+    /**
+     * The rank of {@link Double}.
+     *
+     */
+    private static final int RANK_DOUBLE = 3;
+
+    /**
+     * The smallest {@link Long} as a {@link BigInteger}.
+     *
+     */
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    /**
+     * The greatest {@link Long} as a {@link BigInteger}.
+     *
+     */
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+    /**
+     * Constructor of Numbers.
+     *
+     */
+    private Numbers() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks whether the given value is a number.
+     *
+     * @param value
+     *            The value.
+     * @return Whether the value is a number.
+     */
+    public static boolean isNumber(final Object value) {
+        return value instanceof Long || value instanceof Double || value instanceof Fraction
+                || value instanceof BigInteger;
+    }
+
+    /**
+     * Checks whether the given value is an exact integer.
+     *
+     * @param value
+     *            The value.
+     * @return Whether the value is an exact integer.
+     */
+    public static boolean isInteger(final Object value) {
+        return value instanceof Long || value instanceof BigInteger;
+    }
+
+    /**
+     * Converts the given {@link BigInteger} to a {@link Long} if it fits.
+     *
+     * @param value
+     *            The integer.
+     * @return The normalized integer.
+     */
+    public static Object normalize(final BigInteger value) {
+        if (value.compareTo(Numbers.LONG_MIN) >= 0 && value.compareTo(Numbers.LONG_MAX) <= 0) {
+            return value.longValue();
+        }
+        return value;
+    }
+
+    /**
+     * Adds the given numbers (<code>+</code>).
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The sum.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object add(final Object a, final Object b) throws EvaluationException {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.addExact((Long) a, (Long) b);
+            } catch (final ArithmeticException e) {
+                return BigInteger.valueOf((Long) a).add(BigInteger.valueOf((Long) b));
+            }
+        }
+        switch (Numbers.rank(a, b, "+")) {
+            case RANK_DOUBLE:
+                return Numbers.toDouble(a) + Numbers.toDouble(b);
+            case RANK_FRACTION:
+                return Fraction.of(Numbers.numerator(a).multiply(Numbers.denominator(b))
+                        .add(Numbers.numerator(b).multiply(Numbers.denominator(a))),
+                        Numbers.denominator(a).multiply(Numbers.denominator(b)));
+            default:
+                return Numbers.normalize(Numbers.toBigInteger(a).add(Numbers.toBigInteger(b)));
+        }
+    }
+
+    /**
+     * Subtracts the second number from the first number (<code>-</code>).
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The difference.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object subtract(final Object a, final Object b) throws EvaluationException {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.subtractExact((Long) a, (Long) b);
+            } catch (final ArithmeticException e) {
+                return BigInteger.valueOf((Long) a).subtract(BigInteger.valueOf((Long) b));
+            }
+        }
+        switch (Numbers.rank(a, b, "-")) {
+            case RANK_DOUBLE:
+                return Numbers.toDouble(a) - Numbers.toDouble(b);
+            case RANK_FRACTION:
+                return Fraction.of(Numbers.numerator(a).multiply(Numbers.denominator(b))
+                        .subtract(Numbers.numerator(b).multiply(Numbers.denominator(a))),
+                        Numbers.denominator(a).multiply(Numbers.denominator(b)));
+            default:
+                return Numbers.normalize(Numbers.toBigInteger(a).subtract(Numbers.toBigInteger(b)));
+        }
+    }
+
+    /**
+     * Multiplies the given numbers (<code>*</code>).
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The product.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object multiply(final Object a, final Object b) throws EvaluationException {
+        if (a instanceof Long && b instanceof Long) {
+            try {
+                return Math.multiplyExact((Long) a, (Long) b);
+            } catch (final ArithmeticException e) {
+                return BigInteger.valueOf((Long) a).multiply(BigInteger.valueOf((Long) b));
+            }
+        }
+        switch (Numbers.rank(a, b, "*")) {
+            case RANK_DOUBLE:
+                return Numbers.toDouble(a) * Numbers.toDouble(b);
+            case RANK_FRACTION:
+                return Fraction.of(Numbers.numerator(a).multiply(Numbers.numerator(b)),
+                        Numbers.denominator(a).multiply(Numbers.denominator(b)));
+            default:
+                return Numbers.normalize(Numbers.toBigInteger(a).multiply(Numbers.toBigInteger(b)));
+        }
+    }
+
+    /**
+     * Divides the first number by the second number (<code>/</code>). The
+     * quotient of exact numbers is exact.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The quotient.
+     * @throws EvaluationException
+     *             If one of the values is not a number or the second number
+     *             is an exact zero.
+     */
+    public static Object divide(final Object a, final Object b) throws EvaluationException {
+        if (a instanceof Long && b instanceof Long) {
+            final long x = (Long) a;
+            final long y = (Long) b;
+            if (y != 0 && x % y == 0 && !(x == Long.MIN_VALUE && y == -1)) {
+                return x / y;
+            }
+        }
+        final int rank = Numbers.rank(a, b, "/");
+        if (rank == Numbers.RANK_DOUBLE && !(Numbers.isInteger(b) && Numbers.isZero(b))) {
+            return Numbers.toDouble(a) / Numbers.toDouble(b);
+        }
+        if (b instanceof Double || Numbers.isZero(b)) {
+            throw new EvaluationException("/: division by zero!");
+        }
+        return Fraction.of(Numbers.numerator(a).multiply(Numbers.denominator(b)),
+                Numbers.denominator(a).multiply(Numbers.numerator(b)));
+    }
+
+    /**
+     * Compares the given numbers.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @param function
+     *            The name of the comparing function.
+     * @return A negative integer, zero or a positive integer if the first
+     *         number is less than, equal to or greater than the second
+     *         number.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static int compare(final Object a, final Object b, final String function) throws EvaluationException {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare((Long) a, (Long) b);
+        }
+        switch (Numbers.rank(a, b, function)) {
+            case RANK_DOUBLE:
+                return Double.compare(Numbers.toDouble(a), Numbers.toDouble(b));
+            case RANK_FRACTION:
+                return Numbers.numerator(a).multiply(Numbers.denominator(b))
+                        .compareTo(Numbers.numerator(b).multiply(Numbers.denominator(a)));
+            default:
+                return Numbers.toBigInteger(a).compareTo(Numbers.toBigInteger(b));
+        }
+    }
+
+    /**
+     * Returns the greater of the given numbers (<code>max</code>). If one of
+     * the numbers is inexact, the result is inexact.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The greater number.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object max(final Object a, final Object b) throws EvaluationException {
+        return Numbers.select(a, b, Numbers.compare(a, b, "max") >= 0);
+    }
+
+    /**
+     * Returns the smaller of the given numbers (<code>min</code>). If one of
+     * the numbers is inexact, the result is inexact.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The smaller number.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object min(final Object a, final Object b) throws EvaluationException {
+        return Numbers.select(a, b, Numbers.compare(a, b, "min") <= 0);
+    }
+
+    /**
+     * Computes the absolute value of the given number (<code>abs</code>).
+     *
+     * @param value
+     *            The number.
+     * @return The absolute value.
+     * @throws EvaluationException
+     *             If the value is not a number.
+     */
+    public static Object abs(final Object value) throws EvaluationException {
+        return Numbers.compare(value, 0L, "abs") < 0 ? Numbers.subtract(0L, value) : value;
+    }
+
+    /**
+     * Computes the greatest integer not greater than the given number
+     * (<code>floor</code>).
+     *
+     * @param value
+     *            The number.
+     * @return The floor of the number. Exact if the number is exact.
+     * @throws EvaluationException
+     *             If the value is not a number.
+     */
+    public static Object floor(final Object value) throws EvaluationException {
+        switch (Numbers.rank(value, value, "floor")) {
+            case RANK_DOUBLE:
+                return Math.floor((Double) value);
+            case RANK_FRACTION:
+                final Fraction fraction = (Fraction) value;
+                final BigInteger[] division = fraction.getNumerator().divideAndRemainder(fraction.getDenominator());
+                return Numbers.normalize(
+                        fraction.getNumerator().signum() < 0 ? division[0].subtract(BigInteger.ONE) : division[0]);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Computes the square root of the given number (<code>sqrt</code>). The
+     * result is exact if the number is an exact square.
+     *
+     * @param value
+     *            The number.
+     * @return The square root.
+     * @throws EvaluationException
+     *             If the value is not a number or negative.
+     */
+    public static Object sqrt(final Object value) throws EvaluationException {
+        if (Numbers.compare(value, 0L, "sqrt") < 0) {
+            throw new EvaluationException("sqrt: expects a non-negative number, but received "
+                    + Values.toPrintString(value) + "!");
+        }
+        if (!(value instanceof Double)) {
+            final BigInteger numerator = Numbers.exactSqrt(Numbers.numerator(value));
+            final BigInteger denominator = Numbers.exactSqrt(Numbers.denominator(value));
+            if (numerator != null && denominator != null) {
+                return Fraction.of(numerator, denominator);
+            }
+        }
+        return Math.sqrt(Numbers.toDouble(value));
+    }
+
+    /**
+     * Raises the given base to the given power (<code>expt</code>). The
+     * result is exact if the base is exact and the exponent is an exact
+     * integer.
+     *
+     * @param base
+     *            The base.
+     * @param exponent
+     *            The exponent.
+     * @return The power.
+     * @throws EvaluationException
+     *             If one of the values is not a number or an exact zero is
+     *             raised to a negative power.
+     */
+    public static Object expt(final Object base, final Object exponent) throws EvaluationException {
+        if (Numbers.rank(base, exponent, "expt") == Numbers.RANK_DOUBLE || !(exponent instanceof Long)) {
+            return Math.pow(Numbers.toDouble(base), Numbers.toDouble(exponent));
+        }
+        final long power = (Long) exponent;
+        if (power < 0 && Numbers.isZero(base)) {
+            throw new EvaluationException("expt: division by zero!");
+        }
+        if (Math.abs(power) > Integer.MAX_VALUE) {
+            throw new EvaluationException("expt: exponent is too large!");
+        }
+        final int absolutePower = (int) Math.abs(power);
+        final BigInteger numerator = Numbers.numerator(base).pow(absolutePower);
+        final BigInteger denominator = Numbers.denominator(base).pow(absolutePower);
+        return power < 0 ? Fraction.of(denominator, numerator) : Fraction.of(numerator, denominator);
+    }
+
+    /**
+     * Computes the greatest common divisor of the given integers
+     * (<code>gcd</code>).
+     *
+     * @param a
+     *            The first integer.
+     * @param b
+     *            The second integer.
+     * @return The greatest common divisor.
+     * @throws EvaluationException
+     *             If one of the values is not an exact integer.
+     */
+    public static Object gcd(final Object a, final Object b) throws EvaluationException {
+        return Numbers.normalize(Numbers.toInteger(a, "gcd").gcd(Numbers.toInteger(b, "gcd")));
+    }
+
+    /**
+     * Computes the remainder of the division of the given integers
+     * (<code>remainder</code>). The remainder has the sign of the dividend.
+     *
+     * @param a
+     *            The dividend.
+     * @param b
+     *            The divisor.
+     * @return The remainder.
+     * @throws EvaluationException
+     *             If one of the values is not an exact integer or the divisor
+     *             is zero.
+     */
+    public static Object remainder(final Object a, final Object b) throws EvaluationException {
+        final BigInteger divisor = Numbers.toInteger(b, "remainder");
+        if (divisor.signum() == 0) {
+            throw new EvaluationException("remainder: division by zero!");
+        }
+        return Numbers.normalize(Numbers.toInteger(a, "remainder").remainder(divisor));
+    }
+
+    /**
+     * Checks whether the given number is zero (<code>zero?</code>).
+     *
+     * @param value
+     *            The number.
+     * @return Whether the number is zero.
+     * @throws EvaluationException
+     *             If the value is not a number.
+     */
+    public static boolean isZero(final Object value) throws EvaluationException {
+        if (value instanceof Long) {
+            return (Long) value == 0;
+        }
+        if (value instanceof Double) {
+            return (Double) value == 0;
+        }
+        Numbers.rank(value, value, "zero?");
+        return false;
+    }
+
+    /**
+     * Checks whether the given integer is even (<code>even?</code>).
+     *
+     * @param value
+     *            The integer.
+     * @return Whether the integer is even.
+     * @throws EvaluationException
+     *             If the value is not an exact integer.
+     */
+    public static boolean isEven(final Object value) throws EvaluationException {
+        return !Numbers.toInteger(value, "even?").testBit(0);
+    }
+
+    /**
+     * Checks whether the given integer is odd (<code>odd?</code>).
+     *
+     * @param value
+     *            The integer.
+     * @return Whether the integer is odd.
+     * @throws EvaluationException
+     *             If the value is not an exact integer.
+     */
+    public static boolean isOdd(final Object value) throws EvaluationException {
+        return Numbers.toInteger(value, "odd?").testBit(0);
+    }
+
+    /**
+     * Converts the given number to its textual representation.
+     *
+     * @param value
+     *            The number.
+     * @return The textual representation.
+     */
+    public static String toString(final Object value) {
+        if (value instanceof Double) {
+            final double number = (Double) value;
+            if (Double.isNaN(number)) {
+                return "+nan.0";
+            } else if (Double.isInfinite(number)) {
+                return number > 0 ? "+inf.0" : "-inf.0";
+            }
+        }
+        return value.toString();
+    }
+
+    /**
+     * Selects one of the given numbers, converting it to an inexact number
+     * if the other one is inexact.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @param first
+     *            Whether to select the first number.
+     * @return The selected number.
+     */
+    private static Object select(final Object a, final Object b, final boolean first) {
+        final Object result = first ? a : b;
+        if ((a instanceof Double || b instanceof Double) && !(result instanceof Double)) {
+            return Numbers.toDouble(result);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the exact square root of the given non-negative integer.
+     *
+     * @param value
+     *            The integer.
+     * @return The square root or <code>null</code> if the integer is not a
+     *         square.
+     */
+    private static BigInteger exactSqrt(final BigInteger value) {
+        if (value.signum() == 0) {
+            return value;
+        }
+        // Newton's method.
+        BigInteger root = BigInteger.ONE.shiftLeft(value.bitLength() / 2 + 1);
+        while (true) {
+            final BigInteger next = root.add(value.divide(root)).shiftRight(1);
+            if (next.compareTo(root) >= 0) {
+                break;
+            }
+            root = next;
+        }
+        return root.multiply(root).equals(value) ? root : null;
+    }
+
+    /**
+     * Computes the highest rank of the given values.
+     *
+     * @param a
+     *            The first value.
+     * @param b
+     *            The second value.
+     * @param function
+     *            The name of the function that expects the numbers.
+     * @return The highest rank.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    private static int rank(final Object a, final Object b, final String function) throws EvaluationException {
+        return Math.max(Numbers.rank(a, function), Numbers.rank(b, function));
+    }
+
+    /**
+     * Computes the rank of the given value.
+     *
+     * @param value
+     *            The value.
+     * @param function
+     *            The name of the function that expects the number.
+     * @return The rank.
+     * @throws EvaluationException
+     *             If the value is not a number.
+     */
+    private static int rank(final Object value, final String function) throws EvaluationException {
+        if (value instanceof Long) {
+            return Numbers.RANK_LONG;
+        } else if (value instanceof Double) {
+            return Numbers.RANK_DOUBLE;
+        } else if (value instanceof Fraction) {
+            return Numbers.RANK_FRACTION;
+        } else if (value instanceof BigInteger) {
+            return Numbers.RANK_BIG_INTEGER;
+        }
+        throw new EvaluationException(function + ": expects a number, but received " + Values.toPrintString(value) + "!");
+    }
+
+    /**
+     * Converts the given value to an exact integer.
+     *
+     * @param value
+     *            The value.
+     * @param function
+     *            The name of the function that expects the integer.
+     * @return The integer.
+     * @throws EvaluationException
+     *             If the value is not an exact integer.
+     */
+    private static BigInteger toInteger(final Object value, final String function) throws EvaluationException {
+        if (!Numbers.isInteger(value)) {
+            throw new EvaluationException(
+                    function + ": expects an integer, but received " + Values.toPrintString(value) + "!");
+        }
+        return Numbers.toBigInteger(value);
+    }
+
+    /**
+     * Converts the given exact integer to a {@link BigInteger}.
+     *
+     * @param value
+     *            The exact integer.
+     * @return The {@link BigInteger}.
+     */
+    private static BigInteger toBigInteger(final Object value) {
+        return value instanceof Long ? BigInteger.valueOf((Long) value) : (BigInteger) value;
+    }
+
+    /**
+     * Retrieves the numerator of the given exact number.
+     *
+     * @param value
+     *            The exact number.
+     * @return The numerator.
+     */
+    private static BigInteger numerator(final Object value) {
+        return value instanceof Fraction ? ((Fraction) value).getNumerator() : Numbers.toBigInteger(value);
+    }
+
+    /**
+     * Retrieves the denominator of the given exact number.
+     *
+     * @param value
+     *            The exact number.
+     * @return The denominator.
+     */
+    private static BigInteger denominator(final Object value) {
+        return value instanceof Fraction ? ((Fraction) value).getDenominator() : BigInteger.ONE;
+    }
+
+    /**
+     * Converts the given number to a floating point number.
+     *
+     * @param value
+     *            The number.
+     * @return The floating point number.
+     */
+    private static double toDouble(final Object value) {
+        if (value instanceof Fraction) {
+            return ((Fraction) value).doubleValue();
+        }
+        return ((Number) value).doubleValue();
+    }
+}
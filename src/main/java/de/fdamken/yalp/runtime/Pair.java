@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+/**
+ * A list value: Either the {@link #EMPTY empty list} or a pair of the first
+ * element and the rest of the list. Lists are immutable.
+ *
+ */
+public final class Pair {
+    /**
+     * The empty list.
+     *
+     */
+    public static final Pair EMPTY = new Pair(null, null);
+
+    /**
+     * The first element.
+     *
+     */
+    private final Object first;
+    /**
+     * The rest of the list.
+     *
+     */
+    private final Pair rest;
+
+    /**
+     * Constructor of Pair.
+     *
+     * @param first
+     *            The first element.
+     * @param rest
+     *            The rest of the list.
+     */
+    private Pair(final Object first, final Pair rest) {
+        this.first = first;
+        this.rest = rest;
+    }
+
+    /**
+     * Creates a new list (<code>cons</code>).
+     *
+     * @param first
+     *            The first element.
+     * @param rest
+     *            The rest of the list. Must be a list.
+     * @return The list.
+     * @throws EvaluationException
+     *             If the rest is not a list.
+     */
+    public static Pair cons(final Object first, final Object rest) throws EvaluationException {
+        if (!(rest instanceof Pair)) {
+            throw new EvaluationException(
+                    "cons: second argument must be a list, but received " + Values.toPrintString(rest) + "!");
+        }
+        return new Pair(first, (Pair) rest);
+    }
+
+    /**
+     * Checks whether this is the empty list.
+     *
+     * @return Whether this is the empty list.
+     */
+    public boolean isEmpty() {
+        return this == Pair.EMPTY;
+    }
+
+    /**
+     * Retrieves the first element.
+     *
+     * @return The first element.
+     * @throws EvaluationException
+     *             If this is the empty list.
+     */
+    public Object getFirst() throws EvaluationException {
+        if (this == Pair.EMPTY) {
+            throw new EvaluationException("first: expects a non-empty list, but received empty!");
+        }
+        return this.first;
+    }
+
+    /**
+     * Retrieves the rest of the list.
+     *
+     * @return The rest of the list.
+     * @throws EvaluationException
+     *             If this is the empty list.
+     */
+    public Pair getRest() throws EvaluationException {
+        if (this == Pair.EMPTY) {
+            throw new EvaluationException("rest: expects a non-empty list, but received empty!");
+        }
+        return this.rest;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Values.toPrintString(this);
+    }
+}
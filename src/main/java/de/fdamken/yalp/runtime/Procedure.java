@@ -0,0 +1,48 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+/**
+ * A function value (e.g. the value of a lambda or of a function defined by
+ * <code>define</code>). Every execution engine has its own implementation,
+ * this interface is used where functions are called by the runtime (e.g. by
+ * {@link Lists#map(Procedure, Object[])}).
+ *
+ */
+public interface Procedure {
+    /**
+     * Retrieves the number of arguments the function expects.
+     *
+     * @return The number of arguments.
+     */
+    int getArity();
+
+    /**
+     * Calls the function.
+     *
+     * @param arguments
+     *            The arguments. The function may keep the array, so it must
+     *            not be modified by the caller afterwards.
+     * @return The result of the function.
+     * @throws EvaluationException
+     *             If an error occurs while the function is evaluated.
+     */
+    Object apply(final Object[] arguments) throws EvaluationException;
+}
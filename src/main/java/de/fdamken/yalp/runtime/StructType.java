@@ -0,0 +1,138 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * The type of a structure defined by <code>define-struct</code>. Types are
+ * compared by identity, so two definitions with the same name create distinct
+ * types.
+ *
+ */
+public final class StructType {
+    /**
+     * The name of the structure.
+     *
+     */
+    @Getter
+    private final String name;
+    /**
+     * The names of the attributes.
+     *
+     */
+    private final String[] attributes;
+
+    /**
+     * Constructor of StructType.
+     *
+     * @param name
+     *            The name of the structure.
+     * @param attributes
+     *            The names of the attributes.
+     */
+    public StructType(final String name, final String... attributes) {
+        this.name = name;
+        this.attributes = attributes.clone();
+    }
+
+    /**
+     * Retrieves the number of attributes.
+     *
+     * @return The number of attributes.
+     */
+    public int getAttributeCount() {
+        return this.attributes.length;
+    }
+
+    /**
+     * Retrieves the name of the attribute with the given index.
+     *
+     * @param index
+     *            The index of the attribute.
+     * @return The name of the attribute.
+     */
+    public String getAttribute(final int index) {
+        return this.attributes[index];
+    }
+
+    /**
+     * Retrieves the index of the attribute with the given name.
+     *
+     * @param attribute
+     *            The name of the attribute.
+     * @return The index or <code>-1</code> if there is no such attribute.
+     */
+    public int indexOf(final String attribute) {
+        return Arrays.asList(this.attributes).indexOf(attribute);
+    }
+
+    /**
+     * Creates a new instance of this structure (<code>make-NAME</code>).
+     *
+     * @param values
+     *            The values of the attributes. The array is kept by the
+     *            instance.
+     * @return The instance.
+     * @throws EvaluationException
+     *             If the number of values is wrong.
+     */
+    public StructValue create(final Object[] values) throws EvaluationException {
+        if (values.length != this.attributes.length) {
+            throw new EvaluationException("make-" + this.name + ": expects " + this.attributes.length
+                    + " argument(s), but received " + values.length + "!");
+        }
+        return new StructValue(this, values);
+    }
+
+    /**
+     * Checks whether the given value is an instance of this structure
+     * (<code>NAME?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return Whether the value is an instance.
+     */
+    public boolean isInstance(final Object value) {
+        return value instanceof StructValue && ((StructValue) value).getType() == this;
+    }
+
+    /**
+     * Retrieves the value of an attribute of the given instance
+     * (<code>NAME-ATTRIBUTE</code>).
+     *
+     * @param value
+     *            The instance.
+     * @param index
+     *            The index of the attribute.
+     * @return The value of the attribute.
+     * @throws EvaluationException
+     *             If the value is not an instance of this structure.
+     */
+    public Object get(final Object value, final int index) throws EvaluationException {
+        if (!this.isInstance(value)) {
+            throw new EvaluationException(this.name + "-" + this.attributes[index] + ": expects a " + this.name
+                    + ", but received " + Values.toPrintString(value) + "!");
+        }
+        return ((StructValue) value).get(index);
+    }
+}
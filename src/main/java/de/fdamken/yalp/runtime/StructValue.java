@@ -0,0 +1,64 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * An instance of a structure (see {@link StructType}).
+ *
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class StructValue {
+    /**
+     * The type of the structure.
+     *
+     */
+    @Getter
+    private final StructType type;
+    /**
+     * The values of the attributes.
+     *
+     */
+    private final Object[] values;
+
+    /**
+     * Retrieves the value of the attribute with the given index.
+     *
+     * @param index
+     *            The index of the attribute.
+     * @return The value.
+     */
+    public Object get(final int index) {
+        return this.values[index];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return Values.toPrintString(this);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A symbol value (e.g. <code>'apple</code>). Symbols are interned, so two
+ * symbols with the same name are the same object.
+ *
+ */
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Symbol {
+    /**
+     * All symbols by their names.
+     *
+     */
+    private static final ConcurrentMap<String, Symbol> SYMBOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The name of the symbol.
+     *
+     */
+    @Getter
+    private final String name;
+
+    /**
+     * Retrieves the symbol with the given name.
+     *
+     * @param name
+     *            The name of the symbol.
+     * @return The symbol.
+     */
+    public static Symbol of(final String name) {
+        final Symbol symbol = Symbol.SYMBOLS.get(name);
+        if (symbol != null) {
+            return symbol;
+        }
+        final Symbol newSymbol = new Symbol(name);
+        final Symbol existing = Symbol.SYMBOLS.putIfAbsent(name, newSymbol);
+        return existing == null ? newSymbol : existing;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "'" + this.name;
+    }
+}
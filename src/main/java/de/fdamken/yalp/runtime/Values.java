@@ -0,0 +1,340 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.io.IOException;
+
+/**
+ * Utility functions for the values of the runtime. Values are represented as
+ * follows:
+ *
+ * <ul>
+ * <li>Numbers: See {@link Numbers}.</li>
+ * <li>Booleans: {@link Boolean#TRUE} and {@link Boolean#FALSE}.</li>
+ * <li>Characters: {@link Character}.</li>
+ * <li>Strings: {@link String}.</li>
+ * <li>Symbols: {@link Symbol}.</li>
+ * <li>Lists: {@link Pair}.</li>
+ * <li>Structures: {@link StructValue}.</li>
+ * <li>Functions: {@link Procedure}.</li>
+ * <li>The result of expressions that do not have a value: {@link #VOID}.</li>
+ * </ul>
+ *
+ */
+public final class Values {
+    /**
+     * The result of expressions that do not have a value (e.g.
+     * <code>print</code>).
+     *
+     */
+    public static final Object VOID = new Object() {
+        @Override
+        public String toString() {
+            return "#<void>";
+        }
+    };
+
+    /**
+     * Constructor of Values.
+     *
+     */
+    private Values() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks whether the given value counts as true in conditions. Every
+     * value except <code>#false</code> is true.
+     *
+     * @param value
+     *            The value.
+     * @return Whether the value is true.
+     */
+    public static boolean isTrue(final Object value) {
+        return value != Boolean.FALSE;
+    }
+
+    /**
+     * Checks whether the given value is a boolean and throws an exception if
+     * not.
+     *
+     * @param value
+     *            The value.
+     * @param function
+     *            The name of the function that expects the boolean.
+     * @return Whether the value is <code>#true</code>.
+     * @throws EvaluationException
+     *             If the value is not a boolean.
+     */
+    public static boolean toBoolean(final Object value, final String function) throws EvaluationException {
+        if (!(value instanceof Boolean)) {
+            throw new EvaluationException(
+                    function + ": expects a boolean, but received " + Values.toPrintString(value) + "!");
+        }
+        return (Boolean) value;
+    }
+
+    /**
+     * Checks whether the given value is a function and throws an exception if
+     * not.
+     *
+     * @param value
+     *            The value.
+     * @param function
+     *            The name of the function that expects the function.
+     * @return The function.
+     * @throws EvaluationException
+     *             If the value is not a function.
+     */
+    public static Procedure toProcedure(final Object value, final String function) throws EvaluationException {
+        if (!(value instanceof Procedure)) {
+            throw new EvaluationException(
+                    function + ": expects a function, but received " + Values.toPrintString(value) + "!");
+        }
+        return (Procedure) value;
+    }
+
+    /**
+     * Checks whether the given values are the same (<code>eq?</code>).
+     * Numbers, strings, characters and booleans are compared by value, all
+     * other values by identity. As these values are immutable, this is
+     * indistinguishable from identity except that the result no longer
+     * depends on whether a backend shares equal literal constants.
+     *
+     * @param a
+     *            The first value.
+     * @param b
+     *            The second value.
+     * @return Whether the values are the same.
+     */
+    public static boolean isEq(final Object a, final Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (Numbers.isNumber(a) || a instanceof String || a instanceof Character || a instanceof Boolean) {
+            return a.equals(b);
+        }
+        return false;
+    }
+
+    /**
+     * Converts the given value to the representation used by
+     * <code>print</code>, e.g. strings are quoted.
+     *
+     * @param value
+     *            The value.
+     * @return The representation.
+     */
+    public static String toPrintString(final Object value) {
+        final StringBuilder builder = new StringBuilder();
+        Values.append(builder, value, true);
+        return builder.toString();
+    }
+
+    /**
+     * Converts the given value to the representation used by
+     * <code>display</code>, e.g. strings are not quoted.
+     *
+     * @param value
+     *            The value.
+     * @return The representation.
+     */
+    public static String toDisplayString(final Object value) {
+        final StringBuilder builder = new StringBuilder();
+        Values.append(builder, value, false);
+        return builder.toString();
+    }
+
+    /**
+     * Formats the given arguments using the given format string
+     * (<code>printf</code>). The following directives are supported:
+     *
+     * <ul>
+     * <li><code>~a</code>: The next argument as displayed.</li>
+     * <li><code>~s</code>, <code>~v</code>: The next argument as
+     * printed.</li>
+     * <li><code>~n</code>, <code>~%</code>: A line break.</li>
+     * <li><code>~~</code>: A tilde.</li>
+     * </ul>
+     *
+     * @param format
+     *            The format string.
+     * @param arguments
+     *            The arguments.
+     * @return The formatted string.
+     * @throws EvaluationException
+     *             If the format string is invalid or the number of arguments
+     *             does not match.
+     */
+    public static String format(final String format, final Object[] arguments) throws EvaluationException {
+        final StringBuilder builder = new StringBuilder();
+        int argument = 0;
+        for (int i = 0; i < format.length(); i++) {
+            final char c = format.charAt(i);
+            if (c != '~') {
+                builder.append(c);
+                continue;
+            }
+            if (++i >= format.length()) {
+                throw new EvaluationException("printf: format string ends with a tilde!");
+            }
+            final char directive = Character.toLowerCase(format.charAt(i));
+            switch (directive) {
+                case 'a':
+                case 's':
+                case 'v':
+                    if (argument >= arguments.length) {
+                        throw new EvaluationException("printf: format string requires more arguments than given!");
+                    }
+                    Values.append(builder, arguments[argument++], directive != 'a');
+                    break;
+                case 'n':
+                case '%':
+                    builder.append('\n');
+                    break;
+                case '~':
+                    builder.append('~');
+                    break;
+                default:
+                    throw new EvaluationException("printf: unknown format directive ~" + format.charAt(i) + "!");
+            }
+        }
+        if (argument != arguments.length) {
+            throw new EvaluationException("printf: format string requires fewer arguments than given!");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Writes the given string to the given output.
+     *
+     * @param output
+     *            The output.
+     * @param string
+     *            The string.
+     * @throws EvaluationException
+     *             If writing fails.
+     */
+    public static void write(final Appendable output, final String string) throws EvaluationException {
+        try {
+            output.append(string);
+        } catch (final IOException cause) {
+            throw new EvaluationException("Failed to write the output!", cause);
+        }
+    }
+
+    /**
+     * Appends the representation of the given value to the given builder.
+     *
+     * @param builder
+     *            The builder.
+     * @param value
+     *            The value.
+     * @param print
+     *            Whether to use the representation of <code>print</code>
+     *            (<code>true</code>) or <code>display</code>
+     *            (<code>false</code>).
+     */
+    private static void append(final StringBuilder builder, final Object value, final boolean print) {
+        if (value instanceof Boolean) {
+            builder.append((Boolean) value ? "#true" : "#false");
+        } else if (Numbers.isNumber(value)) {
+            builder.append(Numbers.toString(value));
+        } else if (value instanceof String) {
+            if (print) {
+                Values.appendQuoted(builder, (String) value);
+            } else {
+                builder.append(value);
+            }
+        } else if (value instanceof Character) {
+            if (print) {
+                builder.append("#\\");
+            }
+            builder.append(value);
+        } else if (value instanceof Symbol) {
+            if (print) {
+                builder.append('\'');
+            }
+            builder.append(((Symbol) value).getName());
+        } else if (value instanceof Pair) {
+            Values.appendList(builder, (Pair) value, print);
+        } else if (value instanceof StructValue) {
+            final StructValue struct = (StructValue) value;
+            builder.append("(make-").append(struct.getType().getName());
+            for (int i = 0; i < struct.getType().getAttributeCount(); i++) {
+                builder.append(' ');
+                Values.append(builder, struct.get(i), print);
+            }
+            builder.append(')');
+        } else if (value instanceof Procedure) {
+            builder.append("#<procedure>");
+        } else {
+            builder.append(value);
+        }
+    }
+
+    /**
+     * Appends the representation of the given list to the given builder.
+     *
+     * @param builder
+     *            The builder.
+     * @param list
+     *            The list.
+     * @param print
+     *            Whether to use the representation of <code>print</code>.
+     */
+    private static void appendList(final StringBuilder builder, final Pair list, final boolean print) {
+        if (list.isEmpty()) {
+            builder.append(print ? "'()" : "()");
+            return;
+        }
+        builder.append(print ? "(list" : "(");
+        boolean first = !print;
+        for (Pair current = list; !current.isEmpty(); current = current.getRest()) {
+            if (!first) {
+                builder.append(' ');
+            }
+            first = false;
+            Values.append(builder, current.getFirst(), print);
+        }
+        builder.append(')');
+    }
+
+    /**
+     * Appends the given string in quotes to the given builder, escaping
+     * quotes and backslashes.
+     *
+     * @param builder
+     *            The builder.
+     * @param string
+     *            The string.
+     */
+    private static void appendQuoted(final StringBuilder builder, final String string) {
+        builder.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        builder.append('"');
+    }
+}
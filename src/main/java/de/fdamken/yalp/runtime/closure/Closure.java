@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Procedure;
+
+/**
+ * A function value of the closure compiler: The code of the function and the
+ * frame it was created in.
+ *
+ */
+final class Closure implements Procedure {
+    /**
+     * The code of the function.
+     *
+     */
+    private final FunctionCode code;
+    /**
+     * The frame the function was created in.
+     *
+     */
+    private final Frame parent;
+
+    /**
+     * Constructor of Closure.
+     *
+     * @param code
+     *            The code of the function.
+     * @param parent
+     *            The frame the function was created in.
+     */
+    Closure(final FunctionCode code, final Frame parent) {
+        this.code = code;
+        this.parent = parent;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#getArity()
+     */
+    @Override
+    public int getArity() {
+        return this.code.arity;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#apply(java.lang.Object[])
+     */
+    @Override
+    public Object apply(final Object[] arguments) throws EvaluationException {
+        return TailCall.resolve(this.tailCall(arguments));
+    }
+
+    /**
+     * Creates a call of this function in a tail position that is executed by
+     * the caller.
+     *
+     * @param arguments
+     *            The arguments.
+     * @return The tail call.
+     * @throws EvaluationException
+     *             If the number of arguments does not match.
+     */
+    TailCall tailCall(final Object[] arguments) throws EvaluationException {
+        if (arguments.length != this.code.arity) {
+            throw new EvaluationException(this.code.name + ": expects " + this.code.arity + " argument(s), but received "
+                    + arguments.length + "!");
+        }
+        return new TailCall(this.code, new Frame(arguments, this.parent));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+
+/**
+ * An execution engine that compiles the decorated abstract syntax tree into a
+ * tree of executable nodes (see {@link ClosureProgram}).
+ *
+ * <p>
+ * Every expression is compiled exactly once into a Java lambda that captures
+ * the nodes of its children, so running the program does not dispatch on the
+ * type of the expressions anymore. Additionally, the following is resolved
+ * at compile time:
+ * <ul>
+ * <li>Variables are read using their lexical address: Top-level definitions
+ * directly from the global table and other variables by following a fixed
+ * number of parent frames.</li>
+ * <li>Calls of functions defined by a top-level <code>define</code> are
+ * linked to the code of the function, so they skip the lookup and the type
+ * check of the function value.</li>
+ * <li>Calls in a tail position return a {@link TailCall} that is executed by
+ * the calling function after its own frame has been left, so tail recursion
+ * runs in constant stack space.</li>
+ * <li>Arithmetic and comparisons with two operands (the common case) do not
+ * loop over their operands.</li>
+ * <li>The types of the structures, so <code>make-NAME</code>,
+ * <code>NAME?</code> and <code>NAME-ATTRIBUTE</code> do not look up the
+ * structure.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The compiler itself is stateless and can be used by multiple threads
+ * concurrently.
+ * </p>
+ *
+ */
+public class ClosureCompiler extends AbstractCompilationStep<DecoratedAbstractSyntaxTree, ClosureProgram> {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public ClosureProgram parse(final DecoratedAbstractSyntaxTree decoratedAbstractSyntaxTree) throws CompilationException {
+        return new NodeCompiler(decoratedAbstractSyntaxTree).compile();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.EvaluationThread;
+
+/**
+ * A program compiled by the {@link ClosureCompiler}. The program can be run
+ * multiple times; every run starts with fresh top-level definitions.
+ *
+ */
+public class ClosureProgram implements IntermediateRepresentation {
+    /**
+     * The state that is shared by the nodes.
+     *
+     */
+    private final ProgramState state;
+    /**
+     * The nodes of the top-level expressions.
+     *
+     */
+    private final Node[] forms;
+    /**
+     * Whether the value of the top-level expressions are results of the
+     * program (i.e. they are not definitions).
+     *
+     */
+    private final boolean[] results;
+    /**
+     * The number of top-level definitions.
+     *
+     */
+    private final int globalCount;
+
+    /**
+     * Constructor of ClosureProgram.
+     *
+     * @param state
+     *            The state that is shared by the nodes.
+     * @param forms
+     *            The nodes of the top-level expressions.
+     * @param results
+     *            Whether the value of the top-level expressions are results
+     *            of the program.
+     * @param globalCount
+     *            The number of top-level definitions.
+     */
+    ClosureProgram(final ProgramState state, final Node[] forms, final boolean[] results, final int globalCount) {
+        this.state = state;
+        this.forms = forms;
+        this.results = results;
+        this.globalCount = globalCount;
+    }
+
+    /**
+     * Runs the program. Since the nodes share the state of the program, a
+     * program can only be run by one thread at a time. The program is
+     * evaluated by an {@link EvaluationThread}, as every function call that
+     * is not in a tail position occupies some frames of the Java stack.
+     *
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     * @return The values of the top-level expressions that are not
+     *         definitions in the order they appear in the code.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    public synchronized List<Object> run(final Appendable output) throws EvaluationException {
+        return EvaluationThread.run(() -> this.evaluate(output));
+    }
+
+    /**
+     * Evaluates the top-level expressions.
+     *
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     * @return The values of the top-level expressions that are not
+     *         definitions.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    private List<Object> evaluate(final Appendable output) throws EvaluationException {
+        this.state.globals = new Object[this.globalCount];
+        this.state.globalFrame = new Frame(this.state.globals, null);
+        this.state.output = output;
+
+        final List<Object> values = new ArrayList<>();
+        for (int i = 0; i < this.forms.length; i++) {
+            final Object value = this.forms[i].execute(this.state.globalFrame);
+            if (this.results[i]) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+}
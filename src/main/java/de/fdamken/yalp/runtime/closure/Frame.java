@@ -0,0 +1,55 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+/**
+ * A frame of variables at runtime: The arguments of a function call, the
+ * definitions of a <code>local</code> or the top-level definitions. The
+ * slots are the ones computed by the context analysis.
+ *
+ */
+final class Frame {
+    /**
+     * The values of the variables. A slot is <code>null</code> if the
+     * definition of the variable has not been evaluated yet.
+     *
+     */
+    final Object[] slots;
+    /**
+     * The frame this frame is nested in or <code>null</code> for the
+     * outermost frame.
+     *
+     */
+    final Frame parent;
+
+    /**
+     * Constructor of Frame.
+     *
+     * @param slots
+     *            The values of the variables.
+     * @param parent
+     *            The frame this frame is nested in or <code>null</code> for
+     *            the outermost frame.
+     */
+    Frame(final Object[] slots, final Frame parent) {
+        this.slots = slots;
+        this.parent = parent;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+/**
+ * The compiled code of a function (a lambda or a function defined by
+ * <code>define</code>). The body is set after the code is created, so calls
+ * of the function can be linked to the code before the body is compiled
+ * (e.g. for recursion).
+ *
+ */
+final class FunctionCode {
+    /**
+     * The name of the function used in error messages.
+     *
+     */
+    final String name;
+    /**
+     * The number of parameters.
+     *
+     */
+    final int arity;
+    /**
+     * The body of the function.
+     *
+     */
+    Node body;
+
+    /**
+     * Constructor of FunctionCode.
+     *
+     * @param name
+     *            The name of the function used in error messages.
+     * @param arity
+     *            The number of parameters.
+     */
+    FunctionCode(final String name, final int arity) {
+        this.name = name;
+        this.arity = arity;
+    }
+}
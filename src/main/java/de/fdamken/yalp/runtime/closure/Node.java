@@ -0,0 +1,43 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+
+/**
+ * An executable node of a compiled program. Every expression is compiled into
+ * exactly one node (usually a lambda) that already knows its children and
+ * the operation to execute, so no dispatch on the type of the expression is
+ * needed while the program is running.
+ *
+ */
+@FunctionalInterface
+interface Node {
+    /**
+     * Executes the node.
+     *
+     * @param frame
+     *            The innermost frame of the expression.
+     * @return The value of the expression.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    Object execute(final Frame frame) throws EvaluationException;
+}
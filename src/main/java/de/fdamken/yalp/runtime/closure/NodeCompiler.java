@@ -0,0 +1,1051 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FilterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFormatFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.AppendFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.EighthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FifthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FirstFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FourthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.LengthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.RestFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SecondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SeventhFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SixthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ThirdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.AndFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.NotFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.OrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AbsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.DivideFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.ExptFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.FloorFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GcdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MaxFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MinFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.NumberEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.RemainderFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrtFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SubtractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.BooleanPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EmptyPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EqPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EvenPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ListPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.NumberPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.OddPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.SymbolPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ZeroPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.Lists;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.Procedure;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * Compiles the expressions of a single program into {@link Node nodes}. The
+ * rules for the types of the expressions are looked up once per expression
+ * at compile time.
+ *
+ */
+final class NodeCompiler {
+    /**
+     * The rules that compile the expressions by the type of the expression.
+     *
+     */
+    private static final Map<Class<?>, Rule<?>> RULES = new HashMap<>();
+
+    /**
+     * The kind of the comparison <code>&lt;</code>.
+     *
+     */
+    private static final int LESS = 0;
+    /**
+     * The kind of the comparison <code>&lt;=</code>.
+     *
+     */
+    private static final int LESS_OR_EQUAL = 1;
+    /**
+     * The kind of the comparison <code>&gt;</code>.
+     *
+     */
+    private static final int GREATER = 2;
+    /**
+     * The kind of the comparison <code>&gt;=</code>.
+     *
+     */
+    private static final int GREATER_OR_EQUAL = 3;
+    /**
+     * The kind of the comparison <code>=</code>.
+     *
+     */
+    private static final int EQUAL = 4;
+    /**
+     * The names of the comparisons, indexed by their kinds.
+     *
+     */
+    private static final String[] COMPARISON_NAMES = { "<", "<=", ">", ">=", "=" };
+
+    static {
+        NodeCompiler.register(BooleanLiteral.class,
+                (compiler, expression) -> NodeCompiler.constant(Boolean.valueOf(expression.isContent())));
+        NodeCompiler.register(CharLiteral.class,
+                (compiler, expression) -> NodeCompiler.constant(Character.valueOf(expression.getContent())));
+        NodeCompiler.register(StringLiteral.class, (compiler, expression) -> NodeCompiler.constant(expression.getContent()));
+        NodeCompiler.register(SymbolLiteral.class,
+                (compiler, expression) -> NodeCompiler.constant(Symbol.of(expression.getContent())));
+        NodeCompiler.register(FloatingPointLiteral.class,
+                (compiler, expression) -> NodeCompiler.constant(Double.valueOf(expression.getContent())));
+        NodeCompiler.register(FractionLiteral.class,
+                (compiler, expression) -> NodeCompiler
+                        .constant(Fraction.of(expression.getNumerator(), expression.getDenominator())));
+        NodeCompiler.register(IntegerLiteral.class,
+                (compiler, expression) -> NodeCompiler.constant(Numbers.normalize(expression.getContent())));
+        NodeCompiler.register(Variable.class, NodeCompiler::compileVariable);
+        NodeCompiler.register(BuiltinReference.class,
+                (compiler, expression) -> NodeCompiler.constant(Builtin.forName(expression.getName())));
+
+        NodeCompiler.register(ApplicationFunction.class, NodeCompiler::compileApplication);
+        NodeCompiler.register(CondFunction.class, NodeCompiler::compileCond);
+        NodeCompiler.register(IfFunction.class, NodeCompiler::compileIf);
+        NodeCompiler.register(LambdaFunction.class, NodeCompiler::compileLambda);
+        NodeCompiler.register(LocalFunction.class, NodeCompiler::compileLocal);
+        NodeCompiler.register(FilterFunction.class, (compiler, expression) -> {
+            final Node function = compiler.compile(expression.getFunction());
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Lists.filter(Values.toProcedure(function.execute(frame), "filter"), list.execute(frame));
+        });
+        NodeCompiler.register(MapFunction.class, (compiler, expression) -> {
+            final Node function = compiler.compile(expression.getFunction());
+            final Node[] lists = compiler.compileAll(expression.getLists());
+            return frame -> Lists.map(Values.toProcedure(function.execute(frame), "map"),
+                    NodeCompiler.executeAll(lists, frame));
+        });
+        NodeCompiler.register(FoldlFunction.class, (compiler, expression) -> {
+            final Node folder = compiler.compile(expression.getFolder());
+            final Node start = compiler.compile(expression.getStartValue());
+            final Node[] lists = compiler.compileAll(expression.getLists());
+            return frame -> Lists.foldl(Values.toProcedure(folder.execute(frame), "foldl"), start.execute(frame),
+                    NodeCompiler.executeAll(lists, frame));
+        });
+        NodeCompiler.register(FoldrFunction.class, (compiler, expression) -> {
+            final Node folder = compiler.compile(expression.getFolder());
+            final Node start = compiler.compile(expression.getStartValue());
+            final Node[] lists = compiler.compileAll(expression.getLists());
+            return frame -> Lists.foldr(Values.toProcedure(folder.execute(frame), "foldr"), start.execute(frame),
+                    NodeCompiler.executeAll(lists, frame));
+        });
+
+        NodeCompiler.register(DefineConstantFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getExpression());
+            final int slot = expression.getSlot();
+            return frame -> {
+                frame.slots[slot] = value.execute(frame);
+                return Values.VOID;
+            };
+        });
+        NodeCompiler.register(DefineFunction.class, (compiler, expression) -> {
+            final FunctionCode code = compiler.getCode(expression);
+            code.body = compiler.compile(expression.getExpression(), true);
+            final int slot = expression.getSlot();
+            return frame -> {
+                frame.slots[slot] = new Closure(code, frame);
+                return Values.VOID;
+            };
+        });
+        // The types of the structures are created at compile time.
+        NodeCompiler.register(DefineStructFunction.class, (compiler, expression) -> NodeCompiler.constant(Values.VOID));
+
+        NodeCompiler.register(PrintFunction.class, (compiler, expression) -> {
+            final ProgramState state = compiler.state;
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> {
+                Values.write(state.output, Values.toPrintString(value.execute(frame)));
+                return Values.VOID;
+            };
+        });
+        NodeCompiler.register(PrintFormatFunction.class, (compiler, expression) -> {
+            final ProgramState state = compiler.state;
+            final String format = ((StringLiteral) expression.getFormat()).getContent();
+            final Node[] arguments = compiler.compileAll(expression.getArguments());
+            return frame -> {
+                Values.write(state.output, Values.format(format, NodeCompiler.executeAll(arguments, frame)));
+                return Values.VOID;
+            };
+        });
+
+        NodeCompiler.register(AppendFunction.class, (compiler, expression) -> {
+            final Node a = compiler.compile(expression.getListA());
+            final Node b = compiler.compile(expression.getListB());
+            return frame -> Lists.append(a.execute(frame), b.execute(frame));
+        });
+        NodeCompiler.register(ConsFunction.class, (compiler, expression) -> {
+            final Node element = compiler.compile(expression.getElement());
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Pair.cons(element.execute(frame), list.execute(frame));
+        });
+        NodeCompiler.register(FirstFunction.class, (compiler, expression) -> {
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Lists.first(list.execute(frame));
+        });
+        NodeCompiler.register(SecondFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 1));
+        NodeCompiler.register(ThirdFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 2));
+        NodeCompiler.register(FourthFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 3));
+        NodeCompiler.register(FifthFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 4));
+        NodeCompiler.register(SixthFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 5));
+        NodeCompiler.register(SeventhFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 6));
+        NodeCompiler.register(EighthFunction.class, (compiler, expression) -> compiler.compileNth(expression.getList(), 7));
+        NodeCompiler.register(RestFunction.class, (compiler, expression) -> {
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Lists.rest(list.execute(frame));
+        });
+        NodeCompiler.register(LengthFunction.class, (compiler, expression) -> {
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Long.valueOf(Lists.length(list.execute(frame)));
+        });
+        NodeCompiler.register(ListFunction.class, (compiler, expression) -> {
+            if (expression.getValues().isEmpty()) {
+                return NodeCompiler.constant(Pair.EMPTY);
+            }
+            final Node[] values = compiler.compileAll(expression.getValues());
+            return frame -> Lists.list(NodeCompiler.executeAll(values, frame));
+        });
+
+        NodeCompiler.register(AndFunction.class, (compiler, expression) -> {
+            final Node[] expressions = compiler.compileAll(expression.getExpressions());
+            return frame -> {
+                for (final Node node : expressions) {
+                    if (!Values.toBoolean(node.execute(frame), "and")) {
+                        return Boolean.FALSE;
+                    }
+                }
+                return Boolean.TRUE;
+            };
+        });
+        NodeCompiler.register(OrFunction.class, (compiler, expression) -> {
+            final Node[] expressions = compiler.compileAll(expression.getExpressions());
+            return frame -> {
+                for (final Node node : expressions) {
+                    if (Values.toBoolean(node.execute(frame), "or")) {
+                        return Boolean.TRUE;
+                    }
+                }
+                return Boolean.FALSE;
+            };
+        });
+        NodeCompiler.register(NotFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getExpression());
+            return frame -> Boolean.valueOf(!Values.toBoolean(value.execute(frame), "not"));
+        });
+
+        NodeCompiler.register(AbsFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Numbers.abs(value.execute(frame));
+        });
+        NodeCompiler.register(FloorFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Numbers.floor(value.execute(frame));
+        });
+        NodeCompiler.register(SqrFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> {
+                final Object number = value.execute(frame);
+                return Numbers.multiply(number, number);
+            };
+        });
+        NodeCompiler.register(SqrtFunction.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Numbers.sqrt(value.execute(frame));
+        });
+        NodeCompiler.register(ExptFunction.class, (compiler, expression) -> {
+            final Node a = compiler.compile(expression.getValueA());
+            final Node b = compiler.compile(expression.getValueB());
+            return frame -> Numbers.expt(a.execute(frame), b.execute(frame));
+        });
+        NodeCompiler.register(GcdFunction.class, (compiler, expression) -> {
+            final Node a = compiler.compile(expression.getValueA());
+            final Node b = compiler.compile(expression.getValueB());
+            return frame -> Numbers.gcd(a.execute(frame), b.execute(frame));
+        });
+        NodeCompiler.register(RemainderFunction.class, (compiler, expression) -> {
+            final Node a = compiler.compile(expression.getValueA());
+            final Node b = compiler.compile(expression.getValueB());
+            return frame -> Numbers.remainder(a.execute(frame), b.execute(frame));
+        });
+        NodeCompiler.register(AddFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            if (values.length == 2) {
+                final Node a = values[0];
+                final Node b = values[1];
+                return frame -> Numbers.add(a.execute(frame), b.execute(frame));
+            }
+            return frame -> {
+                Object result = 0L;
+                for (final Node value : values) {
+                    result = Numbers.add(result, value.execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(SubtractFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            if (values.length == 2) {
+                final Node a = values[0];
+                final Node b = values[1];
+                return frame -> Numbers.subtract(a.execute(frame), b.execute(frame));
+            } else if (values.length == 1) {
+                final Node value = values[0];
+                return frame -> Numbers.subtract(0L, value.execute(frame));
+            }
+            return frame -> {
+                Object result = values[0].execute(frame);
+                for (int i = 1; i < values.length; i++) {
+                    result = Numbers.subtract(result, values[i].execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(MultiplyFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            if (values.length == 2) {
+                final Node a = values[0];
+                final Node b = values[1];
+                return frame -> Numbers.multiply(a.execute(frame), b.execute(frame));
+            }
+            return frame -> {
+                Object result = 1L;
+                for (final Node value : values) {
+                    result = Numbers.multiply(result, value.execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(DivideFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            if (values.length == 1) {
+                final Node value = values[0];
+                return frame -> Numbers.divide(1L, value.execute(frame));
+            }
+            return frame -> {
+                Object result = values[0].execute(frame);
+                for (int i = 1; i < values.length; i++) {
+                    result = Numbers.divide(result, values[i].execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(MaxFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            return frame -> {
+                final Object first = values[0].execute(frame);
+                Object result = Numbers.max(first, first);
+                for (int i = 1; i < values.length; i++) {
+                    result = Numbers.max(result, values[i].execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(MinFunction.class, (compiler, expression) -> {
+            final Node[] values = compiler.compileAll(expression.getValues());
+            return frame -> {
+                final Object first = values[0].execute(frame);
+                Object result = Numbers.min(first, first);
+                for (int i = 1; i < values.length; i++) {
+                    result = Numbers.min(result, values[i].execute(frame));
+                }
+                return result;
+            };
+        });
+        NodeCompiler.register(LessFunction.class,
+                (compiler, expression) -> compiler.compileComparison(expression.getValues(), NodeCompiler.LESS));
+        NodeCompiler.register(LessOrEqualFunction.class,
+                (compiler, expression) -> compiler.compileComparison(expression.getValues(), NodeCompiler.LESS_OR_EQUAL));
+        NodeCompiler.register(GreaterFunction.class,
+                (compiler, expression) -> compiler.compileComparison(expression.getValues(), NodeCompiler.GREATER));
+        NodeCompiler.register(GreaterOrEqualFunction.class,
+                (compiler, expression) -> compiler.compileComparison(expression.getValues(), NodeCompiler.GREATER_OR_EQUAL));
+        NodeCompiler.register(NumberEqualFunction.class,
+                (compiler, expression) -> compiler.compileComparison(expression.getValues(), NodeCompiler.EQUAL));
+
+        NodeCompiler.register(BooleanPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(value.execute(frame) instanceof Boolean);
+        });
+        NodeCompiler.register(EvenPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(Numbers.isEven(value.execute(frame)));
+        });
+        NodeCompiler.register(NumberPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(Numbers.isNumber(value.execute(frame)));
+        });
+        NodeCompiler.register(OddPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(Numbers.isOdd(value.execute(frame)));
+        });
+        NodeCompiler.register(SymbolPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(value.execute(frame) instanceof Symbol);
+        });
+        NodeCompiler.register(ZeroPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getValue());
+            return frame -> Boolean.valueOf(Numbers.isZero(value.execute(frame)));
+        });
+        NodeCompiler.register(EmptyPredicate.class, (compiler, expression) -> {
+            final Node list = compiler.compile(expression.getList());
+            return frame -> Boolean.valueOf(list.execute(frame) == Pair.EMPTY);
+        });
+        NodeCompiler.register(EqPredicate.class, (compiler, expression) -> {
+            final Node a = compiler.compile(expression.getValueA());
+            final Node b = compiler.compile(expression.getValueB());
+            return frame -> Boolean.valueOf(Values.isEq(a.execute(frame), b.execute(frame)));
+        });
+        NodeCompiler.register(ListPredicate.class, (compiler, expression) -> {
+            final Node value = compiler.compile(expression.getAny());
+            return frame -> Boolean.valueOf(value.execute(frame) instanceof Pair);
+        });
+        NodeCompiler.register(StructPredicateFunction.class, (compiler, expression) -> {
+            final StructType type = compiler.getStructType(expression.getName());
+            final Node instance = compiler.compile(expression.getInstance());
+            return frame -> Boolean.valueOf(type.isInstance(instance.execute(frame)));
+        });
+
+        NodeCompiler.register(MakeStructFunction.class, (compiler, expression) -> {
+            final StructType type = compiler.getStructType(expression.getName());
+            final Node[] attributes = compiler.compileAll(expression.getAttributes());
+            return frame -> type.create(NodeCompiler.executeAll(attributes, frame));
+        });
+        NodeCompiler.register(StructAttributeSelectFunction.class, (compiler, expression) -> {
+            final StructType type = compiler.getStructType(expression.getName());
+            final int index = type.indexOf(expression.getAttribute());
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        expression.getName() + " does not have an attribute " + expression.getAttribute() + "!");
+            }
+            final Node instance = compiler.compile(expression.getInstance());
+            return frame -> type.get(instance.execute(frame), index);
+        });
+    }
+
+    /**
+     * The program to compile.
+     *
+     */
+    private final DecoratedAbstractSyntaxTree tree;
+    /**
+     * The state that is shared by the nodes of the program.
+     *
+     */
+    private final ProgramState state = new ProgramState();
+    /**
+     * The code of the functions that are defined by a top-level
+     * <code>define</code>, indexed by their slots.
+     *
+     */
+    private final Map<Integer, FunctionCode> globalFunctions = new HashMap<>();
+    /**
+     * The code of the functions defined by <code>define</code> that has
+     * already been created.
+     *
+     */
+    private final Map<DefineFunction, FunctionCode> codes = new IdentityHashMap<>();
+    /**
+     * The types of the structures that are visible in the expression that is
+     * currently compiled, indexed by their names.
+     *
+     */
+    private Map<String, StructType> structs = new HashMap<>();
+    /**
+     * Whether the expression that is currently compiled is in a tail
+     * position, i.e. its value is the value of the function it belongs to.
+     *
+     */
+    private boolean tail;
+
+    /**
+     * Constructor of NodeCompiler.
+     *
+     * @param tree
+     *            The program to compile.
+     */
+    NodeCompiler(final DecoratedAbstractSyntaxTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Compiles the program.
+     *
+     * @return The compiled program.
+     */
+    ClosureProgram compile() {
+        final List<Expression> expressions = this.tree.getExpressions();
+        for (final Expression expression : expressions) {
+            this.declareStruct(expression);
+            if (expression instanceof DefineFunction) {
+                final DefineFunction define = (DefineFunction) expression;
+                this.globalFunctions.put(define.getSlot(), this.getCode(define));
+            }
+        }
+
+        final Node[] forms = new Node[expressions.size()];
+        final boolean[] results = new boolean[expressions.size()];
+        for (int i = 0; i < forms.length; i++) {
+            forms[i] = this.compile(expressions.get(i));
+            results[i] = !(expressions.get(i) instanceof Definition);
+        }
+        return new ClosureProgram(this.state, forms, results, this.tree.getGlobals().size());
+    }
+
+    /**
+     * Compiles the given expression that is not in a tail position.
+     *
+     * @param expression
+     *            The expression.
+     * @return The node.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    private Node compile(final Expression expression) throws IllegalArgumentException {
+        return this.compile(expression, false);
+    }
+
+    /**
+     * Compiles the given expression. The node of an expression in a tail
+     * position may return a {@link TailCall} that has to be resolved by the
+     * function the expression belongs to.
+     *
+     * @param expression
+     *            The expression.
+     * @param tail
+     *            Whether the expression is in a tail position.
+     * @return The node.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    private Node compile(final Expression expression, final boolean tail) throws IllegalArgumentException {
+        final Rule<Expression> rule = (Rule<Expression>) NodeCompiler.RULES.get(expression.getClass());
+        if (rule == null) {
+            throw new IllegalArgumentException("Unknown expression type " + expression.getClass().getSimpleName() + "!");
+        }
+        final boolean outerTail = this.tail;
+        this.tail = tail;
+        try {
+            return rule.compile(this, expression);
+        } finally {
+            this.tail = outerTail;
+        }
+    }
+
+    /**
+     * Compiles the given expressions.
+     *
+     * @param expressions
+     *            The expressions.
+     * @return The nodes.
+     */
+    private Node[] compileAll(final List<Expression> expressions) {
+        final Node[] nodes = new Node[expressions.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = this.compile(expressions.get(i));
+        }
+        return nodes;
+    }
+
+    /**
+     * Compiles the given variable.
+     *
+     * @param variable
+     *            The variable.
+     * @return The node.
+     */
+    private Node compileVariable(final Variable variable) {
+        final String name = variable.getName();
+        final int slot = variable.getSlot();
+        if (variable.isGlobal()) {
+            final ProgramState state = this.state;
+            return frame -> NodeCompiler.checkDefined(state.globals[slot], name);
+        }
+        switch (variable.getDepth()) {
+            case 0:
+                return frame -> NodeCompiler.checkDefined(frame.slots[slot], name);
+            case 1:
+                return frame -> NodeCompiler.checkDefined(frame.parent.slots[slot], name);
+            case 2:
+                return frame -> NodeCompiler.checkDefined(frame.parent.parent.slots[slot], name);
+            default:
+                final int depth = variable.getDepth();
+                return frame -> {
+                    Frame current = frame;
+                    for (int i = 0; i < depth; i++) {
+                        current = current.parent;
+                    }
+                    return NodeCompiler.checkDefined(current.slots[slot], name);
+                };
+        }
+    }
+
+    /**
+     * Compiles the given function application. Calls of functions defined by
+     * a top-level <code>define</code> are linked to the code of the function.
+     * Calls in a tail position return a {@link TailCall} instead of calling
+     * the function.
+     *
+     * @param application
+     *            The function application.
+     * @return The node.
+     */
+    private Node compileApplication(final ApplicationFunction application) {
+        final boolean tail = this.tail;
+        final Node[] arguments = this.compileAll(application.getArguments());
+        if (application.getFunction() instanceof Variable && ((Variable) application.getFunction()).isGlobal()) {
+            final Variable variable = (Variable) application.getFunction();
+            final FunctionCode code = this.globalFunctions.get(variable.getSlot());
+            if (code != null) {
+                return this.compileGlobalCall(variable, code, arguments, tail);
+            }
+        }
+
+        final Node function = this.compile(application.getFunction());
+        if (tail) {
+            return frame -> {
+                final Procedure procedure = NodeCompiler.checkProcedure(function.execute(frame));
+                final Object[] values = NodeCompiler.executeAll(arguments, frame);
+                return procedure instanceof Closure ? ((Closure) procedure).tailCall(values) : procedure.apply(values);
+            };
+        }
+        return frame -> NodeCompiler.checkProcedure(function.execute(frame)).apply(NodeCompiler.executeAll(arguments, frame));
+    }
+
+    /**
+     * Compiles a call of a function defined by a top-level
+     * <code>define</code>.
+     *
+     * @param variable
+     *            The name of the function.
+     * @param code
+     *            The code of the function.
+     * @param arguments
+     *            The arguments.
+     * @param tail
+     *            Whether the call is in a tail position.
+     * @return The node.
+     */
+    private Node compileGlobalCall(final Variable variable, final FunctionCode code, final Node[] arguments,
+            final boolean tail) {
+        final ProgramState state = this.state;
+        final String name = variable.getName();
+        final int slot = variable.getSlot();
+        if (arguments.length != code.arity) {
+            return frame -> {
+                NodeCompiler.checkDefined(state.globals[slot], name);
+                throw new EvaluationException(
+                        name + ": expects " + code.arity + " argument(s), but received " + arguments.length + "!");
+            };
+        }
+        if (tail) {
+            return frame -> {
+                NodeCompiler.checkDefined(state.globals[slot], name);
+                return new TailCall(code, new Frame(NodeCompiler.executeAll(arguments, frame), state.globalFrame));
+            };
+        }
+        return frame -> {
+            NodeCompiler.checkDefined(state.globals[slot], name);
+            return TailCall.resolve(code.body.execute(new Frame(NodeCompiler.executeAll(arguments, frame), state.globalFrame)));
+        };
+    }
+
+    /**
+     * Compiles the given <code>if</code>.
+     *
+     * @param expression
+     *            The <code>if</code>.
+     * @return The node.
+     */
+    private Node compileIf(final IfFunction expression) {
+        final boolean tail = this.tail;
+        final Node test = this.compile(expression.getTest());
+        final Node then = this.compile(expression.getThen(), tail);
+        final Node else0 = this.compile(expression.getElse0(), tail);
+        return frame -> Values.toBoolean(test.execute(frame), "if") ? then.execute(frame) : else0.execute(frame);
+    }
+
+    /**
+     * Compiles the given <code>cond</code>.
+     *
+     * @param expression
+     *            The <code>cond</code>.
+     * @return The node.
+     */
+    private Node compileCond(final CondFunction expression) {
+        final boolean tail = this.tail;
+        final int size = expression.getCases().size();
+        final Node[] tests = new Node[size];
+        final Node[] thens = new Node[size];
+        for (int i = 0; i < size; i++) {
+            tests[i] = this.compile(expression.getCases().get(i).getTest());
+            thens[i] = this.compile(expression.getCases().get(i).getThen(), tail);
+        }
+        final Node else0 = expression.getElse0() == null ? frame -> {
+            throw new EvaluationException("cond: all question results were false!");
+        } : this.compile(expression.getElse0(), tail);
+        return frame -> {
+            for (int i = 0; i < tests.length; i++) {
+                if (Values.toBoolean(tests[i].execute(frame), "cond")) {
+                    return thens[i].execute(frame);
+                }
+            }
+            return else0.execute(frame);
+        };
+    }
+
+    /**
+     * Compiles the given lambda.
+     *
+     * @param lambda
+     *            The lambda.
+     * @return The node.
+     */
+    private Node compileLambda(final LambdaFunction lambda) {
+        final FunctionCode code = new FunctionCode("lambda", lambda.getParameters().size());
+        code.body = this.compile(lambda.getExpression(), true);
+        return frame -> new Closure(code, frame);
+    }
+
+    /**
+     * Compiles the given <code>local</code>. The structures defined by the
+     * <code>local</code> are only visible inside of it.
+     *
+     * @param local
+     *            The <code>local</code>.
+     * @return The node.
+     */
+    private Node compileLocal(final LocalFunction local) {
+        final boolean tail = this.tail;
+        final Map<String, StructType> outerStructs = this.structs;
+        this.structs = new HashMap<>(outerStructs);
+        try {
+            for (final Definition definition : local.getDefinitions()) {
+                this.declareStruct((Expression) definition);
+            }
+            final Node[] definitions = new Node[local.getDefinitions().size()];
+            for (int i = 0; i < definitions.length; i++) {
+                definitions[i] = this.compile((Expression) local.getDefinitions().get(i));
+            }
+            final Node expression = this.compile(local.getExpression(), tail);
+            final int frameSize = local.getFrameSize();
+            return frame -> {
+                final Frame localFrame = new Frame(new Object[frameSize], frame);
+                for (final Node definition : definitions) {
+                    definition.execute(localFrame);
+                }
+                return expression.execute(localFrame);
+            };
+        } finally {
+            this.structs = outerStructs;
+        }
+    }
+
+    /**
+     * Compiles one of the functions <code>second</code> to
+     * <code>eighth</code>.
+     *
+     * @param list
+     *            The list.
+     * @param index
+     *            The index of the element.
+     * @return The node.
+     */
+    private Node compileNth(final Expression list, final int index) {
+        final Node node = this.compile(list);
+        return frame -> Lists.nth(node.execute(frame), index);
+    }
+
+    /**
+     * Compiles a comparison of numbers.
+     *
+     * @param expressions
+     *            The numbers to compare.
+     * @param kind
+     *            The kind of the comparison.
+     * @return The node.
+     */
+    private Node compileComparison(final List<Expression> expressions, final int kind) {
+        final Node[] values = this.compileAll(expressions);
+        final String name = NodeCompiler.COMPARISON_NAMES[kind];
+        if (values.length == 2) {
+            final Node a = values[0];
+            final Node b = values[1];
+            switch (kind) {
+                case LESS:
+                    return frame -> Boolean.valueOf(Numbers.compare(a.execute(frame), b.execute(frame), name) < 0);
+                case LESS_OR_EQUAL:
+                    return frame -> Boolean.valueOf(Numbers.compare(a.execute(frame), b.execute(frame), name) <= 0);
+                case GREATER:
+                    return frame -> Boolean.valueOf(Numbers.compare(a.execute(frame), b.execute(frame), name) > 0);
+                case GREATER_OR_EQUAL:
+                    return frame -> Boolean.valueOf(Numbers.compare(a.execute(frame), b.execute(frame), name) >= 0);
+                default:
+                    return frame -> Boolean.valueOf(Numbers.compare(a.execute(frame), b.execute(frame), name) == 0);
+            }
+        }
+        return frame -> {
+            final Object[] numbers = NodeCompiler.executeAll(values, frame);
+            boolean result = true;
+            for (int i = 0; i < numbers.length - 1; i++) {
+                result &= NodeCompiler.matches(Numbers.compare(numbers[i], numbers[i + 1], name), kind);
+            }
+            return Boolean.valueOf(result && (numbers.length > 1 || Numbers.isNumber(numbers[0])));
+        };
+    }
+
+    /**
+     * Retrieves the code of the given function definition, creating it if
+     * necessary.
+     *
+     * @param define
+     *            The function definition.
+     * @return The code.
+     */
+    private FunctionCode getCode(final DefineFunction define) {
+        return this.codes.computeIfAbsent(define, key -> new FunctionCode(
+                ((SymbolLiteral) key.getHeader().get(0)).getContent(), key.getHeader().size() - 1));
+    }
+
+    /**
+     * Declares the structure defined by the given expression (if it is a
+     * structure definition).
+     *
+     * @param expression
+     *            The expression.
+     */
+    private void declareStruct(final Expression expression) {
+        if (expression instanceof DefineStructFunction) {
+            final DefineStructFunction define = (DefineStructFunction) expression;
+            final String[] attributes = new String[define.getAttributes().size()];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = NodeCompiler.getName(define.getAttributes().get(i));
+            }
+            final String name = NodeCompiler.getName(define.getName());
+            this.structs.put(name, new StructType(name, attributes));
+        }
+    }
+
+    /**
+     * Retrieves the type of the visible structure with the given name.
+     *
+     * @param name
+     *            The name of the structure.
+     * @return The type.
+     * @throws IllegalArgumentException
+     *             If the structure is not defined.
+     */
+    private StructType getStructType(final String name) throws IllegalArgumentException {
+        final StructType type = this.structs.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("The structure " + name + " is not defined!");
+        }
+        return type;
+    }
+
+    /**
+     * Retrieves the name stored in the given literal.
+     *
+     * @param literal
+     *            The literal.
+     * @return The name.
+     */
+    private static String getName(final Literal literal) {
+        return ((SymbolLiteral) literal).getContent();
+    }
+
+    /**
+     * Creates a node that returns the given value.
+     *
+     * @param value
+     *            The value.
+     * @return The node.
+     */
+    private static Node constant(final Object value) {
+        return frame -> value;
+    }
+
+    /**
+     * Executes the given nodes.
+     *
+     * @param nodes
+     *            The nodes.
+     * @param frame
+     *            The frame.
+     * @return The values of the nodes.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    private static Object[] executeAll(final Node[] nodes, final Frame frame) throws EvaluationException {
+        final Object[] values = new Object[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            values[i] = nodes[i].execute(frame);
+        }
+        return values;
+    }
+
+    /**
+     * Checks whether the given value is a function that can be called.
+     *
+     * @param value
+     *            The value.
+     * @return The function.
+     * @throws EvaluationException
+     *             If the value is not a function.
+     */
+    private static Procedure checkProcedure(final Object value) throws EvaluationException {
+        if (!(value instanceof Procedure)) {
+            throw new EvaluationException(
+                    "Expected a function after the open parenthesis, but received " + Values.toPrintString(value) + "!");
+        }
+        return (Procedure) value;
+    }
+
+    /**
+     * Checks whether the given value of a variable is defined yet.
+     *
+     * @param value
+     *            The value.
+     * @param name
+     *            The name of the variable.
+     * @return The value.
+     * @throws EvaluationException
+     *             If the value is not defined yet.
+     */
+    private static Object checkDefined(final Object value, final String name) throws EvaluationException {
+        if (value == null) {
+            throw new EvaluationException(name + " is used here before its definition!");
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether the given result of a comparison matches the given kind
+     * of comparison.
+     *
+     * @param comparison
+     *            The result of the comparison.
+     * @param kind
+     *            The kind of the comparison.
+     * @return Whether the result matches.
+     */
+    private static boolean matches(final int comparison, final int kind) {
+        switch (kind) {
+            case LESS:
+                return comparison < 0;
+            case LESS_OR_EQUAL:
+                return comparison <= 0;
+            case GREATER:
+                return comparison > 0;
+            case GREATER_OR_EQUAL:
+                return comparison >= 0;
+            default:
+                return comparison == 0;
+        }
+    }
+
+    /**
+     * Registers the rule for the given type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     * @param type
+     *            The type of the expression.
+     * @param rule
+     *            The rule.
+     */
+    private static <E extends Expression> void register(final Class<E> type, final Rule<E> rule) {
+        NodeCompiler.RULES.put(type, rule);
+    }
+
+    /**
+     * Compiles an expression of a specific type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     */
+    @FunctionalInterface
+    private interface Rule<E extends Expression> {
+        /**
+         * Compiles the given expression.
+         *
+         * @param compiler
+         *            The compiler of the program.
+         * @param expression
+         *            The expression.
+         * @return The node.
+         */
+        Node compile(final NodeCompiler compiler, final E expression);
+    }
+}
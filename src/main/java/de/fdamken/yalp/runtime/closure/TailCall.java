@@ -0,0 +1,78 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.EvaluationThread;
+
+/**
+ * A call of a function in a tail position that has not been executed yet.
+ * Instead of calling the function, a call in a tail position returns a tail
+ * call to the function that is currently executed, which executes it after
+ * its own frame has been left (see {@link #resolve(Object)}). So tail calls
+ * (e.g. loops written as recursion) do not grow the stack.
+ *
+ */
+final class TailCall {
+    /**
+     * The code of the called function.
+     *
+     */
+    private final FunctionCode code;
+    /**
+     * The frame holding the arguments.
+     *
+     */
+    private final Frame frame;
+
+    /**
+     * Constructor of TailCall.
+     *
+     * @param code
+     *            The code of the called function.
+     * @param frame
+     *            The frame holding the arguments.
+     */
+    TailCall(final FunctionCode code, final Frame frame) {
+        this.code = code;
+        this.frame = frame;
+    }
+
+    /**
+     * Executes the given value of a function body until it is not a tail call
+     * anymore. As tail calls may loop forever, the loop checks whether the
+     * evaluation has been cancelled.
+     *
+     * @param value
+     *            The value of the function body.
+     * @return The value of the function call.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    static Object resolve(final Object value) throws EvaluationException {
+        Object result = value;
+        while (result instanceof TailCall) {
+            EvaluationThread.checkCancelled();
+            final TailCall call = (TailCall) result;
+            result = call.code.body.execute(call.frame);
+        }
+        return result;
+    }
+}
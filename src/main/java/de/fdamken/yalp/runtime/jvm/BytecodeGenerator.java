@@ -0,0 +1,1612 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.Expressions;
+import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FilterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFormatFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.AppendFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.EighthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FifthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FirstFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FourthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.LengthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.RestFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SecondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SeventhFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SixthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ThirdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.AndFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.NotFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.OrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AbsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.DivideFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.ExptFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.FloorFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GcdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MaxFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MinFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.NumberEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.RemainderFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrtFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SubtractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.BooleanPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EmptyPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EqPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EvenPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ListPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.NumberPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.OddPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.SymbolPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ZeroPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+
+/**
+ * Generates the classes of a single program (see {@link JvmCompiler}). Every
+ * expression pushes exactly one value onto the operand stack.
+ *
+ */
+final class BytecodeGenerator {
+    /**
+     * The name of the static field of the program class holding the values
+     * of the top-level definitions.
+     *
+     */
+    static final String GLOBALS = "globals";
+    /**
+     * The name of the static field of the program class holding the
+     * constants.
+     *
+     */
+    static final String CONSTANTS = "constants";
+    /**
+     * The name of the static field of the program class holding the output.
+     *
+     */
+    static final String OUTPUT = "output";
+    /**
+     * The prefix of the names of the methods evaluating the top-level
+     * expressions.
+     *
+     */
+    static final String FORM = "form";
+
+    /**
+     * The package of the generated classes.
+     *
+     */
+    private static final String PACKAGE = "de/fdamken/yalp/runtime/jvm/generated/";
+    /**
+     * The internal name of the program class.
+     *
+     */
+    private static final String PROGRAM = BytecodeGenerator.PACKAGE + "Program";
+    /**
+     * The internal name of {@link Object}.
+     *
+     */
+    private static final String OBJECT = "java/lang/Object";
+    /**
+     * The descriptor of {@link Object}.
+     *
+     */
+    private static final String OBJECT_TYPE = "Ljava/lang/Object;";
+    /**
+     * The descriptor of an array of {@link Object objects}.
+     *
+     */
+    private static final String OBJECT_ARRAY = "[Ljava/lang/Object;";
+    /**
+     * The descriptor of a method taking an object and returning an object.
+     *
+     */
+    private static final String UNARY = "(Ljava/lang/Object;)Ljava/lang/Object;";
+    /**
+     * The descriptor of a method taking two objects and returning an object.
+     *
+     */
+    private static final String BINARY = "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.Procedure}.
+     *
+     */
+    private static final String PROCEDURE = "de/fdamken/yalp/runtime/Procedure";
+    /**
+     * The descriptor of {@link de.fdamken.yalp.runtime.Procedure}.
+     *
+     */
+    private static final String PROCEDURE_TYPE = "L" + BytecodeGenerator.PROCEDURE + ";";
+    /**
+     * The internal name of {@link JvmProcedure}.
+     *
+     */
+    private static final String JVM_PROCEDURE = "de/fdamken/yalp/runtime/jvm/JvmProcedure";
+    /**
+     * The descriptor of the methods <code>apply</code> and
+     * <code>applyTail</code> of a function class.
+     *
+     */
+    private static final String APPLY = "([Ljava/lang/Object;)Ljava/lang/Object;";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.EvaluationThread}.
+     *
+     */
+    private static final String EVALUATION_THREAD = "de/fdamken/yalp/runtime/EvaluationThread";
+    /**
+     * The internal name of {@link JvmSupport}.
+     *
+     */
+    private static final String SUPPORT = "de/fdamken/yalp/runtime/jvm/JvmSupport";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.Numbers}.
+     *
+     */
+    private static final String NUMBERS = "de/fdamken/yalp/runtime/Numbers";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.Lists}.
+     *
+     */
+    private static final String LISTS = "de/fdamken/yalp/runtime/Lists";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.Values}.
+     *
+     */
+    private static final String VALUES = "de/fdamken/yalp/runtime/Values";
+    /**
+     * The internal name of {@link de.fdamken.yalp.runtime.Pair}.
+     *
+     */
+    private static final String PAIR = "de/fdamken/yalp/runtime/Pair";
+    /**
+     * The descriptor of {@link de.fdamken.yalp.runtime.Pair}.
+     *
+     */
+    private static final String PAIR_TYPE = "L" + BytecodeGenerator.PAIR + ";";
+    /**
+     * The internal name of {@link StructType}.
+     *
+     */
+    private static final String STRUCT_TYPE = "de/fdamken/yalp/runtime/StructType";
+
+    /**
+     * The rules that generate the code of the expressions by the type of the
+     * expression.
+     *
+     */
+    private static final Map<Class<?>, Rule<?>> RULES = new HashMap<>();
+
+    static {
+        BytecodeGenerator.register(BooleanLiteral.class, (generator, expression, method) -> method.code
+                .getStatic("java/lang/Boolean", expression.isContent() ? "TRUE" : "FALSE", "Ljava/lang/Boolean;"));
+        BytecodeGenerator.register(StringLiteral.class,
+                (generator, expression, method) -> method.code.pushString(expression.getContent()));
+        BytecodeGenerator.register(CharLiteral.class, (generator, expression, method) -> generator
+                .pushConstant(Character.valueOf(expression.getContent()), method));
+        BytecodeGenerator.register(SymbolLiteral.class,
+                (generator, expression, method) -> generator.pushConstant(Symbol.of(expression.getContent()), method));
+        BytecodeGenerator.register(FloatingPointLiteral.class, (generator, expression, method) -> generator
+                .pushConstant(Double.valueOf(expression.getContent()), method));
+        BytecodeGenerator.register(FractionLiteral.class,
+                (generator, expression, method) -> generator
+                        .pushConstant(Fraction.of(expression.getNumerator(), expression.getDenominator()), method));
+        BytecodeGenerator.register(IntegerLiteral.class, (generator, expression, method) -> generator
+                .pushConstant(Numbers.normalize(expression.getContent()), method));
+        BytecodeGenerator.register(Variable.class, BytecodeGenerator::generateVariable);
+        BytecodeGenerator.register(BuiltinReference.class,
+                (generator, expression, method) -> generator.pushConstant(Builtin.forName(expression.getName()), method));
+
+        BytecodeGenerator.register(ApplicationFunction.class, BytecodeGenerator::generateApplication);
+        BytecodeGenerator.register(CondFunction.class, BytecodeGenerator::generateCond);
+        BytecodeGenerator.register(IfFunction.class, BytecodeGenerator::generateIf);
+        BytecodeGenerator.register(LocalFunction.class, BytecodeGenerator::generateLocal);
+        BytecodeGenerator.register(LambdaFunction.class, (generator, expression, method) -> generator
+                .generateClosure("lambda", expression.getParameters().size(), expression.getExpression(), expression,
+                        method));
+        BytecodeGenerator.register(FilterFunction.class, (generator, expression, method) -> {
+            generator.generateProcedure(expression.getFunction(), "filter", method);
+            generator.generate(expression.getList(), method);
+            method.code.invokeStatic(BytecodeGenerator.LISTS, "filter",
+                    "(" + BytecodeGenerator.PROCEDURE_TYPE + BytecodeGenerator.OBJECT_TYPE + ")"
+                            + BytecodeGenerator.PAIR_TYPE);
+        });
+        BytecodeGenerator.register(MapFunction.class, (generator, expression, method) -> {
+            generator.generateProcedure(expression.getFunction(), "map", method);
+            generator.generateArray(expression.getLists(), method);
+            method.code.invokeStatic(BytecodeGenerator.LISTS, "map",
+                    "(" + BytecodeGenerator.PROCEDURE_TYPE + BytecodeGenerator.OBJECT_ARRAY + ")"
+                            + BytecodeGenerator.PAIR_TYPE);
+        });
+        BytecodeGenerator.register(FoldlFunction.class, (generator, expression, method) -> generator
+                .generateFold("foldl", expression.getFolder(), expression.getStartValue(), expression.getLists(), method));
+        BytecodeGenerator.register(FoldrFunction.class, (generator, expression, method) -> generator
+                .generateFold("foldr", expression.getFolder(), expression.getStartValue(), expression.getLists(), method));
+
+        BytecodeGenerator.register(PrintFunction.class, (generator, expression, method) -> {
+            method.code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.OUTPUT, "Ljava/lang/Appendable;");
+            generator.generate(expression.getValue(), method);
+            method.code.invokeStatic(BytecodeGenerator.SUPPORT, "print",
+                    "(Ljava/lang/Appendable;Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+        BytecodeGenerator.register(PrintFormatFunction.class, (generator, expression, method) -> {
+            method.code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.OUTPUT, "Ljava/lang/Appendable;");
+            method.code.pushString(((StringLiteral) expression.getFormat()).getContent());
+            generator.generateArray(expression.getArguments(), method);
+            method.code.invokeStatic(BytecodeGenerator.SUPPORT, "printf",
+                    "(Ljava/lang/Appendable;Ljava/lang/String;[Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+
+        BytecodeGenerator.register(AppendFunction.class, (generator, expression, method) -> generator.generateCall(
+                BytecodeGenerator.LISTS, "append", "(Ljava/lang/Object;Ljava/lang/Object;)" + BytecodeGenerator.PAIR_TYPE,
+                method, expression.getListA(), expression.getListB()));
+        BytecodeGenerator.register(ConsFunction.class, (generator, expression, method) -> generator.generateCall(
+                BytecodeGenerator.PAIR, "cons", "(Ljava/lang/Object;Ljava/lang/Object;)" + BytecodeGenerator.PAIR_TYPE,
+                method, expression.getElement(), expression.getList()));
+        BytecodeGenerator.register(FirstFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.LISTS, "first", BytecodeGenerator.UNARY, method, expression.getList()));
+        BytecodeGenerator.register(SecondFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 1, method));
+        BytecodeGenerator.register(ThirdFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 2, method));
+        BytecodeGenerator.register(FourthFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 3, method));
+        BytecodeGenerator.register(FifthFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 4, method));
+        BytecodeGenerator.register(SixthFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 5, method));
+        BytecodeGenerator.register(SeventhFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 6, method));
+        BytecodeGenerator.register(EighthFunction.class,
+                (generator, expression, method) -> generator.generateNth(expression.getList(), 7, method));
+        BytecodeGenerator.register(RestFunction.class, (generator, expression, method) -> generator.generateCall(
+                BytecodeGenerator.LISTS, "rest", "(Ljava/lang/Object;)" + BytecodeGenerator.PAIR_TYPE, method,
+                expression.getList()));
+        BytecodeGenerator.register(LengthFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "length", BytecodeGenerator.UNARY, method, expression.getList()));
+        BytecodeGenerator.register(ListFunction.class, (generator, expression, method) -> {
+            if (expression.getValues().isEmpty()) {
+                method.code.getStatic(BytecodeGenerator.PAIR, "EMPTY", BytecodeGenerator.PAIR_TYPE);
+            } else {
+                generator.generateArray(expression.getValues(), method);
+                method.code.invokeStatic(BytecodeGenerator.LISTS, "list",
+                        "(" + BytecodeGenerator.OBJECT_ARRAY + ")" + BytecodeGenerator.PAIR_TYPE);
+            }
+        });
+
+        BytecodeGenerator.register(AndFunction.class,
+                (generator, expression, method) -> generator.generateLogic(expression.getExpressions(), true, method));
+        BytecodeGenerator.register(OrFunction.class,
+                (generator, expression, method) -> generator.generateLogic(expression.getExpressions(), false, method));
+        BytecodeGenerator.register(NotFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "not", BytecodeGenerator.UNARY, method, expression.getExpression()));
+
+        BytecodeGenerator.register(AbsFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.NUMBERS, "abs", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(FloorFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.NUMBERS, "floor", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(SqrFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "sqr", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(SqrtFunction.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.NUMBERS, "sqrt", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(ExptFunction.class,
+                (generator, expression, method) -> generator.generateCall(BytecodeGenerator.NUMBERS, "expt",
+                        BytecodeGenerator.BINARY, method, expression.getValueA(), expression.getValueB()));
+        BytecodeGenerator.register(GcdFunction.class,
+                (generator, expression, method) -> generator.generateCall(BytecodeGenerator.NUMBERS, "gcd",
+                        BytecodeGenerator.BINARY, method, expression.getValueA(), expression.getValueB()));
+        BytecodeGenerator.register(RemainderFunction.class,
+                (generator, expression, method) -> generator.generateCall(BytecodeGenerator.NUMBERS, "remainder",
+                        BytecodeGenerator.BINARY, method, expression.getValueA(), expression.getValueB()));
+        BytecodeGenerator.register(AddFunction.class,
+                (generator, expression, method) -> generator.generateArithmetic("add", 0L, expression.getValues(), method));
+        BytecodeGenerator.register(SubtractFunction.class, (generator, expression, method) -> generator
+                .generateArithmetic("subtract", 0L, expression.getValues(), method));
+        BytecodeGenerator.register(MultiplyFunction.class, (generator, expression, method) -> generator
+                .generateArithmetic("multiply", 1L, expression.getValues(), method));
+        BytecodeGenerator.register(DivideFunction.class, (generator, expression, method) -> generator
+                .generateArithmetic("divide", 1L, expression.getValues(), method));
+        BytecodeGenerator.register(MaxFunction.class,
+                (generator, expression, method) -> generator.generateArithmetic("max", null, expression.getValues(), method));
+        BytecodeGenerator.register(MinFunction.class,
+                (generator, expression, method) -> generator.generateArithmetic("min", null, expression.getValues(), method));
+        BytecodeGenerator.register(LessFunction.class, (generator, expression, method) -> generator
+                .generateComparison(expression.getValues(), JvmSupport.LESS, method));
+        BytecodeGenerator.register(LessOrEqualFunction.class, (generator, expression, method) -> generator
+                .generateComparison(expression.getValues(), JvmSupport.LESS_OR_EQUAL, method));
+        BytecodeGenerator.register(GreaterFunction.class, (generator, expression, method) -> generator
+                .generateComparison(expression.getValues(), JvmSupport.GREATER, method));
+        BytecodeGenerator.register(GreaterOrEqualFunction.class, (generator, expression, method) -> generator
+                .generateComparison(expression.getValues(), JvmSupport.GREATER_OR_EQUAL, method));
+        BytecodeGenerator.register(NumberEqualFunction.class, (generator, expression, method) -> generator
+                .generateComparison(expression.getValues(), JvmSupport.EQUAL, method));
+
+        BytecodeGenerator.register(BooleanPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isBoolean", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(EvenPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isEven", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(NumberPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isNumber", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(OddPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isOdd", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(SymbolPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isSymbol", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(ZeroPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isZero", BytecodeGenerator.UNARY, method, expression.getValue()));
+        BytecodeGenerator.register(EmptyPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isEmpty", BytecodeGenerator.UNARY, method, expression.getList()));
+        BytecodeGenerator.register(ListPredicate.class, (generator, expression, method) -> generator
+                .generateCall(BytecodeGenerator.SUPPORT, "isList", BytecodeGenerator.UNARY, method, expression.getAny()));
+        BytecodeGenerator.register(EqPredicate.class,
+                (generator, expression, method) -> generator.generateCall(BytecodeGenerator.SUPPORT, "isEq",
+                        BytecodeGenerator.BINARY, method, expression.getValueA(), expression.getValueB()));
+        BytecodeGenerator.register(StructPredicateFunction.class, (generator, expression, method) -> {
+            generator.pushStructType(expression.getName(), method);
+            generator.generate(expression.getInstance(), method);
+            method.code.invokeStatic(BytecodeGenerator.SUPPORT, "isInstance",
+                    "(L" + BytecodeGenerator.STRUCT_TYPE + ";Ljava/lang/Object;)Ljava/lang/Object;");
+        });
+
+        BytecodeGenerator.register(MakeStructFunction.class, (generator, expression, method) -> {
+            generator.pushStructType(expression.getName(), method);
+            generator.generateArray(expression.getAttributes(), method);
+            method.code.invokeVirtual(BytecodeGenerator.STRUCT_TYPE, "create",
+                    "([Ljava/lang/Object;)Lde/fdamken/yalp/runtime/StructValue;");
+        });
+        BytecodeGenerator.register(StructAttributeSelectFunction.class, (generator, expression, method) -> {
+            final StructType type = generator.pushStructType(expression.getName(), method);
+            final int index = type.indexOf(expression.getAttribute());
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        expression.getName() + " does not have an attribute " + expression.getAttribute() + "!");
+            }
+            generator.generate(expression.getInstance(), method);
+            method.code.pushInt(index);
+            method.code.invokeVirtual(BytecodeGenerator.STRUCT_TYPE, "get", "(Ljava/lang/Object;I)Ljava/lang/Object;");
+        });
+    }
+
+    /**
+     * The program to compile.
+     *
+     */
+    private final DecoratedAbstractSyntaxTree tree;
+    /**
+     * The class holding the top-level expressions and functions.
+     *
+     */
+    private final ClassFileWriter program = new ClassFileWriter(BytecodeGenerator.PROGRAM, BytecodeGenerator.OBJECT);
+    /**
+     * The generated class files, indexed by the binary names of the classes.
+     *
+     */
+    private final Map<String, byte[]> classFiles = new LinkedHashMap<>();
+    /**
+     * The constants used by the generated code.
+     *
+     */
+    private final List<Object> constants = new ArrayList<>();
+    /**
+     * The indices of the {@link #constants}.
+     *
+     */
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    /**
+     * The nodes of the frames (functions and <code>local</code>s) that are
+     * referenced by nested functions and therefore allocated on the heap.
+     *
+     */
+    private final Set<Expression> heapFrames = Collections.newSetFromMap(new IdentityHashMap<>());
+    /**
+     * The functions defined by a top-level <code>define</code>, indexed by
+     * their slots.
+     *
+     */
+    private final Map<Integer, DefineFunction> globalFunctions = new HashMap<>();
+    /**
+     * The types of the structures that are visible in the expression that is
+     * currently compiled, indexed by their names.
+     *
+     */
+    private Map<String, StructType> structs = new HashMap<>();
+    /**
+     * The number of generated closure classes.
+     *
+     */
+    private int closureCount;
+    /**
+     * Whether the expression whose code is currently generated is in a tail
+     * position, i.e. its value is the value of the function it belongs to.
+     *
+     */
+    private boolean tail;
+
+    /**
+     * Constructor of BytecodeGenerator.
+     *
+     * @param tree
+     *            The program to compile.
+     */
+    BytecodeGenerator(final DecoratedAbstractSyntaxTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Generates the classes of the program.
+     *
+     * @return The program.
+     * @throws CodeGenerationException
+     *             If the classes cannot be loaded.
+     * @throws IllegalStateException
+     *             If the program exceeds a limit of the class file format.
+     */
+    JvmProgram generate() throws CodeGenerationException, IllegalStateException {
+        final List<Expression> expressions = this.tree.getExpressions();
+        for (final Expression expression : expressions) {
+            this.findHeapFrames(expression, new ArrayList<>(), new ArrayList<>(), 0);
+            this.declareStruct(expression);
+            if (expression instanceof DefineFunction) {
+                final DefineFunction define = (DefineFunction) expression;
+                this.globalFunctions.put(define.getSlot(), define);
+            }
+        }
+
+        final int access = ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC;
+        this.program.addField(access, BytecodeGenerator.GLOBALS, BytecodeGenerator.OBJECT_ARRAY);
+        this.program.addField(access, BytecodeGenerator.CONSTANTS, BytecodeGenerator.OBJECT_ARRAY);
+        this.program.addField(access, BytecodeGenerator.OUTPUT, "Ljava/lang/Appendable;");
+        final boolean[] results = new boolean[expressions.size()];
+        for (int i = 0; i < results.length; i++) {
+            final CodeBuilder code = this.program.addMethod(access, BytecodeGenerator.FORM + i, "()Ljava/lang/Object;");
+            this.generateForm(expressions.get(i), new MethodContext(code, BytecodeGenerator.PROGRAM));
+            code.insn(CodeBuilder.ARETURN, -1);
+            results[i] = !(expressions.get(i) instanceof Definition);
+        }
+        this.addClass(BytecodeGenerator.PROGRAM, this.program);
+
+        return new JvmProgram(this.classFiles, BytecodeGenerator.toBinaryName(BytecodeGenerator.PROGRAM),
+                this.constants.toArray(), results, this.tree.getGlobals().size());
+    }
+
+    /**
+     * Generates the code of a top-level expression.
+     *
+     * @param expression
+     *            The expression.
+     * @param method
+     *            The method of the expression.
+     */
+    private void generateForm(final Expression expression, final MethodContext method) {
+        final CodeBuilder code = method.code;
+        if (expression instanceof DefineFunction) {
+            final DefineFunction define = (DefineFunction) expression;
+            final String wrapper = this.generateStaticFunction(define);
+            code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.GLOBALS, BytecodeGenerator.OBJECT_ARRAY);
+            code.pushInt(define.getSlot());
+            code.newObject(wrapper);
+            code.insn(CodeBuilder.DUP, 1);
+            code.invokeSpecial(wrapper, "<init>", "()V");
+            code.insn(CodeBuilder.AASTORE, -3);
+        } else if (expression instanceof DefineConstantFunction) {
+            final DefineConstantFunction define = (DefineConstantFunction) expression;
+            code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.GLOBALS, BytecodeGenerator.OBJECT_ARRAY);
+            code.pushInt(define.getSlot());
+            this.generate(define.getExpression(), method);
+            code.insn(CodeBuilder.AASTORE, -3);
+        } else if (!(expression instanceof DefineStructFunction)) {
+            this.generate(expression, method);
+            return;
+        }
+        code.getStatic(BytecodeGenerator.VALUES, "VOID", BytecodeGenerator.OBJECT_TYPE);
+    }
+
+    /**
+     * Generates the code of the given expression that is not in a tail
+     * position.
+     *
+     * @param expression
+     *            The expression.
+     * @param method
+     *            The method the code is generated in.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    private void generate(final Expression expression, final MethodContext method) throws IllegalArgumentException {
+        this.generate(expression, method, false);
+    }
+
+    /**
+     * Generates the code of the given expression. The code of an expression
+     * in a tail position may leave a {@link TailCall} on the stack that has to
+     * be returned by the method.
+     *
+     * @param expression
+     *            The expression.
+     * @param method
+     *            The method the code is generated in.
+     * @param tail
+     *            Whether the expression is in a tail position.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    private void generate(final Expression expression, final MethodContext method, final boolean tail)
+            throws IllegalArgumentException {
+        final Rule<Expression> rule = (Rule<Expression>) BytecodeGenerator.RULES.get(expression.getClass());
+        if (rule == null) {
+            throw new IllegalArgumentException("Unknown expression type " + expression.getClass().getSimpleName() + "!");
+        }
+        final boolean outerTail = this.tail;
+        this.tail = tail;
+        try {
+            rule.generate(this, expression, method);
+        } finally {
+            this.tail = outerTail;
+        }
+    }
+
+    /**
+     * Generates the code of the given expressions and stores their values in
+     * a new array.
+     *
+     * @param expressions
+     *            The expressions.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateArray(final List<Expression> expressions, final MethodContext method) {
+        final CodeBuilder code = method.code;
+        code.pushInt(expressions.size());
+        code.newArray(BytecodeGenerator.OBJECT);
+        for (int i = 0; i < expressions.size(); i++) {
+            code.insn(CodeBuilder.DUP, 1);
+            code.pushInt(i);
+            this.generate(expressions.get(i), method);
+            code.insn(CodeBuilder.AASTORE, -3);
+        }
+    }
+
+    /**
+     * Generates the code of the given arguments followed by a call of a
+     * static method.
+     *
+     * @param owner
+     *            The internal name of the class declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     * @param method
+     *            The method the code is generated in.
+     * @param arguments
+     *            The arguments.
+     */
+    private void generateCall(final String owner, final String name, final String descriptor, final MethodContext method,
+            final Expression... arguments) {
+        for (final Expression argument : arguments) {
+            this.generate(argument, method);
+        }
+        method.code.invokeStatic(owner, name, descriptor);
+    }
+
+    /**
+     * Generates the code of the given variable.
+     *
+     * @param variable
+     *            The variable.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateVariable(final Variable variable, final MethodContext method) {
+        final CodeBuilder code = method.code;
+        if (variable.isGlobal()) {
+            code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.GLOBALS, BytecodeGenerator.OBJECT_ARRAY);
+            code.pushInt(variable.getSlot());
+            code.insn(CodeBuilder.AALOAD, -1);
+            this.generateDefinedCheck(variable.getName(), method);
+            return;
+        }
+
+        Scope target = method.scope;
+        for (int i = 0; i < variable.getDepth(); i++) {
+            target = target.parent;
+        }
+        if (target.method == method && !target.heap) {
+            code.aload(target.local + variable.getSlot());
+        } else {
+            if (target.method == method) {
+                code.aload(target.local);
+            } else {
+                // The frame belongs to an enclosing function: Follow the
+                // parent links of the heap frames, starting at the frame
+                // captured by the function.
+                Scope scope = method.scope;
+                while (scope.method == method) {
+                    scope = scope.parent;
+                }
+                int hops = -1;
+                for (; scope != target; scope = scope.parent) {
+                    if (scope.heap) {
+                        hops++;
+                    }
+                }
+                this.loadEnvironment(method);
+                for (int i = 0; i <= hops; i++) {
+                    code.pushInt(0);
+                    code.insn(CodeBuilder.AALOAD, -1);
+                    code.checkcast(BytecodeGenerator.OBJECT_ARRAY);
+                }
+            }
+            code.pushInt(variable.getSlot() + 1);
+            code.insn(CodeBuilder.AALOAD, -1);
+        }
+        if (target.checked) {
+            this.generateDefinedCheck(variable.getName(), method);
+        }
+    }
+
+    /**
+     * Generates the check whether the value on the stack is defined yet.
+     *
+     * @param name
+     *            The name of the variable.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateDefinedCheck(final String name, final MethodContext method) {
+        method.code.pushString(name);
+        method.code.invokeStatic(BytecodeGenerator.SUPPORT, "checkDefined",
+                "(Ljava/lang/Object;Ljava/lang/String;)Ljava/lang/Object;");
+    }
+
+    /**
+     * Generates the code of the given function application. Calls of
+     * functions defined by a top-level <code>define</code> are static calls.
+     * In a tail position, a call of the function the static method belongs to
+     * jumps to the start of the method and other calls leave a
+     * {@link TailCall} on the stack.
+     *
+     * @param application
+     *            The function application.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateApplication(final ApplicationFunction application, final MethodContext method) {
+        final boolean tail = this.tail;
+        final CodeBuilder code = method.code;
+        if (application.getFunction() instanceof Variable && ((Variable) application.getFunction()).isGlobal()) {
+            final Variable variable = (Variable) application.getFunction();
+            final DefineFunction define = this.globalFunctions.get(variable.getSlot());
+            final int arity = define == null ? -1 : define.getHeader().size() - 1;
+            final List<Expression> arguments = application.getArguments();
+            if (tail && define != null && define == method.function && arguments.size() == arity) {
+                for (final Expression argument : arguments) {
+                    this.generate(argument, method);
+                }
+                for (int i = arity - 1; i >= 0; i--) {
+                    code.astore(i);
+                }
+                // The jump may loop forever.
+                code.invokeStatic(BytecodeGenerator.EVALUATION_THREAD, "checkCancelled", "()V");
+                code.jump(CodeBuilder.GOTO, method.entry);
+                // Unreachable, but the code following the call expects its
+                // value on the stack.
+                code.insn(CodeBuilder.ACONST_NULL, 1);
+                return;
+            } else if (define != null) {
+                // The function must have been defined already.
+                this.generateVariable(variable, method);
+                if (tail && arguments.size() == arity) {
+                    this.generateArray(arguments, method);
+                    code.invokeStatic(BytecodeGenerator.SUPPORT, "tailCall",
+                            "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;");
+                    return;
+                }
+                code.insn(CodeBuilder.POP, -1);
+
+                if (arguments.size() == arity) {
+                    for (final Expression argument : arguments) {
+                        this.generate(argument, method);
+                    }
+                    code.invokeStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.getMethodName(define),
+                            BytecodeGenerator.getDescriptor(arity));
+                    code.invokeStatic(BytecodeGenerator.SUPPORT, "resolve", BytecodeGenerator.UNARY);
+                } else {
+                    code.pushString(variable.getName());
+                    code.pushInt(arity);
+                    code.pushInt(arguments.size());
+                    code.invokeStatic(BytecodeGenerator.SUPPORT, "arityError", "(Ljava/lang/String;II)Ljava/lang/Object;");
+                }
+                return;
+            }
+        }
+
+        this.generate(application.getFunction(), method);
+        this.generateArray(application.getArguments(), method);
+        code.invokeStatic(BytecodeGenerator.SUPPORT, tail ? "tailCall" : "call",
+                "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;");
+    }
+
+    /**
+     * Generates the code of the given <code>if</code>.
+     *
+     * @param expression
+     *            The <code>if</code>.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateIf(final IfFunction expression, final MethodContext method) {
+        final boolean tail = this.tail;
+        final CodeBuilder code = method.code;
+        final CodeBuilder.Label else0 = new CodeBuilder.Label();
+        final CodeBuilder.Label end = new CodeBuilder.Label();
+        this.generateTest(expression.getTest(), "if", method);
+        code.jump(CodeBuilder.IFEQ, else0);
+        this.generate(expression.getThen(), method, tail);
+        code.jump(CodeBuilder.GOTO, end);
+        code.mark(else0);
+        this.generate(expression.getElse0(), method, tail);
+        code.mark(end);
+    }
+
+    /**
+     * Generates the code of the given <code>cond</code>.
+     *
+     * @param expression
+     *            The <code>cond</code>.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateCond(final CondFunction expression, final MethodContext method) {
+        final boolean tail = this.tail;
+        final CodeBuilder code = method.code;
+        final CodeBuilder.Label end = new CodeBuilder.Label();
+        for (final CondFunction.CondPart part : expression.getCases()) {
+            final CodeBuilder.Label next = new CodeBuilder.Label();
+            this.generateTest(part.getTest(), "cond", method);
+            code.jump(CodeBuilder.IFEQ, next);
+            this.generate(part.getThen(), method, tail);
+            code.jump(CodeBuilder.GOTO, end);
+            code.mark(next);
+        }
+        if (expression.getElse0() == null) {
+            code.invokeStatic(BytecodeGenerator.SUPPORT, "condFailed", "()Ljava/lang/Object;");
+        } else {
+            this.generate(expression.getElse0(), method, tail);
+        }
+        code.mark(end);
+    }
+
+    /**
+     * Generates the code of <code>and</code> or <code>or</code>.
+     *
+     * @param expressions
+     *            The operands.
+     * @param and
+     *            Whether to generate <code>and</code> (<code>true</code>) or
+     *            <code>or</code> (<code>false</code>).
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateLogic(final List<Expression> expressions, final boolean and, final MethodContext method) {
+        final CodeBuilder code = method.code;
+        final CodeBuilder.Label shortCircuit = new CodeBuilder.Label();
+        final CodeBuilder.Label end = new CodeBuilder.Label();
+        for (final Expression expression : expressions) {
+            this.generateTest(expression, and ? "and" : "or", method);
+            code.jump(and ? CodeBuilder.IFEQ : CodeBuilder.IFNE, shortCircuit);
+        }
+        code.getStatic("java/lang/Boolean", and ? "TRUE" : "FALSE", "Ljava/lang/Boolean;");
+        code.jump(CodeBuilder.GOTO, end);
+        code.mark(shortCircuit);
+        code.getStatic("java/lang/Boolean", and ? "FALSE" : "TRUE", "Ljava/lang/Boolean;");
+        code.mark(end);
+    }
+
+    /**
+     * Generates the code of a condition that leaves a primitive boolean on
+     * the stack.
+     *
+     * @param expression
+     *            The condition.
+     * @param function
+     *            The name of the function the condition belongs to.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateTest(final Expression expression, final String function, final MethodContext method) {
+        this.generate(expression, method);
+        method.code.pushString(function);
+        method.code.invokeStatic(BytecodeGenerator.VALUES, "toBoolean", "(Ljava/lang/Object;Ljava/lang/String;)Z");
+    }
+
+    /**
+     * Generates the code of the given <code>local</code>. The definitions
+     * are stored in local variables of the JVM or, if they are referenced by
+     * a nested function, in a frame on the heap.
+     *
+     * @param local
+     *            The <code>local</code>.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateLocal(final LocalFunction local, final MethodContext method) {
+        final boolean tail = this.tail;
+        final CodeBuilder code = method.code;
+        final Map<String, StructType> outerStructs = this.structs;
+        final Scope outerScope = method.scope;
+        this.structs = new HashMap<>(outerStructs);
+        try {
+            for (final Definition definition : local.getDefinitions()) {
+                this.declareStruct((Expression) definition);
+            }
+
+            final Scope scope;
+            if (this.heapFrames.contains(local)) {
+                code.pushInt(local.getFrameSize() + 1);
+                code.newArray(BytecodeGenerator.OBJECT);
+                code.insn(CodeBuilder.DUP, 1);
+                code.pushInt(0);
+                this.loadInnermostHeapFrame(method);
+                code.insn(CodeBuilder.AASTORE, -3);
+                final int frame = code.newLocal();
+                code.astore(frame);
+                scope = new Scope(outerScope, method, true, frame, true);
+            } else {
+                final int first = code.newLocal();
+                for (int i = 1; i < local.getFrameSize(); i++) {
+                    code.newLocal();
+                }
+                for (int i = 0; i < local.getFrameSize(); i++) {
+                    code.insn(CodeBuilder.ACONST_NULL, 1);
+                    code.astore(first + i);
+                }
+                scope = new Scope(outerScope, method, false, first, true);
+            }
+            method.scope = scope;
+
+            for (final Definition definition : local.getDefinitions()) {
+                if (definition instanceof DefineConstantFunction) {
+                    final DefineConstantFunction define = (DefineConstantFunction) definition;
+                    this.generateStore(scope, define.getSlot(), () -> this.generate(define.getExpression(), method), method);
+                } else if (definition instanceof DefineFunction) {
+                    final DefineFunction define = (DefineFunction) definition;
+                    this.generateStore(scope, define.getSlot(),
+                            () -> this.generateClosure(BytecodeGenerator.getName(define.getHeader().get(0)),
+                                    define.getHeader().size() - 1, define.getExpression(), define, method),
+                            method);
+                }
+            }
+            this.generate(local.getExpression(), method, tail);
+        } finally {
+            method.scope = outerScope;
+            this.structs = outerStructs;
+        }
+    }
+
+    /**
+     * Generates the code storing a value into a slot of a frame owned by the
+     * current method.
+     *
+     * @param scope
+     *            The frame.
+     * @param slot
+     *            The slot.
+     * @param value
+     *            Generates the code of the value.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateStore(final Scope scope, final int slot, final Runnable value, final MethodContext method) {
+        final CodeBuilder code = method.code;
+        if (scope.heap) {
+            code.aload(scope.local);
+            code.pushInt(slot + 1);
+            value.run();
+            code.insn(CodeBuilder.AASTORE, -3);
+        } else {
+            value.run();
+            code.astore(scope.local + slot);
+        }
+    }
+
+    /**
+     * Generates a class for a nested function (a lambda or a function defined
+     * inside of a <code>local</code>) and the code creating an instance of
+     * it.
+     *
+     * @param name
+     *            The name of the function used in error messages.
+     * @param arity
+     *            The number of parameters.
+     * @param body
+     *            The body of the function.
+     * @param frame
+     *            The node of the frame of the parameters.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateClosure(final String name, final int arity, final Expression body, final Expression frame,
+            final MethodContext method) {
+        final String className = BytecodeGenerator.PACKAGE + "Closure" + this.closureCount++;
+        final ClassFileWriter writer = new ClassFileWriter(className, BytecodeGenerator.OBJECT,
+                BytecodeGenerator.JVM_PROCEDURE);
+        writer.addField(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL, "env", BytecodeGenerator.OBJECT_ARRAY);
+
+        final CodeBuilder constructor = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V");
+        constructor.aload(0);
+        constructor.invokeSpecial(BytecodeGenerator.OBJECT, "<init>", "()V");
+        constructor.aload(0);
+        constructor.aload(1);
+        constructor.putField(className, "env", BytecodeGenerator.OBJECT_ARRAY);
+        constructor.insn(CodeBuilder.RETURN, 0);
+        BytecodeGenerator.generateGetArity(writer, arity);
+        BytecodeGenerator.generateApply(writer, className);
+
+        final CodeBuilder apply = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "applyTail", BytecodeGenerator.APPLY);
+        apply.aload(1);
+        apply.pushInt(arity);
+        apply.pushString(name);
+        apply.invokeStatic(BytecodeGenerator.SUPPORT, "checkArity", "([Ljava/lang/Object;ILjava/lang/String;)V");
+        final MethodContext applyMethod = new MethodContext(apply, className);
+        if (this.heapFrames.contains(frame)) {
+            this.loadEnvironment(applyMethod);
+            apply.aload(1);
+            apply.invokeStatic(BytecodeGenerator.SUPPORT, "frame",
+                    "([Ljava/lang/Object;[Ljava/lang/Object;)[Ljava/lang/Object;");
+            final int local = apply.newLocal();
+            apply.astore(local);
+            applyMethod.scope = new Scope(method.scope, applyMethod, true, local, false);
+        } else {
+            final int first = apply.newLocal();
+            for (int i = 1; i < arity; i++) {
+                apply.newLocal();
+            }
+            for (int i = 0; i < arity; i++) {
+                apply.aload(1);
+                apply.pushInt(i);
+                apply.insn(CodeBuilder.AALOAD, -1);
+                apply.astore(first + i);
+            }
+            applyMethod.scope = new Scope(method.scope, applyMethod, false, first, false);
+        }
+        this.generate(body, applyMethod, true);
+        apply.insn(CodeBuilder.ARETURN, -1);
+        this.addClass(className, writer);
+
+        final CodeBuilder code = method.code;
+        code.newObject(className);
+        code.insn(CodeBuilder.DUP, 1);
+        this.loadInnermostHeapFrame(method);
+        code.invokeSpecial(className, "<init>", "([Ljava/lang/Object;)V");
+    }
+
+    /**
+     * Generates the static method of a function defined by a top-level
+     * <code>define</code> and the class wrapping the method if the function
+     * is used as a value.
+     *
+     * @param define
+     *            The function definition.
+     * @return The internal name of the wrapping class.
+     */
+    private String generateStaticFunction(final DefineFunction define) {
+        final int arity = define.getHeader().size() - 1;
+        final String methodName = BytecodeGenerator.getMethodName(define);
+        final String descriptor = BytecodeGenerator.getDescriptor(arity);
+
+        final CodeBuilder code = this.program.addMethod(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_STATIC,
+                methodName, descriptor);
+        final MethodContext method = new MethodContext(code, BytecodeGenerator.PROGRAM);
+        method.function = define;
+        method.entry = new CodeBuilder.Label();
+        code.mark(method.entry);
+        if (this.heapFrames.contains(define)) {
+            code.pushInt(arity + 1);
+            code.newArray(BytecodeGenerator.OBJECT);
+            for (int i = 0; i < arity; i++) {
+                code.insn(CodeBuilder.DUP, 1);
+                code.pushInt(i + 1);
+                code.aload(i);
+                code.insn(CodeBuilder.AASTORE, -3);
+            }
+            final int local = code.newLocal();
+            code.astore(local);
+            method.scope = new Scope(null, method, true, local, false);
+        } else {
+            method.scope = new Scope(null, method, false, 0, false);
+        }
+        this.generate(define.getExpression(), method, true);
+        code.insn(CodeBuilder.ARETURN, -1);
+
+        final String className = BytecodeGenerator.PACKAGE + "Function" + define.getSlot();
+        final ClassFileWriter writer = new ClassFileWriter(className, BytecodeGenerator.OBJECT,
+                BytecodeGenerator.JVM_PROCEDURE);
+        final CodeBuilder constructor = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V");
+        constructor.aload(0);
+        constructor.invokeSpecial(BytecodeGenerator.OBJECT, "<init>", "()V");
+        constructor.insn(CodeBuilder.RETURN, 0);
+        BytecodeGenerator.generateGetArity(writer, arity);
+        BytecodeGenerator.generateApply(writer, className);
+        final CodeBuilder apply = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "applyTail", BytecodeGenerator.APPLY);
+        apply.aload(1);
+        apply.pushInt(arity);
+        apply.pushString(BytecodeGenerator.getName(define.getHeader().get(0)));
+        apply.invokeStatic(BytecodeGenerator.SUPPORT, "checkArity", "([Ljava/lang/Object;ILjava/lang/String;)V");
+        for (int i = 0; i < arity; i++) {
+            apply.aload(1);
+            apply.pushInt(i);
+            apply.insn(CodeBuilder.AALOAD, -1);
+        }
+        apply.invokeStatic(BytecodeGenerator.PROGRAM, methodName, descriptor);
+        apply.insn(CodeBuilder.ARETURN, -1);
+        this.addClass(className, writer);
+        return className;
+    }
+
+    /**
+     * Generates the code of a call of <code>map</code>, <code>foldl</code> or
+     * <code>filter</code> that pushes the function as a
+     * {@link de.fdamken.yalp.runtime.Procedure}.
+     *
+     * @param function
+     *            The function.
+     * @param name
+     *            The name of the calling function.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateProcedure(final Expression function, final String name, final MethodContext method) {
+        this.generate(function, method);
+        method.code.pushString(name);
+        method.code.invokeStatic(BytecodeGenerator.VALUES, "toProcedure",
+                "(Ljava/lang/Object;Ljava/lang/String;)" + BytecodeGenerator.PROCEDURE_TYPE);
+    }
+
+    /**
+     * Generates the code of <code>foldl</code> or <code>foldr</code>.
+     *
+     * @param name
+     *            The name of the function.
+     * @param folder
+     *            The folding function.
+     * @param start
+     *            The initial value.
+     * @param lists
+     *            The lists.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateFold(final String name, final Expression folder, final Expression start,
+            final List<Expression> lists, final MethodContext method) {
+        this.generateProcedure(folder, name, method);
+        this.generate(start, method);
+        this.generateArray(lists, method);
+        method.code.invokeStatic(BytecodeGenerator.LISTS, name,
+                "(" + BytecodeGenerator.PROCEDURE_TYPE + "Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;");
+    }
+
+    /**
+     * Generates the code of one of the functions <code>second</code> to
+     * <code>eighth</code>.
+     *
+     * @param list
+     *            The list.
+     * @param index
+     *            The index of the element.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateNth(final Expression list, final int index, final MethodContext method) {
+        this.generate(list, method);
+        method.code.pushInt(index);
+        method.code.invokeStatic(BytecodeGenerator.LISTS, "nth", "(Ljava/lang/Object;I)Ljava/lang/Object;");
+    }
+
+    /**
+     * Generates the code of an arithmetic function that folds its operands
+     * from the left using a binary method of
+     * {@link de.fdamken.yalp.runtime.Numbers}.
+     *
+     * @param name
+     *            The name of the binary method.
+     * @param identity
+     *            The value combined with a single operand or
+     *            <code>null</code> if a single operand is combined with
+     *            itself.
+     * @param values
+     *            The operands.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateArithmetic(final String name, final Long identity, final List<Expression> values,
+            final MethodContext method) {
+        final CodeBuilder code = method.code;
+        if (values.isEmpty()) {
+            this.pushConstant(identity, method);
+            return;
+        }
+        if (values.size() == 1) {
+            if (identity == null) {
+                this.generate(values.get(0), method);
+                code.insn(CodeBuilder.DUP, 1);
+            } else {
+                this.pushConstant(identity, method);
+                this.generate(values.get(0), method);
+            }
+            code.invokeStatic(BytecodeGenerator.NUMBERS, name, BytecodeGenerator.BINARY);
+            return;
+        }
+        this.generate(values.get(0), method);
+        for (int i = 1; i < values.size(); i++) {
+            this.generate(values.get(i), method);
+            code.invokeStatic(BytecodeGenerator.NUMBERS, name, BytecodeGenerator.BINARY);
+        }
+    }
+
+    /**
+     * Generates the code of a comparison of numbers.
+     *
+     * @param values
+     *            The numbers.
+     * @param kind
+     *            The kind of the comparison (see {@link JvmSupport}).
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void generateComparison(final List<Expression> values, final int kind, final MethodContext method) {
+        if (values.size() == 2) {
+            this.generate(values.get(0), method);
+            this.generate(values.get(1), method);
+            method.code.pushInt(kind);
+            method.code.invokeStatic(BytecodeGenerator.SUPPORT, "compare",
+                    "(Ljava/lang/Object;Ljava/lang/Object;I)Ljava/lang/Object;");
+        } else {
+            this.generateArray(values, method);
+            method.code.pushInt(kind);
+            method.code.invokeStatic(BytecodeGenerator.SUPPORT, "compare", "([Ljava/lang/Object;I)Ljava/lang/Object;");
+        }
+    }
+
+    /**
+     * Pushes the innermost frame on the heap that is visible in the current
+     * scope or <code>null</code> if there is none.
+     *
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void loadInnermostHeapFrame(final MethodContext method) {
+        for (Scope scope = method.scope; scope != null; scope = scope.parent) {
+            if (scope.heap) {
+                if (scope.method == method) {
+                    method.code.aload(scope.local);
+                } else {
+                    this.loadEnvironment(method);
+                }
+                return;
+            }
+        }
+        method.code.insn(CodeBuilder.ACONST_NULL, 1);
+    }
+
+    /**
+     * Pushes the frame captured by the function of the given method.
+     *
+     * @param method
+     *            The method of a closure class.
+     */
+    private void loadEnvironment(final MethodContext method) {
+        method.code.aload(0);
+        method.code.getField(method.owner, "env", BytecodeGenerator.OBJECT_ARRAY);
+    }
+
+    /**
+     * Pushes the given constant.
+     *
+     * @param value
+     *            The constant.
+     * @param method
+     *            The method the code is generated in.
+     */
+    private void pushConstant(final Object value, final MethodContext method) {
+        Integer index = this.constantIndices.get(value);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add(value);
+            this.constantIndices.put(value, index);
+        }
+        method.code.getStatic(BytecodeGenerator.PROGRAM, BytecodeGenerator.CONSTANTS, BytecodeGenerator.OBJECT_ARRAY);
+        method.code.pushInt(index);
+        method.code.insn(CodeBuilder.AALOAD, -1);
+    }
+
+    /**
+     * Pushes the type of the visible structure with the given name.
+     *
+     * @param name
+     *            The name of the structure.
+     * @param method
+     *            The method the code is generated in.
+     * @return The type.
+     * @throws IllegalArgumentException
+     *             If the structure is not defined.
+     */
+    private StructType pushStructType(final String name, final MethodContext method) throws IllegalArgumentException {
+        final StructType type = this.structs.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("The structure " + name + " is not defined!");
+        }
+        this.pushConstant(type, method);
+        method.code.checkcast(BytecodeGenerator.STRUCT_TYPE);
+        return type;
+    }
+
+    /**
+     * Finds the frames that are referenced by nested functions.
+     *
+     * @param expression
+     *            The expression.
+     * @param frames
+     *            The nodes of the frames the expression is nested in,
+     *            innermost last.
+     * @param levels
+     *            The number of functions the frames are nested in.
+     * @param level
+     *            The number of functions the expression is nested in.
+     */
+    private void findHeapFrames(final Expression expression, final List<Expression> frames, final List<Integer> levels,
+            final int level) {
+        if (expression instanceof Variable) {
+            final Variable variable = (Variable) expression;
+            if (!variable.isGlobal()) {
+                final int index = frames.size() - 1 - variable.getDepth();
+                if (levels.get(index) < level) {
+                    this.heapFrames.add(frames.get(index));
+                }
+            }
+            return;
+        }
+
+        final boolean function = expression instanceof LambdaFunction || expression instanceof DefineFunction;
+        final boolean frame = function || expression instanceof LocalFunction;
+        final int innerLevel = function ? level + 1 : level;
+        if (frame) {
+            frames.add(expression);
+            levels.add(innerLevel);
+        }
+        for (final Expression child : Expressions.getChildren(expression)) {
+            this.findHeapFrames(child, frames, levels, innerLevel);
+        }
+        if (frame) {
+            frames.remove(frames.size() - 1);
+            levels.remove(levels.size() - 1);
+        }
+    }
+
+    /**
+     * Declares the structure defined by the given expression (if it is a
+     * structure definition).
+     *
+     * @param expression
+     *            The expression.
+     */
+    private void declareStruct(final Expression expression) {
+        if (expression instanceof DefineStructFunction) {
+            final DefineStructFunction define = (DefineStructFunction) expression;
+            final String[] attributes = new String[define.getAttributes().size()];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = BytecodeGenerator.getName(define.getAttributes().get(i));
+            }
+            final String name = BytecodeGenerator.getName(define.getName());
+            this.structs.put(name, new StructType(name, attributes));
+        }
+    }
+
+    /**
+     * Adds the given class to the generated classes.
+     *
+     * @param name
+     *            The internal name of the class.
+     * @param writer
+     *            The writer of the class.
+     */
+    private void addClass(final String name, final ClassFileWriter writer) {
+        this.classFiles.put(BytecodeGenerator.toBinaryName(name), writer.toByteArray());
+    }
+
+    /**
+     * Generates the method <code>getArity</code> of a function class.
+     *
+     * @param writer
+     *            The writer of the class.
+     * @param arity
+     *            The number of parameters.
+     */
+    private static void generateGetArity(final ClassFileWriter writer, final int arity) {
+        final CodeBuilder code = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "getArity", "()I");
+        code.pushInt(arity);
+        code.insn(CodeBuilder.IRETURN, -1);
+    }
+
+    /**
+     * Generates the method <code>apply</code> of a function class that calls
+     * <code>applyTail</code> and executes the remaining tail calls.
+     *
+     * @param writer
+     *            The writer of the class.
+     * @param className
+     *            The internal name of the class.
+     */
+    private static void generateApply(final ClassFileWriter writer, final String className) {
+        final CodeBuilder code = writer.addMethod(ClassFileWriter.ACC_PUBLIC, "apply", BytecodeGenerator.APPLY);
+        code.aload(0);
+        code.aload(1);
+        code.invokeVirtual(className, "applyTail", BytecodeGenerator.APPLY);
+        code.invokeStatic(BytecodeGenerator.SUPPORT, "resolve", BytecodeGenerator.UNARY);
+        code.insn(CodeBuilder.ARETURN, -1);
+    }
+
+    /**
+     * Computes the name of the static method of a function defined by a
+     * top-level <code>define</code>. The name contains the name of the
+     * function, so it shows up in stack traces.
+     *
+     * @param define
+     *            The function definition.
+     * @return The name of the method.
+     */
+    private static String getMethodName(final DefineFunction define) {
+        final String name = BytecodeGenerator.getName(define.getHeader().get(0));
+        return "f" + define.getSlot() + "$" + name.replaceAll("[.;\\[/<>]", "_");
+    }
+
+    /**
+     * Computes the descriptor of a method taking the given number of objects
+     * and returning an object.
+     *
+     * @param arity
+     *            The number of parameters.
+     * @return The descriptor.
+     */
+    private static String getDescriptor(final int arity) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (int i = 0; i < arity; i++) {
+            descriptor.append(BytecodeGenerator.OBJECT_TYPE);
+        }
+        return descriptor.append(')').append(BytecodeGenerator.OBJECT_TYPE).toString();
+    }
+
+    /**
+     * Retrieves the name stored in the given literal.
+     *
+     * @param literal
+     *            The literal.
+     * @return The name.
+     */
+    private static String getName(final Literal literal) {
+        return ((SymbolLiteral) literal).getContent();
+    }
+
+    /**
+     * Converts the given internal name of a class into its binary name.
+     *
+     * @param internalName
+     *            The internal name.
+     * @return The binary name.
+     */
+    private static String toBinaryName(final String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    /**
+     * Registers the rule for the given type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     * @param type
+     *            The type of the expression.
+     * @param rule
+     *            The rule.
+     */
+    private static <E extends Expression> void register(final Class<E> type, final Rule<E> rule) {
+        BytecodeGenerator.RULES.put(type, rule);
+    }
+
+    /**
+     * Generates the code of an expression of a specific type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     */
+    @FunctionalInterface
+    private interface Rule<E extends Expression> {
+        /**
+         * Generates the code of the given expression.
+         *
+         * @param generator
+         *            The generator of the program.
+         * @param expression
+         *            The expression.
+         * @param method
+         *            The method the code is generated in.
+         */
+        void generate(final BytecodeGenerator generator, final E expression, final MethodContext method);
+    }
+
+    /**
+     * The state of a method whose code is generated.
+     *
+     */
+    private static final class MethodContext {
+        /**
+         * The builder of the code.
+         *
+         */
+        private final CodeBuilder code;
+        /**
+         * The internal name of the class declaring the method.
+         *
+         */
+        private final String owner;
+        /**
+         * The innermost frame or <code>null</code> if only the top-level
+         * definitions are visible.
+         *
+         */
+        private Scope scope;
+        /**
+         * The function defined by a top-level <code>define</code> the method
+         * is the static method of or <code>null</code> if it is not the
+         * method of such a function.
+         *
+         */
+        private DefineFunction function;
+        /**
+         * The start of the method that self tail calls jump to or
+         * <code>null</code> if the method is not the static method of a
+         * function.
+         *
+         */
+        private CodeBuilder.Label entry;
+
+        /**
+         * Constructor of MethodContext.
+         *
+         * @param code
+         *            The builder of the code.
+         * @param owner
+         *            The internal name of the class declaring the method.
+         */
+        private MethodContext(final CodeBuilder code, final String owner) {
+            this.code = code;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * A frame at compile time: Where the variables of the frame are stored.
+     *
+     */
+    private static final class Scope {
+        /**
+         * The frame this frame is nested in or <code>null</code> if its
+         * parent is the frame of the top-level definitions.
+         *
+         */
+        private final Scope parent;
+        /**
+         * The method that creates the frame.
+         *
+         */
+        private final MethodContext method;
+        /**
+         * Whether the frame is an array on the heap. The first element of the
+         * array is the innermost enclosing frame on the heap, the variables
+         * follow.
+         *
+         */
+        private final boolean heap;
+        /**
+         * The local variable holding the array if the frame is on the heap,
+         * otherwise the local variable holding the first variable of the
+         * frame.
+         *
+         */
+        private final int local;
+        /**
+         * Whether the variables have to be checked for being defined (i.e.
+         * the frame is the frame of a <code>local</code>).
+         *
+         */
+        private final boolean checked;
+
+        /**
+         * Constructor of Scope.
+         *
+         * @param parent
+         *            The frame this frame is nested in.
+         * @param method
+         *            The method that creates the frame.
+         * @param heap
+         *            Whether the frame is an array on the heap.
+         * @param local
+         *            The local variable of the array or the first variable.
+         * @param checked
+         *            Whether the variables have to be checked for being
+         *            defined.
+         */
+        private Scope(final Scope parent, final MethodContext method, final boolean heap, final int local,
+                final boolean checked) {
+            this.parent = parent;
+            this.method = method;
+            this.heap = heap;
+            this.local = local;
+            this.checked = checked;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a class file.
+ *
+ * <p>
+ * The class files use version 49 (Java 5), so they do not need a
+ * <code>StackMapTable</code> and are verified by the type-inferencing
+ * verifier. Only the features needed by the {@link BytecodeGenerator} are
+ * supported: Fields and methods without attributes other than
+ * <code>Code</code>.
+ * </p>
+ *
+ */
+final class ClassFileWriter {
+    /**
+     * <code>ACC_PUBLIC</code>
+     *
+     */
+    static final int ACC_PUBLIC = 0x0001;
+    /**
+     * <code>ACC_STATIC</code>
+     *
+     */
+    static final int ACC_STATIC = 0x0008;
+    /**
+     * <code>ACC_FINAL</code>
+     *
+     */
+    static final int ACC_FINAL = 0x0010;
+
+    /**
+     * <code>ACC_SUPER</code>
+     *
+     */
+    private static final int ACC_SUPER = 0x0020;
+    /**
+     * The magic number of class files.
+     *
+     */
+    private static final int MAGIC = 0xCAFEBABE;
+    /**
+     * The major version of the class files (Java 5).
+     *
+     */
+    private static final int MAJOR_VERSION = 49;
+
+    /**
+     * The constant pool.
+     *
+     */
+    private final ConstantPool pool = new ConstantPool();
+    /**
+     * The index of the class.
+     *
+     */
+    private final int thisClass;
+    /**
+     * The index of the super class.
+     *
+     */
+    private final int superClass;
+    /**
+     * The indices of the implemented interfaces.
+     *
+     */
+    private final int[] interfaces;
+    /**
+     * The fields.
+     *
+     */
+    private final List<Member> fields = new ArrayList<>();
+    /**
+     * The methods.
+     *
+     */
+    private final List<Member> methods = new ArrayList<>();
+
+    /**
+     * Constructor of ClassFileWriter.
+     *
+     * @param name
+     *            The internal name of the class.
+     * @param superName
+     *            The internal name of the super class.
+     * @param interfaceNames
+     *            The internal names of the implemented interfaces.
+     */
+    ClassFileWriter(final String name, final String superName, final String... interfaceNames) {
+        this.thisClass = this.pool.classRef(name);
+        this.superClass = this.pool.classRef(superName);
+        this.interfaces = new int[interfaceNames.length];
+        for (int i = 0; i < interfaceNames.length; i++) {
+            this.interfaces[i] = this.pool.classRef(interfaceNames[i]);
+        }
+    }
+
+    /**
+     * Adds a field.
+     *
+     * @param access
+     *            The access flags.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     */
+    void addField(final int access, final String name, final String descriptor) {
+        this.fields.add(new Member(access, this.pool.utf8(name), this.pool.utf8(descriptor), null));
+    }
+
+    /**
+     * Adds a method.
+     *
+     * @param access
+     *            The access flags.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     * @return The builder for the code of the method.
+     */
+    CodeBuilder addMethod(final int access, final String name, final String descriptor) {
+        final int parameterSlots = CodeBuilder.getArgumentSlots(descriptor)
+                + ((access & ClassFileWriter.ACC_STATIC) == 0 ? 1 : 0);
+        final CodeBuilder code = new CodeBuilder(this.pool, parameterSlots);
+        this.methods.add(new Member(access, this.pool.utf8(name), this.pool.utf8(descriptor), code));
+        return code;
+    }
+
+    /**
+     * Writes the class file.
+     *
+     * @return The class file.
+     * @throws IllegalStateException
+     *             If the class exceeds a limit of the class file format.
+     */
+    byte[] toByteArray() throws IllegalStateException {
+        final int codeName = this.pool.utf8("Code");
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(ClassFileWriter.MAGIC);
+            out.writeShort(0);
+            out.writeShort(ClassFileWriter.MAJOR_VERSION);
+            this.pool.writeTo(out);
+            out.writeShort(ClassFileWriter.ACC_PUBLIC | ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER);
+            out.writeShort(this.thisClass);
+            out.writeShort(this.superClass);
+            out.writeShort(this.interfaces.length);
+            for (final int anInterface : this.interfaces) {
+                out.writeShort(anInterface);
+            }
+            ClassFileWriter.writeMembers(out, this.fields, codeName);
+            ClassFileWriter.writeMembers(out, this.methods, codeName);
+            // No class attributes.
+            out.writeShort(0);
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the given fields or methods.
+     *
+     * @param out
+     *            The stream.
+     * @param members
+     *            The fields or methods.
+     * @param codeName
+     *            The index of the name of the <code>Code</code> attribute.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private static void writeMembers(final DataOutputStream out, final List<Member> members, final int codeName)
+            throws IOException {
+        out.writeShort(members.size());
+        for (final Member member : members) {
+            out.writeShort(member.access);
+            out.writeShort(member.name);
+            out.writeShort(member.descriptor);
+            if (member.code == null) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(codeName);
+                member.code.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * A field or a method.
+     *
+     */
+    private static final class Member {
+        /**
+         * The access flags.
+         *
+         */
+        private final int access;
+        /**
+         * The index of the name.
+         *
+         */
+        private final int name;
+        /**
+         * The index of the descriptor.
+         *
+         */
+        private final int descriptor;
+        /**
+         * The code of a method or <code>null</code> for fields.
+         *
+         */
+        private final CodeBuilder code;
+
+        /**
+         * Constructor of Member.
+         *
+         * @param access
+         *            The access flags.
+         * @param name
+         *            The index of the name.
+         * @param descriptor
+         *            The index of the descriptor.
+         * @param code
+         *            The code of a method or <code>null</code> for fields.
+         */
+        private Member(final int access, final int name, final int descriptor, final CodeBuilder code) {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.code = code;
+        }
+    }
+}
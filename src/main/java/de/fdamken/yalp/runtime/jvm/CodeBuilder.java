@@ -0,0 +1,723 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the bytecode of a single method. The builder keeps track of the
+ * depth of the operand stack and the number of local variables, so the
+ * <code>Code</code> attribute can be written without a separate analysis.
+ *
+ * <p>
+ * The depth of the stack is tracked linearly. At a {@link Label} that is the
+ * target of a jump, the depth is reset to the depth at the jump, so code
+ * after an unconditional jump must only be reachable through labels (which
+ * is always the case for code generated from expressions).
+ * </p>
+ *
+ */
+final class CodeBuilder {
+    /**
+     * <code>aconst_null</code>
+     *
+     */
+    static final int ACONST_NULL = 0x01;
+    /**
+     * <code>aaload</code>
+     *
+     */
+    static final int AALOAD = 0x32;
+    /**
+     * <code>aastore</code>
+     *
+     */
+    static final int AASTORE = 0x53;
+    /**
+     * <code>pop</code>
+     *
+     */
+    static final int POP = 0x57;
+    /**
+     * <code>dup</code>
+     *
+     */
+    static final int DUP = 0x59;
+    /**
+     * <code>ifeq</code>
+     *
+     */
+    static final int IFEQ = 0x99;
+    /**
+     * <code>ifne</code>
+     *
+     */
+    static final int IFNE = 0x9A;
+    /**
+     * <code>goto</code>
+     *
+     */
+    static final int GOTO = 0xA7;
+    /**
+     * <code>ireturn</code>
+     *
+     */
+    static final int IRETURN = 0xAC;
+    /**
+     * <code>areturn</code>
+     *
+     */
+    static final int ARETURN = 0xB0;
+    /**
+     * <code>return</code>
+     *
+     */
+    static final int RETURN = 0xB1;
+
+    /**
+     * <code>iconst_0</code>
+     *
+     */
+    private static final int ICONST_0 = 0x03;
+    /**
+     * <code>bipush</code>
+     *
+     */
+    private static final int BIPUSH = 0x10;
+    /**
+     * <code>sipush</code>
+     *
+     */
+    private static final int SIPUSH = 0x11;
+    /**
+     * <code>ldc</code>
+     *
+     */
+    private static final int LDC = 0x12;
+    /**
+     * <code>ldc_w</code>
+     *
+     */
+    private static final int LDC_W = 0x13;
+    /**
+     * <code>aload</code>
+     *
+     */
+    private static final int ALOAD = 0x19;
+    /**
+     * <code>astore</code>
+     *
+     */
+    private static final int ASTORE = 0x3A;
+    /**
+     * <code>getstatic</code>
+     *
+     */
+    private static final int GETSTATIC = 0xB2;
+    /**
+     * <code>putstatic</code>
+     *
+     */
+    private static final int PUTSTATIC = 0xB3;
+    /**
+     * <code>getfield</code>
+     *
+     */
+    private static final int GETFIELD = 0xB4;
+    /**
+     * <code>putfield</code>
+     *
+     */
+    private static final int PUTFIELD = 0xB5;
+    /**
+     * <code>invokevirtual</code>
+     *
+     */
+    private static final int INVOKEVIRTUAL = 0xB6;
+    /**
+     * <code>invokespecial</code>
+     *
+     */
+    private static final int INVOKESPECIAL = 0xB7;
+    /**
+     * <code>invokestatic</code>
+     *
+     */
+    private static final int INVOKESTATIC = 0xB8;
+    /**
+     * <code>invokeinterface</code>
+     *
+     */
+    private static final int INVOKEINTERFACE = 0xB9;
+    /**
+     * <code>new</code>
+     *
+     */
+    private static final int NEW = 0xBB;
+    /**
+     * <code>anewarray</code>
+     *
+     */
+    private static final int ANEWARRAY = 0xBD;
+    /**
+     * <code>checkcast</code>
+     *
+     */
+    private static final int CHECKCAST = 0xC0;
+    /**
+     * <code>wide</code>
+     *
+     */
+    private static final int WIDE = 0xC4;
+    /**
+     * The maximum length of the code of a method.
+     *
+     */
+    private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    /**
+     * The constant pool of the class.
+     *
+     */
+    private final ConstantPool pool;
+    /**
+     * The bytecode.
+     *
+     */
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    /**
+     * The jumps whose offsets are written when the code is finished.
+     *
+     */
+    private final List<Jump> jumps = new ArrayList<>();
+    /**
+     * The current depth of the operand stack.
+     *
+     */
+    private int stack;
+    /**
+     * The maximum depth of the operand stack.
+     *
+     */
+    private int maxStack;
+    /**
+     * The number of local variables.
+     *
+     */
+    private int locals;
+
+    /**
+     * Constructor of CodeBuilder.
+     *
+     * @param pool
+     *            The constant pool of the class.
+     * @param parameterSlots
+     *            The number of local variables used by the parameters
+     *            (including <code>this</code>).
+     */
+    CodeBuilder(final ConstantPool pool, final int parameterSlots) {
+        this.pool = pool;
+        this.locals = parameterSlots;
+    }
+
+    /**
+     * Allocates a new local variable.
+     *
+     * @return The index of the local variable.
+     */
+    int newLocal() {
+        return this.locals++;
+    }
+
+    /**
+     * Emits an instruction without operands.
+     *
+     * @param opcode
+     *            The opcode of the instruction.
+     * @param stackDelta
+     *            The change of the stack depth caused by the instruction.
+     */
+    void insn(final int opcode, final int stackDelta) {
+        this.code.write(opcode);
+        this.adjustStack(stackDelta);
+    }
+
+    /**
+     * Pushes the given integer.
+     *
+     * @param value
+     *            The integer.
+     */
+    void pushInt(final int value) {
+        if (value >= -1 && value <= 5) {
+            this.code.write(CodeBuilder.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            this.code.write(CodeBuilder.BIPUSH);
+            this.code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            this.code.write(CodeBuilder.SIPUSH);
+            this.writeShort(value);
+        } else {
+            this.ldc(this.pool.integer(value));
+            return;
+        }
+        this.adjustStack(1);
+    }
+
+    /**
+     * Pushes the given string.
+     *
+     * @param value
+     *            The string.
+     */
+    void pushString(final String value) {
+        this.ldc(this.pool.string(value));
+    }
+
+    /**
+     * Loads a reference from a local variable.
+     *
+     * @param local
+     *            The index of the local variable.
+     */
+    void aload(final int local) {
+        this.localInsn(CodeBuilder.ALOAD, local);
+        this.adjustStack(1);
+    }
+
+    /**
+     * Stores a reference into a local variable.
+     *
+     * @param local
+     *            The index of the local variable.
+     */
+    void astore(final int local) {
+        this.localInsn(CodeBuilder.ASTORE, local);
+        this.adjustStack(-1);
+    }
+
+    /**
+     * Creates a new object without calling the constructor.
+     *
+     * @param type
+     *            The internal name of the class.
+     */
+    void newObject(final String type) {
+        this.typeInsn(CodeBuilder.NEW, type);
+        this.adjustStack(1);
+    }
+
+    /**
+     * Creates a new array of references with the length on the stack.
+     *
+     * @param type
+     *            The internal name of the component type.
+     */
+    void newArray(final String type) {
+        this.typeInsn(CodeBuilder.ANEWARRAY, type);
+    }
+
+    /**
+     * Checks the type of the reference on the stack.
+     *
+     * @param type
+     *            The internal name of the type.
+     */
+    void checkcast(final String type) {
+        this.typeInsn(CodeBuilder.CHECKCAST, type);
+    }
+
+    /**
+     * Pushes the value of a static field.
+     *
+     * @param owner
+     *            The internal name of the class declaring the field.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     */
+    void getStatic(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.GETSTATIC, this.pool.fieldRef(owner, name, descriptor));
+        this.adjustStack(1);
+    }
+
+    /**
+     * Stores the value on the stack into a static field.
+     *
+     * @param owner
+     *            The internal name of the class declaring the field.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     */
+    void putStatic(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.PUTSTATIC, this.pool.fieldRef(owner, name, descriptor));
+        this.adjustStack(-1);
+    }
+
+    /**
+     * Pushes the value of a field of the object on the stack.
+     *
+     * @param owner
+     *            The internal name of the class declaring the field.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     */
+    void getField(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.GETFIELD, this.pool.fieldRef(owner, name, descriptor));
+    }
+
+    /**
+     * Stores the value on the stack into a field of the object below it.
+     *
+     * @param owner
+     *            The internal name of the class declaring the field.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     */
+    void putField(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.PUTFIELD, this.pool.fieldRef(owner, name, descriptor));
+        this.adjustStack(-2);
+    }
+
+    /**
+     * Calls a static method.
+     *
+     * @param owner
+     *            The internal name of the class declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     */
+    void invokeStatic(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.INVOKESTATIC, this.pool.methodRef(owner, name, descriptor));
+        this.adjustStack(CodeBuilder.getStackDelta(descriptor, false));
+    }
+
+    /**
+     * Calls a virtual method.
+     *
+     * @param owner
+     *            The internal name of the class declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     */
+    void invokeVirtual(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.INVOKEVIRTUAL, this.pool.methodRef(owner, name, descriptor));
+        this.adjustStack(CodeBuilder.getStackDelta(descriptor, true));
+    }
+
+    /**
+     * Calls a constructor or a private method.
+     *
+     * @param owner
+     *            The internal name of the class declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     */
+    void invokeSpecial(final String owner, final String name, final String descriptor) {
+        this.memberInsn(CodeBuilder.INVOKESPECIAL, this.pool.methodRef(owner, name, descriptor));
+        this.adjustStack(CodeBuilder.getStackDelta(descriptor, true));
+    }
+
+    /**
+     * Calls an interface method.
+     *
+     * @param owner
+     *            The internal name of the interface declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     */
+    void invokeInterface(final String owner, final String name, final String descriptor) {
+        final int delta = CodeBuilder.getStackDelta(descriptor, true);
+        this.memberInsn(CodeBuilder.INVOKEINTERFACE, this.pool.interfaceMethodRef(owner, name, descriptor));
+        // The number of argument slots including the receiver.
+        this.code.write(CodeBuilder.getArgumentSlots(descriptor) + 1);
+        this.code.write(0);
+        this.adjustStack(delta);
+    }
+
+    /**
+     * Emits a jump to the given label.
+     *
+     * @param opcode
+     *            The opcode of the jump ({@link #GOTO}, {@link #IFEQ} or
+     *            {@link #IFNE}).
+     * @param label
+     *            The target of the jump.
+     */
+    void jump(final int opcode, final Label label) {
+        if (opcode != CodeBuilder.GOTO) {
+            this.adjustStack(-1);
+        }
+        label.stack = this.stack;
+        this.jumps.add(new Jump(this.code.size(), label));
+        this.code.write(opcode);
+        this.writeShort(0);
+    }
+
+    /**
+     * Places the given label at the current position.
+     *
+     * @param label
+     *            The label.
+     */
+    void mark(final Label label) {
+        label.position = this.code.size();
+        if (label.stack >= 0) {
+            this.stack = label.stack;
+        }
+    }
+
+    /**
+     * Writes the <code>Code</code> attribute (without its name) to the given
+     * stream.
+     *
+     * @param out
+     *            The stream.
+     * @throws IOException
+     *             If an I/O error occurs.
+     * @throws IllegalStateException
+     *             If the method is too large.
+     */
+    void writeTo(final DataOutputStream out) throws IOException, IllegalStateException {
+        final byte[] bytes = this.code.toByteArray();
+        if (bytes.length > CodeBuilder.MAX_CODE_LENGTH) {
+            throw new IllegalStateException("The code of a method is too large!");
+        }
+        for (final Jump jump : this.jumps) {
+            final int offset = jump.label.position - jump.position;
+            if (jump.label.position < 0 || offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new IllegalStateException("Invalid jump offset " + offset + "!");
+            }
+            bytes[jump.position + 1] = (byte) (offset >> 8);
+            bytes[jump.position + 2] = (byte) offset;
+        }
+
+        // The length of the attribute (max_stack, max_locals, code_length, code,
+        // exception_table_length and attributes_count).
+        out.writeInt(2 + 2 + 4 + bytes.length + 2 + 2);
+        out.writeShort(this.maxStack);
+        out.writeShort(this.locals);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    /**
+     * Emits an <code>ldc</code> of the given constant.
+     *
+     * @param index
+     *            The index of the constant in the pool.
+     */
+    private void ldc(final int index) {
+        if (index <= 0xFF) {
+            this.code.write(CodeBuilder.LDC);
+            this.code.write(index);
+        } else {
+            this.code.write(CodeBuilder.LDC_W);
+            this.writeShort(index);
+        }
+        this.adjustStack(1);
+    }
+
+    /**
+     * Emits an instruction with a local variable as its operand.
+     *
+     * @param opcode
+     *            The opcode.
+     * @param local
+     *            The index of the local variable.
+     */
+    private void localInsn(final int opcode, final int local) {
+        if (local <= 3) {
+            // aload_n and astore_n.
+            this.code.write((opcode == CodeBuilder.ALOAD ? 0x2A : 0x4B) + local);
+        } else if (local <= 0xFF) {
+            this.code.write(opcode);
+            this.code.write(local);
+        } else {
+            this.code.write(CodeBuilder.WIDE);
+            this.code.write(opcode);
+            this.writeShort(local);
+        }
+    }
+
+    /**
+     * Emits an instruction with a class as its operand.
+     *
+     * @param opcode
+     *            The opcode.
+     * @param type
+     *            The internal name of the class.
+     */
+    private void typeInsn(final int opcode, final String type) {
+        this.memberInsn(opcode, this.pool.classRef(type));
+    }
+
+    /**
+     * Emits an instruction with an index into the constant pool as its
+     * operand.
+     *
+     * @param opcode
+     *            The opcode.
+     * @param index
+     *            The index.
+     */
+    private void memberInsn(final int opcode, final int index) {
+        this.code.write(opcode);
+        this.writeShort(index);
+    }
+
+    /**
+     * Writes a 16 bit value.
+     *
+     * @param value
+     *            The value.
+     */
+    private void writeShort(final int value) {
+        this.code.write(value >> 8);
+        this.code.write(value);
+    }
+
+    /**
+     * Adjusts the depth of the stack.
+     *
+     * @param delta
+     *            The change of the depth.
+     */
+    private void adjustStack(final int delta) {
+        this.stack += delta;
+        this.maxStack = Math.max(this.maxStack, this.stack);
+    }
+
+    /**
+     * Computes the change of the stack depth caused by calling a method with
+     * the given descriptor.
+     *
+     * @param descriptor
+     *            The descriptor.
+     * @param instance
+     *            Whether the method is called on an instance.
+     * @return The change of the stack depth.
+     */
+    private static int getStackDelta(final String descriptor, final boolean instance) {
+        final char returnType = descriptor.charAt(descriptor.indexOf(')') + 1);
+        final int returnSlots = returnType == 'V' ? 0 : returnType == 'J' || returnType == 'D' ? 2 : 1;
+        return returnSlots - CodeBuilder.getArgumentSlots(descriptor) - (instance ? 1 : 0);
+    }
+
+    /**
+     * Computes the number of stack slots of the arguments of a method with
+     * the given descriptor.
+     *
+     * @param descriptor
+     *            The descriptor.
+     * @return The number of slots.
+     */
+    static int getArgumentSlots(final String descriptor) {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')') {
+            final char c = descriptor.charAt(i);
+            if (c == 'J' || c == 'D') {
+                slots += 2;
+                i++;
+                continue;
+            }
+            while (descriptor.charAt(i) == '[') {
+                i++;
+            }
+            if (descriptor.charAt(i) == 'L') {
+                i = descriptor.indexOf(';', i);
+            }
+            slots++;
+            i++;
+        }
+        return slots;
+    }
+
+    /**
+     * A position in the code that can be the target of jumps.
+     *
+     */
+    static final class Label {
+        /**
+         * The position of the label or <code>-1</code> if it has not been
+         * placed yet.
+         *
+         */
+        private int position = -1;
+        /**
+         * The depth of the stack at the jumps to the label or
+         * <code>-1</code> if there are none yet.
+         *
+         */
+        private int stack = -1;
+    }
+
+    /**
+     * A jump whose offset still has to be written.
+     *
+     */
+    private static final class Jump {
+        /**
+         * The position of the jump instruction.
+         *
+         */
+        private final int position;
+        /**
+         * The target of the jump.
+         *
+         */
+        private final Label label;
+
+        /**
+         * Constructor of Jump.
+         *
+         * @param position
+         *            The position of the jump instruction.
+         * @param label
+         *            The target of the jump.
+         */
+        private Jump(final int position, final Label label) {
+            this.position = position;
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The constant pool of a class file. Every entry is only added once.
+ *
+ */
+final class ConstantPool {
+    /**
+     * The tag of UTF-8 entries.
+     *
+     */
+    private static final int UTF8 = 1;
+    /**
+     * The tag of integer entries.
+     *
+     */
+    private static final int INTEGER = 3;
+    /**
+     * The tag of long entries.
+     *
+     */
+    private static final int LONG = 5;
+    /**
+     * The tag of class entries.
+     *
+     */
+    private static final int CLASS = 7;
+    /**
+     * The tag of string entries.
+     *
+     */
+    private static final int STRING = 8;
+    /**
+     * The tag of field reference entries.
+     *
+     */
+    private static final int FIELD = 9;
+    /**
+     * The tag of method reference entries.
+     *
+     */
+    private static final int METHOD = 10;
+    /**
+     * The tag of interface method reference entries.
+     *
+     */
+    private static final int INTERFACE_METHOD = 11;
+    /**
+     * The tag of name and type entries.
+     *
+     */
+    private static final int NAME_AND_TYPE = 12;
+    /**
+     * The maximum number of entries.
+     *
+     */
+    private static final int MAX_SIZE = 0xFFFF;
+
+    /**
+     * The serialized entries.
+     *
+     */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    /**
+     * The stream writing into {@link #bytes}.
+     *
+     */
+    private final DataOutputStream output = new DataOutputStream(this.bytes);
+    /**
+     * The indices of the entries that were already added, indexed by a key
+     * describing the entry.
+     *
+     */
+    private final Map<String, Integer> indices = new HashMap<>();
+    /**
+     * The index of the next entry.
+     *
+     */
+    private int size = 1;
+
+    /**
+     * Adds a UTF-8 entry.
+     *
+     * @param value
+     *            The string.
+     * @return The index of the entry.
+     */
+    int utf8(final String value) {
+        return this.add("U" + value, 1, out -> {
+            out.writeByte(ConstantPool.UTF8);
+            out.writeUTF(value);
+        });
+    }
+
+    /**
+     * Adds an integer entry.
+     *
+     * @param value
+     *            The integer.
+     * @return The index of the entry.
+     */
+    int integer(final int value) {
+        return this.add("I" + value, 1, out -> {
+            out.writeByte(ConstantPool.INTEGER);
+            out.writeInt(value);
+        });
+    }
+
+    /**
+     * Adds a long entry.
+     *
+     * @param value
+     *            The long.
+     * @return The index of the entry.
+     */
+    int longValue(final long value) {
+        return this.add("J" + value, 2, out -> {
+            out.writeByte(ConstantPool.LONG);
+            out.writeLong(value);
+        });
+    }
+
+    /**
+     * Adds a class entry.
+     *
+     * @param internalName
+     *            The internal name of the class (e.g.
+     *            <code>java/lang/Object</code>).
+     * @return The index of the entry.
+     */
+    int classRef(final String internalName) {
+        final int name = this.utf8(internalName);
+        return this.add("C" + internalName, 1, out -> {
+            out.writeByte(ConstantPool.CLASS);
+            out.writeShort(name);
+        });
+    }
+
+    /**
+     * Adds a string entry.
+     *
+     * @param value
+     *            The string.
+     * @return The index of the entry.
+     */
+    int string(final String value) {
+        final int content = this.utf8(value);
+        return this.add("S" + value, 1, out -> {
+            out.writeByte(ConstantPool.STRING);
+            out.writeShort(content);
+        });
+    }
+
+    /**
+     * Adds a field reference entry.
+     *
+     * @param owner
+     *            The internal name of the class declaring the field.
+     * @param name
+     *            The name of the field.
+     * @param descriptor
+     *            The descriptor of the field.
+     * @return The index of the entry.
+     */
+    int fieldRef(final String owner, final String name, final String descriptor) {
+        return this.memberRef(ConstantPool.FIELD, owner, name, descriptor);
+    }
+
+    /**
+     * Adds a method reference entry.
+     *
+     * @param owner
+     *            The internal name of the class declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     * @return The index of the entry.
+     */
+    int methodRef(final String owner, final String name, final String descriptor) {
+        return this.memberRef(ConstantPool.METHOD, owner, name, descriptor);
+    }
+
+    /**
+     * Adds an interface method reference entry.
+     *
+     * @param owner
+     *            The internal name of the interface declaring the method.
+     * @param name
+     *            The name of the method.
+     * @param descriptor
+     *            The descriptor of the method.
+     * @return The index of the entry.
+     */
+    int interfaceMethodRef(final String owner, final String name, final String descriptor) {
+        return this.memberRef(ConstantPool.INTERFACE_METHOD, owner, name, descriptor);
+    }
+
+    /**
+     * Writes the constant pool (including its size) to the given stream.
+     *
+     * @param out
+     *            The stream.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    void writeTo(final DataOutputStream out) throws IOException {
+        out.writeShort(this.size);
+        this.bytes.writeTo(out);
+    }
+
+    /**
+     * Adds a reference to a member of a class.
+     *
+     * @param tag
+     *            The tag of the entry.
+     * @param owner
+     *            The internal name of the class declaring the member.
+     * @param name
+     *            The name of the member.
+     * @param descriptor
+     *            The descriptor of the member.
+     * @return The index of the entry.
+     */
+    private int memberRef(final int tag, final String owner, final String name, final String descriptor) {
+        final int ownerIndex = this.classRef(owner);
+        final int nameIndex = this.utf8(name);
+        final int descriptorIndex = this.utf8(descriptor);
+        final int nameAndType = this.add("N" + name + ' ' + descriptor, 1, out -> {
+            out.writeByte(ConstantPool.NAME_AND_TYPE);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+        });
+        return this.add(tag + owner + '.' + name + ' ' + descriptor, 1, out -> {
+            out.writeByte(tag);
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        });
+    }
+
+    /**
+     * Adds an entry if it is not contained yet.
+     *
+     * @param key
+     *            The key describing the entry.
+     * @param slots
+     *            The number of indices the entry occupies.
+     * @param writer
+     *            Writes the entry.
+     * @return The index of the entry.
+     * @throws IllegalStateException
+     *             If the constant pool is full.
+     */
+    private int add(final String key, final int slots, final EntryWriter writer) throws IllegalStateException {
+        final Integer existing = this.indices.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (this.size + slots > ConstantPool.MAX_SIZE) {
+            throw new IllegalStateException("The constant pool is full!");
+        }
+        try {
+            writer.write(this.output);
+        } catch (final IOException cause) {
+            throw new UncheckedIOException(cause);
+        }
+        final int index = this.size;
+        this.indices.put(key, index);
+        this.size += slots;
+        return index;
+    }
+
+    /**
+     * Writes a single entry.
+     *
+     */
+    @FunctionalInterface
+    private interface EntryWriter {
+        /**
+         * Writes the entry to the given stream.
+         *
+         * @param out
+         *            The stream.
+         * @throws IOException
+         *             If an I/O error occurs.
+         */
+        void write(final DataOutputStream out) throws IOException;
+    }
+}
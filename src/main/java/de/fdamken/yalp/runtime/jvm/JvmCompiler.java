@@ -0,0 +1,75 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+
+/**
+ * The code generation: Compiles the decorated abstract syntax tree into JVM
+ * classes (see {@link JvmProgram}), so the code is executed (and eventually
+ * compiled to machine code) by the JVM itself.
+ *
+ * <p>
+ * The class files are written directly without an external compiler or
+ * bytecode library. The code is laid out as follows:
+ * <ul>
+ * <li>Every top-level expression becomes a static method of the program
+ * class.</li>
+ * <li>Every function defined by a top-level <code>define</code> becomes a
+ * static method of the program class. Calls of the function are direct
+ * static calls. A small {@link de.fdamken.yalp.runtime.Procedure} class
+ * wraps the method where the function is used as a value.</li>
+ * <li>Every lambda and every function defined inside of a
+ * <code>local</code> becomes a class implementing
+ * {@link de.fdamken.yalp.runtime.Procedure}.</li>
+ * <li>A call of a function in a tail position of its own static method
+ * stores the arguments in the parameters and jumps to the start of the
+ * method. Other calls in a tail position return a
+ * {@link JvmProcedure#applyTail(Object[]) tail call} that is executed after
+ * the calling method has returned, so tail calls do not grow the stack.</li>
+ * <li>Variables are stored in local variables of the JVM, unless they are
+ * referenced by a nested function. In that case, the frame holding the
+ * variable is allocated on the heap and captured by the function.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The compiler itself is stateless and can be used by multiple threads
+ * concurrently.
+ * </p>
+ *
+ */
+public class JvmCompiler extends AbstractCompilationStep<DecoratedAbstractSyntaxTree, JvmProgram> {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public JvmProgram parse(final DecoratedAbstractSyntaxTree decoratedAbstractSyntaxTree) throws CompilationException {
+        try {
+            return new BytecodeGenerator(decoratedAbstractSyntaxTree).generate();
+        } catch (final IllegalStateException cause) {
+            throw new CodeGenerationException(cause.getMessage(), cause);
+        }
+    }
+}
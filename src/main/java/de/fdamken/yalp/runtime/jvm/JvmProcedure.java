@@ -0,0 +1,46 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Procedure;
+
+/**
+ * A function compiled by the {@link BytecodeGenerator}. Besides being called
+ * by {@link #apply(Object[])}, which returns the result of the function, the
+ * function can be called without executing the tail call its body ends with
+ * (see {@link #applyTail(Object[])}). The generated classes implement this
+ * interface, so it must be public.
+ *
+ */
+public interface JvmProcedure extends Procedure {
+    /**
+     * Calls the function, but does not execute a tail call of another
+     * function the body ends with.
+     *
+     * @param arguments
+     *            The arguments.
+     * @return The result of the function or a {@link TailCall} that still
+     *         has to be executed by {@link JvmSupport#resolve(Object)}.
+     * @throws EvaluationException
+     *             If an error occurs while the function is evaluated.
+     */
+    Object applyTail(final Object[] arguments) throws EvaluationException;
+}
@@ -0,0 +1,203 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.EvaluationThread;
+
+/**
+ * A program compiled into JVM classes by the {@link JvmCompiler}. The classes
+ * are defined by a class loader that belongs to the program, so they are
+ * garbage collected together with the program.
+ *
+ * <p>
+ * The program can be run multiple times; every run starts with fresh
+ * top-level definitions. Since the state of a run is stored in static fields
+ * of the generated classes, a program can only be run by one thread at a
+ * time.
+ * </p>
+ *
+ */
+public class JvmProgram implements IntermediateRepresentation {
+    /**
+     * The class files, indexed by the binary names of the classes.
+     *
+     */
+    private final Map<String, byte[]> classFiles;
+    /**
+     * The field holding the values of the top-level definitions.
+     *
+     */
+    private final Field globals;
+    /**
+     * The field holding the output of <code>print</code> and
+     * <code>printf</code>.
+     *
+     */
+    private final Field output;
+    /**
+     * The methods evaluating the top-level expressions.
+     *
+     */
+    private final Method[] forms;
+    /**
+     * Whether the value of the top-level expressions are results of the
+     * program (i.e. they are not definitions).
+     *
+     */
+    private final boolean[] results;
+    /**
+     * The number of top-level definitions.
+     *
+     */
+    private final int globalCount;
+
+    /**
+     * Constructor of JvmProgram. Loads and verifies the classes.
+     *
+     * @param classFiles
+     *            The class files, indexed by the binary names of the
+     *            classes.
+     * @param programClass
+     *            The binary name of the class holding the top-level
+     *            expressions.
+     * @param constants
+     *            The constants used by the generated code.
+     * @param results
+     *            Whether the value of the top-level expressions are results
+     *            of the program.
+     * @param globalCount
+     *            The number of top-level definitions.
+     * @throws CodeGenerationException
+     *             If the classes cannot be loaded.
+     */
+    JvmProgram(final Map<String, byte[]> classFiles, final String programClass, final Object[] constants,
+            final boolean[] results, final int globalCount) throws CodeGenerationException {
+        this.classFiles = Collections.unmodifiableMap(classFiles);
+        this.results = results;
+        this.globalCount = globalCount;
+
+        final ProgramClassLoader loader = new ProgramClassLoader(classFiles);
+        try {
+            // Initializing all classes forces the verification of all
+            // generated code now instead of during the first run.
+            for (final String name : classFiles.keySet()) {
+                Class.forName(name, true, loader);
+            }
+            final Class<?> program = Class.forName(programClass, true, loader);
+            program.getField(BytecodeGenerator.CONSTANTS).set(null, constants);
+            this.globals = program.getField(BytecodeGenerator.GLOBALS);
+            this.output = program.getField(BytecodeGenerator.OUTPUT);
+            this.forms = new Method[results.length];
+            for (int i = 0; i < this.forms.length; i++) {
+                this.forms[i] = program.getMethod(BytecodeGenerator.FORM + i);
+            }
+        } catch (final ReflectiveOperationException | LinkageError cause) {
+            throw new CodeGenerationException("Failed to load the generated classes!", cause);
+        }
+    }
+
+    /**
+     * Retrieves the generated class files.
+     *
+     * @return The class files, indexed by the binary names of the classes.
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return this.classFiles;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>
+     * The size of a program is the total size of its class files in bytes.
+     * </p>
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        long size = 0;
+        for (final byte[] classFile : this.classFiles.values()) {
+            size += classFile.length;
+        }
+        return size;
+    }
+
+    /**
+     * Runs the program. The program is evaluated by an
+     * {@link EvaluationThread}, as every function call that is not in a tail
+     * position occupies a frame of the Java stack.
+     *
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     * @return The values of the top-level expressions that are not
+     *         definitions in the order they appear in the code.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    public synchronized List<Object> run(final Appendable output) throws EvaluationException {
+        return EvaluationThread.run(() -> this.evaluate(output));
+    }
+
+    /**
+     * Evaluates the top-level expressions.
+     *
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     * @return The values of the top-level expressions that are not
+     *         definitions.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    private List<Object> evaluate(final Appendable output) throws EvaluationException {
+        final List<Object> values = new ArrayList<>();
+        try {
+            this.globals.set(null, new Object[this.globalCount]);
+            this.output.set(null, output);
+            for (int i = 0; i < this.forms.length; i++) {
+                final Object value = this.forms[i].invoke(null);
+                if (this.results[i]) {
+                    values.add(value);
+                }
+            }
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EvaluationException("Unexpected exception!", cause);
+        } catch (final IllegalAccessException cause) {
+            throw new IllegalStateException(cause);
+        }
+        return values;
+    }
+}
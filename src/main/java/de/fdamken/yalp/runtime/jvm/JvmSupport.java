@@ -0,0 +1,485 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.EvaluationThread;
+import de.fdamken.yalp.runtime.Lists;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.Procedure;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * The functions that are called by the code generated by the
+ * {@link BytecodeGenerator}. The generated classes are defined by a different
+ * class loader, so the functions must be public.
+ *
+ * <p>
+ * Most of the functions return an {@link Object} (e.g. booleans are returned
+ * boxed), so the generated code does not need to convert primitive values.
+ * The functions are small enough to be inlined by the JIT compiler.
+ * </p>
+ *
+ */
+public final class JvmSupport {
+    /**
+     * The kind of the comparison <code>&lt;</code>.
+     *
+     */
+    public static final int LESS = 0;
+    /**
+     * The kind of the comparison <code>&lt;=</code>.
+     *
+     */
+    public static final int LESS_OR_EQUAL = 1;
+    /**
+     * The kind of the comparison <code>&gt;</code>.
+     *
+     */
+    public static final int GREATER = 2;
+    /**
+     * The kind of the comparison <code>&gt;=</code>.
+     *
+     */
+    public static final int GREATER_OR_EQUAL = 3;
+    /**
+     * The kind of the comparison <code>=</code>.
+     *
+     */
+    public static final int EQUAL = 4;
+
+    /**
+     * The names of the comparisons, indexed by their kinds.
+     *
+     */
+    private static final String[] COMPARISON_NAMES = { "<", "<=", ">", ">=", "=" };
+
+    /**
+     * Constructor of JvmSupport.
+     *
+     */
+    private JvmSupport() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks whether the given value of a variable is defined yet.
+     *
+     * @param value
+     *            The value.
+     * @param name
+     *            The name of the variable.
+     * @return The value.
+     * @throws EvaluationException
+     *             If the value is not defined yet.
+     */
+    public static Object checkDefined(final Object value, final String name) throws EvaluationException {
+        if (value == null) {
+            throw new EvaluationException(name + " is used here before its definition!");
+        }
+        return value;
+    }
+
+    /**
+     * Checks the number of arguments of a function call.
+     *
+     * @param arguments
+     *            The arguments.
+     * @param arity
+     *            The number of parameters of the function.
+     * @param name
+     *            The name of the function.
+     * @throws EvaluationException
+     *             If the number of arguments is wrong.
+     */
+    public static void checkArity(final Object[] arguments, final int arity, final String name)
+            throws EvaluationException {
+        if (arguments.length != arity) {
+            JvmSupport.arityError(name, arity, arguments.length);
+        }
+    }
+
+    /**
+     * Throws the error for a function call with the wrong number of
+     * arguments.
+     *
+     * @param name
+     *            The name of the function.
+     * @param arity
+     *            The number of parameters of the function.
+     * @param count
+     *            The number of arguments.
+     * @return Never returns.
+     * @throws EvaluationException
+     *             Always.
+     */
+    public static Object arityError(final String name, final int arity, final int count) throws EvaluationException {
+        throw new EvaluationException(name + ": expects " + arity + " argument(s), but received " + count + "!");
+    }
+
+    /**
+     * Throws the error for a <code>cond</code> without a matching case.
+     *
+     * @return Never returns.
+     * @throws EvaluationException
+     *             Always.
+     */
+    public static Object condFailed() throws EvaluationException {
+        throw new EvaluationException("cond: all question results were false!");
+    }
+
+    /**
+     * Calls the given function value.
+     *
+     * @param function
+     *            The function value.
+     * @param arguments
+     *            The arguments.
+     * @return The result of the function.
+     * @throws EvaluationException
+     *             If the value is not a function or the function fails.
+     */
+    public static Object call(final Object function, final Object[] arguments) throws EvaluationException {
+        if (!(function instanceof Procedure)) {
+            throw new EvaluationException(
+                    "Expected a function after the open parenthesis, but received " + Values.toPrintString(function) + "!");
+        }
+        return ((Procedure) function).apply(arguments);
+    }
+
+    /**
+     * Calls the given function value in a tail position. Functions generated
+     * by the {@link BytecodeGenerator} are not called, instead a
+     * {@link TailCall} is returned that has to be returned by the calling
+     * function.
+     *
+     * @param function
+     *            The function value.
+     * @param arguments
+     *            The arguments.
+     * @return The tail call or the result of the function.
+     * @throws EvaluationException
+     *             If the value is not a function or the function fails.
+     */
+    public static Object tailCall(final Object function, final Object[] arguments) throws EvaluationException {
+        if (function instanceof JvmProcedure) {
+            return new TailCall((JvmProcedure) function, arguments);
+        }
+        return JvmSupport.call(function, arguments);
+    }
+
+    /**
+     * Executes the given result of a function until it is not a
+     * {@link TailCall} anymore. As tail calls may loop forever, the loop
+     * checks whether the evaluation has been cancelled.
+     *
+     * @param value
+     *            The result of the function.
+     * @return The value.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    public static Object resolve(final Object value) throws EvaluationException {
+        Object result = value;
+        while (result instanceof TailCall) {
+            EvaluationThread.checkCancelled();
+            final TailCall call = (TailCall) result;
+            result = call.procedure.applyTail(call.arguments);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a frame on the heap holding the given arguments. The first
+     * element of a frame is its parent frame.
+     *
+     * @param parent
+     *            The parent frame.
+     * @param arguments
+     *            The arguments.
+     * @return The frame.
+     */
+    public static Object[] frame(final Object[] parent, final Object[] arguments) {
+        final Object[] frame = new Object[arguments.length + 1];
+        frame[0] = parent;
+        System.arraycopy(arguments, 0, frame, 1, arguments.length);
+        return frame;
+    }
+
+    /**
+     * Prints the given value (<code>print</code>).
+     *
+     * @param output
+     *            The output.
+     * @param value
+     *            The value.
+     * @return {@link Values#VOID}.
+     * @throws EvaluationException
+     *             If writing fails.
+     */
+    public static Object print(final Appendable output, final Object value) throws EvaluationException {
+        Values.write(output, Values.toPrintString(value));
+        return Values.VOID;
+    }
+
+    /**
+     * Prints the given formatted values (<code>printf</code>).
+     *
+     * @param output
+     *            The output.
+     * @param format
+     *            The format string.
+     * @param arguments
+     *            The values.
+     * @return {@link Values#VOID}.
+     * @throws EvaluationException
+     *             If the format is invalid or writing fails.
+     */
+    public static Object printf(final Appendable output, final String format, final Object[] arguments)
+            throws EvaluationException {
+        Values.write(output, Values.format(format, arguments));
+        return Values.VOID;
+    }
+
+    /**
+     * Squares the given number (<code>sqr</code>).
+     *
+     * @param value
+     *            The number.
+     * @return The square.
+     * @throws EvaluationException
+     *             If the value is not a number.
+     */
+    public static Object sqr(final Object value) throws EvaluationException {
+        return Numbers.multiply(value, value);
+    }
+
+    /**
+     * Compares the given numbers.
+     *
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @param kind
+     *            The kind of the comparison.
+     * @return The boolean result.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object compare(final Object a, final Object b, final int kind) throws EvaluationException {
+        return Boolean.valueOf(JvmSupport.matches(Numbers.compare(a, b, JvmSupport.COMPARISON_NAMES[kind]), kind));
+    }
+
+    /**
+     * Compares each pair of adjacent numbers.
+     *
+     * @param values
+     *            The numbers.
+     * @param kind
+     *            The kind of the comparison.
+     * @return The boolean result.
+     * @throws EvaluationException
+     *             If one of the values is not a number.
+     */
+    public static Object compare(final Object[] values, final int kind) throws EvaluationException {
+        boolean result = true;
+        for (int i = 0; i < values.length - 1; i++) {
+            result &= JvmSupport.matches(Numbers.compare(values[i], values[i + 1], JvmSupport.COMPARISON_NAMES[kind]),
+                    kind);
+        }
+        return Boolean.valueOf(result && (values.length > 1 || Numbers.isNumber(values[0])));
+    }
+
+    /**
+     * Negates the given boolean (<code>not</code>).
+     *
+     * @param value
+     *            The boolean.
+     * @return The negated boolean.
+     * @throws EvaluationException
+     *             If the value is not a boolean.
+     */
+    public static Object not(final Object value) throws EvaluationException {
+        return Boolean.valueOf(!Values.toBoolean(value, "not"));
+    }
+
+    /**
+     * Checks whether the given values are the same (<code>eq?</code>).
+     *
+     * @param a
+     *            The first value.
+     * @param b
+     *            The second value.
+     * @return The boolean result.
+     */
+    public static Object isEq(final Object a, final Object b) {
+        return Boolean.valueOf(Values.isEq(a, b));
+    }
+
+    /**
+     * Checks whether the given value is an instance of the given structure
+     * (<code>NAME?</code>).
+     *
+     * @param type
+     *            The type of the structure.
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isInstance(final StructType type, final Object value) {
+        return Boolean.valueOf(type.isInstance(value));
+    }
+
+    /**
+     * Checks whether the given value is a boolean (<code>boolean?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isBoolean(final Object value) {
+        return Boolean.valueOf(value instanceof Boolean);
+    }
+
+    /**
+     * Checks whether the given value is a number (<code>number?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isNumber(final Object value) {
+        return Boolean.valueOf(Numbers.isNumber(value));
+    }
+
+    /**
+     * Checks whether the given value is a symbol (<code>symbol?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isSymbol(final Object value) {
+        return Boolean.valueOf(value instanceof Symbol);
+    }
+
+    /**
+     * Checks whether the given value is a list (<code>list?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isList(final Object value) {
+        return Boolean.valueOf(value instanceof Pair);
+    }
+
+    /**
+     * Checks whether the given value is the empty list (<code>empty?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     */
+    public static Object isEmpty(final Object value) {
+        return Boolean.valueOf(value == Pair.EMPTY);
+    }
+
+    /**
+     * Checks whether the given number is zero (<code>zero?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     * @throws EvaluationException
+     *             If the value has the wrong type.
+     */
+    public static Object isZero(final Object value) throws EvaluationException {
+        return Boolean.valueOf(Numbers.isZero(value));
+    }
+
+    /**
+     * Checks whether the given integer is even (<code>even?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     * @throws EvaluationException
+     *             If the value has the wrong type.
+     */
+    public static Object isEven(final Object value) throws EvaluationException {
+        return Boolean.valueOf(Numbers.isEven(value));
+    }
+
+    /**
+     * Checks whether the given integer is odd (<code>odd?</code>).
+     *
+     * @param value
+     *            The value.
+     * @return The boolean result.
+     * @throws EvaluationException
+     *             If the value has the wrong type.
+     */
+    public static Object isOdd(final Object value) throws EvaluationException {
+        return Boolean.valueOf(Numbers.isOdd(value));
+    }
+
+    /**
+     * Counts the elements of the given list (<code>length</code>).
+     *
+     * @param list
+     *            The list.
+     * @return The number of elements.
+     * @throws EvaluationException
+     *             If the value is not a list.
+     */
+    public static Object length(final Object list) throws EvaluationException {
+        return Long.valueOf(Lists.length(list));
+    }
+
+    /**
+     * Checks whether the given result of a comparison matches the given kind
+     * of comparison.
+     *
+     * @param comparison
+     *            The result of the comparison.
+     * @param kind
+     *            The kind of the comparison.
+     * @return Whether the result matches.
+     */
+    private static boolean matches(final int comparison, final int kind) {
+        switch (kind) {
+            case LESS:
+                return comparison < 0;
+            case LESS_OR_EQUAL:
+                return comparison <= 0;
+            case GREATER:
+                return comparison > 0;
+            case GREATER_OR_EQUAL:
+                return comparison >= 0;
+            default:
+                return comparison == 0;
+        }
+    }
+}
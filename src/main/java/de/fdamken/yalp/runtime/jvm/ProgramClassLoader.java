@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The class loader of the classes of a single {@link JvmProgram}. Every
+ * program has its own loader, so the classes of a program can be garbage
+ * collected as soon as the program is not referenced anymore.
+ *
+ */
+final class ProgramClassLoader extends ClassLoader {
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    /**
+     * The class files that have not been defined yet, indexed by the binary
+     * names of the classes. The class files are removed once their classes
+     * are defined, so the loader does not keep them.
+     *
+     */
+    private final Map<String, byte[]> classFiles;
+
+    /**
+     * Constructor of ProgramClassLoader.
+     *
+     * @param classFiles
+     *            The class files, indexed by the binary names of the
+     *            classes. The map is copied.
+     */
+    ProgramClassLoader(final Map<String, byte[]> classFiles) {
+        super(ProgramClassLoader.class.getClassLoader());
+        this.classFiles = new ConcurrentHashMap<>(classFiles);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.lang.ClassLoader#findClass(java.lang.String)
+     */
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+        final byte[] classFile = this.classFiles.get(name);
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+        final Class<?> definedClass = this.defineClass(name, classFile, 0, classFile.length);
+        this.classFiles.remove(name);
+        return definedClass;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+/**
+ * A call of a function in a tail position that has not been executed yet. A
+ * generated function returns it instead of calling the function, so the call
+ * is executed by {@link JvmSupport#resolve(Object)} after the frame of the
+ * function has been left. So tail calls (e.g. mutual recursion) do not grow
+ * the stack.
+ *
+ */
+final class TailCall {
+    /**
+     * The called function.
+     *
+     */
+    final JvmProcedure procedure;
+    /**
+     * The arguments.
+     *
+     */
+    final Object[] arguments;
+
+    /**
+     * Constructor of TailCall.
+     *
+     * @param procedure
+     *            The called function.
+     * @param arguments
+     *            The arguments.
+     */
+    TailCall(final JvmProcedure procedure, final Object[] arguments) {
+        this.procedure = procedure;
+        this.arguments = arguments;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.math.BigInteger;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * The constants shared by the binary and the textual assembly format.
+ *
+ * <p>
+ * The binary format starts with the {@link #MAGIC magic bytes} and the
+ * {@link #VERSION version}, followed by the program. All integers are
+ * unsigned varints unless stated otherwise and strings are the length of
+ * their UTF-8 encoding followed by the encoded characters:
+ * <ul>
+ * <li>The number of top-level definitions.</li>
+ * <li>The number of constants followed by the constants. Every constant
+ * starts with its kind (a byte, see below) followed by its value: Integers are
+ * zig-zag encoded varints, big integers are strings of their decimal
+ * representation, fractions are two such strings, reals are eight bytes of
+ * their IEEE 754 representation, strings and symbols are strings, characters
+ * are varints, structures are the name followed by the number of
+ * attributes and the attributes and built-in functions are their name. The
+ * remaining kinds do not have a value.</li>
+ * <li>The number of functions followed by the functions: The name, the
+ * number of parameters, the number of registers, the length of the code and
+ * the code.</li>
+ * <li>The number of forms followed by the forms: The index of the function
+ * and whether the value of the form is a result (<code>0</code> or
+ * <code>1</code>).</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The textual format contains the same information, one directive or
+ * instruction per line (see {@link TextAssemblyWriter}).
+ * </p>
+ *
+ */
+final class AssemblyFormat {
+    /**
+     * The magic bytes every binary assembly starts with.
+     *
+     */
+    static final byte[] MAGIC = { 'Y', 'L', 'V', 'M' };
+    /**
+     * The current version of the formats.
+     *
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The constant kind of an integer that fits into a <code>long</code>.
+     *
+     */
+    static final int CONSTANT_INTEGER = 0;
+    /**
+     * The constant kind of any other integer.
+     *
+     */
+    static final int CONSTANT_BIG_INTEGER = 1;
+    /**
+     * The constant kind of a fraction.
+     *
+     */
+    static final int CONSTANT_FRACTION = 2;
+    /**
+     * The constant kind of a floating point number.
+     *
+     */
+    static final int CONSTANT_REAL = 3;
+    /**
+     * The constant kind of a string.
+     *
+     */
+    static final int CONSTANT_STRING = 4;
+    /**
+     * The constant kind of a symbol.
+     *
+     */
+    static final int CONSTANT_SYMBOL = 5;
+    /**
+     * The constant kind of a character.
+     *
+     */
+    static final int CONSTANT_CHAR = 6;
+    /**
+     * The constant kind of <code>true</code>.
+     *
+     */
+    static final int CONSTANT_TRUE = 7;
+    /**
+     * The constant kind of <code>false</code>.
+     *
+     */
+    static final int CONSTANT_FALSE = 8;
+    /**
+     * The constant kind of the empty list.
+     *
+     */
+    static final int CONSTANT_EMPTY = 9;
+    /**
+     * The constant kind of {@link Values#VOID}.
+     *
+     */
+    static final int CONSTANT_VOID = 10;
+    /**
+     * The constant kind of the type of a structure.
+     *
+     */
+    static final int CONSTANT_STRUCT = 11;
+    /**
+     * The constant kind of a {@link Builtin built-in function}.
+     *
+     */
+    static final int CONSTANT_BUILTIN = 12;
+
+    /**
+     * The names of the constant kinds in the textual format, indexed by the
+     * kinds.
+     *
+     */
+    private static final String[] CONSTANT_NAMES = { "integer", "biginteger", "fraction", "real", "string", "symbol",
+            "char", "true", "false", "empty", "void", "struct", "builtin" };
+
+    /**
+     * Constructor of AssemblyFormat.
+     *
+     */
+    private AssemblyFormat() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Determines the kind of the given constant.
+     *
+     * @param value
+     *            The constant.
+     * @return The kind.
+     * @throws IllegalArgumentException
+     *             If the constant cannot be stored.
+     */
+    static int getConstantKind(final Object value) throws IllegalArgumentException {
+        if (value instanceof Long) {
+            return AssemblyFormat.CONSTANT_INTEGER;
+        } else if (value instanceof BigInteger) {
+            return AssemblyFormat.CONSTANT_BIG_INTEGER;
+        } else if (value instanceof Fraction) {
+            return AssemblyFormat.CONSTANT_FRACTION;
+        } else if (value instanceof Double) {
+            return AssemblyFormat.CONSTANT_REAL;
+        } else if (value instanceof String) {
+            return AssemblyFormat.CONSTANT_STRING;
+        } else if (value instanceof Symbol) {
+            return AssemblyFormat.CONSTANT_SYMBOL;
+        } else if (value instanceof Character) {
+            return AssemblyFormat.CONSTANT_CHAR;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value ? AssemblyFormat.CONSTANT_TRUE : AssemblyFormat.CONSTANT_FALSE;
+        } else if (value == Pair.EMPTY) {
+            return AssemblyFormat.CONSTANT_EMPTY;
+        } else if (value == Values.VOID) {
+            return AssemblyFormat.CONSTANT_VOID;
+        } else if (value instanceof StructType) {
+            return AssemblyFormat.CONSTANT_STRUCT;
+        } else if (value instanceof Builtin) {
+            return AssemblyFormat.CONSTANT_BUILTIN;
+        }
+        throw new IllegalArgumentException("Unsupported constant " + value + "!");
+    }
+
+    /**
+     * Retrieves the constant without a value of the given kind.
+     *
+     * @param kind
+     *            The kind.
+     * @return The constant or <code>null</code> if constants of the kind have
+     *         a value.
+     */
+    static Object getSingleton(final int kind) {
+        switch (kind) {
+            case CONSTANT_TRUE:
+                return Boolean.TRUE;
+            case CONSTANT_FALSE:
+                return Boolean.FALSE;
+            case CONSTANT_EMPTY:
+                return Pair.EMPTY;
+            case CONSTANT_VOID:
+                return Values.VOID;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Retrieves the name of the given constant kind in the textual format.
+     *
+     * @param kind
+     *            The kind.
+     * @return The name.
+     */
+    static String getConstantName(final int kind) {
+        return AssemblyFormat.CONSTANT_NAMES[kind];
+    }
+
+    /**
+     * Retrieves the constant kind with the given name in the textual format.
+     *
+     * @param name
+     *            The name.
+     * @return The kind or <code>-1</code> if there is no such kind.
+     */
+    static int forConstantName(final String name) {
+        for (int i = 0; i < AssemblyFormat.CONSTANT_NAMES.length; i++) {
+            if (AssemblyFormat.CONSTANT_NAMES[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
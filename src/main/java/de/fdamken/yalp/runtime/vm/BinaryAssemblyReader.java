@@ -0,0 +1,264 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+
+/**
+ * Reads programs of the register machine that were written by a
+ * {@link BinaryAssemblyWriter}. The code is verified before it is returned,
+ * so a modified file cannot break the interpreter.
+ *
+ */
+public class BinaryAssemblyReader implements Closeable {
+    /**
+     * The maximum number of bytes of a varlong.
+     *
+     */
+    private static final int MAX_VARLONG_SIZE = 10;
+
+    /**
+     * The stream to read from.
+     *
+     */
+    private final DataInputStream in;
+
+    /**
+     * Constructor of BinaryAssemblyReader. Reads the header.
+     *
+     * @param in
+     *            The stream to read from.
+     * @throws IOException
+     *             If an I/O error occurs or the stream does not contain a
+     *             binary assembly of a supported version.
+     */
+    public BinaryAssemblyReader(final InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+
+        final byte[] magic = new byte[AssemblyFormat.MAGIC.length];
+        this.in.readFully(magic);
+        for (int i = 0; i < magic.length; i++) {
+            if (magic[i] != AssemblyFormat.MAGIC[i]) {
+                throw new IOException("The stream does not contain a binary assembly!");
+            }
+        }
+        final int version = this.readVarint();
+        if (version != AssemblyFormat.VERSION) {
+            throw new IOException("Unsupported binary assembly version " + version + "!");
+        }
+    }
+
+    /**
+     * Reads a program.
+     *
+     * @return The program.
+     * @throws IOException
+     *             If an I/O error occurs or the program is invalid.
+     */
+    public VmProgram read() throws IOException {
+        final int globalCount = this.readVarint();
+
+        final Object[] constants = new Object[this.readCount()];
+        for (int i = 0; i < constants.length; i++) {
+            constants[i] = this.readConstant();
+        }
+
+        final VmFunction[] functions = new VmFunction[this.readCount()];
+        for (int i = 0; i < functions.length; i++) {
+            final String name = this.readString();
+            final int arity = this.readVarint();
+            final int registerCount = this.readVarint();
+            final int[] code = new int[this.readCount()];
+            for (int j = 0; j < code.length; j++) {
+                code[j] = this.readVarint();
+            }
+            functions[i] = new VmFunction(name, arity, registerCount, code);
+        }
+
+        final int[] forms = new int[this.readCount()];
+        final boolean[] results = new boolean[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            forms[i] = this.readVarint();
+            results[i] = this.readVarint() != 0;
+        }
+
+        try {
+            return new VmProgram(constants, functions, forms, results, globalCount);
+        } catch (final IllegalArgumentException cause) {
+            throw new IOException("Invalid program: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Reads a constant.
+     *
+     * @return The constant.
+     * @throws IOException
+     *             If an I/O error occurs or the constant is invalid.
+     */
+    private Object readConstant() throws IOException {
+        final int kind = this.in.readUnsignedByte();
+        switch (kind) {
+            case AssemblyFormat.CONSTANT_INTEGER: {
+                final long value = this.readVarlong();
+                return Long.valueOf(value >>> 1 ^ -(value & 1));
+            }
+            case AssemblyFormat.CONSTANT_BIG_INTEGER:
+                return this.readBigInteger();
+            case AssemblyFormat.CONSTANT_FRACTION:
+                try {
+                    return Fraction.of(this.readBigInteger(), this.readBigInteger());
+                } catch (final EvaluationException cause) {
+                    throw new IOException("Invalid fraction!", cause);
+                }
+            case AssemblyFormat.CONSTANT_REAL:
+                return Double.valueOf(Double.longBitsToDouble(this.in.readLong()));
+            case AssemblyFormat.CONSTANT_STRING:
+                return this.readString();
+            case AssemblyFormat.CONSTANT_SYMBOL:
+                return Symbol.of(this.readString());
+            case AssemblyFormat.CONSTANT_CHAR:
+                return Character.valueOf((char) this.readVarint());
+            case AssemblyFormat.CONSTANT_STRUCT: {
+                final String name = this.readString();
+                final String[] attributes = new String[this.readCount()];
+                for (int i = 0; i < attributes.length; i++) {
+                    attributes[i] = this.readString();
+                }
+                return new StructType(name, attributes);
+            }
+            case AssemblyFormat.CONSTANT_BUILTIN: {
+                final String name = this.readString();
+                try {
+                    return Builtin.forName(name);
+                } catch (final IllegalArgumentException cause) {
+                    throw new IOException("Unknown built-in function " + name + "!", cause);
+                }
+            }
+            default:
+                final Object singleton = AssemblyFormat.getSingleton(kind);
+                if (singleton == null) {
+                    throw new IOException("Unknown constant kind " + kind + "!");
+                }
+                return singleton;
+        }
+    }
+
+    /**
+     * Reads a big integer.
+     *
+     * @return The big integer.
+     * @throws IOException
+     *             If an I/O error occurs or the integer is invalid.
+     */
+    private BigInteger readBigInteger() throws IOException {
+        try {
+            return new BigInteger(this.readString());
+        } catch (final NumberFormatException cause) {
+            throw new IOException("Invalid integer!", cause);
+        }
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @return The string.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private String readString() throws IOException {
+        final byte[] bytes = new byte[this.readCount()];
+        this.in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the number of elements that follow.
+     *
+     * @return The number of elements.
+     * @throws IOException
+     *             If an I/O error occurs or the number does not fit into an
+     *             array.
+     */
+    private int readCount() throws IOException {
+        final int count = this.readVarint();
+        if (count < 0) {
+            throw new IOException("Count " + (count & 0xFFFFFFFFL) + " is out of range!");
+        }
+        return count;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return The value.
+     * @throws IOException
+     *             If an I/O error occurs or the value does not fit into an
+     *             integer.
+     */
+    private int readVarint() throws IOException {
+        final long value = this.readVarlong();
+        if (value >>> 32 != 0) {
+            throw new IOException("Varint " + value + " is out of range!");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads an unsigned varlong.
+     *
+     * @return The value.
+     * @throws IOException
+     *             If an I/O error occurs or the varlong is too long.
+     */
+    private long readVarlong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < BinaryAssemblyReader.MAX_VARLONG_SIZE; i++) {
+            final int b = this.in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << 7 * i;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varlong is too long!");
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+
+/**
+ * Writes programs of the register machine in the binary assembly format (see
+ * {@link AssemblyFormat}), so they can be loaded by a
+ * {@link BinaryAssemblyReader} without compiling the code again.
+ *
+ */
+public class BinaryAssemblyWriter implements Closeable, Flushable {
+    /**
+     * The stream to write to.
+     *
+     */
+    private final DataOutputStream out;
+
+    /**
+     * Constructor of BinaryAssemblyWriter. Writes the header.
+     *
+     * @param out
+     *            The stream to write to.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    public BinaryAssemblyWriter(final OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+
+        this.out.write(AssemblyFormat.MAGIC);
+        this.writeVarint(AssemblyFormat.VERSION);
+    }
+
+    /**
+     * Writes a program.
+     *
+     * @param program
+     *            The program to write.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    public void write(final VmProgram program) throws IOException {
+        this.writeVarint(program.globalCount);
+
+        this.writeVarint(program.constants.length);
+        for (final Object constant : program.constants) {
+            this.writeConstant(constant);
+        }
+
+        this.writeVarint(program.functions.length);
+        for (final VmFunction function : program.functions) {
+            this.writeString(function.name);
+            this.writeVarint(function.arity);
+            this.writeVarint(function.registerCount);
+            this.writeVarint(function.code.length);
+            for (final int word : function.code) {
+                this.writeVarint(word);
+            }
+        }
+
+        this.writeVarint(program.forms.length);
+        for (int i = 0; i < program.forms.length; i++) {
+            this.writeVarint(program.forms[i]);
+            this.writeVarint(program.results[i] ? 1 : 0);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Flushable#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    /**
+     * Writes a constant.
+     *
+     * @param constant
+     *            The constant.
+     * @throws IOException
+     *             If an I/O error occurs or the constant cannot be stored.
+     */
+    private void writeConstant(final Object constant) throws IOException {
+        final int kind;
+        try {
+            kind = AssemblyFormat.getConstantKind(constant);
+        } catch (final IllegalArgumentException cause) {
+            throw new IOException(cause.getMessage(), cause);
+        }
+        this.out.writeByte(kind);
+
+        switch (kind) {
+            case AssemblyFormat.CONSTANT_INTEGER: {
+                final long value = (Long) constant;
+                this.writeVarlong(value << 1 ^ value >> 63);
+                break;
+            }
+            case AssemblyFormat.CONSTANT_BIG_INTEGER:
+                this.writeString(constant.toString());
+                break;
+            case AssemblyFormat.CONSTANT_FRACTION:
+                this.writeString(((Fraction) constant).getNumerator().toString());
+                this.writeString(((Fraction) constant).getDenominator().toString());
+                break;
+            case AssemblyFormat.CONSTANT_REAL:
+                this.out.writeLong(Double.doubleToLongBits((Double) constant));
+                break;
+            case AssemblyFormat.CONSTANT_STRING:
+                this.writeString((String) constant);
+                break;
+            case AssemblyFormat.CONSTANT_SYMBOL:
+                this.writeString(((Symbol) constant).getName());
+                break;
+            case AssemblyFormat.CONSTANT_CHAR:
+                this.writeVarint((Character) constant);
+                break;
+            case AssemblyFormat.CONSTANT_STRUCT: {
+                final StructType type = (StructType) constant;
+                this.writeString(type.getName());
+                this.writeVarint(type.getAttributeCount());
+                for (int i = 0; i < type.getAttributeCount(); i++) {
+                    this.writeString(type.getAttribute(i));
+                }
+                break;
+            }
+            case AssemblyFormat.CONSTANT_BUILTIN:
+                this.writeString(((Builtin) constant).getName());
+                break;
+            default:
+                // The kind is the constant.
+                break;
+        }
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param string
+     *            The string.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeString(final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        this.writeVarint(bytes.length);
+        this.out.write(bytes);
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param value
+     *            The value.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeVarint(final int value) throws IOException {
+        this.writeVarlong(value & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes an unsigned varlong.
+     *
+     * @param value
+     *            The value.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void writeVarlong(final long value) throws IOException {
+        long remaining = value;
+        while ((remaining & ~0x7FL) != 0) {
+            this.out.writeByte((int) (remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        this.out.writeByte((int) remaining);
+    }
+}
@@ -0,0 +1,1369 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.Expressions;
+import de.fdamken.yalp.parsing.ast.representation.expression.Literal;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FilterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.Definition;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFormatFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.io.PrintFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.AppendFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.EighthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FifthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FirstFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.FourthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.LengthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.RestFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SecondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SeventhFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.SixthFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ThirdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.AndFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.NotFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.logic.OrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AbsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.DivideFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.ExptFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.FloorFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GcdFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.GreaterOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.LessOrEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MaxFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MinFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.NumberEqualFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.RemainderFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SqrtFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.SubtractFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.BooleanPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EmptyPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EqPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.EvenPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ListPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.NumberPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.OddPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.SymbolPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.ZeroPredicate;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * Generates the code of a single program for the register machine (see
+ * {@link VmCompiler}).
+ *
+ */
+final class InstructionGenerator {
+    /**
+     * The rules that generate the code of the expressions by the type of the
+     * expression.
+     *
+     */
+    private static final Map<Class<?>, Rule<?>> RULES = new HashMap<>();
+
+    static {
+        InstructionGenerator.register(BooleanLiteral.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Boolean.valueOf(expression.isContent()), function, dst));
+        InstructionGenerator.register(CharLiteral.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Character.valueOf(expression.getContent()), function, dst));
+        InstructionGenerator.register(StringLiteral.class,
+                (generator, expression, function, dst) -> generator.generateConstant(expression.getContent(), function, dst));
+        InstructionGenerator.register(SymbolLiteral.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Symbol.of(expression.getContent()), function, dst));
+        InstructionGenerator.register(FloatingPointLiteral.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Double.valueOf(expression.getContent()), function, dst));
+        InstructionGenerator.register(FractionLiteral.class,
+                (generator, expression, function, dst) -> generator
+                        .generateConstant(Fraction.of(expression.getNumerator(), expression.getDenominator()), function, dst));
+        InstructionGenerator.register(IntegerLiteral.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Numbers.normalize(expression.getContent()), function, dst));
+        InstructionGenerator.register(Variable.class, InstructionGenerator::generateVariable);
+        InstructionGenerator.register(BuiltinReference.class, (generator, expression, function, dst) -> generator
+                .generateConstant(Builtin.forName(expression.getName()), function, dst));
+
+        InstructionGenerator.register(ApplicationFunction.class, (generator, expression, function, dst) -> generator
+                .generateApplication(expression, function, dst, false));
+        InstructionGenerator.register(CondFunction.class,
+                (generator, expression, function, dst) -> generator.generateCond(expression, function, dst, false));
+        InstructionGenerator.register(IfFunction.class,
+                (generator, expression, function, dst) -> generator.generateIf(expression, function, dst, false));
+        InstructionGenerator.register(LocalFunction.class,
+                (generator, expression, function, dst) -> generator.generateLocal(expression, function, dst, false));
+        InstructionGenerator.register(LambdaFunction.class, (generator, expression, function, dst) -> function.emit(
+                Opcodes.CLOSURE, dst, generator.generateFunction("lambda", expression.getParameters().size(),
+                        expression.getExpression(), function.scope, function.depth + 1)));
+        InstructionGenerator.register(FilterFunction.class,
+                (generator, expression, function, dst) -> generator.generatePrimitive(Primitive.FILTER,
+                        Arrays.asList(expression.getFunction(), expression.getList()), function, dst));
+        InstructionGenerator.register(MapFunction.class,
+                (generator, expression, function, dst) -> generator.generatePrimitive(Primitive.MAP,
+                        InstructionGenerator.concat(expression.getLists(), expression.getFunction()), function, dst));
+        InstructionGenerator.register(FoldlFunction.class,
+                (generator, expression, function, dst) -> generator.generatePrimitive(Primitive.FOLDL, InstructionGenerator
+                        .concat(expression.getLists(), expression.getFolder(), expression.getStartValue()), function, dst));
+        InstructionGenerator.register(FoldrFunction.class,
+                (generator, expression, function, dst) -> generator.generatePrimitive(Primitive.FOLDR, InstructionGenerator
+                        .concat(expression.getLists(), expression.getFolder(), expression.getStartValue()), function, dst));
+
+        InstructionGenerator.register(PrintFunction.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.PRINT, function, dst, expression.getValue()));
+        InstructionGenerator.register(PrintFormatFunction.class, (generator, expression, function, dst) -> {
+            final int mark = function.nextRegister;
+            final int format = generator.constant(((StringLiteral) expression.getFormat()).getContent());
+            final List<Expression> arguments = expression.getArguments();
+            final int args = generator.generateArguments(arguments, function);
+            function.emit(Opcodes.PRINTF, dst, format, args, arguments.size());
+            function.nextRegister = mark;
+        });
+
+        InstructionGenerator.register(AppendFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.APPEND, Arrays.asList(expression.getListA(), expression.getListB()), function,
+                        dst));
+        InstructionGenerator.register(ConsFunction.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.CONS, function, dst, expression.getElement(), expression.getList()));
+        InstructionGenerator.register(FirstFunction.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.FIRST, function, dst, expression.getList()));
+        InstructionGenerator.register(SecondFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SECOND, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(ThirdFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.THIRD, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(FourthFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.FOURTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(FifthFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.FIFTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(SixthFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SIXTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(SeventhFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SEVENTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(EighthFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.EIGHTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(RestFunction.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.REST, function, dst, expression.getList()));
+        InstructionGenerator.register(LengthFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.LENGTH, Arrays.asList(expression.getList()), function, dst));
+        InstructionGenerator.register(ListFunction.class, (generator, expression, function, dst) -> {
+            if (expression.getValues().isEmpty()) {
+                generator.generateConstant(Pair.EMPTY, function, dst);
+            } else {
+                generator.generatePrimitive(Primitive.LIST, expression.getValues(), function, dst);
+            }
+        });
+
+        InstructionGenerator.register(AndFunction.class,
+                (generator, expression, function, dst) -> generator.generateAnd(expression.getExpressions(), function, dst));
+        InstructionGenerator.register(OrFunction.class,
+                (generator, expression, function, dst) -> generator.generateOr(expression.getExpressions(), function, dst));
+        InstructionGenerator.register(NotFunction.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.NOT, function, dst, expression.getExpression()));
+
+        InstructionGenerator.register(AbsFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.ABS, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(FloorFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.FLOOR, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(SqrFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SQR, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(SqrtFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SQRT, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(ExptFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.EXPT, Arrays.asList(expression.getValueA(), expression.getValueB()), function,
+                        dst));
+        InstructionGenerator.register(GcdFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.GCD, Arrays.asList(expression.getValueA(), expression.getValueB()), function,
+                        dst));
+        InstructionGenerator.register(RemainderFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.REMAINDER, Arrays.asList(expression.getValueA(), expression.getValueB()),
+                        function, dst));
+        InstructionGenerator.register(AddFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.ADD, Opcodes.ADDK, Primitive.ADD, function, dst));
+        InstructionGenerator.register(SubtractFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.SUB, Opcodes.SUBK, Primitive.SUBTRACT, function, dst));
+        InstructionGenerator.register(MultiplyFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.MUL, -1, Primitive.MULTIPLY, function, dst));
+        InstructionGenerator.register(DivideFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.DIV, -1, Primitive.DIVIDE, function, dst));
+        InstructionGenerator.register(MaxFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.MAX, expression.getValues(), function, dst));
+        InstructionGenerator.register(MinFunction.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.MIN, expression.getValues(), function, dst));
+        InstructionGenerator.register(LessFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.LT, -1, Primitive.LESS, function, dst));
+        InstructionGenerator.register(LessOrEqualFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.LE, -1, Primitive.LESS_OR_EQUAL, function, dst));
+        InstructionGenerator.register(GreaterFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.GT, -1, Primitive.GREATER, function, dst));
+        InstructionGenerator.register(GreaterOrEqualFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.GE, -1, Primitive.GREATER_OR_EQUAL, function, dst));
+        InstructionGenerator.register(NumberEqualFunction.class, (generator, expression, function, dst) -> generator
+                .generateArithmetic(expression.getValues(), Opcodes.NUMEQ, -1, Primitive.NUMBER_EQUAL, function, dst));
+
+        InstructionGenerator.register(BooleanPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.BOOLEAN_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(EvenPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.EVEN_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(NumberPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.NUMBER_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(OddPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.ODD_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(SymbolPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.SYMBOL_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(ZeroPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.ZERO_PREDICATE, Arrays.asList(expression.getValue()), function, dst));
+        InstructionGenerator.register(ListPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.LIST_PREDICATE, Arrays.asList(expression.getAny()), function, dst));
+        InstructionGenerator.register(EqPredicate.class, (generator, expression, function, dst) -> generator
+                .generatePrimitive(Primitive.EQ_PREDICATE, Arrays.asList(expression.getValueA(), expression.getValueB()),
+                        function, dst));
+        InstructionGenerator.register(EmptyPredicate.class, (generator, expression, function, dst) -> generator
+                .generateInstruction(Opcodes.EMPTYP, function, dst, expression.getList()));
+        InstructionGenerator.register(StructPredicateFunction.class, (generator, expression, function, dst) -> {
+            final int mark = function.nextRegister;
+            final int type = generator.constant(generator.getStructType(expression.getName()));
+            function.emit(Opcodes.STRUCTP, dst, type, generator.operand(expression.getInstance(), function));
+            function.nextRegister = mark;
+        });
+
+        InstructionGenerator.register(MakeStructFunction.class, (generator, expression, function, dst) -> {
+            final int mark = function.nextRegister;
+            final int type = generator.constant(generator.getStructType(expression.getName()));
+            final List<Expression> attributes = expression.getAttributes();
+            final int args = generator.generateArguments(attributes, function);
+            function.emit(Opcodes.MAKESTRUCT, dst, type, args, attributes.size());
+            function.nextRegister = mark;
+        });
+        InstructionGenerator.register(StructAttributeSelectFunction.class, (generator, expression, function, dst) -> {
+            final StructType type = generator.getStructType(expression.getName());
+            final int index = type.indexOf(expression.getAttribute());
+            if (index < 0) {
+                throw new IllegalArgumentException(
+                        expression.getName() + " does not have an attribute " + expression.getAttribute() + "!");
+            }
+            final int mark = function.nextRegister;
+            function.emit(Opcodes.GETATTR, dst, generator.constant(type), index,
+                    generator.operand(expression.getInstance(), function));
+            function.nextRegister = mark;
+        });
+    }
+
+    /**
+     * The program to compile.
+     *
+     */
+    private final DecoratedAbstractSyntaxTree tree;
+    /**
+     * The constants used by the generated code.
+     *
+     */
+    private final List<Object> constants = new ArrayList<>();
+    /**
+     * The indices of the {@link #constants}.
+     *
+     */
+    private final Map<Object, Integer> constantIndices = new HashMap<>();
+    /**
+     * The generated functions. The function that is currently generated is
+     * <code>null</code>.
+     *
+     */
+    private final List<VmFunction> functions = new ArrayList<>();
+    /**
+     * The types of the structures that are visible in the expression that is
+     * currently compiled, indexed by their names.
+     *
+     */
+    private Map<String, StructType> structs = new HashMap<>();
+
+    /**
+     * Constructor of InstructionGenerator.
+     *
+     * @param tree
+     *            The program to compile.
+     */
+    InstructionGenerator(final DecoratedAbstractSyntaxTree tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Generates the code of the program.
+     *
+     * @return The program.
+     */
+    VmProgram generate() {
+        final List<Expression> expressions = this.tree.getExpressions();
+        for (final Expression expression : expressions) {
+            this.declareStruct(expression);
+        }
+
+        final int[] forms = new int[expressions.size()];
+        final boolean[] results = new boolean[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            final Expression expression = expressions.get(i);
+            forms[i] = this.functions.size();
+            this.functions.add(null);
+
+            final FunctionContext function = new FunctionContext(0, 0, InstructionGenerator.countLocalSlots(expression));
+            if (expression instanceof Definition) {
+                final int value = function.allocate(1);
+                if (expression instanceof DefineFunction) {
+                    final DefineFunction define = (DefineFunction) expression;
+                    function.emit(Opcodes.CLOSURE, value, this.generateFunction(define, null, 1));
+                    function.emit(Opcodes.SETGLOBAL, define.getSlot(), value);
+                } else if (expression instanceof DefineConstantFunction) {
+                    final DefineConstantFunction define = (DefineConstantFunction) expression;
+                    this.generate(define.getExpression(), function, value);
+                    function.emit(Opcodes.SETGLOBAL, define.getSlot(), value);
+                }
+                this.generateConstant(Values.VOID, function, value);
+                function.emit(Opcodes.RETURN, value);
+            } else {
+                this.generateTail(expression, function);
+                results[i] = true;
+            }
+            this.functions.set(forms[i], function.toFunction("form" + i, 0));
+        }
+
+        return new VmProgram(this.constants.toArray(), this.functions.toArray(new VmFunction[this.functions.size()]), forms,
+                results, this.tree.getGlobals().size());
+    }
+
+    /**
+     * Generates a function defined by <code>define</code>.
+     *
+     * @param define
+     *            The function definition.
+     * @param scope
+     *            The frame the function is defined in.
+     * @param depth
+     *            The number of functions the function is nested in.
+     * @return The index of the function.
+     */
+    private int generateFunction(final DefineFunction define, final Scope scope, final int depth) {
+        return this.generateFunction(InstructionGenerator.getName(define.getHeader().get(0)), define.getHeader().size() - 1,
+                define.getExpression(), scope, depth);
+    }
+
+    /**
+     * Generates a function.
+     *
+     * @param name
+     *            The name of the function used in error messages.
+     * @param arity
+     *            The number of parameters.
+     * @param body
+     *            The body of the function.
+     * @param scope
+     *            The frame the function is defined in.
+     * @param depth
+     *            The number of functions the function is nested in.
+     * @return The index of the function.
+     */
+    private int generateFunction(final String name, final int arity, final Expression body, final Scope scope,
+            final int depth) {
+        final int index = this.functions.size();
+        this.functions.add(null);
+
+        final FunctionContext function = new FunctionContext(depth, arity, InstructionGenerator.countLocalSlots(body));
+        function.scope = new Scope(scope, function, 1, false);
+        this.generateTail(body, function);
+        this.functions.set(index, function.toFunction(name, arity));
+        return index;
+    }
+
+    /**
+     * Generates the code of the given expression.
+     *
+     * @param expression
+     *            The expression.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The register to store the value of the expression in.
+     * @throws IllegalArgumentException
+     *             If the type of the expression is unknown.
+     */
+    @SuppressWarnings("unchecked")
+    private void generate(final Expression expression, final FunctionContext function, final int dst)
+            throws IllegalArgumentException {
+        final Rule<Expression> rule = (Rule<Expression>) InstructionGenerator.RULES.get(expression.getClass());
+        if (rule == null) {
+            throw new IllegalArgumentException("Unknown expression type " + expression.getClass().getSimpleName() + "!");
+        }
+        rule.generate(this, expression, function, dst);
+    }
+
+    /**
+     * Generates the code of the given expression in tail position: The value
+     * of the expression is returned from the function.
+     *
+     * @param expression
+     *            The expression.
+     * @param function
+     *            The function the code is generated in.
+     */
+    private void generateTail(final Expression expression, final FunctionContext function) {
+        if (expression instanceof ApplicationFunction) {
+            this.generateApplication((ApplicationFunction) expression, function, 0, true);
+        } else if (expression instanceof IfFunction) {
+            this.generateIf((IfFunction) expression, function, 0, true);
+        } else if (expression instanceof CondFunction) {
+            this.generateCond((CondFunction) expression, function, 0, true);
+        } else if (expression instanceof LocalFunction) {
+            this.generateLocal((LocalFunction) expression, function, 0, true);
+        } else {
+            final int mark = function.nextRegister;
+            function.emit(Opcodes.RETURN, this.operand(expression, function));
+            function.nextRegister = mark;
+        }
+    }
+
+    /**
+     * Generates the code of the given expression unless it is a variable that
+     * can be read directly from its register.
+     *
+     * @param expression
+     *            The expression.
+     * @param function
+     *            The function the code is generated in.
+     * @return The register holding the value of the expression. This is
+     *         either the register of the variable or a new temporary
+     *         register.
+     */
+    private int operand(final Expression expression, final FunctionContext function) {
+        if (expression instanceof Variable && !((Variable) expression).isGlobal()) {
+            final Variable variable = (Variable) expression;
+            final Scope target = function.resolve(variable);
+            if (target.function == function && !target.isChecked()) {
+                return target.base + variable.getSlot();
+            }
+        }
+        final int register = function.allocate(1);
+        this.generate(expression, function, register);
+        return register;
+    }
+
+    /**
+     * Generates the code of the given arguments and stores them in
+     * consecutive registers.
+     *
+     * @param arguments
+     *            The arguments.
+     * @param function
+     *            The function the code is generated in.
+     * @return The register of the first argument.
+     */
+    private int generateArguments(final List<Expression> arguments, final FunctionContext function) {
+        if (arguments.isEmpty()) {
+            return 0;
+        }
+        final int args = function.allocate(arguments.size());
+        for (int i = 0; i < arguments.size(); i++) {
+            this.generate(arguments.get(i), function, args + i);
+        }
+        return args;
+    }
+
+    /**
+     * Generates the code of the given operands followed by an instruction
+     * that takes the destination register and the registers of the operands.
+     *
+     * @param opcode
+     *            The opcode of the instruction.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param operands
+     *            The operands.
+     */
+    private void generateInstruction(final int opcode, final FunctionContext function, final int dst,
+            final Expression... operands) {
+        final int mark = function.nextRegister;
+        final int[] instruction = new int[operands.length + 2];
+        instruction[0] = opcode;
+        instruction[1] = dst;
+        for (int i = 0; i < operands.length; i++) {
+            instruction[i + 2] = this.operand(operands[i], function);
+        }
+        function.emit(instruction);
+        function.nextRegister = mark;
+    }
+
+    /**
+     * Generates the code of a primitive.
+     *
+     * @param primitive
+     *            The primitive.
+     * @param arguments
+     *            The arguments.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generatePrimitive(final Primitive primitive, final List<Expression> arguments,
+            final FunctionContext function, final int dst) {
+        final int mark = function.nextRegister;
+        final int args = this.generateArguments(arguments, function);
+        function.emit(Opcodes.PRIM, dst, primitive.ordinal(), args, arguments.size());
+        function.nextRegister = mark;
+    }
+
+    /**
+     * Generates the code of an arithmetic function or a comparison. Two
+     * operands (the common case) use a dedicated instruction, any other
+     * number of operands uses a primitive.
+     *
+     * @param values
+     *            The operands.
+     * @param opcode
+     *            The instruction for two operands.
+     * @param constantOpcode
+     *            The instruction for two operands where the second operand
+     *            is a number literal or <code>-1</code> if there is none.
+     * @param primitive
+     *            The primitive for any other number of operands.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generateArithmetic(final List<Expression> values, final int opcode, final int constantOpcode,
+            final Primitive primitive, final FunctionContext function, final int dst) {
+        if (values.size() != 2) {
+            this.generatePrimitive(primitive, values, function, dst);
+        } else if (constantOpcode >= 0 && values.get(1) instanceof IntegerLiteral) {
+            final int mark = function.nextRegister;
+            final int a = this.operand(values.get(0), function);
+            final Object constant = Numbers.normalize(((IntegerLiteral) values.get(1)).getContent());
+            function.emit(constantOpcode, dst, a, this.constant(constant));
+            function.nextRegister = mark;
+        } else {
+            this.generateInstruction(opcode, function, dst, values.get(0), values.get(1));
+        }
+    }
+
+    /**
+     * Generates the code loading the given constant.
+     *
+     * @param value
+     *            The constant.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generateConstant(final Object value, final FunctionContext function, final int dst) {
+        function.emit(Opcodes.CONST, dst, this.constant(value));
+    }
+
+    /**
+     * Generates the code of the given variable.
+     *
+     * @param variable
+     *            The variable.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generateVariable(final Variable variable, final FunctionContext function, final int dst) {
+        final int name = this.constant(variable.getName());
+        if (variable.isGlobal()) {
+            function.emit(Opcodes.GETGLOBAL, dst, variable.getSlot(), name);
+            return;
+        }
+
+        final Scope target = function.resolve(variable);
+        final int register = target.base + variable.getSlot();
+        if (target.function == function) {
+            if (target.isChecked()) {
+                function.emit(Opcodes.CHECK, dst, register, name);
+            } else if (register != dst) {
+                function.emit(Opcodes.MOVE, dst, register);
+            }
+        } else {
+            final int hops = function.depth - target.function.depth;
+            if (target.isChecked()) {
+                function.emit(Opcodes.GETENVC, dst, hops, register, name);
+            } else {
+                function.emit(Opcodes.GETENV, dst, hops, register);
+            }
+        }
+    }
+
+    /**
+     * Generates the code of the given function application.
+     *
+     * @param application
+     *            The function application.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param tail
+     *            Whether the application is in tail position.
+     */
+    private void generateApplication(final ApplicationFunction application, final FunctionContext function, final int dst,
+            final boolean tail) {
+        final int mark = function.nextRegister;
+        final List<Expression> arguments = application.getArguments();
+        if (application.getFunction() instanceof Variable && ((Variable) application.getFunction()).isGlobal()) {
+            final Variable variable = (Variable) application.getFunction();
+            final int name = this.constant(variable.getName());
+            final int args = this.generateArguments(arguments, function);
+            if (tail) {
+                function.emit(Opcodes.TAILCALLGLOBAL, variable.getSlot(), name, args, arguments.size());
+            } else {
+                function.emit(Opcodes.CALLGLOBAL, dst, variable.getSlot(), name, args, arguments.size());
+            }
+        } else {
+            final int callee = this.operand(application.getFunction(), function);
+            final int args = this.generateArguments(arguments, function);
+            if (tail) {
+                function.emit(Opcodes.TAILCALL, callee, args, arguments.size());
+            } else {
+                function.emit(Opcodes.CALL, dst, callee, args, arguments.size());
+            }
+        }
+        function.nextRegister = mark;
+    }
+
+    /**
+     * Generates the code of the given <code>if</code>.
+     *
+     * @param expression
+     *            The <code>if</code>.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param tail
+     *            Whether the <code>if</code> is in tail position.
+     */
+    private void generateIf(final IfFunction expression, final FunctionContext function, final int dst,
+            final boolean tail) {
+        final Label else0 = new Label();
+        this.generateBranchIfFalse(expression.getTest(), "if", function, else0);
+        this.generateBranch(expression.getThen(), function, dst, tail, null);
+        final Label end = this.generateEndOfBranch(function, tail);
+        function.mark(else0);
+        this.generateBranch(expression.getElse0(), function, dst, tail, end);
+    }
+
+    /**
+     * Generates the code of the given <code>cond</code>.
+     *
+     * @param expression
+     *            The <code>cond</code>.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param tail
+     *            Whether the <code>cond</code> is in tail position.
+     */
+    private void generateCond(final CondFunction expression, final FunctionContext function, final int dst,
+            final boolean tail) {
+        final Label end = new Label();
+        for (final CondFunction.CondPart part : expression.getCases()) {
+            final Label next = new Label();
+            this.generateBranchIfFalse(part.getTest(), "cond", function, next);
+            this.generateBranch(part.getThen(), function, dst, tail, null);
+            if (!tail) {
+                function.jump(Opcodes.JUMP, end);
+            }
+            function.mark(next);
+        }
+        if (expression.getElse0() == null) {
+            function.emit(Opcodes.CONDFAIL);
+            function.mark(end);
+        } else {
+            this.generateBranch(expression.getElse0(), function, dst, tail, end);
+        }
+    }
+
+    /**
+     * Generates the code of a branch of a conditional.
+     *
+     * @param expression
+     *            The branch.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param tail
+     *            Whether the conditional is in tail position.
+     * @param end
+     *            The label to mark after the branch or <code>null</code> if
+     *            there is none.
+     */
+    private void generateBranch(final Expression expression, final FunctionContext function, final int dst,
+            final boolean tail, final Label end) {
+        if (tail) {
+            this.generateTail(expression, function);
+        } else {
+            this.generate(expression, function, dst);
+        }
+        if (end != null) {
+            function.mark(end);
+        }
+    }
+
+    /**
+     * Generates the jump to the end of a conditional after a branch.
+     *
+     * @param function
+     *            The function the code is generated in.
+     * @param tail
+     *            Whether the conditional is in tail position. Branches in
+     *            tail position return, so they do not need a jump.
+     * @return The label of the end of the conditional.
+     */
+    private Label generateEndOfBranch(final FunctionContext function, final boolean tail) {
+        final Label end = new Label();
+        if (!tail) {
+            function.jump(Opcodes.JUMP, end);
+        }
+        return end;
+    }
+
+    /**
+     * Generates a jump that is taken if the given condition is
+     * <code>false</code>. Comparisons of two numbers,
+     * <code>(empty? x)</code> and <code>(zero? x)</code> are fused with the
+     * jump.
+     *
+     * @param test
+     *            The condition.
+     * @param name
+     *            The name of the function the condition belongs to.
+     * @param function
+     *            The function the code is generated in.
+     * @param target
+     *            The jump target.
+     */
+    private void generateBranchIfFalse(final Expression test, final String name, final FunctionContext function,
+            final Label target) {
+        final int mark = function.nextRegister;
+        final int opcode = InstructionGenerator.getFusedComparison(test);
+        if (opcode >= 0) {
+            final List<Expression> values = InstructionGenerator.getComparisonOperands(test);
+            final int a = this.operand(values.get(0), function);
+            final int b = this.operand(values.get(1), function);
+            function.jump(opcode, target, a, b);
+        } else if (test instanceof EmptyPredicate) {
+            function.jump(Opcodes.JNEMPTY, target, this.operand(((EmptyPredicate) test).getList(), function));
+        } else if (test instanceof ZeroPredicate) {
+            function.jump(Opcodes.JNZERO, target, this.operand(((ZeroPredicate) test).getValue(), function));
+        } else {
+            function.jump(Opcodes.JUMPF, target, this.operand(test, function));
+            function.code[function.size++] = this.constant(name);
+        }
+        function.nextRegister = mark;
+    }
+
+    /**
+     * Generates the code of an <code>and</code>.
+     *
+     * @param expressions
+     *            The operands.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generateAnd(final List<Expression> expressions, final FunctionContext function, final int dst) {
+        final Label shortCircuit = new Label();
+        final Label end = new Label();
+        for (final Expression expression : expressions) {
+            this.generateBranchIfFalse(expression, "and", function, shortCircuit);
+        }
+        this.generateConstant(Boolean.TRUE, function, dst);
+        function.jump(Opcodes.JUMP, end);
+        function.mark(shortCircuit);
+        this.generateConstant(Boolean.FALSE, function, dst);
+        function.mark(end);
+    }
+
+    /**
+     * Generates the code of an <code>or</code>.
+     *
+     * @param expressions
+     *            The operands.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     */
+    private void generateOr(final List<Expression> expressions, final FunctionContext function, final int dst) {
+        final Label shortCircuit = new Label();
+        final Label end = new Label();
+        for (final Expression expression : expressions) {
+            final int mark = function.nextRegister;
+            function.jump(Opcodes.JUMPT, shortCircuit, this.operand(expression, function));
+            function.code[function.size++] = this.constant("or");
+            function.nextRegister = mark;
+        }
+        this.generateConstant(Boolean.FALSE, function, dst);
+        function.jump(Opcodes.JUMP, end);
+        function.mark(shortCircuit);
+        this.generateConstant(Boolean.TRUE, function, dst);
+        function.mark(end);
+    }
+
+    /**
+     * Generates the code of the given <code>local</code>. The definitions
+     * are stored in registers that are reserved for the <code>local</code>,
+     * so closures created by the definitions can keep reading them.
+     *
+     * @param local
+     *            The <code>local</code>.
+     * @param function
+     *            The function the code is generated in.
+     * @param dst
+     *            The destination register.
+     * @param tail
+     *            Whether the <code>local</code> is in tail position.
+     */
+    private void generateLocal(final LocalFunction local, final FunctionContext function, final int dst,
+            final boolean tail) {
+        final Map<String, StructType> outerStructs = this.structs;
+        final Scope outerScope = function.scope;
+        this.structs = new HashMap<>(outerStructs);
+        try {
+            for (final Definition definition : local.getDefinitions()) {
+                this.declareStruct((Expression) definition);
+            }
+
+            final Scope scope = new Scope(outerScope, function, function.allocateLocal(local.getFrameSize()), true);
+            function.scope = scope;
+            for (final Definition definition : local.getDefinitions()) {
+                if (definition instanceof DefineConstantFunction) {
+                    final DefineConstantFunction define = (DefineConstantFunction) definition;
+                    this.generate(define.getExpression(), function, scope.base + define.getSlot());
+                } else if (definition instanceof DefineFunction) {
+                    final DefineFunction define = (DefineFunction) definition;
+                    function.emit(Opcodes.CLOSURE, scope.base + define.getSlot(),
+                            this.generateFunction(define, scope, function.depth + 1));
+                }
+            }
+
+            // All definitions are evaluated now, so reading them does not have
+            // to be checked anymore.
+            scope.initialized = true;
+            if (tail) {
+                this.generateTail(local.getExpression(), function);
+            } else {
+                this.generate(local.getExpression(), function, dst);
+            }
+        } finally {
+            function.scope = outerScope;
+            this.structs = outerStructs;
+        }
+    }
+
+    /**
+     * Retrieves the index of the given constant, adding it if necessary.
+     *
+     * @param value
+     *            The constant.
+     * @return The index of the constant.
+     */
+    private int constant(final Object value) {
+        Integer index = this.constantIndices.get(value);
+        if (index == null) {
+            index = this.constants.size();
+            this.constants.add(value);
+            this.constantIndices.put(value, index);
+        }
+        return index;
+    }
+
+    /**
+     * Retrieves the type of the visible structure with the given name.
+     *
+     * @param name
+     *            The name of the structure.
+     * @return The type.
+     * @throws IllegalArgumentException
+     *             If the structure is not defined.
+     */
+    private StructType getStructType(final String name) throws IllegalArgumentException {
+        final StructType type = this.structs.get(name);
+        if (type == null) {
+            throw new IllegalArgumentException("The structure " + name + " is not defined!");
+        }
+        return type;
+    }
+
+    /**
+     * Declares the structure defined by the given expression (if it is a
+     * structure definition).
+     *
+     * @param expression
+     *            The expression.
+     */
+    private void declareStruct(final Expression expression) {
+        if (expression instanceof DefineStructFunction) {
+            final DefineStructFunction define = (DefineStructFunction) expression;
+            final String[] attributes = new String[define.getAttributes().size()];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = InstructionGenerator.getName(define.getAttributes().get(i));
+            }
+            final String name = InstructionGenerator.getName(define.getName());
+            this.structs.put(name, new StructType(name, attributes));
+        }
+    }
+
+    /**
+     * Counts the registers that have to be reserved for the
+     * <code>local</code>s of a function.
+     *
+     * @param expression
+     *            The body of the function.
+     * @return The number of registers.
+     */
+    private static int countLocalSlots(final Expression expression) {
+        if (expression instanceof LambdaFunction || expression instanceof DefineFunction) {
+            // The body is a function of its own.
+            return 0;
+        }
+        int count = expression instanceof LocalFunction ? ((LocalFunction) expression).getFrameSize() : 0;
+        for (final Expression child : Expressions.getChildren(expression)) {
+            count += InstructionGenerator.countLocalSlots(child);
+        }
+        return count;
+    }
+
+    /**
+     * Retrieves the jump instruction that fuses the given condition if it is
+     * a comparison of two numbers.
+     *
+     * @param test
+     *            The condition.
+     * @return The opcode of the jump or <code>-1</code> if the condition is
+     *         not a comparison of two numbers.
+     */
+    private static int getFusedComparison(final Expression test) {
+        final List<Expression> values = InstructionGenerator.getComparisonOperands(test);
+        if (values == null || values.size() != 2) {
+            return -1;
+        } else if (test instanceof LessFunction) {
+            return Opcodes.JNLT;
+        } else if (test instanceof LessOrEqualFunction) {
+            return Opcodes.JNLE;
+        } else if (test instanceof GreaterFunction) {
+            return Opcodes.JNGT;
+        } else if (test instanceof GreaterOrEqualFunction) {
+            return Opcodes.JNGE;
+        }
+        return Opcodes.JNEQ;
+    }
+
+    /**
+     * Retrieves the operands of the given comparison.
+     *
+     * @param test
+     *            The expression.
+     * @return The operands or <code>null</code> if the expression is not a
+     *         comparison of numbers.
+     */
+    private static List<Expression> getComparisonOperands(final Expression test) {
+        if (test instanceof LessFunction) {
+            return ((LessFunction) test).getValues();
+        } else if (test instanceof LessOrEqualFunction) {
+            return ((LessOrEqualFunction) test).getValues();
+        } else if (test instanceof GreaterFunction) {
+            return ((GreaterFunction) test).getValues();
+        } else if (test instanceof GreaterOrEqualFunction) {
+            return ((GreaterOrEqualFunction) test).getValues();
+        } else if (test instanceof NumberEqualFunction) {
+            return ((NumberEqualFunction) test).getValues();
+        }
+        return null;
+    }
+
+    /**
+     * Creates a list of the given leading expressions followed by the given
+     * list.
+     *
+     * @param rest
+     *            The list.
+     * @param first
+     *            The leading expressions.
+     * @return The combined list.
+     */
+    private static List<Expression> concat(final List<Expression> rest, final Expression... first) {
+        final List<Expression> list = new ArrayList<>(first.length + rest.size());
+        list.addAll(Arrays.asList(first));
+        list.addAll(rest);
+        return list;
+    }
+
+    /**
+     * Retrieves the name stored in the given literal.
+     *
+     * @param literal
+     *            The literal.
+     * @return The name.
+     */
+    private static String getName(final Literal literal) {
+        return ((SymbolLiteral) literal).getContent();
+    }
+
+    /**
+     * Registers the rule for the given type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     * @param type
+     *            The type of the expression.
+     * @param rule
+     *            The rule.
+     */
+    private static <E extends Expression> void register(final Class<E> type, final Rule<E> rule) {
+        InstructionGenerator.RULES.put(type, rule);
+    }
+
+    /**
+     * Generates the code of an expression of a specific type.
+     *
+     * @param <E>
+     *            The type of the expression.
+     */
+    @FunctionalInterface
+    private interface Rule<E extends Expression> {
+        /**
+         * Generates the code of the given expression.
+         *
+         * @param generator
+         *            The generator of the program.
+         * @param expression
+         *            The expression.
+         * @param function
+         *            The function the code is generated in.
+         * @param dst
+         *            The register to store the value of the expression in.
+         */
+        void generate(final InstructionGenerator generator, final E expression, final FunctionContext function,
+                final int dst);
+    }
+
+    /**
+     * A position in the code that is the target of jumps.
+     *
+     */
+    private static final class Label {
+        /**
+         * The offset of the label or <code>-1</code> if it is not marked yet.
+         *
+         */
+        private int offset = -1;
+        /**
+         * The offsets of the operands referencing the label before it was
+         * marked.
+         *
+         */
+        private final List<Integer> references = new ArrayList<>();
+    }
+
+    /**
+     * The state of a function whose code is generated.
+     *
+     */
+    private static final class FunctionContext {
+        /**
+         * The number of functions the function is nested in.
+         *
+         */
+        private final int depth;
+        /**
+         * The code.
+         *
+         */
+        private int[] code = new int[16];
+        /**
+         * The number of used elements of the {@link #code}.
+         *
+         */
+        private int size;
+        /**
+         * The next register that is reserved for a <code>local</code>.
+         *
+         */
+        private int nextLocal;
+        /**
+         * The next free temporary register.
+         *
+         */
+        private int nextRegister;
+        /**
+         * The number of registers used so far.
+         *
+         */
+        private int registerCount;
+        /**
+         * The innermost frame or <code>null</code> if only the top-level
+         * definitions are visible.
+         *
+         */
+        private Scope scope;
+
+        /**
+         * Constructor of FunctionContext.
+         *
+         * @param depth
+         *            The number of functions the function is nested in.
+         * @param arity
+         *            The number of parameters.
+         * @param localSlots
+         *            The number of registers that are reserved for the
+         *            <code>local</code>s.
+         */
+        private FunctionContext(final int depth, final int arity, final int localSlots) {
+            this.depth = depth;
+            this.nextLocal = 1 + arity;
+            this.nextRegister = this.nextLocal + localSlots;
+            this.registerCount = this.nextRegister;
+        }
+
+        /**
+         * Allocates consecutive temporary registers. The registers are
+         * released by resetting {@link #nextRegister}.
+         *
+         * @param count
+         *            The number of registers.
+         * @return The first register.
+         */
+        private int allocate(final int count) {
+            final int register = this.nextRegister;
+            this.nextRegister += count;
+            this.registerCount = Math.max(this.registerCount, this.nextRegister);
+            return register;
+        }
+
+        /**
+         * Allocates the registers of a <code>local</code>. The registers are
+         * never reused.
+         *
+         * @param count
+         *            The number of registers.
+         * @return The first register.
+         */
+        private int allocateLocal(final int count) {
+            final int register = this.nextLocal;
+            this.nextLocal += count;
+            return register;
+        }
+
+        /**
+         * Resolves the frame of the given variable.
+         *
+         * @param variable
+         *            The variable. Must not be global.
+         * @return The frame.
+         */
+        private Scope resolve(final Variable variable) {
+            Scope target = this.scope;
+            for (int i = 0; i < variable.getDepth(); i++) {
+                target = target.parent;
+            }
+            return target;
+        }
+
+        /**
+         * Appends an instruction.
+         *
+         * @param instruction
+         *            The opcode followed by the operands.
+         */
+        private void emit(final int... instruction) {
+            this.ensureCapacity(instruction.length);
+            System.arraycopy(instruction, 0, this.code, this.size, instruction.length);
+            this.size += instruction.length;
+        }
+
+        /**
+         * Appends a jump instruction. The target is the last operand, unless
+         * further operands are appended directly afterwards.
+         *
+         * @param opcode
+         *            The opcode.
+         * @param target
+         *            The target.
+         * @param registers
+         *            The registers that precede the target.
+         */
+        private void jump(final int opcode, final Label target, final int... registers) {
+            this.ensureCapacity(registers.length + 3);
+            this.code[this.size++] = opcode;
+            for (final int register : registers) {
+                this.code[this.size++] = register;
+            }
+            if (target.offset < 0) {
+                target.references.add(this.size);
+            }
+            this.code[this.size++] = target.offset;
+        }
+
+        /**
+         * Marks the current position as the target of the given label.
+         *
+         * @param label
+         *            The label.
+         */
+        private void mark(final Label label) {
+            label.offset = this.size;
+            for (final int reference : label.references) {
+                this.code[reference] = label.offset;
+            }
+        }
+
+        /**
+         * Ensures that the code has room for the given number of elements.
+         *
+         * @param count
+         *            The number of elements.
+         */
+        private void ensureCapacity(final int count) {
+            if (this.size + count > this.code.length) {
+                this.code = Arrays.copyOf(this.code, Math.max(this.code.length * 2, this.size + count));
+            }
+        }
+
+        /**
+         * Creates the function.
+         *
+         * @param name
+         *            The name of the function used in error messages.
+         * @param arity
+         *            The number of parameters.
+         * @return The function.
+         */
+        private VmFunction toFunction(final String name, final int arity) {
+            return new VmFunction(name, arity, this.registerCount, Arrays.copyOf(this.code, this.size));
+        }
+    }
+
+    /**
+     * A frame at compile time: The registers holding the variables of the
+     * frame.
+     *
+     */
+    private static final class Scope {
+        /**
+         * The frame this frame is nested in or <code>null</code> if its
+         * parent is the frame of the top-level definitions.
+         *
+         */
+        private final Scope parent;
+        /**
+         * The function that owns the registers.
+         *
+         */
+        private final FunctionContext function;
+        /**
+         * The register of the first variable.
+         *
+         */
+        private final int base;
+        /**
+         * Whether the frame is the frame of a <code>local</code>.
+         *
+         */
+        private final boolean local;
+        /**
+         * Whether all definitions of the <code>local</code> are evaluated at
+         * the current position in the code.
+         *
+         */
+        private boolean initialized;
+
+        /**
+         * Constructor of Scope.
+         *
+         * @param parent
+         *            The frame this frame is nested in.
+         * @param function
+         *            The function that owns the registers.
+         * @param base
+         *            The register of the first variable.
+         * @param local
+         *            Whether the frame is the frame of a <code>local</code>.
+         */
+        private Scope(final Scope parent, final FunctionContext function, final int base, final boolean local) {
+            this.parent = parent;
+            this.function = function;
+            this.base = base;
+            this.local = local;
+        }
+
+        /**
+         * Checks whether reading a variable of this frame has to check
+         * whether the variable is defined already.
+         *
+         * @return Whether reads have to be checked.
+         */
+        private boolean isChecked() {
+            return this.local && !this.initialized;
+        }
+    }
+}
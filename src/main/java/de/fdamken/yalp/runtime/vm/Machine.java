@@ -0,0 +1,550 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.EvaluationThread;
+import de.fdamken.yalp.runtime.Lists;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.Procedure;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * The interpreter of the register machine: The state of a single run of a
+ * {@link VmProgram}.
+ *
+ * <p>
+ * The interpreter trusts the code, so the code must have been verified (see
+ * {@link Verifier}). Calls of closures of the machine do not recurse into
+ * {@link #execute(VmFunction, Object[])}: The state of the caller (its
+ * function, registers and return address) is pushed on a stack of
+ * {@link CallFrame call frames} on the heap, so the recursion depth is not
+ * limited by the Java stack but by {@link #MAX_DEPTH}. Tail calls of closures
+ * replace the registers of the current function instead, so they do not
+ * consume any space.
+ * </p>
+ *
+ */
+final class Machine {
+    /**
+     * The primitives, indexed by their ordinals.
+     *
+     */
+    private static final Primitive[] PRIMITIVES = Primitive.values();
+    /**
+     * The maximum number of nested calls of a single execution.
+     *
+     */
+    static final int MAX_DEPTH = 1 << 20;
+
+    /**
+     * The constants of the program.
+     *
+     */
+    private final Object[] constants;
+    /**
+     * The functions of the program.
+     *
+     */
+    private final VmFunction[] functions;
+    /**
+     * The values of the top-level definitions.
+     *
+     */
+    private final Object[] globals;
+    /**
+     * The output of <code>print</code> and <code>printf</code>.
+     *
+     */
+    private final Appendable output;
+
+    /**
+     * Constructor of Machine.
+     *
+     * @param constants
+     *            The constants of the program.
+     * @param functions
+     *            The functions of the program.
+     * @param globalCount
+     *            The number of top-level definitions.
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     */
+    Machine(final Object[] constants, final VmFunction[] functions, final int globalCount, final Appendable output) {
+        this.constants = constants;
+        this.functions = functions;
+        this.globals = new Object[globalCount];
+        this.output = output;
+    }
+
+    /**
+     * Executes the given function.
+     *
+     * @param function
+     *            The function.
+     * @param registers
+     *            The registers of the function with the environment and the
+     *            arguments already set.
+     * @return The result of the function.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    Object execute(final VmFunction function, final Object[] registers) throws EvaluationException {
+        final Object[] k = this.constants;
+        VmFunction current = function;
+        int[] code = function.code;
+        Object[] r = registers;
+        int pc = 0;
+        CallFrame caller = null;
+        int depth = 0;
+        while (true) {
+            switch (code[pc]) {
+                case Opcodes.CONST:
+                    r[code[pc + 1]] = k[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Opcodes.MOVE:
+                    r[code[pc + 1]] = r[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Opcodes.CHECK:
+                    r[code[pc + 1]] = Machine.checkDefined(r[code[pc + 2]], k[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.GETENV:
+                    r[code[pc + 1]] = Machine.environment(r, code[pc + 2])[code[pc + 3]];
+                    pc += 4;
+                    break;
+                case Opcodes.GETENVC:
+                    r[code[pc + 1]] = Machine.checkDefined(Machine.environment(r, code[pc + 2])[code[pc + 3]], k[code[pc + 4]]);
+                    pc += 5;
+                    break;
+                case Opcodes.GETGLOBAL:
+                    r[code[pc + 1]] = Machine.checkDefined(this.globals[code[pc + 2]], k[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.SETGLOBAL:
+                    this.globals[code[pc + 1]] = r[code[pc + 2]];
+                    pc += 3;
+                    break;
+                case Opcodes.CLOSURE:
+                    r[code[pc + 1]] = new VmClosure(this, this.functions[code[pc + 2]], r);
+                    pc += 3;
+                    break;
+                case Opcodes.CALL:
+                case Opcodes.CALLGLOBAL: {
+                    final Object callee;
+                    final int args;
+                    final int argc;
+                    final int next;
+                    if (code[pc] == Opcodes.CALL) {
+                        callee = r[code[pc + 2]];
+                        args = code[pc + 3];
+                        argc = code[pc + 4];
+                        next = pc + 5;
+                    } else {
+                        callee = Machine.checkDefined(this.globals[code[pc + 2]], k[code[pc + 3]]);
+                        args = code[pc + 4];
+                        argc = code[pc + 5];
+                        next = pc + 6;
+                    }
+                    if (!(callee instanceof VmClosure) || ((VmClosure) callee).machine != this) {
+                        r[code[pc + 1]] = this.call(callee, r, args, argc);
+                        pc = next;
+                        break;
+                    }
+                    if (depth == Machine.MAX_DEPTH) {
+                        throw new EvaluationException("Maximum recursion depth exceeded!");
+                    }
+                    final VmClosure closure = (VmClosure) callee;
+                    final Object[] arguments = Machine.enter(closure, r, args, argc);
+                    caller = new CallFrame(current, r, next, code[pc + 1], caller);
+                    depth++;
+                    current = closure.function;
+                    code = current.code;
+                    r = arguments;
+                    pc = 0;
+                    break;
+                }
+                case Opcodes.TAILCALL:
+                case Opcodes.TAILCALLGLOBAL: {
+                    final Object callee;
+                    final int args;
+                    final int argc;
+                    if (code[pc] == Opcodes.TAILCALL) {
+                        callee = r[code[pc + 1]];
+                        args = code[pc + 2];
+                        argc = code[pc + 3];
+                    } else {
+                        callee = Machine.checkDefined(this.globals[code[pc + 1]], k[code[pc + 2]]);
+                        args = code[pc + 3];
+                        argc = code[pc + 4];
+                    }
+                    if (!(callee instanceof VmClosure) || ((VmClosure) callee).machine != this) {
+                        final Object value = this.call(callee, r, args, argc);
+                        if (caller == null) {
+                            return value;
+                        }
+                        caller.registers[caller.target] = value;
+                        current = caller.function;
+                        code = current.code;
+                        r = caller.registers;
+                        pc = caller.pc;
+                        caller = caller.caller;
+                        depth--;
+                        break;
+                    }
+                    // Compiled code only loops through tail calls, so an
+                    // interrupted thread stops the evaluation here.
+                    EvaluationThread.checkCancelled();
+                    final VmClosure closure = (VmClosure) callee;
+                    r = Machine.enter(closure, r, args, argc);
+                    current = closure.function;
+                    code = current.code;
+                    pc = 0;
+                    break;
+                }
+                case Opcodes.RETURN: {
+                    final Object value = r[code[pc + 1]];
+                    if (caller == null) {
+                        return value;
+                    }
+                    caller.registers[caller.target] = value;
+                    current = caller.function;
+                    code = current.code;
+                    r = caller.registers;
+                    pc = caller.pc;
+                    caller = caller.caller;
+                    depth--;
+                    break;
+                }
+                case Opcodes.JUMP:
+                    pc = code[pc + 1];
+                    break;
+                case Opcodes.JUMPF:
+                    pc = Values.toBoolean(r[code[pc + 1]], (String) k[code[pc + 3]]) ? pc + 4 : code[pc + 2];
+                    break;
+                case Opcodes.JUMPT:
+                    pc = Values.toBoolean(r[code[pc + 1]], (String) k[code[pc + 3]]) ? code[pc + 2] : pc + 4;
+                    break;
+                case Opcodes.PRIM:
+                    r[code[pc + 1]] = Machine.PRIMITIVES[code[pc + 2]].apply(r, code[pc + 3], code[pc + 4]);
+                    pc += 5;
+                    break;
+                case Opcodes.ADD:
+                    r[code[pc + 1]] = Numbers.add(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.SUB:
+                    r[code[pc + 1]] = Numbers.subtract(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.MUL:
+                    r[code[pc + 1]] = Numbers.multiply(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.DIV:
+                    r[code[pc + 1]] = Numbers.divide(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.ADDK:
+                    r[code[pc + 1]] = Numbers.add(r[code[pc + 2]], k[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.SUBK:
+                    r[code[pc + 1]] = Numbers.subtract(r[code[pc + 2]], k[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.LT:
+                    r[code[pc + 1]] = Boolean.valueOf(Numbers.compare(r[code[pc + 2]], r[code[pc + 3]], "<") < 0);
+                    pc += 4;
+                    break;
+                case Opcodes.LE:
+                    r[code[pc + 1]] = Boolean.valueOf(Numbers.compare(r[code[pc + 2]], r[code[pc + 3]], "<=") <= 0);
+                    pc += 4;
+                    break;
+                case Opcodes.GT:
+                    r[code[pc + 1]] = Boolean.valueOf(Numbers.compare(r[code[pc + 2]], r[code[pc + 3]], ">") > 0);
+                    pc += 4;
+                    break;
+                case Opcodes.GE:
+                    r[code[pc + 1]] = Boolean.valueOf(Numbers.compare(r[code[pc + 2]], r[code[pc + 3]], ">=") >= 0);
+                    pc += 4;
+                    break;
+                case Opcodes.NUMEQ:
+                    r[code[pc + 1]] = Boolean.valueOf(Numbers.compare(r[code[pc + 2]], r[code[pc + 3]], "=") == 0);
+                    pc += 4;
+                    break;
+                case Opcodes.JNLT:
+                    pc = Numbers.compare(r[code[pc + 1]], r[code[pc + 2]], "<") < 0 ? pc + 4 : code[pc + 3];
+                    break;
+                case Opcodes.JNLE:
+                    pc = Numbers.compare(r[code[pc + 1]], r[code[pc + 2]], "<=") <= 0 ? pc + 4 : code[pc + 3];
+                    break;
+                case Opcodes.JNGT:
+                    pc = Numbers.compare(r[code[pc + 1]], r[code[pc + 2]], ">") > 0 ? pc + 4 : code[pc + 3];
+                    break;
+                case Opcodes.JNGE:
+                    pc = Numbers.compare(r[code[pc + 1]], r[code[pc + 2]], ">=") >= 0 ? pc + 4 : code[pc + 3];
+                    break;
+                case Opcodes.JNEQ:
+                    pc = Numbers.compare(r[code[pc + 1]], r[code[pc + 2]], "=") == 0 ? pc + 4 : code[pc + 3];
+                    break;
+                case Opcodes.FIRST:
+                    r[code[pc + 1]] = Lists.first(r[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Opcodes.REST:
+                    r[code[pc + 1]] = Lists.rest(r[code[pc + 2]]);
+                    pc += 3;
+                    break;
+                case Opcodes.EMPTYP:
+                    r[code[pc + 1]] = Boolean.valueOf(r[code[pc + 2]] == Pair.EMPTY);
+                    pc += 3;
+                    break;
+                case Opcodes.JNEMPTY:
+                    pc = r[code[pc + 1]] == Pair.EMPTY ? pc + 3 : code[pc + 2];
+                    break;
+                case Opcodes.JNZERO:
+                    pc = Numbers.isZero(r[code[pc + 1]]) ? pc + 3 : code[pc + 2];
+                    break;
+                case Opcodes.CONS:
+                    r[code[pc + 1]] = Pair.cons(r[code[pc + 2]], r[code[pc + 3]]);
+                    pc += 4;
+                    break;
+                case Opcodes.NOT:
+                    r[code[pc + 1]] = Boolean.valueOf(!Values.toBoolean(r[code[pc + 2]], "not"));
+                    pc += 3;
+                    break;
+                case Opcodes.PRINT:
+                    Values.write(this.output, Values.toPrintString(r[code[pc + 2]]));
+                    r[code[pc + 1]] = Values.VOID;
+                    pc += 3;
+                    break;
+                case Opcodes.PRINTF:
+                    Values.write(this.output,
+                            Values.format((String) k[code[pc + 2]], Machine.copy(r, code[pc + 3], code[pc + 4])));
+                    r[code[pc + 1]] = Values.VOID;
+                    pc += 5;
+                    break;
+                case Opcodes.MAKESTRUCT:
+                    r[code[pc + 1]] = ((StructType) k[code[pc + 2]]).create(Machine.copy(r, code[pc + 3], code[pc + 4]));
+                    pc += 5;
+                    break;
+                case Opcodes.GETATTR:
+                    r[code[pc + 1]] = ((StructType) k[code[pc + 2]]).get(r[code[pc + 4]], code[pc + 3]);
+                    pc += 5;
+                    break;
+                case Opcodes.STRUCTP:
+                    r[code[pc + 1]] = Boolean.valueOf(((StructType) k[code[pc + 2]]).isInstance(r[code[pc + 3]]));
+                    pc += 4;
+                    break;
+                case Opcodes.CONDFAIL:
+                    throw new EvaluationException("cond: all question results were false!");
+                default:
+                    throw new IllegalStateException(current.name + ": invalid opcode " + code[pc] + " at " + pc + "!");
+            }
+        }
+    }
+
+    /**
+     * Calls the given function.
+     *
+     * @param function
+     *            The function.
+     * @param registers
+     *            The registers of the calling function.
+     * @param args
+     *            The register of the first argument.
+     * @param argc
+     *            The number of arguments.
+     * @return The result of the function.
+     * @throws EvaluationException
+     *             If the value is not a function or an error occurs while the
+     *             function is evaluated.
+     */
+    private Object call(final Object function, final Object[] registers, final int args, final int argc)
+            throws EvaluationException {
+        if (function instanceof VmClosure) {
+            final VmClosure closure = (VmClosure) function;
+            return closure.machine.execute(closure.function, Machine.enter(closure, registers, args, argc));
+        } else if (function instanceof Procedure) {
+            return ((Procedure) function).apply(Machine.copy(registers, args, argc));
+        }
+        throw new EvaluationException(
+                "Expected a function after the open parenthesis, but received " + Values.toPrintString(function) + "!");
+    }
+
+    /**
+     * Creates the registers of a call of the given closure.
+     *
+     * @param closure
+     *            The closure.
+     * @param registers
+     *            The registers of the calling function.
+     * @param args
+     *            The register of the first argument.
+     * @param argc
+     *            The number of arguments.
+     * @return The registers of the called function with the environment and
+     *         the arguments set.
+     * @throws EvaluationException
+     *             If the number of arguments does not match.
+     */
+    private static Object[] enter(final VmClosure closure, final Object[] registers, final int args, final int argc)
+            throws EvaluationException {
+        Machine.checkArity(closure.function, argc);
+        final Object[] next = new Object[closure.function.registerCount];
+        next[0] = closure.environment;
+        System.arraycopy(registers, args, next, 1, argc);
+        return next;
+    }
+
+    /**
+     * Checks whether the given function accepts the given number of
+     * arguments.
+     *
+     * @param function
+     *            The function.
+     * @param count
+     *            The number of arguments.
+     * @throws EvaluationException
+     *             If the number of arguments does not match.
+     */
+    static void checkArity(final VmFunction function, final int count) throws EvaluationException {
+        if (count != function.arity) {
+            throw new EvaluationException(
+                    function.name + ": expects " + function.arity + " argument(s), but received " + count + "!");
+        }
+    }
+
+    /**
+     * Checks whether the given variable is defined already.
+     *
+     * @param value
+     *            The value of the variable.
+     * @param name
+     *            The name of the variable.
+     * @return The value.
+     * @throws EvaluationException
+     *             If the variable is not defined yet.
+     */
+    private static Object checkDefined(final Object value, final Object name) throws EvaluationException {
+        if (value == null) {
+            throw new EvaluationException(name + " is used here before its definition!");
+        }
+        return value;
+    }
+
+    /**
+     * Follows the environments of the given registers.
+     *
+     * @param registers
+     *            The registers.
+     * @param hops
+     *            The number of environments to follow (at least one).
+     * @return The registers of the enclosing function.
+     */
+    private static Object[] environment(final Object[] registers, final int hops) {
+        Object[] environment = (Object[]) registers[0];
+        for (int i = 1; i < hops; i++) {
+            environment = (Object[]) environment[0];
+        }
+        return environment;
+    }
+
+    /**
+     * Copies consecutive registers into a new array.
+     *
+     * @param registers
+     *            The registers.
+     * @param start
+     *            The first register to copy.
+     * @param count
+     *            The number of registers to copy.
+     * @return The copy.
+     */
+    private static Object[] copy(final Object[] registers, final int start, final int count) {
+        final Object[] copy = new Object[count];
+        System.arraycopy(registers, start, copy, 0, count);
+        return copy;
+    }
+
+    /**
+     * The state of a function that called another function and waits for its
+     * result.
+     *
+     */
+    private static final class CallFrame {
+        /**
+         * The calling function.
+         *
+         */
+        final VmFunction function;
+        /**
+         * The registers of the calling function.
+         *
+         */
+        final Object[] registers;
+        /**
+         * The address of the instruction after the call.
+         *
+         */
+        final int pc;
+        /**
+         * The register that receives the result of the call.
+         *
+         */
+        final int target;
+        /**
+         * The frame of the function that called the calling function or
+         * <code>null</code> if the calling function is the function the
+         * execution started with.
+         *
+         */
+        final CallFrame caller;
+
+        /**
+         * Constructor of CallFrame.
+         *
+         * @param function
+         *            The calling function.
+         * @param registers
+         *            The registers of the calling function.
+         * @param pc
+         *            The address of the instruction after the call.
+         * @param target
+         *            The register that receives the result of the call.
+         * @param caller
+         *            The frame of the function that called the calling
+         *            function or <code>null</code>.
+         */
+        CallFrame(final VmFunction function, final Object[] registers, final int pc, final int target,
+                final CallFrame caller) {
+            this.function = function;
+            this.registers = registers;
+            this.pc = pc;
+            this.target = target;
+            this.caller = caller;
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The instruction set of the register machine (see {@link VmCompiler}).
+ *
+ * <p>
+ * The code of a function is an array of integers. Every instruction starts
+ * with its opcode, followed by its operands. The kinds of the operands of an
+ * instruction are described by a string containing one character per operand
+ * (see {@link #getOperands(int)}):
+ * <ul>
+ * <li>{@link #REGISTER}: The index of a register of the current function.</li>
+ * <li>{@link #CONSTANT}: The index of a constant of the program.</li>
+ * <li>{@link #INTEGER}: An integer that is used as-is (e.g. a count).</li>
+ * <li>{@link #LABEL}: The offset of the instruction to jump to.</li>
+ * <li>{@link #FUNCTION}: The index of a function of the program.</li>
+ * <li>{@link #PRIMITIVE}: The {@link Primitive#ordinal() ordinal} of a
+ * primitive.</li>
+ * </ul>
+ * Arguments are passed in consecutive registers: An operand
+ * <code>args</code> followed by a count <code>argc</code> denotes the
+ * registers <code>args</code> to <code>args + argc - 1</code>.
+ * </p>
+ *
+ * <p>
+ * Register <code>0</code> of a function holds the registers of the function
+ * that created the closure (the environment), the parameters follow starting
+ * at register <code>1</code>.
+ * </p>
+ *
+ */
+final class Opcodes {
+    /**
+     * The operand kind of a register.
+     *
+     */
+    static final char REGISTER = 'r';
+    /**
+     * The operand kind of a constant.
+     *
+     */
+    static final char CONSTANT = 'k';
+    /**
+     * The operand kind of a plain integer.
+     *
+     */
+    static final char INTEGER = 'i';
+    /**
+     * The operand kind of a jump target.
+     *
+     */
+    static final char LABEL = '@';
+    /**
+     * The operand kind of a function.
+     *
+     */
+    static final char FUNCTION = 'f';
+    /**
+     * The operand kind of a primitive.
+     *
+     */
+    static final char PRIMITIVE = 'p';
+
+    /**
+     * <code>const dst k</code>: Loads a constant.
+     *
+     */
+    static final int CONST = 0;
+    /**
+     * <code>move dst src</code>: Copies a register.
+     *
+     */
+    static final int MOVE = 1;
+    /**
+     * <code>check dst src name</code>: Copies a register that holds a
+     * variable of a <code>local</code> after checking that the variable is
+     * defined already.
+     *
+     */
+    static final int CHECK = 2;
+    /**
+     * <code>getenv dst hops index</code>: Loads a register of an enclosing
+     * function by following <code>hops</code> environments.
+     *
+     */
+    static final int GETENV = 3;
+    /**
+     * <code>getenvc dst hops index name</code>: Like {@link #GETENV}, but
+     * checks that the variable is defined already.
+     *
+     */
+    static final int GETENVC = 4;
+    /**
+     * <code>getglobal dst slot name</code>: Loads a top-level definition and
+     * checks that it is defined already.
+     *
+     */
+    static final int GETGLOBAL = 5;
+    /**
+     * <code>setglobal slot src</code>: Stores a top-level definition.
+     *
+     */
+    static final int SETGLOBAL = 6;
+    /**
+     * <code>closure dst function</code>: Creates a closure of a function
+     * that captures the registers of the current function.
+     *
+     */
+    static final int CLOSURE = 7;
+    /**
+     * <code>call dst function args argc</code>: Calls the function stored in
+     * a register.
+     *
+     */
+    static final int CALL = 8;
+    /**
+     * <code>callglobal dst slot name args argc</code>: Calls a top-level
+     * definition.
+     *
+     */
+    static final int CALLGLOBAL = 9;
+    /**
+     * <code>tailcall function args argc</code>: Calls the function stored in
+     * a register and returns its value. The registers of the current
+     * function are released before the call.
+     *
+     */
+    static final int TAILCALL = 10;
+    /**
+     * <code>tailcallglobal slot name args argc</code>: Like
+     * {@link #TAILCALL}, but calls a top-level definition.
+     *
+     */
+    static final int TAILCALLGLOBAL = 11;
+    /**
+     * <code>return src</code>: Returns a register.
+     *
+     */
+    static final int RETURN = 12;
+    /**
+     * <code>jump target</code>: Jumps unconditionally.
+     *
+     */
+    static final int JUMP = 13;
+    /**
+     * <code>jumpf src target name</code>: Jumps if the register holds
+     * <code>false</code>. Fails if it does not hold a boolean.
+     *
+     */
+    static final int JUMPF = 14;
+    /**
+     * <code>jumpt src target name</code>: Jumps if the register holds
+     * <code>true</code>. Fails if it does not hold a boolean.
+     *
+     */
+    static final int JUMPT = 15;
+    /**
+     * <code>prim dst primitive args argc</code>: Applies a primitive.
+     *
+     */
+    static final int PRIM = 16;
+    /**
+     * <code>add dst a b</code>: Adds two numbers.
+     *
+     */
+    static final int ADD = 17;
+    /**
+     * <code>sub dst a b</code>: Subtracts two numbers.
+     *
+     */
+    static final int SUB = 18;
+    /**
+     * <code>mul dst a b</code>: Multiplies two numbers.
+     *
+     */
+    static final int MUL = 19;
+    /**
+     * <code>div dst a b</code>: Divides two numbers.
+     *
+     */
+    static final int DIV = 20;
+    /**
+     * <code>addk dst a k</code>: Adds a constant to a number.
+     *
+     */
+    static final int ADDK = 21;
+    /**
+     * <code>subk dst a k</code>: Subtracts a constant from a number.
+     *
+     */
+    static final int SUBK = 22;
+    /**
+     * <code>lt dst a b</code>: Whether <code>a &lt; b</code>.
+     *
+     */
+    static final int LT = 23;
+    /**
+     * <code>le dst a b</code>: Whether <code>a &lt;= b</code>.
+     *
+     */
+    static final int LE = 24;
+    /**
+     * <code>gt dst a b</code>: Whether <code>a &gt; b</code>.
+     *
+     */
+    static final int GT = 25;
+    /**
+     * <code>ge dst a b</code>: Whether <code>a &gt;= b</code>.
+     *
+     */
+    static final int GE = 26;
+    /**
+     * <code>numeq dst a b</code>: Whether <code>a = b</code>.
+     *
+     */
+    static final int NUMEQ = 27;
+    /**
+     * <code>jnlt a b target</code>: Jumps unless <code>a &lt; b</code>.
+     *
+     */
+    static final int JNLT = 28;
+    /**
+     * <code>jnle a b target</code>: Jumps unless <code>a &lt;= b</code>.
+     *
+     */
+    static final int JNLE = 29;
+    /**
+     * <code>jngt a b target</code>: Jumps unless <code>a &gt; b</code>.
+     *
+     */
+    static final int JNGT = 30;
+    /**
+     * <code>jnge a b target</code>: Jumps unless <code>a &gt;= b</code>.
+     *
+     */
+    static final int JNGE = 31;
+    /**
+     * <code>jneq a b target</code>: Jumps unless <code>a = b</code>.
+     *
+     */
+    static final int JNEQ = 32;
+    /**
+     * <code>first dst src</code>: The first element of a list.
+     *
+     */
+    static final int FIRST = 33;
+    /**
+     * <code>rest dst src</code>: A list without its first element.
+     *
+     */
+    static final int REST = 34;
+    /**
+     * <code>emptyp dst src</code>: Whether a value is the empty list.
+     *
+     */
+    static final int EMPTYP = 35;
+    /**
+     * <code>jnempty src target</code>: Jumps unless a value is the empty
+     * list.
+     *
+     */
+    static final int JNEMPTY = 36;
+    /**
+     * <code>jnzero src target</code>: Jumps unless a value is zero.
+     *
+     */
+    static final int JNZERO = 37;
+    /**
+     * <code>cons dst first rest</code>: Prepends an element to a list.
+     *
+     */
+    static final int CONS = 38;
+    /**
+     * <code>not dst src</code>: Negates a boolean.
+     *
+     */
+    static final int NOT = 39;
+    /**
+     * <code>print dst src</code>: Prints a value.
+     *
+     */
+    static final int PRINT = 40;
+    /**
+     * <code>printf dst format args argc</code>: Prints formatted values.
+     *
+     */
+    static final int PRINTF = 41;
+    /**
+     * <code>makestruct dst type args argc</code>: Creates an instance of a
+     * structure.
+     *
+     */
+    static final int MAKESTRUCT = 42;
+    /**
+     * <code>getattr dst type index src</code>: Reads an attribute of an
+     * instance of a structure.
+     *
+     */
+    static final int GETATTR = 43;
+    /**
+     * <code>structp dst type src</code>: Whether a value is an instance of a
+     * structure.
+     *
+     */
+    static final int STRUCTP = 44;
+    /**
+     * <code>condfail</code>: Fails because no case of a <code>cond</code>
+     * matched.
+     *
+     */
+    static final int CONDFAIL = 45;
+
+    /**
+     * The names of the instructions, indexed by their opcodes.
+     *
+     */
+    private static final String[] NAMES = { "const", "move", "check", "getenv", "getenvc", "getglobal", "setglobal",
+            "closure", "call", "callglobal", "tailcall", "tailcallglobal", "return", "jump", "jumpf", "jumpt", "prim",
+            "add", "sub", "mul", "div", "addk", "subk", "lt", "le", "gt", "ge", "numeq", "jnlt", "jnle", "jngt", "jnge",
+            "jneq", "first", "rest", "emptyp", "jnempty", "jnzero", "cons", "not", "print", "printf", "makestruct",
+            "getattr", "structp", "condfail" };
+    /**
+     * The kinds of the operands of the instructions, indexed by their
+     * opcodes.
+     *
+     */
+    private static final String[] OPERANDS = { "rk", "rr", "rrk", "rii", "riik", "rik", "ir", "rf", "rrri", "rikri",
+            "rri", "ikri", "r", "@", "r@k", "r@k", "rpri", "rrr", "rrr", "rrr", "rrr", "rrk", "rrk", "rrr", "rrr", "rrr",
+            "rrr", "rrr", "rr@", "rr@", "rr@", "rr@", "rr@", "rr", "rr", "rr", "r@", "r@", "rrr", "rr", "rr", "rkri",
+            "rkri", "rkir", "rkr", "" };
+    /**
+     * The opcodes, indexed by the names of the instructions.
+     *
+     */
+    private static final Map<String, Integer> OPCODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < Opcodes.NAMES.length; i++) {
+            Opcodes.OPCODES.put(Opcodes.NAMES[i], i);
+        }
+    }
+
+    /**
+     * Constructor of Opcodes.
+     *
+     */
+    private Opcodes() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks whether the given integer is a valid opcode.
+     *
+     * @param opcode
+     *            The integer.
+     * @return Whether the integer is an opcode.
+     */
+    static boolean isValid(final int opcode) {
+        return opcode >= 0 && opcode < Opcodes.NAMES.length;
+    }
+
+    /**
+     * Retrieves the name of the instruction with the given opcode.
+     *
+     * @param opcode
+     *            The opcode.
+     * @return The name.
+     */
+    static String getName(final int opcode) {
+        return Opcodes.NAMES[opcode];
+    }
+
+    /**
+     * Retrieves the kinds of the operands of the instruction with the given
+     * opcode.
+     *
+     * @param opcode
+     *            The opcode.
+     * @return The kinds of the operands, one character per operand.
+     */
+    static String getOperands(final int opcode) {
+        return Opcodes.OPERANDS[opcode];
+    }
+
+    /**
+     * Retrieves the opcode of the instruction with the given name.
+     *
+     * @param name
+     *            The name.
+     * @return The opcode or <code>-1</code> if there is no such instruction.
+     */
+    static int forName(final String name) {
+        final Integer opcode = Opcodes.OPCODES.get(name);
+        return opcode == null ? -1 : opcode;
+    }
+
+    /**
+     * Checks whether the instruction with the given opcode never continues
+     * with the next instruction.
+     *
+     * @param opcode
+     *            The opcode.
+     * @return Whether the instruction ends a basic block unconditionally.
+     */
+    static boolean isTerminal(final int opcode) {
+        return opcode == Opcodes.RETURN || opcode == Opcodes.JUMP || opcode == Opcodes.TAILCALL
+                || opcode == Opcodes.TAILCALLGLOBAL || opcode == Opcodes.CONDFAIL;
+    }
+
+    /**
+     * Checks whether the instruction with the given opcode writes its first
+     * operand (a register).
+     *
+     * @param opcode
+     *            The opcode.
+     * @return Whether the instruction has a destination register.
+     */
+    static boolean writesRegister(final int opcode) {
+        return Opcodes.getOperands(opcode).startsWith(String.valueOf(Opcodes.REGISTER)) && opcode != Opcodes.TAILCALL
+                && opcode != Opcodes.RETURN && !Opcodes.isJump(opcode);
+    }
+
+    /**
+     * Checks whether the last two operands of the instruction with the given
+     * opcode are the register of the first argument and the number of
+     * arguments.
+     *
+     * @param opcode
+     *            The opcode.
+     * @return Whether the instruction passes arguments.
+     */
+    static boolean hasArguments(final int opcode) {
+        return opcode == Opcodes.CALL || opcode == Opcodes.CALLGLOBAL || opcode == Opcodes.TAILCALL
+                || opcode == Opcodes.TAILCALLGLOBAL || opcode == Opcodes.PRIM || opcode == Opcodes.PRINTF
+                || opcode == Opcodes.MAKESTRUCT;
+    }
+
+    /**
+     * Checks whether the instruction with the given opcode is a jump.
+     *
+     * @param opcode
+     *            The opcode.
+     * @return Whether the instruction has a jump target.
+     */
+    static boolean isJump(final int opcode) {
+        return Opcodes.getOperands(opcode).indexOf(Opcodes.LABEL) >= 0;
+    }
+}
@@ -0,0 +1,553 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Lists;
+import de.fdamken.yalp.runtime.Numbers;
+import de.fdamken.yalp.runtime.Pair;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+/**
+ * The built-in functions that do not have an instruction of their own (see
+ * {@link Opcodes#PRIM}). The arguments of a primitive are passed in
+ * consecutive registers.
+ *
+ */
+enum Primitive {
+    /**
+     * <code>+</code> with any number of operands but two.
+     *
+     */
+    ADD("+", 0, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.ADD.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>-</code> with any number of operands but two.
+     *
+     */
+    SUBTRACT("-", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.SUBTRACT.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>*</code> with any number of operands but two.
+     *
+     */
+    MULTIPLY("*", 0, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.MULTIPLY.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>/</code> with any number of operands but two.
+     *
+     */
+    DIVIDE("/", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.DIVIDE.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>max</code>.
+     *
+     */
+    MAX("max", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.MAX.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>min</code>.
+     *
+     */
+    MIN("min", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.MIN.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>&lt;</code> with any number of operands but two.
+     *
+     */
+    LESS("<", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.LESS.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>&lt;=</code> with any number of operands but two.
+     *
+     */
+    LESS_OR_EQUAL("<=", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.LESS_OR_EQUAL.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>&gt;</code> with any number of operands but two.
+     *
+     */
+    GREATER(">", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.GREATER.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>&gt;=</code> with any number of operands but two.
+     *
+     */
+    GREATER_OR_EQUAL(">=", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.GREATER_OR_EQUAL.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>=</code> with any number of operands but two.
+     *
+     */
+    NUMBER_EQUAL("=", 1, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.NUMBER_EQUAL.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>abs</code>.
+     *
+     */
+    ABS("abs", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.abs(registers[start]);
+        }
+    },
+    /**
+     * <code>floor</code>.
+     *
+     */
+    FLOOR("floor", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.floor(registers[start]);
+        }
+    },
+    /**
+     * <code>sqr</code>.
+     *
+     */
+    SQR("sqr", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.multiply(registers[start], registers[start]);
+        }
+    },
+    /**
+     * <code>sqrt</code>.
+     *
+     */
+    SQRT("sqrt", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.sqrt(registers[start]);
+        }
+    },
+    /**
+     * <code>expt</code>.
+     *
+     */
+    EXPT("expt", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.expt(registers[start], registers[start + 1]);
+        }
+    },
+    /**
+     * <code>gcd</code>.
+     *
+     */
+    GCD("gcd", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.gcd(registers[start], registers[start + 1]);
+        }
+    },
+    /**
+     * <code>remainder</code>.
+     *
+     */
+    REMAINDER("remainder", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Numbers.remainder(registers[start], registers[start + 1]);
+        }
+    },
+    /**
+     * <code>append</code>.
+     *
+     */
+    APPEND("append", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.append(registers[start], registers[start + 1]);
+        }
+    },
+    /**
+     * <code>second</code>.
+     *
+     */
+    SECOND("second", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 1);
+        }
+    },
+    /**
+     * <code>third</code>.
+     *
+     */
+    THIRD("third", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 2);
+        }
+    },
+    /**
+     * <code>fourth</code>.
+     *
+     */
+    FOURTH("fourth", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 3);
+        }
+    },
+    /**
+     * <code>fifth</code>.
+     *
+     */
+    FIFTH("fifth", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 4);
+        }
+    },
+    /**
+     * <code>sixth</code>.
+     *
+     */
+    SIXTH("sixth", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 5);
+        }
+    },
+    /**
+     * <code>seventh</code>.
+     *
+     */
+    SEVENTH("seventh", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 6);
+        }
+    },
+    /**
+     * <code>eighth</code>.
+     *
+     */
+    EIGHTH("eighth", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.nth(registers[start], 7);
+        }
+    },
+    /**
+     * <code>length</code>.
+     *
+     */
+    LENGTH("length", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Long.valueOf(Lists.length(registers[start]));
+        }
+    },
+    /**
+     * <code>list</code>.
+     *
+     */
+    LIST("list", 0, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Builtin.LIST.apply(registers, start, count);
+        }
+    },
+    /**
+     * <code>map</code>: The function followed by the lists.
+     *
+     */
+    MAP("map", 2, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.map(Values.toProcedure(registers[start], this.getName()),
+                    Primitive.copy(registers, start + 1, count - 1));
+        }
+    },
+    /**
+     * <code>foldl</code>: The function, the initial value and the lists.
+     *
+     */
+    FOLDL("foldl", 3, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.foldl(Values.toProcedure(registers[start], this.getName()), registers[start + 1],
+                    Primitive.copy(registers, start + 2, count - 2));
+        }
+    },
+    /**
+     * <code>foldr</code>: The function, the initial value and the lists.
+     *
+     */
+    FOLDR("foldr", 3, -1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.foldr(Values.toProcedure(registers[start], this.getName()), registers[start + 1],
+                    Primitive.copy(registers, start + 2, count - 2));
+        }
+    },
+    /**
+     * <code>filter</code>: The function followed by the list.
+     *
+     */
+    FILTER("filter", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Lists.filter(Values.toProcedure(registers[start], this.getName()), registers[start + 1]);
+        }
+    },
+    /**
+     * <code>boolean?</code>.
+     *
+     */
+    BOOLEAN_PREDICATE("boolean?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) {
+            return Boolean.valueOf(registers[start] instanceof Boolean);
+        }
+    },
+    /**
+     * <code>number?</code>.
+     *
+     */
+    NUMBER_PREDICATE("number?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) {
+            return Boolean.valueOf(Numbers.isNumber(registers[start]));
+        }
+    },
+    /**
+     * <code>symbol?</code>.
+     *
+     */
+    SYMBOL_PREDICATE("symbol?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) {
+            return Boolean.valueOf(registers[start] instanceof Symbol);
+        }
+    },
+    /**
+     * <code>list?</code>.
+     *
+     */
+    LIST_PREDICATE("list?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) {
+            return Boolean.valueOf(registers[start] instanceof Pair);
+        }
+    },
+    /**
+     * <code>zero?</code>.
+     *
+     */
+    ZERO_PREDICATE("zero?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Boolean.valueOf(Numbers.isZero(registers[start]));
+        }
+    },
+    /**
+     * <code>even?</code>.
+     *
+     */
+    EVEN_PREDICATE("even?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Boolean.valueOf(Numbers.isEven(registers[start]));
+        }
+    },
+    /**
+     * <code>odd?</code>.
+     *
+     */
+    ODD_PREDICATE("odd?", 1, 1) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) throws EvaluationException {
+            return Boolean.valueOf(Numbers.isOdd(registers[start]));
+        }
+    },
+    /**
+     * <code>eq?</code>.
+     *
+     */
+    EQ_PREDICATE("eq?", 2, 2) {
+        @Override
+        Object apply(final Object[] registers, final int start, final int count) {
+            return Boolean.valueOf(Values.isEq(registers[start], registers[start + 1]));
+        }
+    };
+
+    /**
+     * The primitives, indexed by their names.
+     *
+     */
+    private static final Map<String, Primitive> PRIMITIVES = new HashMap<>();
+
+    static {
+        for (final Primitive primitive : Primitive.values()) {
+            Primitive.PRIMITIVES.put(primitive.name, primitive);
+        }
+    }
+
+    /**
+     * The name of the function.
+     *
+     */
+    private final String name;
+    /**
+     * The minimum number of arguments.
+     *
+     */
+    private final int minArity;
+    /**
+     * The maximum number of arguments or <code>-1</code> if the number is not
+     * limited.
+     *
+     */
+    private final int maxArity;
+
+    /**
+     * Constructor of Primitive.
+     *
+     * @param name
+     *            The name of the function.
+     * @param minArity
+     *            The minimum number of arguments.
+     * @param maxArity
+     *            The maximum number of arguments or <code>-1</code> if the
+     *            number is not limited.
+     */
+    Primitive(final String name, final int minArity, final int maxArity) {
+        this.name = name;
+        this.minArity = minArity;
+        this.maxArity = maxArity;
+    }
+
+    /**
+     * Applies this primitive.
+     *
+     * @param registers
+     *            The registers of the calling function.
+     * @param start
+     *            The register of the first argument.
+     * @param count
+     *            The number of arguments.
+     * @return The result.
+     * @throws EvaluationException
+     *             If the arguments are invalid.
+     */
+    abstract Object apply(final Object[] registers, final int start, final int count) throws EvaluationException;
+
+    /**
+     * Retrieves the name of the function.
+     *
+     * @return The name of the function.
+     */
+    String getName() {
+        return this.name;
+    }
+
+    /**
+     * Checks whether this primitive accepts the given number of arguments.
+     *
+     * @param count
+     *            The number of arguments.
+     * @return Whether the number of arguments is valid.
+     */
+    boolean accepts(final int count) {
+        return count >= this.minArity && (this.maxArity < 0 || count <= this.maxArity);
+    }
+
+    /**
+     * Retrieves the primitive with the given name.
+     *
+     * @param name
+     *            The name of the function.
+     * @return The primitive or <code>null</code> if there is no such
+     *         primitive.
+     */
+    static Primitive forName(final String name) {
+        return Primitive.PRIMITIVES.get(name);
+    }
+
+    /**
+     * Copies consecutive registers into a new array.
+     *
+     * @param registers
+     *            The registers.
+     * @param start
+     *            The first register to copy.
+     * @param count
+     *            The number of registers to copy.
+     * @return The copy.
+     */
+    private static Object[] copy(final Object[] registers, final int start, final int count) {
+        final Object[] copy = new Object[count];
+        System.arraycopy(registers, start, copy, 0, count);
+        return copy;
+    }
+}
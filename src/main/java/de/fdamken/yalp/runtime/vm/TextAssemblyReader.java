@@ -0,0 +1,468 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+
+/**
+ * Reads programs of the register machine in the textual assembly format (see
+ * {@link TextAssemblyWriter}). The code is verified before it is returned, so
+ * an edited file cannot break the interpreter.
+ *
+ */
+public class TextAssemblyReader implements Closeable {
+    /**
+     * The marker that precedes quoted tokens.
+     *
+     */
+    private static final char QUOTED = '"';
+
+    /**
+     * The reader to read from.
+     *
+     */
+    private final BufferedReader in;
+    /**
+     * The number of the current line.
+     *
+     */
+    private int lineNumber;
+
+    /**
+     * Constructor of TextAssemblyReader.
+     *
+     * @param in
+     *            The reader to read from.
+     */
+    public TextAssemblyReader(final Reader in) {
+        this.in = new BufferedReader(in);
+    }
+
+    /**
+     * Reads a program.
+     *
+     * @return The program.
+     * @throws IOException
+     *             If an I/O error occurs or the program is invalid.
+     */
+    public VmProgram read() throws IOException {
+        List<String> tokens = this.nextLine();
+        if (tokens == null || tokens.size() != 2 || !".assembly".equals(tokens.get(0))) {
+            throw this.error("Expected .assembly");
+        } else if (this.parseInt(tokens.get(1)) != AssemblyFormat.VERSION) {
+            throw this.error("Unsupported assembly version " + tokens.get(1));
+        }
+
+        int globalCount = 0;
+        final List<Object> constants = new ArrayList<>();
+        final List<VmFunction> functions = new ArrayList<>();
+        final List<Integer> forms = new ArrayList<>();
+        final List<Boolean> results = new ArrayList<>();
+        while ((tokens = this.nextLine()) != null) {
+            switch (tokens.get(0)) {
+                case ".globals":
+                    this.checkTokenCount(tokens, 2);
+                    globalCount = this.parseInt(tokens.get(1));
+                    break;
+                case ".constant":
+                    this.checkIndex(tokens, constants.size());
+                    constants.add(this.parseConstant(tokens));
+                    break;
+                case ".function":
+                    this.checkTokenCount(tokens, 5);
+                    this.checkIndex(tokens, functions.size());
+                    functions.add(new VmFunction(this.parseString(tokens.get(2)), this.parseInt(tokens.get(3)),
+                            this.parseInt(tokens.get(4)), this.parseCode()));
+                    break;
+                case ".form":
+                    this.checkTokenCount(tokens, 3);
+                    forms.add(this.parseInt(tokens.get(1)));
+                    if (!"result".equals(tokens.get(2)) && !"definition".equals(tokens.get(2))) {
+                        throw this.error("Expected result or definition");
+                    }
+                    results.add("result".equals(tokens.get(2)));
+                    break;
+                default:
+                    throw this.error("Unknown directive " + tokens.get(0));
+            }
+        }
+
+        final int[] formIndices = new int[forms.size()];
+        final boolean[] formResults = new boolean[forms.size()];
+        for (int i = 0; i < formIndices.length; i++) {
+            formIndices[i] = forms.get(i);
+            formResults[i] = results.get(i);
+        }
+        try {
+            return new VmProgram(constants.toArray(), functions.toArray(new VmFunction[functions.size()]), formIndices,
+                    formResults, globalCount);
+        } catch (final IllegalArgumentException cause) {
+            throw new IOException("Invalid program: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.in.close();
+    }
+
+    /**
+     * Parses the instructions of a function up to <code>.end</code>.
+     *
+     * @return The code.
+     * @throws IOException
+     *             If an I/O error occurs or an instruction is invalid.
+     */
+    private int[] parseCode() throws IOException {
+        int[] code = new int[16];
+        int size = 0;
+        List<String> tokens;
+        while ((tokens = this.nextLine()) != null && !".end".equals(tokens.get(0))) {
+            int index = 0;
+            final String first = tokens.get(0);
+            if (first.endsWith(":")) {
+                if (this.parseInt(first.substring(0, first.length() - 1)) != size) {
+                    throw this.error("The offset " + first + " does not match the actual offset " + size);
+                }
+                index++;
+            }
+            if (index >= tokens.size()) {
+                throw this.error("Expected an instruction");
+            }
+
+            final int opcode = Opcodes.forName(tokens.get(index));
+            if (opcode < 0) {
+                throw this.error("Unknown instruction " + tokens.get(index));
+            }
+            final String operands = Opcodes.getOperands(opcode);
+            if (tokens.size() - index - 1 != operands.length()) {
+                throw this.error("Expected " + operands.length() + " operand(s)");
+            }
+            if (size + operands.length() + 1 > code.length) {
+                code = Arrays.copyOf(code, code.length * 2 + operands.length() + 1);
+            }
+            code[size++] = opcode;
+            for (int i = 0; i < operands.length(); i++) {
+                code[size++] = this.parseOperand(operands.charAt(i), tokens.get(index + 1 + i));
+            }
+        }
+        if (tokens == null) {
+            throw this.error("Expected .end");
+        }
+        return Arrays.copyOf(code, size);
+    }
+
+    /**
+     * Parses an operand.
+     *
+     * @param kind
+     *            The kind of the operand.
+     * @param token
+     *            The operand.
+     * @return The value of the operand.
+     * @throws IOException
+     *             If the operand is invalid.
+     */
+    private int parseOperand(final char kind, final String token) throws IOException {
+        if (kind == Opcodes.PRIMITIVE) {
+            final Primitive primitive = Primitive.forName(token);
+            if (primitive == null) {
+                throw this.error("Unknown primitive " + token);
+            }
+            return primitive.ordinal();
+        } else if (kind == Opcodes.INTEGER) {
+            return this.parseInt(token);
+        } else if (token.isEmpty() || token.charAt(0) != kind) {
+            throw this.error("Expected an operand starting with " + kind + ", but found " + token);
+        }
+        return this.parseInt(token.substring(1));
+    }
+
+    /**
+     * Parses a constant.
+     *
+     * @param tokens
+     *            The tokens of the <code>.constant</code> directive.
+     * @return The constant.
+     * @throws IOException
+     *             If the constant is invalid.
+     */
+    private Object parseConstant(final List<String> tokens) throws IOException {
+        if (tokens.size() < 3) {
+            throw this.error("Expected the kind of the constant");
+        }
+        final int kind = AssemblyFormat.forConstantName(tokens.get(2));
+        if (kind < 0) {
+            throw this.error("Unknown constant kind " + tokens.get(2));
+        }
+
+        final Object singleton = AssemblyFormat.getSingleton(kind);
+        if (singleton != null) {
+            this.checkTokenCount(tokens, 3);
+            return singleton;
+        } else if (kind == AssemblyFormat.CONSTANT_STRUCT) {
+            if (tokens.size() < 4) {
+                throw this.error("Expected the name of the structure");
+            }
+            final String[] attributes = new String[tokens.size() - 4];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = this.parseString(tokens.get(i + 4));
+            }
+            return new StructType(this.parseString(tokens.get(3)), attributes);
+        }
+
+        this.checkTokenCount(tokens, 4);
+        final String value = tokens.get(3);
+        try {
+            switch (kind) {
+                case AssemblyFormat.CONSTANT_INTEGER:
+                    return Long.valueOf(value);
+                case AssemblyFormat.CONSTANT_BIG_INTEGER:
+                    return new BigInteger(value);
+                case AssemblyFormat.CONSTANT_FRACTION: {
+                    final int slash = value.indexOf('/');
+                    if (slash < 0) {
+                        throw this.error("Expected a fraction");
+                    }
+                    return Fraction.of(new BigInteger(value.substring(0, slash)), new BigInteger(value.substring(slash + 1)));
+                }
+                case AssemblyFormat.CONSTANT_REAL:
+                    return Double.valueOf(value);
+                case AssemblyFormat.CONSTANT_STRING:
+                    return this.parseString(value);
+                case AssemblyFormat.CONSTANT_SYMBOL:
+                    return Symbol.of(this.parseString(value));
+                case AssemblyFormat.CONSTANT_BUILTIN:
+                    return Builtin.forName(this.parseString(value));
+                default:
+                    return Character.valueOf((char) this.parseInt(value));
+            }
+        } catch (final IllegalArgumentException | EvaluationException cause) {
+            throw this.error("Invalid constant " + value);
+        }
+    }
+
+    /**
+     * Checks the index of a <code>.constant</code> or a
+     * <code>.function</code> directive.
+     *
+     * @param tokens
+     *            The tokens of the directive.
+     * @param expected
+     *            The expected index.
+     * @throws IOException
+     *             If the index does not match.
+     */
+    private void checkIndex(final List<String> tokens, final int expected) throws IOException {
+        if (tokens.size() < 2 || this.parseInt(tokens.get(1)) != expected) {
+            throw this.error("Expected index " + expected);
+        }
+    }
+
+    /**
+     * Checks the number of tokens of a line.
+     *
+     * @param tokens
+     *            The tokens.
+     * @param expected
+     *            The expected number of tokens.
+     * @throws IOException
+     *             If the number does not match.
+     */
+    private void checkTokenCount(final List<String> tokens, final int expected) throws IOException {
+        if (tokens.size() != expected) {
+            throw this.error("Expected " + (expected - 1) + " argument(s) for " + tokens.get(0));
+        }
+    }
+
+    /**
+     * Parses a non-negative integer.
+     *
+     * @param token
+     *            The token.
+     * @return The integer.
+     * @throws IOException
+     *             If the token is not a non-negative integer.
+     */
+    private int parseInt(final String token) throws IOException {
+        try {
+            final int value = Integer.parseInt(token);
+            if (value >= 0) {
+                return value;
+            }
+        } catch (final NumberFormatException cause) {
+            // Reported below.
+        }
+        throw this.error("Expected a non-negative integer, but found " + token);
+    }
+
+    /**
+     * Retrieves the content of a quoted token.
+     *
+     * @param token
+     *            The token.
+     * @return The content.
+     * @throws IOException
+     *             If the token is not quoted.
+     */
+    private String parseString(final String token) throws IOException {
+        if (token.isEmpty() || token.charAt(0) != TextAssemblyReader.QUOTED) {
+            throw this.error("Expected a string, but found " + token);
+        }
+        return token.substring(1);
+    }
+
+    /**
+     * Reads the next line that is not empty.
+     *
+     * @return The tokens of the line or <code>null</code> if the end is
+     *         reached. Quoted tokens are unescaped and marked with a leading
+     *         quote.
+     * @throws IOException
+     *             If an I/O error occurs or the line is invalid.
+     */
+    private List<String> nextLine() throws IOException {
+        String line;
+        while ((line = this.in.readLine()) != null) {
+            this.lineNumber++;
+            final List<String> tokens = this.tokenize(line);
+            if (!tokens.isEmpty()) {
+                return tokens;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits the given line into tokens.
+     *
+     * @param line
+     *            The line.
+     * @return The tokens. Quoted tokens are unescaped and marked with a
+     *         leading quote.
+     * @throws IOException
+     *             If a string is invalid.
+     */
+    private List<String> tokenize(final String line) throws IOException {
+        final List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < line.length()) {
+            final char c = line.charAt(i);
+            if (c == ';') {
+                break;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '"') {
+                final StringBuilder token = new StringBuilder().append(TextAssemblyReader.QUOTED);
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw this.error("Unterminated string");
+                    }
+                    final char d = line.charAt(i++);
+                    if (d == '"') {
+                        break;
+                    } else if (d != '\\') {
+                        token.append(d);
+                    } else if (i >= line.length()) {
+                        throw this.error("Unterminated escape sequence");
+                    } else {
+                        i = this.unescape(line, i, token);
+                    }
+                }
+                tokens.add(token.toString());
+            } else {
+                final int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != ';') {
+                    i++;
+                }
+                tokens.add(line.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Unescapes an escape sequence.
+     *
+     * @param line
+     *            The line.
+     * @param index
+     *            The index of the character following the backslash.
+     * @param token
+     *            The token to append the character to.
+     * @return The index of the character following the escape sequence.
+     * @throws IOException
+     *             If the escape sequence is invalid.
+     */
+    private int unescape(final String line, final int index, final StringBuilder token) throws IOException {
+        final char c = line.charAt(index);
+        switch (c) {
+            case 'n':
+                token.append('\n');
+                return index + 1;
+            case 't':
+                token.append('\t');
+                return index + 1;
+            case 'u':
+                if (index + 5 > line.length()) {
+                    throw this.error("Invalid unicode escape sequence");
+                }
+                try {
+                    token.append((char) Integer.parseInt(line.substring(index + 1, index + 5), 16));
+                } catch (final NumberFormatException cause) {
+                    throw this.error("Invalid unicode escape sequence");
+                }
+                return index + 5;
+            default:
+                token.append(c);
+                return index + 1;
+        }
+    }
+
+    /**
+     * Creates an exception for an error in the current line.
+     *
+     * @param message
+     *            The message without the line number.
+     * @return The exception.
+     */
+    private IOException error(final String message) {
+        return new IOException("Line " + this.lineNumber + ": " + message + "!");
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+import de.fdamken.yalp.runtime.Builtin;
+import de.fdamken.yalp.runtime.Fraction;
+import de.fdamken.yalp.runtime.StructType;
+import de.fdamken.yalp.runtime.Symbol;
+
+/**
+ * Writes programs of the register machine in the textual assembly format, so
+ * they can be inspected, edited and loaded by a {@link TextAssemblyReader}
+ * without compiling the code again.
+ *
+ * <p>
+ * The format is line-based. Everything after a semicolon (outside of a
+ * string) is a comment. A program consists of the following directives:
+ * <ul>
+ * <li><code>.assembly VERSION</code>: The first line.</li>
+ * <li><code>.globals COUNT</code>: The number of top-level definitions.</li>
+ * <li><code>.constant INDEX KIND VALUE...</code>: A constant, e.g.
+ * <code>.constant 0 integer 42</code>, <code>.constant 1 string "a"</code>
+ * or <code>.constant 2 struct "posn" "x" "y"</code>.</li>
+ * <li><code>.function INDEX "NAME" ARITY REGISTERS</code>: A function. The
+ * instructions follow, one per line, until <code>.end</code>. An instruction
+ * may be prefixed with its offset (e.g. <code>12:</code>).</li>
+ * <li><code>.form FUNCTION result|definition</code>: A top-level
+ * expression.</li>
+ * </ul>
+ * The operands of the instructions are written with a prefix depending on
+ * their kind: <code>r3</code> (register), <code>k3</code> (constant),
+ * <code>@3</code> (jump target), <code>f3</code> (function), plain numbers
+ * for integers and the names of primitives (e.g. <code>+</code>).
+ * </p>
+ *
+ */
+public class TextAssemblyWriter implements Closeable, Flushable {
+    /**
+     * The writer to write to.
+     *
+     */
+    private final Writer out;
+
+    /**
+     * Constructor of TextAssemblyWriter.
+     *
+     * @param out
+     *            The writer to write to.
+     */
+    public TextAssemblyWriter(final Writer out) {
+        this.out = new BufferedWriter(out);
+    }
+
+    /**
+     * Writes a program.
+     *
+     * @param program
+     *            The program to write.
+     * @throws IOException
+     *             If an I/O error occurs or a constant cannot be stored.
+     */
+    public void write(final VmProgram program) throws IOException {
+        this.line(".assembly " + AssemblyFormat.VERSION);
+        this.line(".globals " + program.globalCount);
+        for (int i = 0; i < program.constants.length; i++) {
+            this.line(".constant " + i + " " + TextAssemblyWriter.toString(program.constants[i]));
+        }
+        for (int i = 0; i < program.functions.length; i++) {
+            final VmFunction function = program.functions[i];
+            this.line(".function " + i + " " + TextAssemblyWriter.quote(function.name) + " " + function.arity + " "
+                    + function.registerCount);
+            final int[] code = function.code;
+            for (int pc = 0; pc < code.length; pc += Opcodes.getOperands(code[pc]).length() + 1) {
+                this.line("    " + pc + ": " + TextAssemblyWriter.toString(code, pc));
+            }
+            this.line(".end");
+        }
+        for (int i = 0; i < program.forms.length; i++) {
+            this.line(".form " + program.forms[i] + " " + (program.results[i] ? "result" : "definition"));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Flushable#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    /**
+     * Writes a line.
+     *
+     * @param line
+     *            The line without the line break.
+     * @throws IOException
+     *             If an I/O error occurs.
+     */
+    private void line(final String line) throws IOException {
+        this.out.write(line);
+        this.out.write('\n');
+    }
+
+    /**
+     * Converts the given instruction into its textual representation.
+     *
+     * @param code
+     *            The code.
+     * @param pc
+     *            The offset of the instruction.
+     * @return The instruction.
+     */
+    private static String toString(final int[] code, final int pc) {
+        final StringBuilder instruction = new StringBuilder(Opcodes.getName(code[pc]));
+        final String operands = Opcodes.getOperands(code[pc]);
+        for (int i = 0; i < operands.length(); i++) {
+            final char kind = operands.charAt(i);
+            final int value = code[pc + 1 + i];
+            instruction.append(' ');
+            if (kind == Opcodes.PRIMITIVE) {
+                instruction.append(Primitive.values()[value].getName());
+            } else if (kind == Opcodes.INTEGER) {
+                instruction.append(value);
+            } else {
+                instruction.append(kind).append(value);
+            }
+        }
+        return instruction.toString();
+    }
+
+    /**
+     * Converts the given constant into its textual representation.
+     *
+     * @param constant
+     *            The constant.
+     * @return The kind of the constant followed by its value.
+     * @throws IOException
+     *             If the constant cannot be stored.
+     */
+    private static String toString(final Object constant) throws IOException {
+        final int kind;
+        try {
+            kind = AssemblyFormat.getConstantKind(constant);
+        } catch (final IllegalArgumentException cause) {
+            throw new IOException(cause.getMessage(), cause);
+        }
+
+        final StringBuilder string = new StringBuilder(AssemblyFormat.getConstantName(kind));
+        switch (kind) {
+            case AssemblyFormat.CONSTANT_INTEGER:
+            case AssemblyFormat.CONSTANT_BIG_INTEGER:
+            case AssemblyFormat.CONSTANT_REAL:
+                string.append(' ').append(constant);
+                break;
+            case AssemblyFormat.CONSTANT_FRACTION:
+                string.append(' ').append(((Fraction) constant).getNumerator()).append('/')
+                        .append(((Fraction) constant).getDenominator());
+                break;
+            case AssemblyFormat.CONSTANT_STRING:
+                string.append(' ').append(TextAssemblyWriter.quote((String) constant));
+                break;
+            case AssemblyFormat.CONSTANT_SYMBOL:
+                string.append(' ').append(TextAssemblyWriter.quote(((Symbol) constant).getName()));
+                break;
+            case AssemblyFormat.CONSTANT_CHAR:
+                string.append(' ').append((int) (Character) constant);
+                break;
+            case AssemblyFormat.CONSTANT_STRUCT: {
+                final StructType type = (StructType) constant;
+                string.append(' ').append(TextAssemblyWriter.quote(type.getName()));
+                for (int i = 0; i < type.getAttributeCount(); i++) {
+                    string.append(' ').append(TextAssemblyWriter.quote(type.getAttribute(i)));
+                }
+                break;
+            }
+            case AssemblyFormat.CONSTANT_BUILTIN:
+                string.append(' ').append(TextAssemblyWriter.quote(((Builtin) constant).getName()));
+                break;
+            default:
+                // The kind is the constant.
+                break;
+        }
+        return string.toString();
+    }
+
+    /**
+     * Quotes the given string. Quotes, backslashes and control characters are
+     * escaped.
+     *
+     * @param string
+     *            The string.
+     * @return The quoted string.
+     */
+    private static String quote(final String string) {
+        final StringBuilder quoted = new StringBuilder(string.length() + 2).append('"');
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                case '\\':
+                    quoted.append('\\').append(c);
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < ' ' || c == 0x7F) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+                    break;
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+
+import de.fdamken.yalp.runtime.StructType;
+
+/**
+ * Verifies the code of a program before it is run, so the interpreter does
+ * not have to check the code (e.g. the registers, jump targets or the types
+ * of constants) while it runs. This is required for programs that are read
+ * from an assembly file, as the file may have been modified.
+ *
+ * <p>
+ * Besides the operands, the verifier checks the environments: Every function
+ * that is used as a closure must be created by exactly one function (its
+ * parent), so the registers read by {@link Opcodes#GETENV} are known. Forms
+ * do not have a parent.
+ * </p>
+ *
+ * <p>
+ * Finally, a dataflow analysis over the control flow graph of every function
+ * checks that every register is assigned before it is read, so the
+ * interpreter never reads an uninitialized register. Only
+ * {@link Opcodes#CHECK} may read a register that is not assigned yet, as it
+ * checks exactly that. Registers of enclosing functions read by
+ * {@link Opcodes#GETENV} must have been assigned whenever a closure of the
+ * reading function is created.
+ * </p>
+ *
+ */
+final class Verifier {
+    /**
+     * The constants of the program.
+     *
+     */
+    private final Object[] constants;
+    /**
+     * The functions of the program.
+     *
+     */
+    private final VmFunction[] functions;
+    /**
+     * The number of top-level definitions.
+     *
+     */
+    private final int globalCount;
+    /**
+     * The index of the function creating the closures of each function or
+     * <code>-1</code> if no closures of the function are created.
+     *
+     */
+    private final int[] parents;
+    /**
+     * The registers of the parent of each function that are assigned at all
+     * instructions creating a closure of the function or <code>null</code>
+     * if no closures of the function are created.
+     *
+     */
+    private final BitSet[] captured;
+
+    /**
+     * Constructor of Verifier.
+     *
+     * @param constants
+     *            The constants of the program.
+     * @param functions
+     *            The functions of the program.
+     * @param globalCount
+     *            The number of top-level definitions.
+     */
+    private Verifier(final Object[] constants, final VmFunction[] functions, final int globalCount) {
+        this.constants = constants;
+        this.functions = functions;
+        this.globalCount = globalCount;
+        this.parents = new int[functions.length];
+        Arrays.fill(this.parents, -1);
+        this.captured = new BitSet[functions.length];
+    }
+
+    /**
+     * Verifies the given program.
+     *
+     * @param constants
+     *            The constants of the program.
+     * @param functions
+     *            The functions of the program.
+     * @param forms
+     *            The indices of the functions of the top-level expressions.
+     * @param globalCount
+     *            The number of top-level definitions.
+     * @throws IllegalArgumentException
+     *             If the program is invalid.
+     */
+    static void verify(final Object[] constants, final VmFunction[] functions, final int[] forms, final int globalCount)
+            throws IllegalArgumentException {
+        Verifier.check(globalCount >= 0, "Negative number of top-level definitions!");
+        final Verifier verifier = new Verifier(constants, functions, globalCount);
+        final boolean[][] starts = new boolean[functions.length][];
+        for (int i = 0; i < functions.length; i++) {
+            starts[i] = verifier.verifyInstructions(i);
+        }
+        for (final int form : forms) {
+            Verifier.check(form >= 0 && form < functions.length, "Unknown function " + form + "!");
+            Verifier.check(functions[form].arity == 0, "The form " + form + " has parameters!");
+            Verifier.check(verifier.parents[form] < 0, "The form " + form + " is used as a closure!");
+        }
+        for (int i = 0; i < functions.length; i++) {
+            verifier.verifyTargets(i, starts[i]);
+        }
+        final BitSet[][] assigned = new BitSet[functions.length][];
+        for (int i = 0; i < functions.length; i++) {
+            assigned[i] = verifier.analyzeAssignments(i);
+        }
+        for (int i = 0; i < functions.length; i++) {
+            verifier.verifyAssignments(i, assigned[i]);
+        }
+    }
+
+    /**
+     * Verifies the operands of the instructions of a function and records
+     * the functions it creates closures of.
+     *
+     * @param index
+     *            The index of the function.
+     * @return The offsets at which instructions start.
+     * @throws IllegalArgumentException
+     *             If an instruction is invalid.
+     */
+    private boolean[] verifyInstructions(final int index) throws IllegalArgumentException {
+        final VmFunction function = this.functions[index];
+        final int[] code = function.code;
+        Verifier.check(function.arity >= 0 && function.registerCount > function.arity,
+                function.name + ": invalid number of registers!");
+        Verifier.check(code.length > 0, function.name + ": empty code!");
+
+        final boolean[] starts = new boolean[code.length];
+        int pc = 0;
+        int opcode = -1;
+        while (pc < code.length) {
+            opcode = code[pc];
+            Verifier.check(Opcodes.isValid(opcode), function.name + ": invalid opcode " + opcode + " at " + pc + "!");
+            final String operands = Opcodes.getOperands(opcode);
+            Verifier.check(pc + operands.length() < code.length, function.name + ": truncated instruction at " + pc + "!");
+            starts[pc] = true;
+            for (int i = 0; i < operands.length(); i++) {
+                this.verifyOperand(function, operands.charAt(i), code[pc + 1 + i], pc);
+            }
+            this.verifySemantics(index, opcode, pc);
+            pc += operands.length() + 1;
+        }
+        Verifier.check(Opcodes.isTerminal(opcode), function.name + ": the code does not end with a return or a jump!");
+        return starts;
+    }
+
+    /**
+     * Verifies an operand by its kind.
+     *
+     * @param function
+     *            The function.
+     * @param kind
+     *            The kind of the operand.
+     * @param value
+     *            The value of the operand.
+     * @param pc
+     *            The offset of the instruction.
+     * @throws IllegalArgumentException
+     *             If the operand is invalid.
+     */
+    private void verifyOperand(final VmFunction function, final char kind, final int value, final int pc)
+            throws IllegalArgumentException {
+        final int limit;
+        switch (kind) {
+            case Opcodes.REGISTER:
+                limit = function.registerCount;
+                break;
+            case Opcodes.CONSTANT:
+                limit = this.constants.length;
+                break;
+            case Opcodes.FUNCTION:
+                limit = this.functions.length;
+                break;
+            case Opcodes.PRIMITIVE:
+                limit = Primitive.values().length;
+                break;
+            default:
+                // Labels are verified once all instructions are known.
+                limit = Integer.MAX_VALUE;
+                break;
+        }
+        Verifier.check(value >= 0 && value < limit, function.name + ": invalid operand " + value + " at " + pc + "!");
+    }
+
+    /**
+     * Verifies the operands of an instruction that depend on the
+     * instruction.
+     *
+     * @param index
+     *            The index of the function.
+     * @param opcode
+     *            The opcode.
+     * @param pc
+     *            The offset of the instruction.
+     * @throws IllegalArgumentException
+     *             If an operand is invalid.
+     */
+    private void verifySemantics(final int index, final int opcode, final int pc) throws IllegalArgumentException {
+        final VmFunction function = this.functions[index];
+        final int[] code = function.code;
+        final String operands = Opcodes.getOperands(opcode);
+        final String location = function.name + ": invalid instruction " + Opcodes.getName(opcode) + " at " + pc + "!";
+
+        // Register 0 holds the environment and must not be overwritten.
+        if (Opcodes.writesRegister(opcode)) {
+            Verifier.check(code[pc + 1] > 0, location);
+        }
+        // Arguments are passed in consecutive registers.
+        if (Opcodes.hasArguments(opcode)) {
+            // Written as a subtraction, as the sum may overflow.
+            final int argc = code[pc + operands.length()];
+            Verifier.check(argc <= function.registerCount - code[pc + operands.length() - 1], location);
+        }
+
+        switch (opcode) {
+            case Opcodes.CHECK:
+            case Opcodes.GETGLOBAL:
+                this.verifyConstant(code[pc + 3], String.class, location);
+                break;
+            case Opcodes.GETENV:
+            case Opcodes.GETENVC:
+                Verifier.check(code[pc + 2] > 0, location);
+                if (opcode == Opcodes.GETENVC) {
+                    this.verifyConstant(code[pc + 4], String.class, location);
+                }
+                break;
+            case Opcodes.CALLGLOBAL:
+                this.verifyConstant(code[pc + 3], String.class, location);
+                break;
+            case Opcodes.TAILCALLGLOBAL:
+                this.verifyConstant(code[pc + 2], String.class, location);
+                break;
+            case Opcodes.JUMPF:
+            case Opcodes.JUMPT:
+                this.verifyConstant(code[pc + 3], String.class, location);
+                break;
+            case Opcodes.PRINTF:
+                this.verifyConstant(code[pc + 2], String.class, location);
+                break;
+            case Opcodes.CLOSURE: {
+                final int child = code[pc + 2];
+                Verifier.check(this.parents[child] < 0 || this.parents[child] == index,
+                        this.functions[child].name + " is created by multiple functions!");
+                this.parents[child] = index;
+                break;
+            }
+            case Opcodes.PRIM:
+                Verifier.check(Primitive.values()[code[pc + 2]].accepts(code[pc + 4]), location);
+                break;
+            case Opcodes.MAKESTRUCT:
+            case Opcodes.STRUCTP:
+                this.verifyConstant(code[pc + 2], StructType.class, location);
+                break;
+            case Opcodes.GETATTR:
+                this.verifyConstant(code[pc + 2], StructType.class, location);
+                Verifier.check(code[pc + 3] < ((StructType) this.constants[code[pc + 2]]).getAttributeCount(), location);
+                break;
+            default:
+                break;
+        }
+        switch (opcode) {
+            case Opcodes.GETGLOBAL:
+            case Opcodes.CALLGLOBAL:
+                Verifier.check(code[pc + 2] < this.globalCount, location);
+                break;
+            case Opcodes.SETGLOBAL:
+            case Opcodes.TAILCALLGLOBAL:
+                Verifier.check(code[pc + 1] < this.globalCount, location);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Verifies the jump targets and the environments read by a function.
+     *
+     * @param index
+     *            The index of the function.
+     * @param starts
+     *            The offsets at which instructions start.
+     * @throws IllegalArgumentException
+     *             If a jump target or an environment is invalid.
+     */
+    private void verifyTargets(final int index, final boolean[] starts) throws IllegalArgumentException {
+        final VmFunction function = this.functions[index];
+        final int[] code = function.code;
+        for (int pc = 0; pc < code.length; pc += Opcodes.getOperands(code[pc]).length() + 1) {
+            final int opcode = code[pc];
+            final String operands = Opcodes.getOperands(opcode);
+            for (int i = 0; i < operands.length(); i++) {
+                if (operands.charAt(i) == Opcodes.LABEL) {
+                    final int target = code[pc + 1 + i];
+                    Verifier.check(target < code.length && starts[target],
+                            function.name + ": invalid jump target " + target + " at " + pc + "!");
+                }
+            }
+
+            if (opcode == Opcodes.GETENV || opcode == Opcodes.GETENVC) {
+                int environment = index;
+                for (int i = 0; i < code[pc + 2]; i++) {
+                    environment = this.parents[environment];
+                    Verifier.check(environment >= 0, function.name + ": no environment for the hops at " + pc + "!");
+                }
+                Verifier.check(code[pc + 3] < this.functions[environment].registerCount,
+                        function.name + ": invalid environment register at " + pc + "!");
+            }
+        }
+    }
+
+    /**
+     * Computes the registers that are definitely assigned before each
+     * instruction of a function and records the registers that are assigned
+     * when the function creates closures. The parameters and the environment
+     * are assigned on entry.
+     *
+     * @param index
+     *            The index of the function.
+     * @return The assigned registers before each instruction, indexed by the
+     *         offset of the instruction, or <code>null</code> for offsets that
+     *         are not reachable or do not start an instruction.
+     */
+    private BitSet[] analyzeAssignments(final int index) {
+        final VmFunction function = this.functions[index];
+        final int[] code = function.code;
+        final BitSet[] assigned = new BitSet[code.length];
+        assigned[0] = new BitSet(function.registerCount);
+        assigned[0].set(0, function.arity + 1);
+        final Deque<Integer> worklist = new ArrayDeque<>();
+        worklist.add(0);
+        while (!worklist.isEmpty()) {
+            final int pc = worklist.poll();
+            final int opcode = code[pc];
+            final BitSet after = (BitSet) assigned[pc].clone();
+            if (Opcodes.writesRegister(opcode)) {
+                after.set(code[pc + 1]);
+            }
+            final int next = pc + Opcodes.getOperands(opcode).length() + 1;
+            if (!Opcodes.isTerminal(opcode)) {
+                Verifier.merge(assigned, next, after, worklist);
+            }
+            if (Opcodes.isJump(opcode)) {
+                Verifier.merge(assigned, code[pc + Opcodes.getOperands(opcode).indexOf(Opcodes.LABEL) + 1], after,
+                        worklist);
+            }
+        }
+
+        for (int pc = 0; pc < code.length; pc += Opcodes.getOperands(code[pc]).length() + 1) {
+            if (code[pc] == Opcodes.CLOSURE && assigned[pc] != null) {
+                final int child = code[pc + 2];
+                if (this.captured[child] == null) {
+                    this.captured[child] = (BitSet) assigned[pc].clone();
+                } else {
+                    this.captured[child].and(assigned[pc]);
+                }
+            }
+        }
+        return assigned;
+    }
+
+    /**
+     * Verifies that every register read by a function is assigned before.
+     *
+     * @param index
+     *            The index of the function.
+     * @param assigned
+     *            The assigned registers before each instruction as computed
+     *            by {@link #analyzeAssignments(int)}.
+     * @throws IllegalArgumentException
+     *             If a register may be read before it is assigned.
+     */
+    private void verifyAssignments(final int index, final BitSet[] assigned) throws IllegalArgumentException {
+        final VmFunction function = this.functions[index];
+        final int[] code = function.code;
+        for (int pc = 0; pc < code.length; pc += Opcodes.getOperands(code[pc]).length() + 1) {
+            if (assigned[pc] == null) {
+                continue;
+            }
+            final int opcode = code[pc];
+            final String operands = Opcodes.getOperands(opcode);
+            final String location = function.name + ": register read before it is assigned at " + pc + "!";
+            final int first = Opcodes.writesRegister(opcode) ? 1 : 0;
+            final int last = Opcodes.hasArguments(opcode) ? operands.length() - 2 : operands.length();
+            for (int i = first; i < last; i++) {
+                if (operands.charAt(i) == Opcodes.REGISTER && !(opcode == Opcodes.CHECK && i == 1)) {
+                    Verifier.check(assigned[pc].get(code[pc + 1 + i]), location);
+                }
+            }
+            if (Opcodes.hasArguments(opcode)) {
+                final int args = code[pc + operands.length() - 1];
+                final int argc = code[pc + operands.length()];
+                Verifier.check(assigned[pc].nextClearBit(args) >= args + argc, location);
+            }
+
+            if (opcode == Opcodes.GETENV) {
+                int environment = index;
+                for (int i = 1; i < code[pc + 2]; i++) {
+                    environment = this.parents[environment];
+                }
+                Verifier.check(this.captured[environment] == null || this.captured[environment].get(code[pc + 3]),
+                        function.name + ": environment register read before it is assigned at " + pc + "!");
+            }
+        }
+    }
+
+    /**
+     * Merges the assigned registers after an instruction into the assigned
+     * registers before one of its successors.
+     *
+     * @param assigned
+     *            The assigned registers before each instruction.
+     * @param target
+     *            The offset of the successor.
+     * @param after
+     *            The assigned registers after the instruction.
+     * @param worklist
+     *            The offsets of the instructions whose successors have to be
+     *            updated.
+     */
+    private static void merge(final BitSet[] assigned, final int target, final BitSet after,
+            final Deque<Integer> worklist) {
+        if (assigned[target] == null) {
+            assigned[target] = (BitSet) after.clone();
+            worklist.add(target);
+        } else {
+            final int before = assigned[target].cardinality();
+            assigned[target].and(after);
+            if (assigned[target].cardinality() != before) {
+                worklist.add(target);
+            }
+        }
+    }
+
+    /**
+     * Verifies that the given constant is of the given type.
+     *
+     * @param index
+     *            The index of the constant.
+     * @param type
+     *            The type.
+     * @param message
+     *            The message if the constant is of another type.
+     * @throws IllegalArgumentException
+     *             If the constant is of another type.
+     */
+    private void verifyConstant(final int index, final Class<?> type, final String message)
+            throws IllegalArgumentException {
+        Verifier.check(type.isInstance(this.constants[index]), message);
+    }
+
+    /**
+     * Checks the given condition.
+     *
+     * @param condition
+     *            The condition.
+     * @param message
+     *            The message if the condition is not met.
+     * @throws IllegalArgumentException
+     *             If the condition is not met.
+     */
+    private static void check(final boolean condition, final String message) throws IllegalArgumentException {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Procedure;
+
+/**
+ * A function value of the register machine: The code of the function and the
+ * registers of the function it was created in.
+ *
+ */
+final class VmClosure implements Procedure {
+    /**
+     * The machine that runs the function.
+     *
+     */
+    final Machine machine;
+    /**
+     * The code of the function.
+     *
+     */
+    final VmFunction function;
+    /**
+     * The registers of the function the function was created in.
+     *
+     */
+    final Object[] environment;
+
+    /**
+     * Constructor of VmClosure.
+     *
+     * @param machine
+     *            The machine that runs the function.
+     * @param function
+     *            The code of the function.
+     * @param environment
+     *            The registers of the function the function was created in.
+     */
+    VmClosure(final Machine machine, final VmFunction function, final Object[] environment) {
+        this.machine = machine;
+        this.function = function;
+        this.environment = environment;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#getArity()
+     */
+    @Override
+    public int getArity() {
+        return this.function.arity;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.runtime.Procedure#apply(java.lang.Object[])
+     */
+    @Override
+    public Object apply(final Object[] arguments) throws EvaluationException {
+        Machine.checkArity(this.function, arguments.length);
+        final Object[] registers = new Object[this.function.registerCount];
+        registers[0] = this.environment;
+        System.arraycopy(arguments, 0, registers, 1, arguments.length);
+        return this.machine.execute(this.function, registers);
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+
+/**
+ * The code generation for the register machine: Compiles the decorated
+ * abstract syntax tree into a compact register-based instruction set (see
+ * {@link VmProgram} and {@link Opcodes}).
+ *
+ * <p>
+ * Unlike the {@link de.fdamken.yalp.runtime.jvm.JvmCompiler}, the generated
+ * code does not have to be loaded and compiled by the JVM, so it is cheap to
+ * produce and to start. This makes it a good fit for short-lived programs.
+ * The code is laid out as follows:
+ * <ul>
+ * <li>Every function (including every top-level expression) has an array of
+ * registers. The parameters and the variables of <code>local</code>s are
+ * stored in fixed registers, so they are operands of the instructions
+ * without being copied.</li>
+ * <li>Closures capture the registers of the function they are created in.
+ * Variables of enclosing functions are read by following a fixed number of
+ * environments.</li>
+ * <li>Calls do not recurse into the interpreter: The caller is pushed on a
+ * stack of call frames on the heap, so deep recursion does not exhaust the
+ * Java stack. Calls in tail position replace the registers of the caller
+ * instead, so they do not consume any space.</li>
+ * <li>Superinstructions cover common patterns: <code>first</code>,
+ * <code>rest</code>, <code>empty?</code>, arithmetic and comparisons of two
+ * operands, adding a literal, and conditions that compare two numbers or
+ * test for <code>empty?</code>/<code>zero?</code> are fused with the
+ * jump.</li>
+ * </ul>
+ * </p>
+ *
+ * <p>
+ * The compiler itself is stateless and can be used by multiple threads
+ * concurrently.
+ * </p>
+ *
+ */
+public class VmCompiler extends AbstractCompilationStep<DecoratedAbstractSyntaxTree, VmProgram> {
+    /**
+     * {@inheritDoc}
+     *
+     * @see de.fdamken.yalp.parsing.AbstractCompilationStep#parse(de.fdamken.yalp.parsing.IntermediateRepresentation)
+     */
+    @Override
+    public VmProgram parse(final DecoratedAbstractSyntaxTree decoratedAbstractSyntaxTree) throws CompilationException {
+        return new InstructionGenerator(decoratedAbstractSyntaxTree).generate();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+/**
+ * The code of a function of the register machine: A lambda, a function
+ * defined by <code>define</code> or a top-level expression (see
+ * {@link Opcodes}).
+ *
+ */
+final class VmFunction {
+    /**
+     * The name of the function used in error messages.
+     *
+     */
+    final String name;
+    /**
+     * The number of parameters.
+     *
+     */
+    final int arity;
+    /**
+     * The number of registers, including the environment and the parameters.
+     *
+     */
+    final int registerCount;
+    /**
+     * The instructions.
+     *
+     */
+    final int[] code;
+
+    /**
+     * Constructor of VmFunction.
+     *
+     * @param name
+     *            The name of the function used in error messages.
+     * @param arity
+     *            The number of parameters.
+     * @param registerCount
+     *            The number of registers.
+     * @param code
+     *            The instructions.
+     */
+    VmFunction(final String name, final int arity, final int registerCount, final int[] code) {
+        this.name = name;
+        this.arity = arity;
+        this.registerCount = registerCount;
+        this.code = code;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.runtime.EvaluationException;
+
+/**
+ * A program compiled by the {@link VmCompiler}: The "assembly" of YALP. The
+ * program can be stored using {@link BinaryAssemblyWriter} or
+ * {@link TextAssemblyWriter} and loaded again without parsing the code.
+ *
+ * <p>
+ * The program is immutable and every run has its own state, so it can be run
+ * by multiple threads concurrently. Every run starts with fresh top-level
+ * definitions.
+ * </p>
+ *
+ */
+public class VmProgram implements IntermediateRepresentation {
+    /**
+     * The constants.
+     *
+     */
+    final Object[] constants;
+    /**
+     * The functions.
+     *
+     */
+    final VmFunction[] functions;
+    /**
+     * The indices of the functions evaluating the top-level expressions.
+     *
+     */
+    final int[] forms;
+    /**
+     * Whether the value of the top-level expressions are results of the
+     * program (i.e. they are not definitions).
+     *
+     */
+    final boolean[] results;
+    /**
+     * The number of top-level definitions.
+     *
+     */
+    final int globalCount;
+
+    /**
+     * Constructor of VmProgram. Verifies the code.
+     *
+     * @param constants
+     *            The constants.
+     * @param functions
+     *            The functions.
+     * @param forms
+     *            The indices of the functions evaluating the top-level
+     *            expressions.
+     * @param results
+     *            Whether the value of the top-level expressions are results
+     *            of the program.
+     * @param globalCount
+     *            The number of top-level definitions.
+     * @throws IllegalArgumentException
+     *             If the code is invalid.
+     */
+    VmProgram(final Object[] constants, final VmFunction[] functions, final int[] forms, final boolean[] results,
+            final int globalCount) throws IllegalArgumentException {
+        if (forms.length != results.length) {
+            throw new IllegalArgumentException("The number of forms and results do not match!");
+        }
+        Verifier.verify(constants, functions, forms, globalCount);
+
+        this.constants = constants;
+        this.functions = functions;
+        this.forms = forms;
+        this.results = results;
+        this.globalCount = globalCount;
+    }
+
+    /**
+     * Runs the program.
+     *
+     * @param output
+     *            The output of <code>print</code> and <code>printf</code>.
+     * @return The values of the top-level expressions that are not
+     *         definitions in the order they appear in the code.
+     * @throws EvaluationException
+     *             If an error occurs during the evaluation.
+     */
+    public List<Object> run(final Appendable output) throws EvaluationException {
+        final Machine machine = new Machine(this.constants, this.functions, this.globalCount, output);
+        final List<Object> values = new ArrayList<>();
+        try {
+            for (int i = 0; i < this.forms.length; i++) {
+                final VmFunction form = this.functions[this.forms[i]];
+                final Object value = machine.execute(form, new Object[form.registerCount]);
+                if (this.results[i]) {
+                    values.add(value);
+                }
+            }
+        } catch (final StackOverflowError ex) {
+            // Only calls through functions of the runtime (e.g. map) nest
+            // executions of the machine on the Java stack.
+            throw new EvaluationException("Maximum recursion depth exceeded!");
+        }
+        return values;
+    }
+
+    /**
+     * Retrieves the size of the code in words (opcodes and operands).
+     *
+     * @see de.fdamken.yalp.parsing.IntermediateRepresentation#getSize()
+     */
+    @Override
+    public long getSize() {
+        long size = 0;
+        for (final VmFunction function : this.functions) {
+            size += function.code.length;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.util;
+
+/**
+ * Utility methods for working with {@link CharSequence char sequences} by
+ * their content (like {@link String#equals(Object)} and
+ * {@link String#hashCode()} do for strings).
+ *
+ */
+public final class CharSequences {
+    /**
+     * Constructor of CharSequences.
+     *
+     */
+    private CharSequences() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Compares the content of the given char sequences.
+     *
+     * @param a
+     *            The first sequence. May be <code>null</code>.
+     * @param b
+     *            The second sequence. May be <code>null</code>.
+     * @return Whether both sequences contain the same characters.
+     */
+    public static boolean contentEquals(final CharSequence a, final CharSequence b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        final int length = a.length();
+        if (length != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.charAt(i) != b.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the hash code of the content of the given char sequence. This
+     * is equal to the {@link String#hashCode() hash code} of a string with the
+     * same content.
+     *
+     * @param sequence
+     *            The sequence. May be <code>null</code>.
+     * @return The hash code or <code>0</code> if the sequence is
+     *         <code>null</code>.
+     */
+    public static int hashCode(final CharSequence sequence) {
+        if (sequence == null) {
+            return 0;
+        }
+        if (sequence instanceof String) {
+            return sequence.hashCode();
+        }
+        int hash = 0;
+        final int length = sequence.length();
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + sequence.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.abstractsyntaxtree.compile;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.compile.AbstractSyntaxTreeParser;
+import de.fdamken.yalp.parsing.ast.exception.AbstractSyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.ast.representation.AbstractSyntaxTree;
+import de.fdamken.yalp.parsing.ast.representation.Expression;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.CondFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.FoldlFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.MapFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ConsFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.list.ListFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.MultiplyFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.predicate.StructPredicateFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.MakeStructFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.struct.StructAttributeSelectFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.BooleanLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.CharLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.StringLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.charsequence.SymbolLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FloatingPointLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.FractionLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.literal.number.IntegerLiteral;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.BuiltinReference;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.FusedSyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+
+@SuppressWarnings("javadoc")
+public class AbstractSyntaxTreeParserTest {
+    private static final AbstractSyntaxTreeParser PARSER = new AbstractSyntaxTreeParser();
+
+    @Test
+    public void testArithmetic() throws CompilationException {
+        final AddFunction add = (AddFunction) this.parse("(+ 1 (* 2 x))").get(0);
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(1), add.getValues().get(0));
+
+        final MultiplyFunction multiply = (MultiplyFunction) add.getValues().get(1);
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(2), multiply.getValues().get(0));
+        Assert.assertEquals("x", ((Variable) multiply.getValues().get(1)).getName());
+    }
+
+    @Test
+    public void testLiterals() throws CompilationException {
+        final List<Expression> values = ((ListFunction) this
+                .parse("(list 42 -7 2/4 -4/2 .5 1e3 #t #false \"a string\" #\\a #\\space 'sym true empty)").get(0))
+                        .getValues();
+
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(42), values.get(0));
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(-7), values.get(1));
+        final FractionLiteral fraction = (FractionLiteral) values.get(2);
+        Assert.assertEquals(BigInteger.ONE, fraction.getNumerator());
+        Assert.assertEquals(BigInteger.valueOf(2), fraction.getDenominator());
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(-2), values.get(3));
+        Assert.assertEquals(0.5, ((FloatingPointLiteral) values.get(4)).getContent(), 0);
+        Assert.assertEquals(1000, ((FloatingPointLiteral) values.get(5)).getContent(), 0);
+        Assert.assertTrue(((BooleanLiteral) values.get(6)).isContent());
+        Assert.assertFalse(((BooleanLiteral) values.get(7)).isContent());
+        Assert.assertEquals("a string", ((StringLiteral) values.get(8)).getContent());
+        Assert.assertEquals('a', ((CharLiteral) values.get(9)).getContent());
+        Assert.assertEquals(' ', ((CharLiteral) values.get(10)).getContent());
+        Assert.assertEquals("sym", ((SymbolLiteral) values.get(11)).getContent());
+        Assert.assertTrue(((BooleanLiteral) values.get(12)).isContent());
+        Assert.assertTrue(((ListFunction) values.get(13)).getValues().isEmpty());
+    }
+
+    @Test
+    public void testLargeNumbers() throws CompilationException {
+        final List<Expression> values = ((ListFunction) this
+                .parse("(list 2147483648 -99999999999 123456789012345678901234567890 -2147483648/4 4294967296/3)").get(0))
+                        .getValues();
+
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(2147483648L), values.get(0));
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(-99999999999L), values.get(1));
+        Assert.assertEquals(new BigInteger("123456789012345678901234567890"), ((IntegerLiteral) values.get(2)).getContent());
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(-536870912), values.get(3));
+        final FractionLiteral fraction = (FractionLiteral) values.get(4);
+        Assert.assertEquals(BigInteger.valueOf(4294967296L), fraction.getNumerator());
+        Assert.assertEquals(BigInteger.valueOf(3), fraction.getDenominator());
+    }
+
+    @Test
+    public void testDefine() throws CompilationException {
+        final List<Expression> expressions = this.parse("(define (fact n) (if (= n 0) 1 (* n (fact (- n 1)))))",
+                "(define x 5)", "(fact x)");
+
+        final DefineFunction define = (DefineFunction) expressions.get(0);
+        Assert.assertEquals(2, define.getHeader().size());
+        Assert.assertEquals("fact", ((SymbolLiteral) define.getHeader().get(0)).getContent());
+        Assert.assertEquals("n", ((SymbolLiteral) define.getHeader().get(1)).getContent());
+        final IfFunction ifFunction = (IfFunction) define.getExpression();
+        final ApplicationFunction recursion = (ApplicationFunction) ((MultiplyFunction) ifFunction.getElse0()).getValues()
+                .get(1);
+        Assert.assertEquals("fact", ((Variable) recursion.getFunction()).getName());
+        Assert.assertEquals(1, recursion.getArguments().size());
+
+        final DefineConstantFunction constant = (DefineConstantFunction) expressions.get(1);
+        Assert.assertEquals("x", ((SymbolLiteral) constant.getName()).getContent());
+        Assert.assertEquals(AbstractSyntaxTreeParserTest.integer(5), constant.getExpression());
+
+        final ApplicationFunction application = (ApplicationFunction) expressions.get(2);
+        Assert.assertEquals("fact", ((Variable) application.getFunction()).getName());
+        Assert.assertEquals("x", ((Variable) application.getArguments().get(0)).getName());
+    }
+
+    @Test
+    public void testCond() throws CompilationException {
+        final CondFunction cond = (CondFunction) this.parse("(cond [(< x 0) 'negative] [(> x 0) 'positive] [else 'zero])")
+                .get(0);
+        Assert.assertEquals(2, cond.getCases().size());
+        Assert.assertEquals("positive", ((SymbolLiteral) cond.getCases().get(1).getThen()).getContent());
+        Assert.assertEquals("zero", ((SymbolLiteral) cond.getElse0()).getContent());
+    }
+
+    @Test
+    public void testStruct() throws CompilationException {
+        // The functions of a structure can be used before its definition.
+        final List<Expression> expressions = this.parse("(posn-x (make-posn 1 2))", "(define-struct posn (x y))",
+                "(posn? p)", "(map posn-y l)");
+
+        final StructAttributeSelectFunction select = (StructAttributeSelectFunction) expressions.get(0);
+        Assert.assertEquals("posn", select.getName());
+        Assert.assertEquals("x", select.getAttribute());
+        final MakeStructFunction make = (MakeStructFunction) select.getInstance();
+        Assert.assertEquals("posn", make.getName());
+        Assert.assertEquals(2, make.getAttributes().size());
+
+        final DefineStructFunction define = (DefineStructFunction) expressions.get(1);
+        Assert.assertEquals("posn", ((SymbolLiteral) define.getName()).getContent());
+        Assert.assertEquals(2, define.getAttributes().size());
+
+        Assert.assertEquals("posn", ((StructPredicateFunction) expressions.get(2)).getName());
+    }
+
+    @Test
+    public void testFunctionValue() throws CompilationException {
+        final FoldlFunction foldl = (FoldlFunction) this.parse("(foldl cons empty l)").get(0);
+        final LambdaFunction lambda = (LambdaFunction) foldl.getFolder();
+        Assert.assertEquals(2, lambda.getParameters().size());
+        final ConsFunction cons = (ConsFunction) lambda.getExpression();
+        Assert.assertEquals("x0", ((Variable) cons.getElement()).getName());
+        Assert.assertEquals("x1", ((Variable) cons.getList()).getName());
+
+        // Functions with any number of parameters cannot become lambdas.
+        final MapFunction map = (MapFunction) this.parse("(map + l)").get(0);
+        Assert.assertEquals("+", ((BuiltinReference) map.getFunction()).getName());
+    }
+
+    @Test
+    public void testLocal() throws CompilationException {
+        final LocalFunction local = (LocalFunction) this
+                .parse("(local [(define-struct p (a)) (define (f x) (p-a x))] (f (make-p 1)))").get(0);
+        Assert.assertEquals(2, local.getDefinitions().size());
+        Assert.assertTrue(local.getExpression() instanceof ApplicationFunction);
+
+        // The structure is not visible outside of the local.
+        Assert.assertTrue(this.parse("(local [(define-struct p (a))] 1)", "(make-p 1)").get(1) instanceof ApplicationFunction);
+    }
+
+    @Test
+    public void testSingleForm() throws CompilationException {
+        final AbstractSyntaxTree abstractSyntaxTree = AbstractSyntaxTreeParserTest.PARSER
+                .parse(new FusedSyntaxTreeParser().parse(new Input("(+ 1 2)")));
+        Assert.assertEquals(1, abstractSyntaxTree.getExpressions().size());
+        Assert.assertTrue(abstractSyntaxTree.getExpressions().get(0) instanceof AddFunction);
+    }
+
+    @Test
+    public void testErrors() throws CompilationException {
+        this.checkError("(if 1 2)");
+        this.checkError("(first)");
+        this.checkError("(first l m)");
+        this.checkError("(define x)");
+        this.checkError("(define-struct posn (x y))", "(make-posn 1)");
+        this.checkError("(else 1)");
+        this.checkError("(1 2)");
+        this.checkError("(lambda (1) x)");
+        this.checkError("(lambda (first) x)");
+        this.checkError("(if (define x 1) 1 2)");
+        this.checkError("(map define l)");
+        this.checkError("(map printf l)");
+        this.checkError("(cond [else 1] [#t 2])");
+        this.checkError("(cond)");
+        this.checkError("(local [(+ 1 2)] 3)");
+        this.checkError("(printf x)");
+        this.checkError("(list 1/0)");
+        this.checkError("(list #\\ab)");
+        this.checkError("(check-expect 1 1)");
+    }
+
+    private void checkError(final String... forms) throws CompilationException {
+        try {
+            this.parse(forms);
+            Assert.fail("Expected an error: " + Arrays.toString(forms));
+        } catch (final AbstractSyntaxTreeParsingException ex) {
+            // Expected.
+        }
+    }
+
+    private List<Expression> parse(final String... forms) throws CompilationException {
+        final SymbolTable symbolTable = new SymbolTable();
+        final FusedSyntaxTreeParser parser = new FusedSyntaxTreeParser(symbolTable);
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            elements[i] = parser.parse(new Input(forms[i])).getRootElement();
+        }
+        return AbstractSyntaxTreeParserTest.PARSER.parseForms(elements, symbolTable).getExpressions();
+    }
+
+    private static IntegerLiteral integer(final long value) {
+        final IntegerLiteral integer = new IntegerLiteral();
+        integer.setContent(BigInteger.valueOf(value));
+        return integer;
+    }
+}
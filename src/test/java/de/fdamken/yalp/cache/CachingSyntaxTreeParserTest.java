@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.CompilationPipeline;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.cache.CachingSyntaxTreeParser;
+import de.fdamken.yalp.parsing.cache.FormCache;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+
+@SuppressWarnings("javadoc")
+public class CachingSyntaxTreeParserTest {
+    private static final CompilationPipeline<Input, SyntaxTree> COMPILER = new CompilationPipeline<>(new TokenTreeParser(),
+            new SyntaxTreeParser());
+
+    private static final String CODE = "; Adds the interest.\n" //
+            + "(define (add-interest capital interest)\n" //
+            + "  (* capital (+ interest 1)))\n" //
+            + "(define (f x) \"a (string\" x) ; comment (\n" //
+            + "(display (add-interest 100 0.5))\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSameResults() {
+        final CachingSyntaxTreeParser parser = new CachingSyntaxTreeParser(new FormCache(1 << 20));
+        final String[] codes = { CachingSyntaxTreeParserTest.CODE, "", "()", "(f", "(f))", "x", "(f (g) ())", "(f \"x) y\")",
+                "(f) (g) ; comment (", "(a b) (c (d) e)", "(f ())) (", "() (f x)", ")(f)", "(f \\) x)",
+                "(a)\n(b (c))\n(a)" };
+        for (int round = 0; round < 2; round++) {
+            for (final String code : codes) {
+                Assert.assertEquals(code, this.parseResult(CachingSyntaxTreeParserTest.COMPILER, code),
+                        this.parseResult(parser, code));
+            }
+        }
+    }
+
+    @Test
+    public void testReuse() throws CompilationException {
+        final FormCache cache = new FormCache(1 << 20);
+        final CachingSyntaxTreeParser parser = new CachingSyntaxTreeParser(cache);
+
+        final SyntaxTree first = parser.parse(new Input(CachingSyntaxTreeParserTest.CODE));
+        Assert.assertEquals(0, cache.getHits());
+        Assert.assertEquals(3, cache.getMisses());
+        Assert.assertEquals(3, cache.getEntryCount());
+
+        final String changed = CachingSyntaxTreeParserTest.CODE.replace("(f x)", "(f y)");
+        final SyntaxTree second = parser.parse(new Input(changed));
+        Assert.assertEquals(CachingSyntaxTreeParserTest.COMPILER.parse(new Input(changed)), second);
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(4, cache.getMisses());
+
+        final SyntaxTree third = parser.parse(new Input(CachingSyntaxTreeParserTest.CODE));
+        Assert.assertEquals(first, third);
+        Assert.assertEquals(5, cache.getHits());
+        // The elements of the cached forms are shared.
+        Assert.assertSame(((FunctionCall) first.getRootElement()).getParameters()[0],
+                ((FunctionCall) third.getRootElement()).getParameters()[0]);
+    }
+
+    @Test
+    public void testEviction() throws CompilationException {
+        final FormCache cache = new FormCache(10);
+        final CachingSyntaxTreeParser parser = new CachingSyntaxTreeParser(cache);
+
+        parser.parse(new Input("(a 1)(b 2)(c 3)"));
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals(10, cache.getSize());
+        Assert.assertEquals(1, cache.getEvictions());
+
+        // (b 2) is used again, so (c 3) is the least recently used form.
+        parser.parse(new Input("(b 2)(d 4)"));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(2, cache.getEvictions());
+        parser.parse(new Input("(b 2)"));
+        Assert.assertEquals(2, cache.getHits());
+
+        // Forms larger than the cache are not cached at all.
+        parser.parse(new Input("(too-large-to-be-cached)"));
+        Assert.assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testDirectory() throws CompilationException, IOException {
+        final FormCache cache = new FormCache(1 << 20, this.folder.getRoot().toPath());
+        new CachingSyntaxTreeParser(cache).parse(new Input(CachingSyntaxTreeParserTest.CODE));
+        Assert.assertEquals(3, cache.getMisses());
+
+        final StringBuilder deep = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            deep.append("(f ");
+        }
+        for (int i = 0; i < 10000; i++) {
+            deep.append(')');
+        }
+        final String code = CachingSyntaxTreeParserTest.CODE + deep;
+        new CachingSyntaxTreeParser(cache).parse(new Input(code));
+
+        // A new cache using the same directory does not need to parse again.
+        final FormCache restarted = new FormCache(1 << 20, this.folder.getRoot().toPath());
+        new CachingSyntaxTreeParser(restarted).parse(new Input(code));
+        Assert.assertEquals(0, restarted.getMisses());
+        Assert.assertEquals(4, restarted.getDiskHits());
+
+        // The forms read from the directory are kept in memory.
+        Assert.assertEquals(CachingSyntaxTreeParserTest.COMPILER.parse(new Input(CachingSyntaxTreeParserTest.CODE)),
+                new CachingSyntaxTreeParser(restarted).parse(new Input(CachingSyntaxTreeParserTest.CODE)));
+        Assert.assertEquals(3, restarted.getHits());
+        Assert.assertEquals(0, restarted.getMisses());
+    }
+
+    @Test
+    public void testCorruptFiles() throws CompilationException, IOException {
+        final FormCache cache = new FormCache(1 << 20, this.folder.getRoot().toPath());
+        new CachingSyntaxTreeParser(cache).parse(new Input(CachingSyntaxTreeParserTest.CODE));
+
+        // The source length, the header and a list of elements followed by
+        // huge counts: Of the elements, of the parameters of a function call
+        // and of the bytes of a literal.
+        final byte[] header = { 0, 0, 0, 5, 'Y', 'L', 'S', 'T', 2, 2 };
+        final byte[][] bodies = { { -1, -1, -1, -1, 7 }, { 1, -4, -1, -1, -1, 31 }, { 1, -2, -1, -1, -1, 31, 0 } };
+        final File[] files = this.folder.getRoot().listFiles();
+        Assert.assertEquals(3, files.length);
+        for (int i = 0; i < files.length; i++) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(header);
+            bytes.write(bodies[i]);
+            Files.write(files[i].toPath(), bytes.toByteArray());
+        }
+
+        // The broken files are ignored and replaced.
+        final FormCache restarted = new FormCache(1 << 20, this.folder.getRoot().toPath());
+        Assert.assertEquals(CachingSyntaxTreeParserTest.COMPILER.parse(new Input(CachingSyntaxTreeParserTest.CODE)),
+                new CachingSyntaxTreeParser(restarted).parse(new Input(CachingSyntaxTreeParserTest.CODE)));
+        Assert.assertEquals(0, restarted.getDiskHits());
+        Assert.assertEquals(3, restarted.getMisses());
+        final FormCache repaired = new FormCache(1 << 20, this.folder.getRoot().toPath());
+        new CachingSyntaxTreeParser(repaired).parse(new Input(CachingSyntaxTreeParserTest.CODE));
+        Assert.assertEquals(3, repaired.getDiskHits());
+    }
+
+    private Object parseResult(final AbstractCompilationStep<Input, SyntaxTree> compiler, final String code) {
+        try {
+            return compiler.parse(new Input(code));
+        } catch (final CompilationException | IllegalStateException ex) {
+            return ex.getClass();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.compact;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.compact.CompactTree;
+import de.fdamken.yalp.parsing.compact.CompactTreeBuilder;
+import de.fdamken.yalp.parsing.compact.CompactTreeConverter;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+
+@SuppressWarnings("javadoc")
+public class CompactTreeConverterTest {
+    private static final String CODE = "(define (f x) (+ x \"a b\" (g) ()))";
+
+    @Test
+    public void testTokenTree() throws CompilationException {
+        final TokenTree tokenTree = new TokenTreeParser().parse(new Input(CompactTreeConverterTest.CODE));
+        final CompactTree compactTree = CompactTreeConverter.fromTokenTree(tokenTree);
+
+        Assert.assertEquals(tokenTree.toString(), compactTree.toString());
+        Assert.assertEquals(tokenTree, CompactTreeConverter.toTokenTree(compactTree));
+
+        Assert.assertEquals(CompactTree.NONE, compactTree.getParent(0));
+        Assert.assertEquals(3, compactTree.getChildCount(0));
+        final int define = compactTree.getFirstChild(0);
+        Assert.assertEquals(CompactTree.Kind.ELEMENT, compactTree.getKind(define));
+        Assert.assertEquals("define", compactTree.getContent(define).toString());
+        final int header = compactTree.getNextSibling(define);
+        Assert.assertEquals(CompactTree.Kind.CONTAINER, compactTree.getKind(header));
+        Assert.assertEquals("fx", compactTree.getContent(header).toString());
+    }
+
+    @Test
+    public void testSyntaxTree() throws CompilationException {
+        final SyntaxTree syntaxTree = new SyntaxTreeParser()
+                .parse(new TokenTreeParser().parse(new Input("(define (f x) (+ x \"a b\" (g)))")));
+        final CompactTree compactTree = CompactTreeConverter.fromSyntaxTree(syntaxTree);
+
+        Assert.assertEquals("(define (f x) (+ x \"a b\" (g)))", compactTree.toString());
+        Assert.assertEquals(syntaxTree, CompactTreeConverter.toSyntaxTree(compactTree));
+        Assert.assertEquals(compactTree, CompactTreeConverter.fromSyntaxTree(CompactTreeConverter.toSyntaxTree(compactTree)));
+    }
+
+    @Test
+    public void testSourcePositions() throws CompilationException {
+        final String code = "(f \"a b\" x)\n(g (h))";
+        final SymbolTable symbolTable = new SymbolTable();
+        final CompactTreeBuilder builder = new CompactTreeBuilder(symbolTable);
+        new TokenTreeParser().lex(new Input(code), builder);
+        final CompactTree compactTree = builder.build();
+
+        final CompactTree converted = CompactTreeConverter.fromTokenTree(new TokenTreeParser().parse(new Input(code)));
+        Assert.assertEquals(converted, compactTree);
+        Assert.assertEquals(CompactTree.NONE, converted.getStart(1));
+        Assert.assertEquals(CompactTree.NONE, converted.getEnd(1));
+
+        // The root container, f, "a b", x, g, (h) and h.
+        final int[] starts = { 0, 1, 3, 9, 13, 15, 16 };
+        final int[] ends = { 19, 2, 8, 10, 14, 18, 17 };
+        Assert.assertEquals(starts.length, compactTree.size());
+        for (int node = 0; node < starts.length; node++) {
+            Assert.assertEquals("Start of node " + node, starts[node], compactTree.getStart(node));
+            Assert.assertEquals("End of node " + node, ends[node], compactTree.getEnd(node));
+        }
+
+        Assert.assertEquals(symbolTable.getId("f"), compactTree.getSymbolId(1));
+        Assert.assertEquals(SymbolTable.NO_SYMBOL, compactTree.getSymbolId(2));
+        Assert.assertEquals("\"a b\"", compactTree.getContent(2).toString());
+        Assert.assertEquals("f\"a b\"xgh", compactTree.getContent(0).toString());
+    }
+
+    @Test
+    public void testDeepTree() throws CompilationException {
+        final StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            code.append("(a ");
+        }
+        for (int i = 0; i < 100000; i++) {
+            code.append(')');
+        }
+        final TokenTree tokenTree = new TokenTreeParser().parse(new Input(code.toString()));
+
+        final CompactTree compactTree = CompactTreeConverter.fromTokenTree(tokenTree);
+        Assert.assertEquals(200000, compactTree.size());
+        Assert.assertEquals(compactTree, CompactTreeConverter.fromTokenTree(CompactTreeConverter.toTokenTree(compactTree)));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.decoratedabstractsyntaxtree.compile;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.compile.AbstractSyntaxTreeParser;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.ApplicationFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.IfFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LambdaFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.control.LocalFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineConstantFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.define.DefineFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.function.math.AddFunction;
+import de.fdamken.yalp.parsing.ast.representation.expression.variable.Variable;
+import de.fdamken.yalp.parsing.dast.compile.ContextAnalyzer;
+import de.fdamken.yalp.parsing.dast.exception.ContextAnalysisException;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.FusedSyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+
+@SuppressWarnings("javadoc")
+public class ContextAnalyzerTest {
+    private static final AbstractSyntaxTreeParser PARSER = new AbstractSyntaxTreeParser();
+    private static final ContextAnalyzer ANALYZER = new ContextAnalyzer();
+
+    @Test
+    public void testGlobals() throws CompilationException {
+        // f refers to g that is defined later.
+        final DecoratedAbstractSyntaxTree tree = this.analyze("(define (f x) (g x))", "(define y 2)",
+                "(define (g x) (+ x y))", "(f y)");
+        Assert.assertEquals(Arrays.asList("f", "y", "g"), tree.getGlobals());
+        Assert.assertEquals(0, ((DefineFunction) tree.getExpressions().get(0)).getSlot());
+        Assert.assertEquals(1, ((DefineConstantFunction) tree.getExpressions().get(1)).getSlot());
+
+        final ApplicationFunction call = (ApplicationFunction) ((DefineFunction) tree.getExpressions().get(0)).getExpression();
+        this.checkAddress(call.getFunction(), 1, 2, true);
+        this.checkAddress(call.getArguments().get(0), 0, 0, false);
+
+        final AddFunction add = (AddFunction) ((DefineFunction) tree.getExpressions().get(2)).getExpression();
+        this.checkAddress(add.getValues().get(1), 1, 1, true);
+
+        final ApplicationFunction topLevelCall = (ApplicationFunction) tree.getExpressions().get(3);
+        this.checkAddress(topLevelCall.getFunction(), 0, 0, true);
+        this.checkAddress(topLevelCall.getArguments().get(0), 0, 1, true);
+    }
+
+    @Test
+    public void testNesting() throws CompilationException {
+        final DecoratedAbstractSyntaxTree tree = this.analyze(
+                "(define (f a b) (local [(define c 1) (define (g d) (+ a b c d))] (lambda (b) (if b c (g a)))))");
+        final LocalFunction local = (LocalFunction) ((DefineFunction) tree.getExpressions().get(0)).getExpression();
+        Assert.assertEquals(2, local.getFrameSize());
+
+        // Frames inside of g: (d) -> (c g) -> (a b) -> globals
+        final AddFunction add = (AddFunction) ((DefineFunction) local.getDefinitions().get(1)).getExpression();
+        this.checkAddress(add.getValues().get(0), 2, 0, false);
+        this.checkAddress(add.getValues().get(1), 2, 1, false);
+        this.checkAddress(add.getValues().get(2), 1, 0, false);
+        this.checkAddress(add.getValues().get(3), 0, 0, false);
+
+        // Frames inside of the lambda: (b) -> (c g) -> (a b) -> globals
+        final IfFunction ifFunction = (IfFunction) ((LambdaFunction) local.getExpression()).getExpression();
+        this.checkAddress(ifFunction.getTest(), 0, 0, false);
+        this.checkAddress(ifFunction.getThen(), 1, 0, false);
+        final ApplicationFunction call = (ApplicationFunction) ifFunction.getElse0();
+        this.checkAddress(call.getFunction(), 1, 1, false);
+        this.checkAddress(call.getArguments().get(0), 2, 0, false);
+    }
+
+    @Test
+    public void testErrors() throws CompilationException {
+        this.checkError("(+ x 1)");
+        this.checkError("(define (f x) y)");
+        this.checkError("(define (f x x) x)");
+        this.checkError("(define x 1)", "(define x 2)");
+        this.checkError("(local [(define a 1) (define a 2)] a)");
+        this.checkError("(local [(define a 1)] a)", "(+ a 1)");
+        this.checkError("(lambda (x) x)", "(+ x 1)");
+    }
+
+    private void checkAddress(final Object expression, final int depth, final int slot, final boolean global) {
+        final Variable variable = (Variable) expression;
+        Assert.assertEquals(variable.getName(), depth, variable.getDepth());
+        Assert.assertEquals(variable.getName(), slot, variable.getSlot());
+        Assert.assertEquals(variable.getName(), global, variable.isGlobal());
+    }
+
+    private void checkError(final String... forms) throws CompilationException {
+        try {
+            this.analyze(forms);
+            Assert.fail("Expected an error: " + Arrays.toString(forms));
+        } catch (final ContextAnalysisException ex) {
+            // Expected.
+        }
+    }
+
+    private DecoratedAbstractSyntaxTree analyze(final String... forms) throws CompilationException {
+        final SymbolTable symbolTable = new SymbolTable();
+        final FusedSyntaxTreeParser parser = new FusedSyntaxTreeParser(symbolTable);
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            elements[i] = parser.parse(new Input(forms[i])).getRootElement();
+        }
+        return ContextAnalyzerTest.ANALYZER.parse(ContextAnalyzerTest.PARSER.parseForms(elements, symbolTable));
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.incremental;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.incremental.IncrementalParser;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+
+@SuppressWarnings("javadoc")
+public class IncrementalParserTest {
+    private static final String[] SNIPPETS = { "(", ")", "[", "]", " ", "\n", ";", "\\", "\"", "a", "bc", "(f x)", "(g (h 1) \"s\")\n" };
+
+    @Test
+    public void testReuse() throws Exception {
+        final IncrementalParser parser = new IncrementalParser("(define x 1)\n(define y 2)\n(print (+ x y))");
+        final TokenTreeContainer before = parser.getTokenTree().getRootContainer();
+        final String syntaxTreeBefore = parser.getSyntaxTree().toString();
+
+        parser.edit(23, 1, "42");
+        Assert.assertEquals("(define x 1)\n(define y 42)\n(print (+ x y))", parser.getText());
+        final TokenTreeContainer after = parser.getTokenTree().getRootContainer();
+        Assert.assertEquals(new TokenTreeParser().parse(new Input(parser.getText())), parser.getTokenTree());
+        // The top-level forms are merged into the root container.
+        Assert.assertSame("The first form must be reused!", before.get(0), after.get(0));
+        Assert.assertNotSame("The second form must be re-parsed!", before.get(3), after.get(3));
+        Assert.assertSame("The last form must be reused!", before.get(7), after.get(7));
+        Assert.assertNotEquals(syntaxTreeBefore, parser.getSyntaxTree().toString());
+    }
+
+    @Test
+    public void testManyForms() throws Exception {
+        final StringBuilder code = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            code.append("(define x").append(i).append(' ').append(i).append(")\n");
+        }
+        final IncrementalParser parser = new IncrementalParser(code);
+        final TokenTreeContainer before = parser.getTokenTree().getRootContainer();
+        final String tokenTreeBefore = before.toString();
+
+        final Random random = new Random(42);
+        for (int edit = 0; edit < 100; edit++) {
+            final int length = parser.getText().length();
+            final int offset = random.nextInt(length + 1);
+            final int removed = random.nextInt(Math.min(20, length - offset) + 1);
+            final String inserted = random.nextBoolean() ? "" : "(f x)\n(g (h 1))";
+            parser.edit(offset, removed, inserted);
+            code.replace(offset, offset + removed, inserted);
+
+            Assert.assertEquals(code.toString(), parser.getText());
+            Assert.assertEquals(this.parseFully(code.toString()), this.parseIncrementally(parser));
+        }
+        // The edits must not modify a token tree that was returned earlier.
+        Assert.assertEquals(tokenTreeBefore, before.toString());
+    }
+
+    @Test
+    public void testRandomEdits() {
+        final Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            final StringBuilder code = new StringBuilder();
+            for (int i = random.nextInt(20); i > 0; i--) {
+                code.append(IncrementalParserTest.SNIPPETS[random.nextInt(IncrementalParserTest.SNIPPETS.length)]);
+            }
+            final IncrementalParser parser = new IncrementalParser(code);
+            for (int edit = 0; edit < 30; edit++) {
+                final int length = parser.getText().length();
+                final int offset = random.nextInt(length + 1);
+                final int removed = random.nextInt(Math.min(4, length - offset) + 1);
+                final String inserted = random.nextBoolean() ? ""
+                        : IncrementalParserTest.SNIPPETS[random.nextInt(IncrementalParserTest.SNIPPETS.length)];
+                parser.edit(offset, removed, inserted);
+
+                Assert.assertEquals(this.parseFully(parser.getText()), this.parseIncrementally(parser));
+            }
+        }
+    }
+
+    private String parseFully(final String code) {
+        try {
+            return new SyntaxTreeParser().parse(new TokenTreeParser().parse(new Input(code))).toString();
+        } catch (final Exception cause) {
+            return cause.getClass().getName() + ": " + cause.getMessage();
+        }
+    }
+
+    private String parseIncrementally(final IncrementalParser parser) {
+        try {
+            return parser.getSyntaxTree().toString();
+        } catch (final Exception cause) {
+            return cause.getClass().getName() + ": " + cause.getMessage();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.instrumentation;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.CompilationPipeline;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.instrumentation.AggregatingCompilationListener;
+import de.fdamken.yalp.parsing.instrumentation.StepSummary;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+
+@SuppressWarnings("javadoc")
+public class AggregatingCompilationListenerTest {
+    @Test
+    public void testSummaries() throws CompilationException, IOException {
+        final CompilationPipeline<Input, SyntaxTree> compiler = new CompilationPipeline<>(new TokenTreeParser(),
+                new SyntaxTreeParser());
+        final AggregatingCompilationListener listener = new AggregatingCompilationListener(true);
+        compiler.addListener(listener);
+
+        final String code = "(define (f x) (+ x 1))";
+        for (int i = 0; i < 3; i++) {
+            compiler.parse(new Input(code));
+        }
+        try {
+            compiler.parse(new Input("(f"));
+            Assert.fail("The compilation did not fail!");
+        } catch (final TokenTreeParsingException ex) {
+            // Expected.
+        }
+
+        final List<StepSummary> summaries = listener.getSummaries();
+        Assert.assertEquals(2, summaries.size());
+
+        final StepSummary tokenTree = summaries.get(0);
+        Assert.assertEquals("TokenTreeParser", tokenTree.getStepName());
+        Assert.assertEquals(4, tokenTree.getExecutions());
+        Assert.assertEquals(1, tokenTree.getFailures());
+        Assert.assertEquals(3 * code.length() + 2, tokenTree.getTotalInputSize());
+        // define, (f x), f, x, (+ x 1), +, x, 1
+        Assert.assertEquals(3 * 8, tokenTree.getTotalOutputSize());
+        Assert.assertTrue(tokenTree.getMinWallTime() <= tokenTree.getMaxWallTime());
+
+        final StepSummary syntaxTree = summaries.get(1);
+        Assert.assertEquals("SyntaxTreeParser", syntaxTree.getStepName());
+        Assert.assertEquals(3, syntaxTree.getExecutions());
+        Assert.assertEquals(0, syntaxTree.getFailures());
+        Assert.assertEquals(3 * 8, syntaxTree.getTotalInputSize());
+        // The whole form, define, f[x], f, x, +[x, 1], +, x, 1
+        Assert.assertEquals(3 * 9, syntaxTree.getTotalOutputSize());
+
+        final StringBuilder exported = new StringBuilder();
+        listener.export(exported);
+        final String[] lines = exported.toString().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertTrue(lines[1].startsWith("TokenTreeParser\t4\t1\t"));
+        Assert.assertTrue(lines[2].startsWith("SyntaxTreeParser\t3\t0\t"));
+        Assert.assertEquals(4, listener.getSummary(TokenTreeParser.class).getExecutions());
+
+        listener.reset();
+        compiler.removeListener(listener);
+        compiler.parse(new Input(code));
+        Assert.assertTrue(listener.getSummaries().isEmpty());
+    }
+
+    @Test
+    public void testWithoutSizes() throws CompilationException {
+        final CompilationPipeline<Input, SyntaxTree> compiler = new CompilationPipeline<>(new TokenTreeParser(),
+                new SyntaxTreeParser());
+        final AggregatingCompilationListener listener = new AggregatingCompilationListener();
+        compiler.addListener(listener);
+        compiler.parse(new Input("(define (f x) (+ x 1))"));
+
+        for (final StepSummary summary : listener.getSummaries()) {
+            Assert.assertEquals(1, summary.getExecutions());
+            Assert.assertEquals(0, summary.getTotalInputSize());
+            Assert.assertEquals(0, summary.getTotalOutputSize());
+        }
+    }
+
+    @Test
+    public void testEqualStepNames() throws CompilationException {
+        final CompilationPipeline<Input, Input> compiler = new CompilationPipeline<>(new First.Step(), new Second.Step(),
+                new Second.Step());
+        final AggregatingCompilationListener listener = new AggregatingCompilationListener();
+        compiler.addListener(listener);
+        compiler.parse(new Input("x"));
+
+        final List<StepSummary> summaries = listener.getSummaries();
+        Assert.assertEquals(2, summaries.size());
+        Assert.assertEquals("Step", summaries.get(0).getStepName());
+        Assert.assertEquals("Step", summaries.get(1).getStepName());
+        Assert.assertEquals(1, listener.getSummary(First.Step.class).getExecutions());
+        Assert.assertEquals(2, listener.getSummary(Second.Step.class).getExecutions());
+    }
+
+    private static class First {
+        private static class Step extends AbstractCompilationStep<Input, Input> {
+            @Override
+            public Input parse(final Input input) {
+                return input;
+            }
+        }
+    }
+
+    private static class Second {
+        private static class Step extends AbstractCompilationStep<Input, Input> {
+            @Override
+            public Input parse(final Input input) {
+                return input;
+            }
+        }
+    }
+}
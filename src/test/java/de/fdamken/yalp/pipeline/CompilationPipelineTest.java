@@ -0,0 +1,182 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.CompilationPipeline;
+import de.fdamken.yalp.parsing.CompilationResult;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+
+@SuppressWarnings("javadoc")
+public class CompilationPipelineTest {
+    private static final int INPUTS = 500;
+
+    private static final CompilationPipeline<Input, SyntaxTree> COMPILER = new CompilationPipeline<>(new TokenTreeParser(),
+            new SyntaxTreeParser());
+
+    @Test
+    public void testParseAllOrdered() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<CompilationResult<Input, SyntaxTree>> results = CompilationPipelineTest.COMPILER
+                    .parseAll(this.createInputs(), executor, 4);
+
+            Assert.assertEquals(CompilationPipelineTest.INPUTS, results.size());
+            for (int i = 0; i < results.size(); i++) {
+                final CompilationResult<Input, SyntaxTree> result = results.get(i);
+                Assert.assertEquals(i, result.getIndex());
+                this.checkResult(result);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testParseAllUnordered() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            final List<CompilationResult<Input, SyntaxTree>> results = CompilationPipelineTest.COMPILER
+                    .parseAll(this.createInputs(), executor, 8, false);
+
+            Assert.assertEquals(CompilationPipelineTest.INPUTS, results.size());
+            final Set<Integer> indices = new HashSet<>();
+            for (final CompilationResult<Input, SyntaxTree> result : results) {
+                Assert.assertTrue(indices.add(result.getIndex()));
+                this.checkResult(result);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSharedPipeline() throws Exception {
+        final ExecutorService callers = Executors.newFixedThreadPool(4);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<CompilationResult<Input, SyntaxTree>>>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(callers.submit(() -> CompilationPipelineTest.COMPILER.parseAll(this.createInputs(), executor, 2)));
+            }
+            for (final Future<List<CompilationResult<Input, SyntaxTree>>> future : futures) {
+                for (final CompilationResult<Input, SyntaxTree> result : future.get()) {
+                    this.checkResult(result);
+                }
+            }
+        } finally {
+            callers.shutdown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRejectingExecutor() throws Exception {
+        final int[] accepted = new int[1];
+        final List<CompilationResult<Input, SyntaxTree>> results = CompilationPipelineTest.COMPILER
+                .parseAll(this.createInputs(), command -> {
+                    if (accepted[0]++ > 0) {
+                        throw new RejectedExecutionException();
+                    }
+                    command.run();
+                }, 4);
+
+        Assert.assertEquals(CompilationPipelineTest.INPUTS, results.size());
+        for (final CompilationResult<Input, SyntaxTree> result : results) {
+            this.checkResult(result);
+        }
+    }
+
+    @Test
+    public void testIdleExecutor() throws Exception {
+        // Accepts all tasks but never runs them.
+        final List<Runnable> accepted = new ArrayList<>();
+        final List<CompilationResult<Input, SyntaxTree>> results = CompilationPipelineTest.COMPILER
+                .parseAll(this.createInputs(), accepted::add, 4);
+
+        Assert.assertEquals(3, accepted.size());
+        Assert.assertEquals(CompilationPipelineTest.INPUTS, results.size());
+        for (final CompilationResult<Input, SyntaxTree> result : results) {
+            this.checkResult(result);
+        }
+        // Running the cancelled tasks late does not do anything.
+        for (final Runnable task : accepted) {
+            task.run();
+        }
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Assert.assertTrue(CompilationPipelineTest.COMPILER.parseAll(Collections.emptyList(), Runnable::run, 1).isEmpty());
+    }
+
+    private List<Input> createInputs() {
+        final List<Input> inputs = new ArrayList<>();
+        for (int i = 0; i < CompilationPipelineTest.INPUTS; i++) {
+            inputs.add(new Input(this.createCode(i)));
+        }
+        return inputs;
+    }
+
+    private String createCode(final int i) {
+        switch (i % 10) {
+        case 3:
+            return "(f" + i;
+        case 7:
+            return "(f ())";
+        default:
+            return "(define (f" + i + " x) (+ x " + i + "))";
+        }
+    }
+
+    private void checkResult(final CompilationResult<Input, SyntaxTree> result) throws CompilationException {
+        final int i = result.getIndex();
+        switch (i % 10) {
+        case 3:
+            Assert.assertTrue(result.getFailure() instanceof TokenTreeParsingException);
+            break;
+        case 7:
+            Assert.assertTrue(result.getFailure() instanceof SyntaxTreeParsingException);
+            break;
+        default:
+            Assert.assertTrue(result.isSuccessful());
+            Assert.assertEquals(CompilationPipelineTest.COMPILER.parse(new Input(this.createCode(i))),
+                    result.getOutputOrThrow());
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.IntermediateRepresentation;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.compile.AbstractSyntaxTreeParser;
+import de.fdamken.yalp.parsing.dast.compile.ContextAnalyzer;
+import de.fdamken.yalp.parsing.dast.representation.DecoratedAbstractSyntaxTree;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.FusedSyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+
+/**
+ * The tests every backend has to pass. Subclasses provide the compiler and
+ * the way a compiled program is run.
+ *
+ * @param <P>
+ *            The type of the compiled programs.
+ */
+@SuppressWarnings("javadoc")
+public abstract class AbstractCompilerTest<P extends IntermediateRepresentation> {
+    private static final AbstractSyntaxTreeParser PARSER = new AbstractSyntaxTreeParser();
+    private static final ContextAnalyzer ANALYZER = new ContextAnalyzer();
+
+    private final AbstractCompilationStep<DecoratedAbstractSyntaxTree, P> compiler;
+
+    protected AbstractCompilerTest(final AbstractCompilationStep<DecoratedAbstractSyntaxTree, P> compiler) {
+        this.compiler = compiler;
+    }
+
+    @Test
+    public void testRecursion() throws CompilationException {
+        final List<Object> values = this.run("(define (fact n) (if (= n 0) 1 (* n (fact (- n 1)))))", "(fact 20)",
+                "(fact 25)", "(define (fib n) (if (< n 2) n (+ (fib (- n 1)) (fib (- n 2)))))", "(fib 20)");
+        Assert.assertEquals(Arrays.asList(2432902008176640000L, new BigInteger("15511210043330985984000000"), 6765L),
+                values);
+    }
+
+    @Test
+    public void testMutualRecursion() throws CompilationException {
+        final List<Object> values = this.run("(define (even n) (if (zero? n) true (odd (- n 1))))",
+                "(define (odd n) (if (zero? n) false (even (- n 1))))", "(even 100)", "(odd 7)");
+        Assert.assertEquals(Arrays.asList(true, true), values);
+    }
+
+    @Test
+    public void testHigherOrderFunctions() throws CompilationException {
+        final List<Object> values = this.run("(foldl + 0 (list 1 2 3))",
+                "(map (lambda (x) (* x x)) (list 1 2 3))", "(foldr cons empty (list 1 2))",
+                "(filter even? (list 1 2 3 4))", "(define (adder n) (lambda (x) (+ x n)))", "((adder 2) 3)",
+                "(map + (list 1 2) (list 10 20))");
+        Assert.assertEquals(6L, values.get(0));
+        Assert.assertEquals("(list 1 4 9)", Values.toPrintString(values.get(1)));
+        Assert.assertEquals("(list 1 2)", Values.toPrintString(values.get(2)));
+        Assert.assertEquals("(list 2 4)", Values.toPrintString(values.get(3)));
+        Assert.assertEquals(5L, values.get(4));
+        Assert.assertEquals("(list 11 22)", Values.toPrintString(values.get(5)));
+    }
+
+    @Test
+    public void testVariadicFunctionValues() throws CompilationException {
+        final List<Object> values = this.run("(map list (list 1 2))", "(map list (list 1) (list 2) (list 3))",
+                "(map - (list 1 2))", "(map - (list 5 6) (list 1 2))", "(map * (list 1 2) (list 3 4) (list 5 6))",
+                "(foldl max 0 (list 3 1 2))", "(map < (list 1 5) (list 2 3) (list 4 4))", "((lambda (f) (f)) +)");
+        Assert.assertEquals("(list (list 1) (list 2))", Values.toPrintString(values.get(0)));
+        Assert.assertEquals("(list (list 1 2 3))", Values.toPrintString(values.get(1)));
+        Assert.assertEquals("(list -1 -2)", Values.toPrintString(values.get(2)));
+        Assert.assertEquals("(list 4 4)", Values.toPrintString(values.get(3)));
+        Assert.assertEquals("(list 15 48)", Values.toPrintString(values.get(4)));
+        Assert.assertEquals(3L, values.get(5));
+        Assert.assertEquals("(list #true #false)", Values.toPrintString(values.get(6)));
+        Assert.assertEquals(0L, values.get(7));
+        this.checkError("((lambda (f) (f)) -)");
+        this.checkError("((lambda (f) (f)) max)");
+    }
+
+    @Test
+    public void testLocalAndStructs() throws CompilationException {
+        final List<Object> values = this.run("(define-struct posn (x y))",
+                "(define (f a) (local [(define b (* a 2)) (define (g c) (+ b c))] (g 1)))", "(f 3)",
+                "(posn-y (make-posn 1 2))", "(posn? (make-posn 1 2))", "(posn? 1)", "(make-posn 1 \"a\")",
+                "(local [(define-struct p (a))] (p-a (make-p 'x)))");
+        Assert.assertEquals(7L, values.get(0));
+        Assert.assertEquals(2L, values.get(1));
+        Assert.assertEquals(true, values.get(2));
+        Assert.assertEquals(false, values.get(3));
+        Assert.assertEquals("(make-posn 1 \"a\")", Values.toPrintString(values.get(4)));
+        Assert.assertEquals(Symbol.of("x"), values.get(5));
+    }
+
+    @Test
+    public void testCapturedVariables() throws CompilationException {
+        final List<Object> values = this.run("(define (curry3 f) (lambda (a) (lambda (b) (lambda (c) (f a b c)))))",
+                "((((curry3 (lambda (a b c) (+ a b c))) 1) 2) 3)",
+                "(define (counter n) (local [(define m (* n 10)) (define (h k) (local [(define j 1)] (+ m k j)))] h))",
+                "((counter 2) 5)", "(define (outer x) (local [(define y 2)] ((lambda (z) (+ x y z)) 3)))", "(outer 1)",
+                "(define (make-const n) (local [(define x n)] (lambda (y) x)))",
+                "((first (list (make-const 1) (+ 2 3))) 0)");
+        Assert.assertEquals(Arrays.asList(6L, 26L, 6L, 1L), values);
+    }
+
+    @Test
+    public void testTailCalls() throws CompilationException {
+        final List<Object> values = this.run("(define (loop n) (if (= n 0) 0 (loop (- n 1))))", "(loop 1000000)",
+                "(define (even n) (if (zero? n) true (odd (- n 1))))",
+                "(define (odd n) (cond [(zero? n) false] [else (even (- n 1))]))", "(even 1000000)",
+                "(define (len l) (local [(define (go l n) (cond [(empty? l) n] [else (go (rest l) (+ n 1))]))] (go l 0)))",
+                "(len (list 1 2 3))", "(define (apply-n f n x) (if (zero? n) x (apply-n f (- n 1) (f x))))",
+                "(apply-n (lambda (x) (+ x 2)) 1000000 0)",
+                "((lambda (f) (f f 1000000)) (lambda (g n) (if (zero? n) 'done (g g (- n 1)))))");
+        Assert.assertEquals(Arrays.asList(0L, true, 3L, 2000000L, Symbol.of("done")), values);
+    }
+
+    @Test
+    public void testDeepRecursion() throws CompilationException {
+        final List<Object> values = this.run("(define (count n) (if (= n 0) 0 (+ 1 (count (- n 1)))))", "(count 2000)",
+                "(define (sum l) (if (empty? l) 0 (+ (first l) (sum (rest l)))))",
+                "(define (upto n) (if (= n 0) empty (cons n (upto (- n 1)))))", "(sum (upto 2000))",
+                "(foldr + 0 (upto 2000))");
+        Assert.assertEquals(Arrays.asList(2000L, 2001000L, 2001000L), values);
+        this.checkError("(define (f n) (+ 1 (f n)))", "(f 0)");
+    }
+
+    @Test
+    public void testInterrupt() throws CompilationException, InterruptedException {
+        final P program = this.compile("(define (loop n) (loop n))", "(loop 0)");
+        final Throwable[] failure = new Throwable[1];
+        final Thread thread = new Thread(() -> {
+            try {
+                this.run(program, new StringBuilder());
+            } catch (final RuntimeException ex) {
+                failure[0] = ex;
+            }
+        });
+        thread.start();
+        Thread.sleep(100);
+        thread.interrupt();
+        thread.join(10000);
+        Assert.assertFalse(thread.isAlive());
+        Assert.assertTrue(failure[0] instanceof EvaluationException);
+    }
+
+    @Test
+    public void testConditionals() throws CompilationException {
+        final List<Object> values = this.run("(define (sign x) (cond [(< x 0) 'neg] [(> x 0) 'pos] [else 'zero]))",
+                "(sign -5)", "(sign 0)", "(and true (< 1 2 3))", "(or false (>= 1 2))", "(not (eq? 'a 'a))");
+        Assert.assertEquals(Arrays.asList(Symbol.of("neg"), Symbol.of("zero"), true, false, false), values);
+    }
+
+    @Test
+    public void testEq() throws CompilationException {
+        final List<Object> values = this.run("(eq? \"a\" \"a\")", "(eq? 1.0 1.0)", "(eq? 1/2 1/2)",
+                "(eq? 99999999999999999999 99999999999999999999)", "(eq? 1 1.0)", "(define (same x y) (eq? x y))",
+                "(same 1/3 (/ 1 3))", "(same (list 1) (list 1))", "(define l (list 1))", "(eq? l l)");
+        Assert.assertEquals(Arrays.asList(true, true, true, true, false, true, false, true), values);
+    }
+
+    @Test
+    public void testNumbers() throws CompilationException {
+        final List<Object> values = this.run("(/ 1 3)", "(+ 1/2 1/2)", "(sqrt 16)", "(* 2 0.5)", "(expt 2 -2)",
+                "(floor -5/2)", "(remainder -7 2)", "(max 1 2.0)");
+        Assert.assertEquals("1/3", Values.toPrintString(values.get(0)));
+        Assert.assertEquals(1L, values.get(1));
+        Assert.assertEquals(4L, values.get(2));
+        Assert.assertEquals(1.0, values.get(3));
+        Assert.assertEquals("1/4", Values.toPrintString(values.get(4)));
+        Assert.assertEquals(-3L, values.get(5));
+        Assert.assertEquals(-1L, values.get(6));
+        Assert.assertEquals(2.0, values.get(7));
+    }
+
+    @Test
+    public void testLargeLiterals() throws CompilationException {
+        final List<Object> values = this.run("(+ 2147483648 1)", "(* 4294967296 4294967296)", "(- 0 99999999999)",
+                "(+ 1/9223372036854775808 0)");
+        Assert.assertEquals(2147483649L, values.get(0));
+        Assert.assertEquals(new BigInteger("18446744073709551616"), values.get(1));
+        Assert.assertEquals(-99999999999L, values.get(2));
+        Assert.assertEquals("1/9223372036854775808", Values.toPrintString(values.get(3)));
+    }
+
+    @Test
+    public void testOutput() throws CompilationException {
+        final P program = this.compile("(print \"a\")", "(printf \"~a+~s~n\" 1 \"b\")");
+        final StringBuilder output = new StringBuilder();
+        this.run(program, output);
+        Assert.assertEquals("\"a\"1+\"b\"\n", output.toString());
+
+        // Every run starts with fresh definitions.
+        output.setLength(0);
+        this.run(program, output);
+        Assert.assertEquals("\"a\"1+\"b\"\n", output.toString());
+    }
+
+    @Test
+    public void testErrors() throws CompilationException {
+        this.checkError("(/ 1 0)");
+        this.checkError("(first empty)");
+        this.checkError("(if 1 2 3)");
+        this.checkError("(cond [false 1])");
+        this.checkError("(define a b)", "(define b 1)");
+        this.checkError("(define (f x) x)", "(f 1 2)");
+        this.checkError("((lambda (x) x))");
+        this.checkError("(define x 1)", "(x 1)");
+        this.checkError("(+ 1 \"a\")");
+        this.checkError("(define-struct posn (x y))", "(posn-x 1)");
+    }
+
+    protected abstract List<Object> run(final P program, final Appendable output) throws EvaluationException;
+
+    protected void checkError(final String... forms) throws CompilationException {
+        try {
+            this.run(forms);
+            Assert.fail("Expected an error: " + Arrays.toString(forms));
+        } catch (final EvaluationException ex) {
+            // Expected.
+        }
+    }
+
+    protected List<Object> run(final String... forms) throws CompilationException {
+        return this.run(this.compile(forms), new StringBuilder());
+    }
+
+    protected P compile(final String... forms) throws CompilationException {
+        final SymbolTable symbolTable = new SymbolTable();
+        final FusedSyntaxTreeParser parser = new FusedSyntaxTreeParser(symbolTable);
+        final SyntaxTreeElement[] elements = new SyntaxTreeElement[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            elements[i] = parser.parse(new Input(forms[i])).getRootElement();
+        }
+        return this.compiler.parse(AbstractCompilerTest.ANALYZER
+                .parse(AbstractCompilerTest.PARSER.parseForms(elements, symbolTable)));
+    }
+}
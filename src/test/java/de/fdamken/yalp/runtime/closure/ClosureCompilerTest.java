@@ -0,0 +1,37 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.closure;
+
+import java.util.List;
+
+import de.fdamken.yalp.runtime.AbstractCompilerTest;
+import de.fdamken.yalp.runtime.EvaluationException;
+
+@SuppressWarnings("javadoc")
+public class ClosureCompilerTest extends AbstractCompilerTest<ClosureProgram> {
+    public ClosureCompilerTest() {
+        super(new ClosureCompiler());
+    }
+
+    @Override
+    protected List<Object> run(final ClosureProgram program, final Appendable output) throws EvaluationException {
+        return program.run(output);
+    }
+}
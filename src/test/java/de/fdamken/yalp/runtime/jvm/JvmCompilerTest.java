@@ -0,0 +1,68 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.jvm;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.runtime.AbstractCompilerTest;
+import de.fdamken.yalp.runtime.EvaluationException;
+
+@SuppressWarnings("javadoc")
+public class JvmCompilerTest extends AbstractCompilerTest<JvmProgram> {
+    public JvmCompilerTest() {
+        super(new JvmCompiler());
+    }
+
+    @Test
+    public void testClassFiles() throws CompilationException {
+        final JvmProgram program = this.compile("(define (f x) (lambda (y) (+ x y)))", "((f 1) 2)");
+        Assert.assertTrue(program.getClassFiles().size() >= 3);
+        Assert.assertTrue(program.getSize() > 0);
+        Assert.assertEquals(Arrays.asList(3L), program.run(new StringBuilder()));
+    }
+
+    @Test
+    public void testUnloadClasses() throws CompilationException, InterruptedException {
+        final WeakReference<ClassLoader> loader = this.runAndDrop();
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assert.assertNull("The classes of a dropped program must be garbage collected!", loader.get());
+    }
+
+    private WeakReference<ClassLoader> runAndDrop() throws CompilationException {
+        final JvmProgram program = this.compile("(define (f x) (lambda (y) (+ x y)))", "(f 1)");
+        final ClassLoader loader = program.run(new StringBuilder()).get(0).getClass().getClassLoader();
+        Assert.assertNotSame(JvmProgram.class.getClassLoader(), loader);
+        return new WeakReference<>(loader);
+    }
+
+    @Override
+    protected List<Object> run(final JvmProgram program, final Appendable output) throws EvaluationException {
+        return program.run(output);
+    }
+}
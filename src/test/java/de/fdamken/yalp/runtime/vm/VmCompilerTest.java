@@ -0,0 +1,128 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.runtime.vm;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.runtime.AbstractCompilerTest;
+import de.fdamken.yalp.runtime.EvaluationException;
+import de.fdamken.yalp.runtime.Symbol;
+import de.fdamken.yalp.runtime.Values;
+
+@SuppressWarnings("javadoc")
+public class VmCompilerTest extends AbstractCompilerTest<VmProgram> {
+    private static final String[] PROGRAM = { "(define-struct posn (x y))",
+            "(define (fact n) (if (= n 0) 1 (* n (fact (- n 1)))))",
+            "(print \"x\")", "(printf \"~a~n\" 1/3)", "(cond [(< 1 0) 'a] [else 'b])", "(+ 2 0.5)", "(posn? (make-posn 1 2))",
+            "(map (lambda (x) (* x x)) (list 1 2 3))", "(first (list #\\c))", "(fact 18)", "(posn-y (make-posn 1 2))",
+            "(map list (list 1) (list 2))" };
+
+    public VmCompilerTest() {
+        super(new VmCompiler());
+    }
+
+    @Test
+    public void testBinaryAssembly() throws CompilationException, IOException {
+        final VmProgram program = this.compile(VmCompilerTest.PROGRAM);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (final BinaryAssemblyWriter writer = new BinaryAssemblyWriter(bytes)) {
+            writer.write(program);
+        }
+        final VmProgram loaded;
+        try (final BinaryAssemblyReader reader = new BinaryAssemblyReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            loaded = reader.read();
+        }
+        this.checkLoaded(program, loaded);
+    }
+
+    @Test
+    public void testTextAssembly() throws CompilationException, IOException {
+        final VmProgram program = this.compile(VmCompilerTest.PROGRAM);
+        final StringWriter text = new StringWriter();
+        try (final TextAssemblyWriter writer = new TextAssemblyWriter(text)) {
+            writer.write(program);
+        }
+        final VmProgram loaded;
+        try (final TextAssemblyReader reader = new TextAssemblyReader(new StringReader(text.toString()))) {
+            loaded = reader.read();
+        }
+        this.checkLoaded(program, loaded);
+    }
+
+    @Test
+    public void testInvalidAssembly() {
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 1\n    return r1\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 2\n    jump @1\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 2\n    const r1 k0\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 2\n    getenv r1 1 0\n    return r1\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.constant 0 string \"a\"\n.function 0 \"f\" 0 2\n    getattr r1 k0 0 r1\n"
+                + "    return r1\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 4\n    prim r2 list r3 2147483646\n    return r2\n.end\n"
+                + ".form 0 result\n");
+        this.checkInvalid(".assembly 2\n");
+    }
+
+    @Test
+    public void testUnassignedRegisters() {
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 3\n    move r1 r2\n    return r1\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 3\n    prim r1 list r1 2\n    return r1\n.end\n"
+                + ".form 0 result\n");
+        this.checkInvalid(".assembly 1\n.constant 0 string \"a\"\n.function 0 \"f\" 0 3\n    const r1 k0\n"
+                + "    jumpf r1 @10 k0\n    const r2 k0\n    return r2\n.end\n.form 0 result\n");
+        this.checkInvalid(".assembly 1\n.function 0 \"f\" 0 3\n    closure r1 f1\n    return r1\n.end\n"
+                + ".function 1 \"g\" 0 2\n    getenv r1 1 2\n    return r1\n.end\n.form 0 result\n");
+    }
+
+    private void checkLoaded(final VmProgram program, final VmProgram loaded) {
+        final StringBuilder output = new StringBuilder();
+        final List<Object> values = loaded.run(output);
+        Assert.assertEquals(program.getSize(), loaded.getSize());
+        Assert.assertEquals("\"x\"1/3\n", output.toString());
+        Assert.assertEquals(Arrays.asList(Symbol.of("b"), 2.5, true, "(list 1 4 9)", 'c', 6402373705728000L),
+                Arrays.asList(values.get(2), values.get(3), values.get(4), Values.toPrintString(values.get(5)),
+                        values.get(6), values.get(7)));
+        Assert.assertEquals(2L, values.get(8));
+        Assert.assertEquals("(list (list 1 2))", Values.toPrintString(values.get(9)));
+    }
+
+    private void checkInvalid(final String text) {
+        try (final TextAssemblyReader reader = new TextAssemblyReader(new StringReader(text))) {
+            reader.read();
+            Assert.fail("Expected an error: " + text);
+        } catch (final IOException ex) {
+            // Expected.
+        }
+    }
+
+    @Override
+    protected List<Object> run(final VmProgram program, final Appendable output) throws EvaluationException {
+        return program.run(output);
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.syntaxtree.binary;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.CompilationPipeline;
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.LiteralKind;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.binary.BinarySyntaxTreeReader;
+import de.fdamken.yalp.parsing.st.binary.BinarySyntaxTreeWriter;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+
+@SuppressWarnings("javadoc")
+public class BinarySyntaxTreeReaderTest {
+    private static final CompilationPipeline<Input, SyntaxTree> COMPILER = new CompilationPipeline<>(new TokenTreeParser(),
+            new SyntaxTreeParser());
+
+    @Test
+    public void testRoundTrip() throws CompilationException, IOException {
+        final StringBuilder longString = new StringBuilder("\"");
+        for (int i = 0; i < 10000; i++) {
+            longString.append("ä€");
+        }
+        longString.append('"');
+        final String[] codes = { "(+ 1 2)", "(f)", "(define (f x) (g x \"a string\" x))",
+                "(übung \"€\" (x (y (z))))", "(f " + longString + " x)" };
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+            for (final String code : codes) {
+                writer.write(BinarySyntaxTreeReaderTest.COMPILER.parse(new Input(code)));
+            }
+        }
+
+        final SymbolTable symbolTable = new SymbolTable();
+        try (final BinarySyntaxTreeReader reader = new BinarySyntaxTreeReader(new ByteArrayInputStream(out.toByteArray()),
+                symbolTable)) {
+            Assert.assertEquals(2, reader.getVersion());
+            for (final String code : codes) {
+                final SyntaxTree syntaxTree = reader.read();
+                Assert.assertEquals(BinarySyntaxTreeReaderTest.COMPILER.parse(new Input(code)), syntaxTree);
+                Assert.assertSame(symbolTable, syntaxTree.getSymbolTable());
+            }
+            Assert.assertNull(reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testSymbols() throws IOException {
+        final SyntaxTree syntaxTree = new SyntaxTree(
+                new FunctionCall(new Literal("f"), new Literal("x"), new Literal("\"x\""), new Literal("x")));
+        final SymbolTable symbolTable = new SymbolTable();
+        final FunctionCall read = (FunctionCall) this.readBack(syntaxTree, symbolTable).getRootElement();
+
+        final Literal first = (Literal) read.getParameters()[0];
+        Assert.assertEquals(symbolTable.intern("x"), first.getSymbolId());
+        Assert.assertSame(first, read.getParameters()[2]);
+        Assert.assertEquals(SymbolTable.NO_SYMBOL, ((Literal) read.getParameters()[1]).getSymbolId());
+    }
+
+    @Test
+    public void testKinds() throws IOException {
+        final SyntaxTree syntaxTree = new SyntaxTree(new FunctionCall(new Literal("f"), new Literal("#a", 1, LiteralKind.CHAR),
+                new Literal("#a", 1, LiteralKind.SYMBOL), new Literal("1", 2, LiteralKind.SYMBOL), new Literal("1")));
+        final FunctionCall read = (FunctionCall) this.readBack(syntaxTree, new SymbolTable()).getRootElement();
+
+        final LiteralKind[] kinds = { LiteralKind.CHAR, LiteralKind.SYMBOL, LiteralKind.SYMBOL, LiteralKind.INTEGER };
+        for (int i = 0; i < kinds.length; i++) {
+            Assert.assertEquals(kinds[i], ((Literal) read.getParameters()[i]).getKind());
+        }
+    }
+
+    @Test
+    public void testVersion1() throws IOException {
+        // (f 1 f) without kinds: f is classified as a symbol and 1 as an
+        // integer.
+        final byte[] bytes = { 'Y', 'L', 'S', 'T', 1, 1, 2 << 2, 1 << 2 | 2, 'f', 1 << 2 | 2,
+                '1', 0 << 2 | 1, 0 };
+        try (final BinarySyntaxTreeReader reader = new BinarySyntaxTreeReader(new ByteArrayInputStream(bytes))) {
+            Assert.assertEquals(1, reader.getVersion());
+            final FunctionCall read = (FunctionCall) reader.read().getRootElement();
+            Assert.assertEquals(LiteralKind.SYMBOL, ((Literal) read.getFunction()).getKind());
+            Assert.assertEquals(LiteralKind.INTEGER, ((Literal) read.getParameters()[0]).getKind());
+            Assert.assertSame(read.getFunction(), read.getParameters()[1]);
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testDeepNesting() throws IOException {
+        final int depth = 100000;
+        SyntaxTreeElement element = new Literal("x");
+        for (int i = 0; i < depth; i++) {
+            element = new FunctionCall(new Literal("f"), element, new Literal(Integer.toString(i % 100)));
+        }
+
+        SyntaxTreeElement read = this.readBack(new SyntaxTree(element), new SymbolTable()).getRootElement();
+        for (int i = depth - 1; i >= 0; i--) {
+            final FunctionCall call = (FunctionCall) read;
+            Assert.assertEquals(new Literal("f"), call.getFunction());
+            Assert.assertEquals(new Literal(Integer.toString(i % 100)), call.getParameters()[1]);
+            read = call.getParameters()[0];
+        }
+        Assert.assertEquals(new Literal("x"), read);
+    }
+
+    @Test
+    public void testElements() throws IOException {
+        final SyntaxTreeElement[] elements = { new Literal("a"), new FunctionCall(new Literal("b"), new Literal("a")) };
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+            writer.writeElements(elements);
+            writer.writeElements(new SyntaxTreeElement[0]);
+        }
+
+        try (final BinarySyntaxTreeReader reader = new BinarySyntaxTreeReader(new ByteArrayInputStream(out.toByteArray()))) {
+            Assert.assertTrue(Arrays.equals(elements, reader.readElements()));
+            Assert.assertEquals(0, reader.readElements().length);
+            Assert.assertNull(reader.readElements());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongRecordKind() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+            writer.writeElements(new SyntaxTreeElement[0]);
+        }
+        new BinarySyntaxTreeReader(new ByteArrayInputStream(out.toByteArray())).read();
+    }
+
+    @Test(expected = IOException.class)
+    public void testWrongMagic() throws IOException {
+        new BinarySyntaxTreeReader(new ByteArrayInputStream("(+ 1 2)".getBytes()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedVersion() throws IOException {
+        new BinarySyntaxTreeReader(new ByteArrayInputStream(new byte[] { 'Y', 'L', 'S', 'T', 3 }));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+            writer.write(new SyntaxTree(new FunctionCall(new Literal("f"), new Literal("x"))));
+        }
+        final byte[] bytes = out.toByteArray();
+        new BinarySyntaxTreeReader(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3))).read();
+    }
+
+    private SyntaxTree readBack(final SyntaxTree syntaxTree, final SymbolTable symbolTable) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final BinarySyntaxTreeWriter writer = new BinarySyntaxTreeWriter(out)) {
+            writer.write(syntaxTree);
+        }
+        try (final BinarySyntaxTreeReader reader = new BinarySyntaxTreeReader(new ByteArrayInputStream(out.toByteArray()),
+                symbolTable)) {
+            return reader.read();
+        }
+    }
+}
@@ -19,14 +19,22 @@
  */
 package de.fdamken.yalp.syntaxtree.compile;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import de.fdamken.yalp.parsing.AbstractCompilationStep;
 import de.fdamken.yalp.parsing.CompilationPipeline;
 import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.LiteralKind;
 import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.FusedSyntaxTreeParser;
 import de.fdamken.yalp.parsing.st.compile.SyntaxTreeParser;
+import de.fdamken.yalp.parsing.st.exception.SyntaxTreeParsingException;
 import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTreeElement;
 import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
 import de.fdamken.yalp.parsing.st.representation.element.Literal;
 import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
@@ -35,6 +43,7 @@ import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
 public class SyntaxTreeParserTest {
     private static final CompilationPipeline<Input, SyntaxTree> COMPILER = new CompilationPipeline<>(new TokenTreeParser(),
             new SyntaxTreeParser());
+    private static final FusedSyntaxTreeParser FUSED_COMPILER = new FusedSyntaxTreeParser();
 
     @Test
     public void testSimple() throws CompilationException {
@@ -88,8 +97,106 @@ public class SyntaxTreeParserTest {
         this.check("; Hello, World!\n(+ 1 2)", new SyntaxTree(rootElement));
     }
 
+    @Test
+    public void testDeepNesting() throws CompilationException {
+        final int depth = 500000;
+        final StringBuilder code = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            code.append("(f ");
+        }
+        code.append('x');
+        for (int i = 0; i < depth; i++) {
+            code.append(')');
+        }
+
+        // The trees are too deep for the recursive equals(Object), so walk
+        // them iteratively.
+        SyntaxTreeElement element = SyntaxTreeParserTest.COMPILER.parse(new Input(code.toString())).getRootElement();
+        for (int i = 0; i < depth; i++) {
+            final FunctionCall call = (FunctionCall) element;
+            Assert.assertEquals(new Literal("f"), call.getFunction());
+            Assert.assertEquals(1, call.getParameters().length);
+            element = call.getParameters()[0];
+        }
+        Assert.assertEquals(new Literal("x"), element);
+    }
+
+    @Test(expected = SyntaxTreeParsingException.class)
+    public void testEmptyCall() throws CompilationException {
+        SyntaxTreeParserTest.COMPILER.parse(new Input("(f (g) (h ()))"));
+    }
+
+    @Test(expected = SyntaxTreeParsingException.class)
+    public void testFusedEmptyCall() throws CompilationException {
+        SyntaxTreeParserTest.FUSED_COMPILER.parse(new Input("(f (g) (h ()))"));
+    }
+
+    @Test
+    public void testFusedErrors() {
+        final String[] codes = { "", "()", "(f", "(f))", "x", "(f (g) ())", "(f \"x) y\")", "(f) (g) ; comment (",
+                "(a b) (c (d) e)", "(f ())) (" };
+        for (final String code : codes) {
+            Assert.assertEquals(code, this.parseResult(SyntaxTreeParserTest.COMPILER, code),
+                    this.parseResult(SyntaxTreeParserTest.FUSED_COMPILER, code));
+        }
+    }
+
+    @Test
+    public void testLiteralKinds() throws CompilationException {
+        final String code = "(f 42 -7 1/2 .5 1.5e3 #t #false \"a \\\" b\" #\\a #\\( #a a\\ b + -> 1/x)";
+        final LiteralKind[] kinds = { LiteralKind.INTEGER, LiteralKind.INTEGER, LiteralKind.FRACTION,
+                LiteralKind.FLOATING_POINT, LiteralKind.FLOATING_POINT, LiteralKind.BOOLEAN, LiteralKind.BOOLEAN,
+                LiteralKind.STRING, LiteralKind.CHAR, LiteralKind.CHAR, LiteralKind.SYMBOL, LiteralKind.SYMBOL,
+                LiteralKind.SYMBOL, LiteralKind.SYMBOL, LiteralKind.SYMBOL };
+
+        final Input[] inputs = { new Input(code), new Input(code), new Input(
+                new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8) };
+        final SyntaxTree[] syntaxTrees = { SyntaxTreeParserTest.COMPILER.parse(inputs[0]),
+                SyntaxTreeParserTest.FUSED_COMPILER.parse(inputs[1]), SyntaxTreeParserTest.COMPILER.parse(inputs[2]) };
+        for (final SyntaxTree syntaxTree : syntaxTrees) {
+            final SyntaxTreeElement[] parameters = ((FunctionCall) syntaxTree.getRootElement()).getParameters();
+            Assert.assertEquals(kinds.length, parameters.length);
+            for (int i = 0; i < kinds.length; i++) {
+                Assert.assertEquals(parameters[i].toString(), kinds[i], ((Literal) parameters[i]).getKind());
+            }
+            Assert.assertEquals("#\\a", ((Literal) parameters[8]).getContent());
+            Assert.assertEquals("a b", ((Literal) parameters[11]).getContent());
+        }
+    }
+
+    @Test
+    public void testClassify() {
+        final String[] integers = { "0", "+1", "-12" };
+        final String[] fractions = { "1/2", "-10/3" };
+        final String[] floatingPoints = { "1.", ".5", "-0.5", "1e3", "1.5E-3", "+.5e+2" };
+        final String[] symbols = { "", "+", "-", ".", "...", "->", "1/", "/2", "1/x", "1.2.3", "1e", "e1", "#", "#tru", "#\\", "1a" };
+        this.checkClassify(LiteralKind.INTEGER, integers);
+        this.checkClassify(LiteralKind.FRACTION, fractions);
+        this.checkClassify(LiteralKind.FLOATING_POINT, floatingPoints);
+        this.checkClassify(LiteralKind.BOOLEAN, "#t", "#f", "#true", "#false");
+        this.checkClassify(LiteralKind.STRING, "\"\"", "\"x\"");
+        this.checkClassify(LiteralKind.CHAR, "#\\a", "#\\t", "#\\\\", "#\\space");
+        this.checkClassify(LiteralKind.SYMBOL, symbols);
+    }
+
+    private void checkClassify(final LiteralKind kind, final String... contents) {
+        for (final String content : contents) {
+            Assert.assertEquals(content, kind, LiteralKind.classify(content));
+        }
+    }
+
+    private Object parseResult(final AbstractCompilationStep<Input, SyntaxTree> compiler, final String code) {
+        try {
+            return compiler.parse(new Input(code));
+        } catch (final CompilationException | IllegalStateException ex) {
+            return ex.getClass();
+        }
+    }
+
     private void check(final String code, final SyntaxTree syntaxTree) throws CompilationException {
         final SyntaxTree compiledSyntaxTree = SyntaxTreeParserTest.COMPILER.parse(new Input(code));
         Assert.assertEquals("The built syntax tree does not match the expected syntax tree!", syntaxTree, compiledSyntaxTree);
+        Assert.assertEquals("The fused syntax tree does not match the expected syntax tree!", syntaxTree,
+                SyntaxTreeParserTest.FUSED_COMPILER.parse(new Input(code)));
     }
 }
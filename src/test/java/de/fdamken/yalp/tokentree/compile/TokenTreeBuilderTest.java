@@ -19,12 +19,15 @@
  */
 package de.fdamken.yalp.tokentree.compile;
 
+import java.util.Iterator;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
 import de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement;
 import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
 
 @SuppressWarnings("javadoc")
 public class TokenTreeBuilderTest {
@@ -155,6 +158,58 @@ public class TokenTreeBuilderTest {
         this.checkAST(builder, containerSqrt);
     }
 
+    @Test
+    public void testBuildTokenTree() {
+        final TokenTreeBuilder builder = new TokenTreeBuilder();
+
+        builder.openContainer();
+        builder.addElement("a");
+        builder.closeContainer();
+
+        final TokenTreeContainer expected = new TokenTreeContainer();
+        expected.addElement(new SimpleTokenTreeElement("a"));
+        final TokenTreeContainer root = builder.buildTokenTree().getRootContainer();
+        Assert.assertEquals(expected, root);
+        Assert.assertTrue("The built containers must be frozen!", root.isFrozen());
+        Assert.assertEquals(1, root.size());
+        Assert.assertEquals(new SimpleTokenTreeElement("a"), root.get(0));
+
+        try {
+            builder.openContainer();
+            Assert.fail("The builder must not be usable after the token tree was built!");
+        } catch (final IllegalStateException expectedException) {
+            // Expected.
+        }
+    }
+
+    @Test
+    public void testFrozenContainer() {
+        final TokenTreeContainer container = new TokenTreeContainer();
+        container.addElement(new SimpleTokenTreeElement("Hello"));
+        container.addElement(new SimpleTokenTreeElement("World"));
+        container.freeze();
+
+        Assert.assertSame(container.getElements(), container.getElements());
+        Assert.assertEquals(2, container.getElements().size());
+        final Iterator<TokenTreeElement> iterator = container.iterator();
+        Assert.assertEquals(new SimpleTokenTreeElement("Hello"), iterator.next());
+        try {
+            iterator.remove();
+            Assert.fail("The elements must not be removable!");
+        } catch (final UnsupportedOperationException expectedException) {
+            // Expected.
+        }
+        Assert.assertEquals(new SimpleTokenTreeElement("World"), iterator.next());
+        Assert.assertFalse(iterator.hasNext());
+        try {
+            container.getElements().clear();
+            Assert.fail("The elements must not be modifiable!");
+        } catch (final UnsupportedOperationException expectedException) {
+            // Expected.
+        }
+        Assert.assertEquals(2, container.size());
+    }
+
     private void checkNotFinished(final TokenTreeBuilder builder) {
         Assert.assertFalse("The builder must not be finished!", builder.isFinished());
     }
@@ -19,18 +19,42 @@
  */
 package de.fdamken.yalp.tokentree.compile;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import de.fdamken.yalp.parsing.CompilationPipeline;
 import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.MappedFileInput;
+import de.fdamken.yalp.parsing.SymbolTable;
+import de.fdamken.yalp.parsing.ast.representation.Keyword;
 import de.fdamken.yalp.parsing.exception.CompilationException;
 import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
 import de.fdamken.yalp.parsing.tt.compile.TokenTreeParser;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.SimpleTokenTreeElement;
 import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeContainer;
+import de.fdamken.yalp.parsing.tt.representation.TokenTreeElement;
 
 @SuppressWarnings("javadoc")
 public class TokenTreeParserTest {
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private static final CompilationPipeline<Input, TokenTree> COMPILER = new CompilationPipeline<>(new TokenTreeParser());
 
     @Test
@@ -135,8 +159,142 @@ public class TokenTreeParserTest {
         this.check("; Hello, World!\n(+ 1 2)", builder.getTokenTree());
     }
 
+    @Test
+    public void testCharLiteral() throws CompilationException {
+        final TokenTreeBuilder builder = new TokenTreeBuilder();
+        builder.openContainer();
+        builder.addElement("list");
+        builder.addElement("#\\a");
+        builder.addElement("#\\t");
+        builder.addElement("#t");
+        builder.closeContainer();
+
+        final TokenTree expected = builder.getTokenTree();
+        final TokenTree lexed = TokenTreeParserTest.COMPILER.parse(new Input("(list #\\a #\\t #t)"));
+        Assert.assertEquals(expected, lexed);
+        Assert.assertEquals(expected.getRootContainer().hashCode(), lexed.getRootContainer().hashCode());
+        this.check(new Input(new ByteArrayInputStream("(list #\\a #\\t #t)".getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8), expected);
+    }
+
+    @Test
+    public void testMappedFile() throws CompilationException, IOException {
+        final String code = "(define (f x) ; \u00fcber\n(string-append \"gr\u00fc\u00dfe\" x))";
+        final Path file = this.temporaryFolder.newFile().toPath();
+        Files.write(file, code.getBytes(StandardCharsets.UTF_8));
+
+        final TokenTree expected = TokenTreeParserTest.COMPILER.parse(new Input(code));
+        this.check(MappedFileInput.map(file, StandardCharsets.UTF_8), expected);
+        this.check(MappedFileInput.map(file, StandardCharsets.ISO_8859_1),
+                TokenTreeParserTest.COMPILER.parse(new Input(new String(code.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1))));
+    }
+
+    @Test
+    public void testUtf8Stream() throws CompilationException {
+        final String code = "(define (f x) ; \u00fcber\u2003\n(string-append \"gr\u00fc\u00dfe\" x\u2003\u00e9))";
+        final InputStream in = new ByteArrayInputStream(code.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(final byte[] b, final int off, final int len) {
+                // Split all multi-byte sequences.
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        this.check(new Input(in, StandardCharsets.UTF_8), TokenTreeParserTest.COMPILER.parse(new Input(code)));
+    }
+
+    @Test
+    public void testBulkSkipping() throws CompilationException {
+        // Place every stop character at every offset within a word.
+        final StringBuilder code = new StringBuilder();
+        for (int offset = 0; offset < 8; offset++) {
+            final String padding = "abcdefgh".substring(0, offset);
+            code.append("; ").append(padding).append("\u00fc (\n");
+            code.append("(f \"").append(padding).append("\\\\ \\\" ;x").append(padding).append("\n\")\n");
+        }
+
+        final TokenTree expected = TokenTreeParserTest.COMPILER.parse(new Input(code.toString()));
+        Assert.assertEquals(16, expected.getRootContainer().getElements().size());
+        this.check(new Input(new ByteArrayInputStream(code.toString().getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8),
+                expected);
+    }
+
+    @Test
+    public void testSymbols() throws CompilationException {
+        final TokenTree tokenTree = TokenTreeParserTest.COMPILER.parse(new Input("(define x (first x \"x\"))"));
+        final TokenTreeContainer root = tokenTree.getRootContainer();
+        final SimpleTokenTreeElement define = (SimpleTokenTreeElement) root.getElements().get(0);
+        final SimpleTokenTreeElement x = (SimpleTokenTreeElement) root.getElements().get(1);
+        final TokenTreeContainer call = (TokenTreeContainer) root.getElements().get(2);
+        final SimpleTokenTreeElement first = (SimpleTokenTreeElement) call.getElements().get(0);
+        final SimpleTokenTreeElement otherX = (SimpleTokenTreeElement) call.getElements().get(1);
+        final SimpleTokenTreeElement string = (SimpleTokenTreeElement) call.getElements().get(2);
+
+        Assert.assertEquals(Keyword.DEFINE, Keyword.fromSymbolId(define.getSymbolId()));
+        Assert.assertEquals(Keyword.FIRST, Keyword.fromSymbolId(first.getSymbolId()));
+        Assert.assertNull(Keyword.fromSymbolId(x.getSymbolId()));
+        Assert.assertEquals(x.getSymbolId(), otherX.getSymbolId());
+        Assert.assertSame(x.getContent(), otherX.getContent());
+        Assert.assertEquals("x", tokenTree.getSymbolTable().getSymbol(x.getSymbolId()));
+        Assert.assertEquals(SymbolTable.NO_SYMBOL, string.getSymbolId());
+    }
+
+    @Test
+    public void testParallel() throws CompilationException {
+        // Some lines starting with a bracket are inside of strings, comments
+        // or forms, which the pre-scan must not split at.
+        final String[] forms = { "(define (f x)\n(* x x))\n", "(print \"a\n(b\")\n", "; comment\n(g \u00fcber)\n",
+                "(h ; comment (\n(i))\n", "[j \\( k]\n" };
+        final StringBuilder code = new StringBuilder();
+        for (int i = 0; code.length() < 5 << 20; i++) {
+            code.append(forms[i % forms.length]);
+        }
+
+        final TokenTree expected = TokenTreeParserTest.COMPILER.parse(new Input(code.toString()));
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final TokenTreeParser parser = new TokenTreeParser(null, pool);
+            final TokenTree parallel = parser.parse(new Input(code.toString()));
+            Assert.assertEquals(expected, parallel);
+            Assert.assertEquals(TokenTreeParserTest.symbolIds(expected), TokenTreeParserTest.symbolIds(parallel));
+            final byte[] bytes = code.toString().getBytes(StandardCharsets.UTF_8);
+            final TokenTree parallelUtf8 = parser.parse(new Input(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8));
+            Assert.assertEquals(expected, parallelUtf8);
+            Assert.assertEquals(TokenTreeParserTest.symbolIds(expected), TokenTreeParserTest.symbolIds(parallelUtf8));
+            Assert.assertEquals(TokenTreeParserTest.COMPILER.parse(new Input(forms[3])), parser.parse(new Input(forms[3])));
+            try {
+                parser.parse(new Input(code + "(unclosed"));
+                Assert.fail("Unclosed brackets must not be accepted!");
+            } catch (final TokenTreeParsingException expectedException) {
+                // Expected.
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<Integer> symbolIds(final TokenTree tokenTree) {
+        final List<Integer> ids = new ArrayList<>();
+        final Deque<TokenTreeContainer> containers = new ArrayDeque<>();
+        containers.push(tokenTree.getRootContainer());
+        while (!containers.isEmpty()) {
+            for (final TokenTreeElement element : containers.pop()) {
+                if (element instanceof TokenTreeContainer) {
+                    containers.push((TokenTreeContainer) element);
+                } else {
+                    ids.add(((SimpleTokenTreeElement) element).getSymbolId());
+                }
+            }
+        }
+        return ids;
+    }
+
     private void check(final String code, final TokenTree tokenTree) throws CompilationException {
-        final TokenTree compiledTokenTree = TokenTreeParserTest.COMPILER.parse(new Input(code));
+        this.check(new Input(code), tokenTree);
+    }
+
+    private void check(final Input input, final TokenTree tokenTree) throws CompilationException {
+        final TokenTree compiledTokenTree = TokenTreeParserTest.COMPILER.parse(input);
         Assert.assertEquals("The built token tree does not match the expected token tree!", tokenTree, compiledTokenTree);
     }
 }
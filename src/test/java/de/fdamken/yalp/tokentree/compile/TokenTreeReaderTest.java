@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * Yet Another Lisp Parser
+ * %%
+ * Copyright (C) 2016 - 2016 Fabian Damken
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package de.fdamken.yalp.tokentree.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.fdamken.yalp.parsing.Input;
+import de.fdamken.yalp.parsing.exception.CompilationException;
+import de.fdamken.yalp.parsing.st.compile.SyntaxTreeReader;
+import de.fdamken.yalp.parsing.st.representation.SyntaxTree;
+import de.fdamken.yalp.parsing.st.representation.element.FunctionCall;
+import de.fdamken.yalp.parsing.st.representation.element.Literal;
+import de.fdamken.yalp.parsing.tt.compile.IncrementalTokenTreeLexer;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeBuilder;
+import de.fdamken.yalp.parsing.tt.compile.TokenTreeReader;
+import de.fdamken.yalp.parsing.tt.exception.TokenTreeParsingException;
+import de.fdamken.yalp.parsing.tt.representation.TokenTree;
+
+@SuppressWarnings("javadoc")
+public class TokenTreeReaderTest {
+    private static final String CODE = "(define x 1) ; A comment (with brackets)\n[+ x (* x \"(2)\")]";
+
+    @Test
+    public void testForms() throws CompilationException, IOException {
+        this.checkForms(new Input(TokenTreeReaderTest.CODE));
+    }
+
+    @Test
+    public void testUtf8Forms() throws CompilationException, IOException {
+        this.checkForms(new Input(new ByteArrayInputStream(TokenTreeReaderTest.CODE.getBytes(StandardCharsets.UTF_8)),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSyntaxTreeForms() throws CompilationException, IOException {
+        try (final SyntaxTreeReader reader = new SyntaxTreeReader(new TokenTreeReader(new Input(TokenTreeReaderTest.CODE)))) {
+            Assert.assertEquals(new SyntaxTree(new FunctionCall(new Literal("define"), new Literal("x"), new Literal("1"))),
+                    reader.read());
+            Assert.assertEquals(new SyntaxTree(new FunctionCall(new Literal("+"), new Literal("x"),
+                    new FunctionCall(new Literal("*"), new Literal("x"), new Literal("\"(2)\"")))), reader.read());
+            Assert.assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void testUnclosed() throws CompilationException, IOException {
+        try (final TokenTreeReader reader = new TokenTreeReader(new Input("(a) (b"))) {
+            Assert.assertNotNull(reader.read());
+            try {
+                reader.read();
+                Assert.fail("Unclosed brackets must not be accepted!");
+            } catch (final TokenTreeParsingException expected) {
+                // Expected.
+            }
+        }
+    }
+
+    @Test
+    public void testIncrementalBytes() throws CompilationException {
+        final List<TokenTree> forms = new ArrayList<>();
+        final IncrementalTokenTreeLexer lexer = new IncrementalTokenTreeLexer(forms::add);
+        final byte[] code = TokenTreeReaderTest.CODE.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < code.length; i++) {
+            lexer.feed(ByteBuffer.wrap(code, i, 1));
+            if (i == 10 || i == 11) {
+                Assert.assertEquals("The first form must be emitted on its closing bracket!", i - 10, forms.size());
+            }
+        }
+        lexer.finish();
+        Assert.assertEquals(2, forms.size());
+    }
+
+    @Test
+    public void testIncrementalChars() throws CompilationException {
+        final List<TokenTree> forms = new ArrayList<>();
+        final IncrementalTokenTreeLexer lexer = new IncrementalTokenTreeLexer(forms::add);
+        final CharBuffer buffer = CharBuffer.allocate(3);
+        for (final char c : TokenTreeReaderTest.CODE.toCharArray()) {
+            if (!buffer.hasRemaining()) {
+                buffer.flip();
+                lexer.feed(buffer);
+                buffer.clear();
+            }
+            buffer.put(c);
+        }
+        buffer.flip();
+        lexer.feed(buffer);
+        lexer.finish();
+        Assert.assertEquals(2, forms.size());
+        Assert.assertEquals("define", forms.get(0).getRootContainer().getElements().get(0).toString());
+    }
+
+    private void checkForms(final Input input) throws CompilationException, IOException {
+        final TokenTreeBuilder first = new TokenTreeBuilder();
+        first.openContainer();
+        first.addElement("define");
+        first.addElement("x");
+        first.addElement("1");
+        first.closeContainer();
+
+        final TokenTreeBuilder second = new TokenTreeBuilder();
+        second.openContainer();
+        second.addElement("+");
+        second.addElement("x");
+        second.openContainer();
+        second.addElement("*");
+        second.addElement("x");
+        second.addElement("\"(2)\"");
+        second.closeContainer();
+        second.closeContainer();
+
+        try (final TokenTreeReader reader = new TokenTreeReader(input)) {
+            final TokenTree firstForm = reader.read();
+            final TokenTree secondForm = reader.read();
+            Assert.assertEquals("The first form does not match!", first.getTokenTree(), firstForm);
+            Assert.assertEquals("The second form does not match!", second.getTokenTree(), secondForm);
+            Assert.assertSame("The forms must share the symbol table!", firstForm.getSymbolTable(), secondForm.getSymbolTable());
+            Assert.assertNull("There must not be more forms!", reader.read());
+        }
+    }
+}